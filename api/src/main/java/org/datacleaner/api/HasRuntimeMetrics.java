@@ -0,0 +1,37 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.api;
+
+import java.util.Map;
+
+/**
+ * Interface for components that keep track of metrics about their own
+ * execution, such as cache hits and misses, which may be of interest while a
+ * job is running.
+ */
+public interface HasRuntimeMetrics {
+
+    /**
+     * Gets the current runtime metrics of this component.
+     * 
+     * @return a map of metric names and their current values. Never null.
+     */
+    public Map<String, Number> getRuntimeMetrics();
+}
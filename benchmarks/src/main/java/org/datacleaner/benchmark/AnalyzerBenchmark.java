@@ -0,0 +1,111 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.beans.BooleanAnalyzer;
+import org.datacleaner.beans.NumberAnalyzer;
+import org.datacleaner.beans.StringAnalyzer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single component benchmarks of the analyzers in basic-analyzers. Each
+ * operation is the processing of a single row, and the analyzers are
+ * recreated for every iteration, so that their state does not keep growing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    @Param({ "10000" })
+    public int rowCount;
+
+    private InputRow[] _rows;
+    private int _rowIndex;
+
+    private StringAnalyzer _stringAnalyzer;
+    private NumberAnalyzer _numberAnalyzer;
+    private BooleanAnalyzer _booleanAnalyzer;
+
+    @Setup(Level.Trial)
+    public void setUpRows() {
+        final InputColumn<?>[] columns = BenchmarkData.createInputColumns();
+        _rows = BenchmarkData.createInputRows(columns, BenchmarkData.createRows(rowCount));
+    }
+
+    @Setup(Level.Iteration)
+    @SuppressWarnings("unchecked")
+    public void setUpAnalyzers() {
+        final InputColumn<?>[] columns = BenchmarkData.createInputColumns();
+
+        _stringAnalyzer = new StringAnalyzer((InputColumn<String>) columns[1], (InputColumn<String>) columns[2]);
+        _stringAnalyzer.init();
+
+        _numberAnalyzer = new NumberAnalyzer((InputColumn<Number>) columns[0], (InputColumn<Number>) columns[3]);
+        _numberAnalyzer.init();
+
+        _booleanAnalyzer = new BooleanAnalyzer(new InputColumn[] { columns[4] });
+        _booleanAnalyzer.init();
+
+        _rowIndex = 0;
+    }
+
+    private InputRow nextRow() {
+        final InputRow row = _rows[_rowIndex];
+        _rowIndex++;
+        if (_rowIndex == _rows.length) {
+            _rowIndex = 0;
+        }
+        return row;
+    }
+
+    @Benchmark
+    public void stringAnalyzer() {
+        _stringAnalyzer.run(nextRow(), 1);
+    }
+
+    @Benchmark
+    public void numberAnalyzer() {
+        _numberAnalyzer.run(nextRow(), 1);
+    }
+
+    @Benchmark
+    public void booleanAnalyzer() {
+        _booleanAnalyzer.run(nextRow(), 1);
+    }
+}
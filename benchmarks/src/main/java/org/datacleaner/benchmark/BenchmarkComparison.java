@@ -0,0 +1,157 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares two JMH result files (produced with "-rf json") and reports the
+ * relative change of each benchmark. Changes which are within the combined
+ * error margins of the two measurements are reported as insignificant.
+ *
+ * Usage: BenchmarkComparison baseline.json candidate.json [thresholdPercent]
+ *
+ * The program exits with status 1 if any benchmark has a significant
+ * regression larger than the threshold (default 5 percent), which makes it
+ * usable as a gate in a build pipeline.
+ */
+public final class BenchmarkComparison {
+
+    private static final double DEFAULT_THRESHOLD_PERCENT = 5.0;
+
+    private final Map<String, JsonNode> _baseline;
+    private final Map<String, JsonNode> _candidate;
+    private final double _thresholdPercent;
+
+    public BenchmarkComparison(File baselineFile, File candidateFile, double thresholdPercent) throws IOException {
+        final ObjectMapper objectMapper = new ObjectMapper();
+        _baseline = readResults(objectMapper.readTree(baselineFile));
+        _candidate = readResults(objectMapper.readTree(candidateFile));
+        _thresholdPercent = thresholdPercent;
+    }
+
+    private static Map<String, JsonNode> readResults(JsonNode root) {
+        final Map<String, JsonNode> results = new LinkedHashMap<>();
+        for (JsonNode result : root) {
+            results.put(createKey(result), result);
+        }
+        return results;
+    }
+
+    private static String createKey(JsonNode result) {
+        final StringBuilder sb = new StringBuilder(result.path("benchmark").asText());
+        final JsonNode params = result.get("params");
+        if (params != null) {
+            sb.append('(');
+            final Iterator<Entry<String, JsonNode>> it = params.fields();
+            while (it.hasNext()) {
+                final Entry<String, JsonNode> param = it.next();
+                sb.append(param.getKey()).append('=').append(param.getValue().asText());
+                if (it.hasNext()) {
+                    sb.append(", ");
+                }
+            }
+            sb.append(')');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Prints the comparison to {@link System#out}.
+     *
+     * @return the number of significant regressions beyond the threshold
+     */
+    public int compare() {
+        int regressions = 0;
+        for (Entry<String, JsonNode> entry : _candidate.entrySet()) {
+            final String key = entry.getKey();
+            final JsonNode baselineResult = _baseline.get(key);
+            if (baselineResult == null) {
+                System.out.println(key + ": no baseline");
+                continue;
+            }
+
+            final JsonNode candidateMetric = entry.getValue().path("primaryMetric");
+            final JsonNode baselineMetric = baselineResult.path("primaryMetric");
+            final double candidateScore = candidateMetric.path("score").asDouble();
+            final double baselineScore = baselineMetric.path("score").asDouble();
+            final double errorMargin = errorOf(candidateMetric) + errorOf(baselineMetric);
+            final String unit = candidateMetric.path("scoreUnit").asText();
+
+            final double difference = candidateScore - baselineScore;
+            final double changePercent = baselineScore == 0 ? 0 : difference * 100 / baselineScore;
+            final boolean significant = Math.abs(difference) > errorMargin;
+
+            // throughput is "higher is better", all other modes are times
+            final boolean higherIsBetter = "thrpt".equals(entry.getValue().path("mode").asText());
+            final double regressionPercent = higherIsBetter ? -changePercent : changePercent;
+
+            final String verdict;
+            if (!significant) {
+                verdict = "insignificant";
+            } else if (regressionPercent > _thresholdPercent) {
+                verdict = "REGRESSION";
+                regressions++;
+            } else if (regressionPercent < 0) {
+                verdict = "improvement";
+            } else {
+                verdict = "within threshold";
+            }
+
+            System.out.println(String.format("%s: %.3f -> %.3f %s (%+.2f%%, error margin %.3f) %s", key,
+                    baselineScore, candidateScore, unit, changePercent, errorMargin, verdict));
+        }
+        return regressions;
+    }
+
+    private static double errorOf(JsonNode metric) {
+        final double error = metric.path("scoreError").asDouble();
+        if (Double.isNaN(error)) {
+            // a single measurement iteration has no error estimate
+            return 0;
+        }
+        return error;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: " + BenchmarkComparison.class.getName()
+                    + " <baseline.json> <candidate.json> [thresholdPercent]");
+            System.exit(2);
+            return;
+        }
+        final double thresholdPercent = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        final BenchmarkComparison comparison = new BenchmarkComparison(new File(args[0]), new File(args[1]),
+                thresholdPercent);
+        final int regressions = comparison.compare();
+        if (regressions > 0) {
+            System.out.println(regressions + " benchmark(s) regressed more than " + thresholdPercent + "%");
+            System.exit(1);
+        }
+    }
+}
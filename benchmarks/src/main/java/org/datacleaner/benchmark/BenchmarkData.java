@@ -0,0 +1,129 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.metamodel.pojo.ArrayTableDataProvider;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.FileResource;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.PojoDatastore;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
+
+/**
+ * Generates the (deterministic) data used by the benchmarks.
+ */
+final class BenchmarkData {
+
+    public static final String TABLE_NAME = "customers";
+
+    public static final String[] COLUMN_NAMES = { "id", "name", "city", "amount", "active" };
+
+    private static final ColumnType[] COLUMN_TYPES = { ColumnType.INTEGER, ColumnType.VARCHAR, ColumnType.VARCHAR,
+            ColumnType.DOUBLE, ColumnType.BOOLEAN };
+
+    private static final String[] FIRST_NAMES = { "Kasper", "Ankit", "Tomasz", "Dennis", "Claudia", "Arjan",
+            "Jakub", "Alice", "Bob", "Eve" };
+
+    private static final String[] LAST_NAMES = { "Sørensen", "Kumar", "Sivok", "Jans", "Pinto", "Seijkens",
+            "Hanák", "Smith", "Johnson", "Williams" };
+
+    private static final String[] CITIES = { "Copenhagen", "Amsterdam", "Brno", "Hoofddorp", "New York", "London",
+            "Delhi", "Prague", "Utrecht", null };
+
+    private BenchmarkData() {
+        // prevent instantiation
+    }
+
+    /**
+     * Creates the rows of the benchmark table. A fixed seed is used, so that
+     * repeated runs (and runs of different builds) process the same data.
+     * 
+     * @param rowCount
+     * @return
+     */
+    public static List<Object[]> createRows(int rowCount) {
+        final Random random = new Random(rowCount);
+        final List<Object[]> rows = new ArrayList<>(rowCount);
+        for (int i = 0; i < rowCount; i++) {
+            final String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            final String city = CITIES[random.nextInt(CITIES.length)];
+            final double amount = Math.round(random.nextGaussian() * 100000) / 100d;
+            final boolean active = random.nextBoolean();
+            rows.add(new Object[] { i, name, city, amount, active });
+        }
+        return rows;
+    }
+
+    public static Datastore createPojoDatastore(String name, List<Object[]> rows) {
+        final SimpleTableDef tableDef = new SimpleTableDef(TABLE_NAME, COLUMN_NAMES, COLUMN_TYPES);
+        return new PojoDatastore(name, new ArrayTableDataProvider(tableDef, rows));
+    }
+
+    public static Datastore createCsvDatastore(String name, List<Object[]> rows, File file) throws IOException {
+        try (Writer writer = FileHelper.getBufferedWriter(file, FileHelper.UTF_8_ENCODING)) {
+            writer.write(String.join(",", COLUMN_NAMES));
+            writer.write('\n');
+            for (Object[] row : rows) {
+                for (int i = 0; i < row.length; i++) {
+                    if (i != 0) {
+                        writer.write(',');
+                    }
+                    if (row[i] != null) {
+                        writer.write('"');
+                        writer.write(row[i].toString());
+                        writer.write('"');
+                    }
+                }
+                writer.write('\n');
+            }
+        }
+        return new CsvDatastore(name, new FileResource(file));
+    }
+
+    public static InputColumn<?>[] createInputColumns() {
+        return new InputColumn<?>[] { new MockInputColumn<>(COLUMN_NAMES[0], Integer.class),
+                new MockInputColumn<>(COLUMN_NAMES[1], String.class),
+                new MockInputColumn<>(COLUMN_NAMES[2], String.class),
+                new MockInputColumn<>(COLUMN_NAMES[3], Double.class),
+                new MockInputColumn<>(COLUMN_NAMES[4], Boolean.class) };
+    }
+
+    public static InputRow[] createInputRows(InputColumn<?>[] columns, List<Object[]> rows) {
+        final InputRow[] inputRows = new InputRow[rows.size()];
+        for (int i = 0; i < inputRows.length; i++) {
+            inputRows[i] = new MockInputRow(i, columns, rows.get(i));
+        }
+        return inputRows;
+    }
+}
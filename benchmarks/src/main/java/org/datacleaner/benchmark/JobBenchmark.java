@@ -0,0 +1,204 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.beans.CompletenessAnalyzer;
+import org.datacleaner.beans.NumberAnalyzer;
+import org.datacleaner.beans.StringAnalyzer;
+import org.datacleaner.beans.filter.NullCheckFilter;
+import org.datacleaner.beans.filter.NullCheckFilter.NullCheckCategory;
+import org.datacleaner.beans.transform.ConcatenatorTransformer;
+import org.datacleaner.beans.transform.TextCaseTransformer;
+import org.datacleaner.components.convert.ConvertToNumberTransformer;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.data.MetaModelInputColumn;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.AnalyzerComponentBuilder;
+import org.datacleaner.job.builder.FilterComponentBuilder;
+import org.datacleaner.job.builder.TransformerComponentBuilder;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.util.SystemProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end benchmark of running a job through {@link AnalysisRunnerImpl}.
+ * The job has a filter, a few transformers and a few analyzers, which is
+ * representative of a typical profiling job.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class JobBenchmark {
+
+    @Param({ "pojo", "csv" })
+    public String datastoreType;
+
+    @Param({ "single", "multi", "forkjoin" })
+    public String taskRunnerType;
+
+    @Param({ "100000" })
+    public int rowCount;
+
+    @Param({ "1", "256" })
+    public int batchSize;
+
+    private TaskRunner _taskRunner;
+    private File _csvFile;
+    private DataCleanerConfiguration _configuration;
+    private AnalysisJob _job;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        System.setProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE, Integer.toString(batchSize));
+
+        final List<Object[]> rows = BenchmarkData.createRows(rowCount);
+
+        final Datastore datastore;
+        switch (datastoreType) {
+        case "pojo":
+            datastore = BenchmarkData.createPojoDatastore("benchmark", rows);
+            break;
+        case "csv":
+            _csvFile = File.createTempFile("datacleaner_benchmark", ".csv");
+            _csvFile.deleteOnExit();
+            datastore = BenchmarkData.createCsvDatastore("benchmark", rows, _csvFile);
+            break;
+        default:
+            throw new IllegalArgumentException("Unsupported datastore type: " + datastoreType);
+        }
+
+        _taskRunner = createTaskRunner(taskRunnerType);
+        _configuration = new DataCleanerConfigurationImpl().withDatastores(datastore).withEnvironment(
+                new DataCleanerEnvironmentImpl().withTaskRunner(_taskRunner));
+        _job = createJob(_configuration, datastore);
+    }
+
+    static TaskRunner createTaskRunner(String taskRunnerType) {
+        final int parallelism = Runtime.getRuntime().availableProcessors();
+        switch (taskRunnerType) {
+        case "single":
+            return new SingleThreadedTaskRunner();
+        case "multi":
+            return new MultiThreadedTaskRunner(parallelism);
+        case "forkjoin":
+            return new ForkJoinTaskRunner(parallelism);
+        default:
+            throw new IllegalArgumentException("Unsupported task runner type: " + taskRunnerType);
+        }
+    }
+
+    private AnalysisJob createJob(DataCleanerConfiguration configuration, Datastore datastore) {
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            for (String columnName : BenchmarkData.COLUMN_NAMES) {
+                jobBuilder.addSourceColumns(BenchmarkData.TABLE_NAME + "." + columnName);
+            }
+            final MetaModelInputColumn nameColumn = jobBuilder.getSourceColumnByName("name");
+            final MetaModelInputColumn cityColumn = jobBuilder.getSourceColumnByName("city");
+            final MetaModelInputColumn amountColumn = jobBuilder.getSourceColumnByName("amount");
+
+            final FilterComponentBuilder<NullCheckFilter, NullCheckCategory> nullCheck = jobBuilder
+                    .addFilter(NullCheckFilter.class);
+            nullCheck.addInputColumn(cityColumn);
+
+            final TransformerComponentBuilder<ConcatenatorTransformer> concatenator = jobBuilder
+                    .addTransformer(ConcatenatorTransformer.class);
+            concatenator.addInputColumns(nameColumn, cityColumn);
+            concatenator.setConfiguredProperty("Separator", ", ");
+            concatenator.setRequirement(nullCheck, NullCheckCategory.NOT_NULL);
+
+            final TransformerComponentBuilder<TextCaseTransformer> textCase = jobBuilder
+                    .addTransformer(TextCaseTransformer.class);
+            textCase.addInputColumn(concatenator.getOutputColumns().get(0));
+
+            final TransformerComponentBuilder<ConvertToNumberTransformer> convertToNumber = jobBuilder
+                    .addTransformer(ConvertToNumberTransformer.class);
+            convertToNumber.addInputColumn(amountColumn);
+
+            final AnalyzerComponentBuilder<StringAnalyzer> stringAnalyzer = jobBuilder
+                    .addAnalyzer(StringAnalyzer.class);
+            stringAnalyzer.addInputColumns(nameColumn, cityColumn);
+            stringAnalyzer.addInputColumns(textCase.getOutputColumns());
+
+            final AnalyzerComponentBuilder<NumberAnalyzer> numberAnalyzer = jobBuilder
+                    .addAnalyzer(NumberAnalyzer.class);
+            numberAnalyzer.addInputColumns(convertToNumber.getOutputColumns());
+
+            final AnalyzerComponentBuilder<CompletenessAnalyzer> completenessAnalyzer = jobBuilder
+                    .addAnalyzer(CompletenessAnalyzer.class);
+            completenessAnalyzer.addInputColumns(jobBuilder.getSourceColumns());
+            final CompletenessAnalyzer.Condition[] conditions = new CompletenessAnalyzer.Condition[jobBuilder
+                    .getSourceColumns().size()];
+            for (int i = 0; i < conditions.length; i++) {
+                conditions[i] = CompletenessAnalyzer.Condition.NOT_BLANK_OR_NULL;
+            }
+            completenessAnalyzer.setConfiguredProperty(CompletenessAnalyzer.PROPERTY_CONDITIONS, conditions);
+
+            return jobBuilder.toAnalysisJob();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.clearProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE);
+        _taskRunner.shutdown();
+        if (_csvFile != null) {
+            _csvFile.delete();
+        }
+    }
+
+    @Benchmark
+    public AnalysisResultFuture runJob() {
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(_configuration).run(_job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw new IllegalStateException("Benchmark job failed", resultFuture.getErrors().get(0));
+        }
+        return resultFuture;
+    }
+}
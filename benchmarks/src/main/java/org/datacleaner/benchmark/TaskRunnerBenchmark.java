@@ -0,0 +1,111 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.job.concurrent.JoinTaskListener;
+import org.datacleaner.job.concurrent.TaskListener;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.tasks.Task;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the {@link TaskRunner} implementations of
+ * org.datacleaner.job.concurrent, by scheduling a batch of tasks and joining
+ * them with a {@link JoinTaskListener}, which is how the row processing engine
+ * schedules work. A task work of 0 measures the scheduling overhead only.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TaskRunnerBenchmark {
+
+    @Param({ "single", "multi", "forkjoin" })
+    public String taskRunnerType;
+
+    @Param({ "1000" })
+    public int taskCount;
+
+    @Param({ "0", "1000" })
+    public int taskWork;
+
+    private TaskRunner _taskRunner;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        _taskRunner = JobBenchmark.createTaskRunner(taskRunnerType);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        _taskRunner.shutdown();
+    }
+
+    @Benchmark
+    public void runAndJoinTasks() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final TaskListener joinListener = new JoinTaskListener(taskCount, new TaskListener() {
+            @Override
+            public void onBegin(Task task) {
+            }
+
+            @Override
+            public void onComplete(Task task) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Task task, Throwable throwable) {
+                latch.countDown();
+            }
+        });
+
+        final int work = taskWork;
+        final Task task = new Task() {
+            @Override
+            public void execute() throws Exception {
+                Blackhole.consumeCPU(work);
+            }
+        };
+
+        for (int i = 0; i < taskCount; i++) {
+            _taskRunner.run(task, joinListener);
+        }
+        latch.await();
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.beans.transform.ConcatenatorTransformer;
+import org.datacleaner.beans.transform.TextCaseTransformer;
+import org.datacleaner.beans.transform.TokenizerTransformer;
+import org.datacleaner.beans.transform.WhitespaceTrimmerTransformer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Single component benchmarks of the transformers in basic-transformers. Each
+ * operation is the transformation of a single row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TransformerBenchmark {
+
+    @Param({ "10000" })
+    public int rowCount;
+
+    private InputRow[] _rows;
+    private int _rowIndex;
+
+    private InputColumn<String> _nameColumn;
+    private ConcatenatorTransformer _concatenator;
+    private TokenizerTransformer _tokenizer;
+    private WhitespaceTrimmerTransformer _whitespaceTrimmer;
+    private TextCaseTransformer _textCase;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        final InputColumn<?>[] columns = BenchmarkData.createInputColumns();
+        _rows = BenchmarkData.createInputRows(columns, BenchmarkData.createRows(rowCount));
+        _rowIndex = 0;
+
+        _nameColumn = (InputColumn<String>) columns[1];
+        _concatenator = new ConcatenatorTransformer(", ", new InputColumn[] { columns[1], columns[2] });
+        _tokenizer = new TokenizerTransformer(_nameColumn, 2);
+        _whitespaceTrimmer = new WhitespaceTrimmerTransformer(true, true, true);
+        _textCase = new TextCaseTransformer();
+    }
+
+    private InputRow nextRow() {
+        final InputRow row = _rows[_rowIndex];
+        _rowIndex++;
+        if (_rowIndex == _rows.length) {
+            _rowIndex = 0;
+        }
+        return row;
+    }
+
+    @Benchmark
+    public String[] concatenator() {
+        return _concatenator.transform(nextRow());
+    }
+
+    @Benchmark
+    public String[] tokenizer() {
+        return _tokenizer.transform(nextRow());
+    }
+
+    @Benchmark
+    public String whitespaceTrimmer() {
+        return _whitespaceTrimmer.transform(nextRow().getValue(_nameColumn));
+    }
+
+    @Benchmark
+    public String textCase() {
+        return _textCase.transform(nextRow().getValue(_nameColumn));
+    }
+}
@@ -138,24 +138,24 @@ public class BooleanAnalyzer implements Analyzer<BooleanAnalyzerResult> {
             CrosstabNavigator<Number> nav = crosstab.navigate().where(columnDimension, column.getName());
             BooleanAnalyzerColumnDelegate delegate = _columnDelegates.get(column);
 
-            nav.where(measureDimension, MEASURE_ROW_COUNT).put(delegate.getRowCount());
+            nav.where(measureDimension, MEASURE_ROW_COUNT).put(ColumnCounters.toNumber(delegate.getRowCount()));
 
-            int nullCount = delegate.getNullCount();
-            nav.where(measureDimension, MEASURE_NULL_COUNT).put(nullCount);
+            long nullCount = delegate.getNullCount();
+            nav.where(measureDimension, MEASURE_NULL_COUNT).put(ColumnCounters.toNumber(nullCount));
             if (nullCount > 0) {
                 nav.attach(new AnnotatedRowsResult(delegate.getNullAnnotation(), _annotationFactory, column));
             }
 
-            RowAnnotation annotation = delegate.getTrueAnnotation();
-            nav.where(measureDimension, MEASURE_TRUE_COUNT).put(annotation.getRowCount());
-            if (annotation.getRowCount() > 0) {
-                nav.attach(new AnnotatedRowsResult(annotation, _annotationFactory, column));
+            long trueCount = delegate.getTrueCount();
+            nav.where(measureDimension, MEASURE_TRUE_COUNT).put(ColumnCounters.toNumber(trueCount));
+            if (trueCount > 0) {
+                nav.attach(new AnnotatedRowsResult(delegate.getTrueAnnotation(), _annotationFactory, column));
             }
 
-            annotation = delegate.getFalseAnnotation();
-            nav.where(measureDimension, MEASURE_FALSE_COUNT).put(annotation.getRowCount());
-            if (annotation.getRowCount() > 0) {
-                nav.attach(new AnnotatedRowsResult(annotation, _annotationFactory, column));
+            long falseCount = delegate.getFalseCount();
+            nav.where(measureDimension, MEASURE_FALSE_COUNT).put(ColumnCounters.toNumber(falseCount));
+            if (falseCount > 0) {
+                nav.attach(new AnnotatedRowsResult(delegate.getFalseAnnotation(), _annotationFactory, column));
             }
         }
 
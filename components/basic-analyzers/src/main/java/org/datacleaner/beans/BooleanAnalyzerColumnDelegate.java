@@ -23,13 +23,21 @@ import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 
+/**
+ * Helper class for the Boolean Analyzer, which counts the values of a single
+ * column. The Boolean Analyzer is not concurrent, so the counters are plain
+ * fields.
+ */
 final class BooleanAnalyzerColumnDelegate {
 
 	private final RowAnnotationFactory _annotationFactory;
 	private final RowAnnotation _nullAnnotation;
 	private final RowAnnotation _trueAnnotation;
 	private final RowAnnotation _falseAnnotation;
-	private volatile int _rowCount;
+	private long _rowCount;
+	private long _nullCount;
+	private long _trueCount;
+	private long _falseCount;
 
 	public BooleanAnalyzerColumnDelegate(RowAnnotationFactory annotationFactory) {
 		_annotationFactory = annotationFactory;
@@ -41,22 +49,33 @@ final class BooleanAnalyzerColumnDelegate {
 	public void run(Boolean value, InputRow row, int distinctCount) {
 		_rowCount += distinctCount;
 		if (value == null) {
+			_nullCount += distinctCount;
 			_annotationFactory.annotate(row, distinctCount, _nullAnnotation);
 		} else {
 			if (value.booleanValue()) {
+				_trueCount += distinctCount;
 				_annotationFactory.annotate(row, distinctCount, _trueAnnotation);
 			} else {
+				_falseCount += distinctCount;
 				_annotationFactory.annotate(row, distinctCount, _falseAnnotation);
 			}
 		}
 	}
 
-	public int getRowCount() {
+	public long getRowCount() {
 		return _rowCount;
 	}
 
-	public int getNullCount() {
-		return _nullAnnotation.getRowCount();
+	public long getNullCount() {
+		return _nullCount;
+	}
+
+	public long getTrueCount() {
+		return _trueCount;
+	}
+
+	public long getFalseCount() {
+		return _falseCount;
 	}
 
 	public RowAnnotation getFalseAnnotation() {
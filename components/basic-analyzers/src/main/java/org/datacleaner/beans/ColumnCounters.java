@@ -0,0 +1,104 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.List;
+
+import org.datacleaner.util.ShardPool;
+
+/**
+ * A set of long counters for a column delegate, which is split into shards.
+ * Each call of the delegate borrows a shard of counters, increments it and
+ * releases it again, so that concurrently running calls do not contend on
+ * shared fields or locks. The shards are summed up when the result is built.
+ *
+ * The shard returned by {@link #borrow()} is only used by the calling thread
+ * until it is given back with {@link #release(long[])}, so it is updated with
+ * plain writes. Releasing the shard publishes the counts.
+ */
+final class ColumnCounters {
+
+    private final ShardPool<long[]> _shards;
+    private final long[] _sums;
+
+    public ColumnCounters(final int numCounters) {
+        _shards = new ShardPool<long[]>() {
+            @Override
+            protected long[] createShard() {
+                return new long[numCounters];
+            }
+        };
+        _sums = new long[numCounters];
+    }
+
+    /**
+     * Borrows a shard of counters for the calling thread.
+     * 
+     * @return
+     */
+    public long[] borrow() {
+        return _shards.borrow();
+    }
+
+    /**
+     * Releases a shard of counters that was borrowed with {@link #borrow()}.
+     * 
+     * @param shard
+     */
+    public void release(long[] shard) {
+        _shards.release(shard);
+    }
+
+    /**
+     * Gets the sum of a counter across all shards. Must only be called while
+     * no values are being counted, eg. when the result is built.
+     * 
+     * @param counter
+     *            the index of the counter
+     * @return
+     */
+    public long sum(int counter) {
+        synchronized (_sums) {
+            final List<long[]> shards = _shards.drain();
+            for (long[] shard : shards) {
+                for (int i = 0; i < _sums.length; i++) {
+                    _sums[i] += shard[i];
+                }
+            }
+            return _sums[counter];
+        }
+    }
+
+    /**
+     * Converts a count to the number that is put into a result. Counts are
+     * represented as integers while they are within the integer range, in order
+     * to stay comparable with results of previous versions, and as longs
+     * otherwise.
+     * 
+     * @param count
+     * @return
+     */
+    public static Number toNumber(long count) {
+        if (count >= Integer.MIN_VALUE && count <= Integer.MAX_VALUE) {
+            return Integer.valueOf((int) count);
+        }
+        return Long.valueOf(count);
+    }
+}
@@ -134,10 +134,10 @@ public class DateAndTimeAnalyzer implements Analyzer<DateAndTimeAnalyzerResult>
 
             nav.where(columnDimension, column.getName());
 
-            nav.where(measureDimension, MEASURE_ROW_COUNT).put(delegate.getNumRows());
+            nav.where(measureDimension, MEASURE_ROW_COUNT).put(ColumnCounters.toNumber(delegate.getNumRows()));
 
-            final int numNull = delegate.getNumNull();
-            nav.where(measureDimension, MEASURE_NULL_COUNT).put(numNull);
+            final long numNull = delegate.getNumNull();
+            nav.where(measureDimension, MEASURE_NULL_COUNT).put(ColumnCounters.toNumber(numNull));
             if (numNull > 0) {
                 nav.attach(AnnotatedRowsResult.createIfSampleRowsAvailable(delegate.getNullAnnotation(), _annotationFactory, column));
             }
@@ -19,14 +19,18 @@
  */
 package org.datacleaner.beans;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
+import org.apache.commons.math.stat.descriptive.AggregateSummaryStatistics;
 import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math.stat.descriptive.StatisticalSummary;
 import org.apache.commons.math.stat.descriptive.SummaryStatistics;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
+import org.datacleaner.util.ShardPool;
 import org.joda.time.LocalDate;
 import org.joda.time.LocalTime;
 
@@ -35,18 +39,28 @@ import org.joda.time.LocalTime;
  * statistics for a single column. The Date/time Analyzer then consists of a
  * number of these delegates.
  * 
- * 
+ * Counts and statistics are accumulated in shards that each call borrows for
+ * its own use, and merged when the result is built. Only values that are at or
+ * beyond the current min/max bounds need to take the lock that guards the
+ * min/max values and their annotations.
  */
 final class DateAndTimeAnalyzerColumnDelegate {
 
+    private static final int COUNTER_ROWS = 0;
+    private static final int COUNTER_NULL = 1;
+    private static final int NUM_COUNTERS = 2;
+
     private final RowAnnotationFactory _annotationFactory;
     private final RowAnnotation _nullAnnotation;
     private final RowAnnotation _maxDateAnnotation;
     private final RowAnnotation _minDateAnnotation;
     private final RowAnnotation _maxTimeAnnotation;
     private final RowAnnotation _minTimeAnnotation;
-    private final StatisticalSummary _statistics;
-    private volatile int _numRows;
+    private final boolean _descriptiveStatistics;
+    private final ColumnCounters _counters;
+    private final ShardPool<StatisticalSummary> _statisticsShards;
+    private final List<StatisticalSummary> _drainedStatistics;
+    private StatisticalSummary _mergedStatistics;
     private volatile LocalDate _minDate;
     private volatile LocalDate _maxDate;
     private volatile LocalTime _minTime;
@@ -59,73 +73,154 @@ final class DateAndTimeAnalyzerColumnDelegate {
         _minDateAnnotation = _annotationFactory.createAnnotation();
         _maxTimeAnnotation = _annotationFactory.createAnnotation();
         _minTimeAnnotation = _annotationFactory.createAnnotation();
-        _numRows = 0;
-        if (descriptiveStatistics) {
-            _statistics = new DescriptiveStatistics();
+        _descriptiveStatistics = descriptiveStatistics;
+        _counters = new ColumnCounters(NUM_COUNTERS);
+        _statisticsShards = new ShardPool<StatisticalSummary>() {
+            @Override
+            protected StatisticalSummary createShard() {
+                return createStatistics();
+            }
+        };
+        _drainedStatistics = new ArrayList<StatisticalSummary>();
+    }
+
+    private StatisticalSummary createStatistics() {
+        if (_descriptiveStatistics) {
+            return new DescriptiveStatistics();
         } else {
-            _statistics = new SummaryStatistics();
+            return new SummaryStatistics();
         }
     }
 
-    public synchronized void run(final Date value, final InputRow row, final int distinctCount) {
-        _numRows += distinctCount;
+    public void run(final Date value, final InputRow row, final int distinctCount) {
+        final long[] counters = _counters.borrow();
+        counters[COUNTER_ROWS] += distinctCount;
         if (value == null) {
+            counters[COUNTER_NULL] += distinctCount;
+            _counters.release(counters);
             _annotationFactory.annotate(row, distinctCount, _nullAnnotation);
-        } else {
-            final long timestamp = value.getTime();
+            return;
+        }
+        _counters.release(counters);
+
+        final long timestamp = value.getTime();
 
+        final StatisticalSummary statistics = _statisticsShards.borrow();
+        try {
             for (int i = 0; i < distinctCount; i++) {
-                if (_statistics instanceof DescriptiveStatistics) {
-                    ((DescriptiveStatistics) _statistics).addValue(timestamp);
+                if (statistics instanceof DescriptiveStatistics) {
+                    ((DescriptiveStatistics) statistics).addValue(timestamp);
                 } else {
-                    ((SummaryStatistics) _statistics).addValue(timestamp);
+                    ((SummaryStatistics) statistics).addValue(timestamp);
                 }
             }
+        } finally {
+            _statisticsShards.release(statistics);
+        }
 
-            LocalDate localDate = new LocalDate(value);
-            LocalTime localTime = new LocalTime(value);
-            if (_minDate == null) {
-                // first non-null value
-                _minDate = localDate;
+        final LocalDate localDate = new LocalDate(value);
+        final LocalTime localTime = new LocalTime(value);
+
+        // the bounds only ever widen, so values strictly within the current
+        // bounds can skip the lock
+        final LocalDate minDate = _minDate;
+        final LocalDate maxDate = _maxDate;
+        final LocalTime minTime = _minTime;
+        final LocalTime maxTime = _maxTime;
+        if (minDate == null || maxDate == null || minTime == null || maxTime == null
+                || !localDate.isAfter(minDate) || !localDate.isBefore(maxDate) || !localTime.isAfter(minTime)
+                || !localTime.isBefore(maxTime)) {
+            runBounds(localDate, localTime, row, distinctCount);
+        }
+    }
+
+    private synchronized void runBounds(final LocalDate localDate, final LocalTime localTime, final InputRow row,
+            final int distinctCount) {
+        if (_minDate == null) {
+            // first non-null value
+            _minDate = localDate;
+            _maxDate = localDate;
+            _minTime = localTime;
+            _maxTime = localTime;
+        } else {
+            if (localDate.isAfter(_maxDate)) {
                 _maxDate = localDate;
-                _minTime = localTime;
-                _maxTime = localTime;
-            } else {
-                if (localDate.isAfter(_maxDate)) {
-                    _maxDate = localDate;
-                    _annotationFactory.resetAnnotation(_maxDateAnnotation);
-                } else if (localDate.isBefore(_minDate)) {
-                    _minDate = localDate;
-                    _annotationFactory.resetAnnotation(_minDateAnnotation);
-                }
+                _annotationFactory.resetAnnotation(_maxDateAnnotation);
+            } else if (localDate.isBefore(_minDate)) {
+                _minDate = localDate;
+                _annotationFactory.resetAnnotation(_minDateAnnotation);
+            }
 
-                if (localTime.isAfter(_maxTime)) {
-                    _maxTime = localTime;
-                    _annotationFactory.resetAnnotation(_maxTimeAnnotation);
-                } else if (localTime.isBefore(_minTime)) {
-                    _minTime = localTime;
-                    _annotationFactory.resetAnnotation(_minTimeAnnotation);
-                }
+            if (localTime.isAfter(_maxTime)) {
+                _maxTime = localTime;
+                _annotationFactory.resetAnnotation(_maxTimeAnnotation);
+            } else if (localTime.isBefore(_minTime)) {
+                _minTime = localTime;
+                _annotationFactory.resetAnnotation(_minTimeAnnotation);
             }
+        }
+
+        if (localDate.isEqual(_maxDate)) {
+            _annotationFactory.annotate(row, distinctCount, _maxDateAnnotation);
+        }
+        if (localDate.isEqual(_minDate)) {
+            _annotationFactory.annotate(row, distinctCount, _minDateAnnotation);
+        }
 
-            if (localDate.isEqual(_maxDate)) {
-                _annotationFactory.annotate(row, distinctCount, _maxDateAnnotation);
+        if (localTime.isEqual(_maxTime)) {
+            _annotationFactory.annotate(row, distinctCount, _maxTimeAnnotation);
+        }
+        if (localTime.isEqual(_minTime)) {
+            _annotationFactory.annotate(row, distinctCount, _minTimeAnnotation);
+        }
+    }
+
+    /**
+     * Gets the statistics of all shards. If more than one shard has been used,
+     * the statistics are merged into a new object. Must only be called while
+     * no values are being analyzed.
+     * 
+     * @return
+     */
+    private StatisticalSummary getStatistics() {
+        synchronized (_drainedStatistics) {
+            final List<StatisticalSummary> drained = _statisticsShards.drain();
+            if (!drained.isEmpty()) {
+                _drainedStatistics.addAll(drained);
+                _mergedStatistics = null;
             }
-            if (localDate.isEqual(_minDate)) {
-                _annotationFactory.annotate(row, distinctCount, _minDateAnnotation);
+            if (_mergedStatistics == null) {
+                _mergedStatistics = mergeStatistics(_drainedStatistics);
             }
+            return _mergedStatistics;
+        }
+    }
 
-            if (localTime.isEqual(_maxTime)) {
-                _annotationFactory.annotate(row, distinctCount, _maxTimeAnnotation);
-            }
-            if (localTime.isEqual(_minTime)) {
-                _annotationFactory.annotate(row, distinctCount, _minTimeAnnotation);
+    private StatisticalSummary mergeStatistics(List<StatisticalSummary> shards) {
+        if (shards.isEmpty()) {
+            return createStatistics();
+        }
+        if (shards.size() == 1) {
+            return shards.get(0);
+        }
+        if (_descriptiveStatistics) {
+            final DescriptiveStatistics result = new DescriptiveStatistics();
+            for (StatisticalSummary shard : shards) {
+                for (double value : ((DescriptiveStatistics) shard).getValues()) {
+                    result.addValue(value);
+                }
             }
+            return result;
+        }
+        final List<SummaryStatistics> summaryShards = new ArrayList<SummaryStatistics>(shards.size());
+        for (StatisticalSummary shard : shards) {
+            summaryShards.add((SummaryStatistics) shard);
         }
+        return AggregateSummaryStatistics.aggregate(summaryShards);
     }
 
     public Date getMean() {
-        double meanTimestamp = _statistics.getMean();
+        double meanTimestamp = getStatistics().getMean();
         if (Double.isNaN(meanTimestamp)) {
             return null;
         }
@@ -133,8 +228,9 @@ final class DateAndTimeAnalyzerColumnDelegate {
     }
 
     public Date getMedian() {
-        if (_statistics instanceof DescriptiveStatistics) {
-            double medianTimestamp = ((DescriptiveStatistics) _statistics).getPercentile(50.0);
+        final StatisticalSummary statistics = getStatistics();
+        if (statistics instanceof DescriptiveStatistics) {
+            double medianTimestamp = ((DescriptiveStatistics) statistics).getPercentile(50.0);
             if (Double.isNaN(medianTimestamp)) {
                 return null;
             }
@@ -144,8 +240,9 @@ final class DateAndTimeAnalyzerColumnDelegate {
     }
 
     public Date getPercentile25() {
-        if (_statistics instanceof DescriptiveStatistics) {
-            double percentileTimestamp = ((DescriptiveStatistics) _statistics).getPercentile(25.0);
+        final StatisticalSummary statistics = getStatistics();
+        if (statistics instanceof DescriptiveStatistics) {
+            double percentileTimestamp = ((DescriptiveStatistics) statistics).getPercentile(25.0);
             if (Double.isNaN(percentileTimestamp)) {
                 return null;
             }
@@ -155,8 +252,9 @@ final class DateAndTimeAnalyzerColumnDelegate {
     }
 
     public Date getPercentile75() {
-        if (_statistics instanceof DescriptiveStatistics) {
-            double percentileTimestamp = ((DescriptiveStatistics) _statistics).getPercentile(75.0);
+        final StatisticalSummary statistics = getStatistics();
+        if (statistics instanceof DescriptiveStatistics) {
+            double percentileTimestamp = ((DescriptiveStatistics) statistics).getPercentile(75.0);
             if (Double.isNaN(percentileTimestamp)) {
                 return null;
             }
@@ -166,8 +264,9 @@ final class DateAndTimeAnalyzerColumnDelegate {
     }
 
     public Number getKurtosis() {
-        if (_statistics instanceof DescriptiveStatistics) {
-            double result = ((DescriptiveStatistics) _statistics).getKurtosis();
+        final StatisticalSummary statistics = getStatistics();
+        if (statistics instanceof DescriptiveStatistics) {
+            double result = ((DescriptiveStatistics) statistics).getKurtosis();
             if (Double.isNaN(result)) {
                 return null;
             }
@@ -177,8 +276,9 @@ final class DateAndTimeAnalyzerColumnDelegate {
     }
 
     public Number getSkewness() {
-        if (_statistics instanceof DescriptiveStatistics) {
-            double result = ((DescriptiveStatistics) _statistics).getSkewness();
+        final StatisticalSummary statistics = getStatistics();
+        if (statistics instanceof DescriptiveStatistics) {
+            double result = ((DescriptiveStatistics) statistics).getSkewness();
             if (Double.isNaN(result)) {
                 return null;
             }
@@ -203,8 +303,8 @@ final class DateAndTimeAnalyzerColumnDelegate {
         return _minTime;
     }
 
-    public int getNumRows() {
-        return _numRows;
+    public long getNumRows() {
+        return _counters.sum(COUNTER_ROWS);
     }
 
     public RowAnnotation getNullAnnotation() {
@@ -227,8 +327,8 @@ final class DateAndTimeAnalyzerColumnDelegate {
         return _minTimeAnnotation;
     }
 
-    public int getNumNull() {
-        return _nullAnnotation.getRowCount();
+    public long getNumNull() {
+        return _counters.sum(COUNTER_NULL);
     }
 
 }
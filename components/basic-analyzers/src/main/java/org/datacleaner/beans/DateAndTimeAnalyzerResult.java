@@ -48,17 +48,25 @@ public class DateAndTimeAnalyzerResult extends CrosstabResult {
     }
 
     @Metric(order = 1, value = DateAndTimeAnalyzer.MEASURE_ROW_COUNT)
-    public int getRowCount(InputColumn<?> col) {
+    public long getRowCountAsLong(InputColumn<?> col) {
         Number n = (Number) getCrosstab().where(DateAndTimeAnalyzer.DIMENSION_COLUMN, col.getName())
                 .where(DateAndTimeAnalyzer.DIMENSION_MEASURE, DateAndTimeAnalyzer.MEASURE_ROW_COUNT).get();
-        return n.intValue();
+        return n.longValue();
+    }
+
+    public int getRowCount(InputColumn<?> col) {
+        return Math.toIntExact(getRowCountAsLong(col));
     }
 
     @Metric(order = 2, value = DateAndTimeAnalyzer.MEASURE_NULL_COUNT)
-    public int getNullCount(InputColumn<?> col) {
+    public long getNullCountAsLong(InputColumn<?> col) {
         Number n = (Number) getCrosstab().where(DateAndTimeAnalyzer.DIMENSION_COLUMN, col.getName())
                 .where(DateAndTimeAnalyzer.DIMENSION_MEASURE, DateAndTimeAnalyzer.MEASURE_NULL_COUNT).get();
-        return n.intValue();
+        return n.longValue();
+    }
+
+    public int getNullCount(InputColumn<?> col) {
+        return Math.toIntExact(getNullCountAsLong(col));
     }
 
     @Metric(order = 3, value = DateAndTimeAnalyzer.MEASURE_HIGHEST_DATE)
@@ -27,7 +27,6 @@ import javax.inject.Named;
 
 import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math.stat.descriptive.StatisticalSummary;
-import org.apache.commons.math.stat.descriptive.SummaryStatistics;
 import org.apache.commons.math.stat.descriptive.moment.SecondMoment;
 import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Concurrent;
@@ -83,6 +82,8 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
     public static final String MEASURE_KURTOSIS = "Kurtosis";
     public static final String MEASURE_SKEWNESS = "Skewness";
 
+    public static final String PROPERTY_PERCENTILE_RANK_ERROR = "Percentile rank error";
+
     private Map<InputColumn<? extends Number>, NumberAnalyzerColumnDelegate> _columnDelegates = new HashMap<InputColumn<? extends Number>, NumberAnalyzerColumnDelegate>();
 
     @Inject
@@ -94,6 +95,11 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
     @Description("Gather so-called descriptive statistics, including median, skewness, kurtosis and percentiles, which have a larger memory-footprint.")
     boolean descriptiveStatistics = false;
 
+    @Inject
+    @Configured(value = PROPERTY_PERCENTILE_RANK_ERROR, required = false)
+    @Description("When gathering descriptive statistics, estimate the median and percentiles with this maximum rank error (eg. 0.01 for 1%), using a sketch of bounded size instead of retaining all values. Set to 0 to calculate exact percentiles.")
+    double percentileRankError = 0;
+
     @Inject
     @Provided
     RowAnnotationFactory _annotationFactory;
@@ -112,7 +118,8 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
     @Initialize
     public void init() {
         for (InputColumn<? extends Number> column : _columns) {
-            _columnDelegates.put(column, new NumberAnalyzerColumnDelegate(descriptiveStatistics, _annotationFactory));
+            _columnDelegates.put(column, new NumberAnalyzerColumnDelegate(descriptiveStatistics, percentileRankError,
+                    _annotationFactory));
         }
     }
 
@@ -154,10 +161,18 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
             columnDimension.addCategory(column.getName());
         }
 
+        final Map<String, QuantileSketch> quantileSketches = new HashMap<String, QuantileSketch>();
+
         Crosstab<Number> crosstab = new Crosstab<Number>(Number.class, columnDimension, measureDimension);
         for (InputColumn<? extends Number> column : _columns) {
             CrosstabNavigator<Number> nav = crosstab.navigate().where(columnDimension, column.getName());
             NumberAnalyzerColumnDelegate delegate = _columnDelegates.get(column);
+            delegate.release();
+
+            final QuantileSketch quantileSketch = delegate.getQuantileSketch();
+            if (quantileSketch != null) {
+                quantileSketches.put(column.getName(), quantileSketch);
+            }
 
             StatisticalSummary s = delegate.getStatistics();
             int nullCount = delegate.getNullCount();
@@ -184,16 +199,16 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 final double geometricMean;
                 final double secondMoment;
                 final double sumOfSquares;
-                if (descriptiveStatistics) {
+                if (s instanceof DescriptiveStatistics) {
                     final DescriptiveStatistics descriptiveStats = (DescriptiveStatistics) s;
                     geometricMean = descriptiveStats.getGeometricMean();
                     sumOfSquares = descriptiveStats.getSumsq();
                     secondMoment = new SecondMoment().evaluate(descriptiveStats.getValues());
                 } else {
-                    final SummaryStatistics summaryStats = (SummaryStatistics) s;
-                    geometricMean = summaryStats.getGeometricMean();
-                    secondMoment = summaryStats.getSecondMoment();
-                    sumOfSquares = summaryStats.getSumsq();
+                    final NumberMoments moments = (NumberMoments) s;
+                    geometricMean = moments.getGeometricMean();
+                    secondMoment = moments.getSecondMoment();
+                    sumOfSquares = moments.getSumsq();
                 }
 
                 nav.where(measureDimension, MEASURE_HIGHEST_VALUE).put(highestValue);
@@ -211,12 +226,26 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 nav.where(measureDimension, MEASURE_SECOND_MOMENT).put(secondMoment);
 
                 if (descriptiveStatistics) {
-                    final DescriptiveStatistics descriptiveStatistics = (DescriptiveStatistics) s;
-                    final double kurtosis = descriptiveStatistics.getKurtosis();
-                    final double skewness = descriptiveStatistics.getSkewness();
-                    final double median = descriptiveStatistics.getPercentile(50.0);
-                    final double percentile25 = descriptiveStatistics.getPercentile(25.0);
-                    final double percentile75 = descriptiveStatistics.getPercentile(75.0);
+                    final double kurtosis;
+                    final double skewness;
+                    final double median;
+                    final double percentile25;
+                    final double percentile75;
+                    if (quantileSketch == null) {
+                        final DescriptiveStatistics descriptiveStatistics = (DescriptiveStatistics) s;
+                        kurtosis = descriptiveStatistics.getKurtosis();
+                        skewness = descriptiveStatistics.getSkewness();
+                        median = descriptiveStatistics.getPercentile(50.0);
+                        percentile25 = descriptiveStatistics.getPercentile(25.0);
+                        percentile75 = descriptiveStatistics.getPercentile(75.0);
+                    } else {
+                        final NumberMoments moments = (NumberMoments) s;
+                        kurtosis = moments.getKurtosis();
+                        skewness = moments.getSkewness();
+                        median = quantileSketch.getPercentile(50.0);
+                        percentile25 = quantileSketch.getPercentile(25.0);
+                        percentile75 = quantileSketch.getPercentile(75.0);
+                    }
 
                     nav.where(measureDimension, MEASURE_MEDIAN).put(median);
                     nav.where(measureDimension, MEASURE_PERCENTILE25).put(percentile25);
@@ -226,7 +255,10 @@ public class NumberAnalyzer implements Analyzer<NumberAnalyzerResult> {
                 }
             }
         }
-        return new NumberAnalyzerResult(_columns, crosstab);
+        if (quantileSketches.isEmpty()) {
+            return new NumberAnalyzerResult(_columns, crosstab);
+        }
+        return new NumberAnalyzerResult(_columns, crosstab, quantileSketches);
     }
 
     private void addAttachment(CrosstabNavigator<Number> nav, RowAnnotation annotation, InputColumn<?> column) {
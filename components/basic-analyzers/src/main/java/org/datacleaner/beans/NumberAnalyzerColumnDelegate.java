@@ -21,78 +21,229 @@ package org.datacleaner.beans;
 
 import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
 import org.apache.commons.math.stat.descriptive.StatisticalSummary;
-import org.apache.commons.math.stat.descriptive.SummaryStatistics;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
+import org.datacleaner.util.ShardPool;
 
 /**
  * Helper class for the number analyzer, which handles the processing of a
  * single column's values.
+ * 
+ * The row count and statistics are accumulated in shards that each call
+ * borrows for its own use, and merged when the result is built (see
+ * {@link #release()}). Only values that are at or beyond
+ * the current min/max bounds need to take the lock that guards the min/max
+ * annotations.
  */
 final class NumberAnalyzerColumnDelegate {
 
+	/**
+	 * The statistics of the values that have been added to one shard, or of
+	 * the merged values of all shards.
+	 */
+	private static final class Statistics {
+		int numRows;
+
+		// either all values (for exact percentiles) or storeless moments
+		final DescriptiveStatistics values;
+		final NumberMoments moments;
+
+		// sketch of the values, when percentiles are estimated
+		final QuantileSketch quantileSketch;
+
+		Statistics(boolean descriptiveStatistics, int quantileSketchK) {
+			if (descriptiveStatistics && quantileSketchK == 0) {
+				values = new DescriptiveStatistics();
+				moments = null;
+			} else {
+				values = null;
+				moments = new NumberMoments();
+			}
+			if (quantileSketchK == 0) {
+				quantileSketch = null;
+			} else {
+				quantileSketch = new QuantileSketch(quantileSketchK);
+			}
+		}
+
+		void add(double value, int distinctCount) {
+			for (int i = 0; i < distinctCount; i++) {
+				if (values == null) {
+					moments.addValue(value);
+				} else {
+					values.addValue(value);
+				}
+			}
+			if (quantileSketch != null) {
+				quantileSketch.add(value, distinctCount);
+			}
+		}
+
+		void merge(Statistics other) {
+			numRows += other.numRows;
+			if (values == null) {
+				moments.merge(other.moments);
+			} else {
+				for (double value : other.values.getValues()) {
+					values.addValue(value);
+				}
+			}
+			if (quantileSketch != null) {
+				quantileSketch.merge(other.quantileSketch);
+			}
+		}
+	}
+
 	private final RowAnnotationFactory _annotationFactory;
-	private final StatisticalSummary _statistics;
-	private volatile int _numRows;
 	private final RowAnnotation _nullAnnotation;
 	private final RowAnnotation _maxAnnotation;
 	private final RowAnnotation _minAnnotation;
+	private final boolean _descriptiveStatistics;
+	private final int _quantileSketchK;
+	private final ShardPool<Statistics> _statisticsShards;
+	private Statistics _releasedStatistics;
+	private volatile double _min = Double.NaN;
+	private volatile double _max = Double.NaN;
 
 	public NumberAnalyzerColumnDelegate(boolean descriptiveStatistics, RowAnnotationFactory annotationFactory) {
+		this(descriptiveStatistics, 0, annotationFactory);
+	}
+
+	/**
+	 * 
+	 * @param descriptiveStatistics
+	 *            whether or not to gather descriptive statistics
+	 * @param percentileRankError
+	 *            the maximum rank error of estimated percentiles, or 0 to
+	 *            retain all values and calculate exact percentiles
+	 * @param annotationFactory
+	 */
+	public NumberAnalyzerColumnDelegate(boolean descriptiveStatistics, double percentileRankError,
+			RowAnnotationFactory annotationFactory) {
 		_annotationFactory = annotationFactory;
 		_nullAnnotation = _annotationFactory.createAnnotation();
 		_maxAnnotation = _annotationFactory.createAnnotation();
 		_minAnnotation = _annotationFactory.createAnnotation();
-		if (descriptiveStatistics) {
-		    _statistics = new DescriptiveStatistics();
+		_descriptiveStatistics = descriptiveStatistics;
+		if (descriptiveStatistics && percentileRankError > 0) {
+			_quantileSketchK = QuantileSketch.forRankError(percentileRankError).getK();
 		} else {
-		    _statistics = new SummaryStatistics();
+			_quantileSketchK = 0;
 		}
+		_statisticsShards = new ShardPool<Statistics>() {
+			@Override
+			protected Statistics createShard() {
+				return new Statistics(_descriptiveStatistics, _quantileSketchK);
+			}
+		};
 	}
 
-	public synchronized void run(InputRow row, Number value, int distinctCount) {
-		_numRows += distinctCount;
-		if (value != null) {
-			double doubleValue = value.doubleValue();
-			double max = _statistics.getMax();
-			double min = _statistics.getMin();
+	public void run(InputRow row, Number value, int distinctCount) {
+		if (value == null) {
+			_annotationFactory.annotate(row, distinctCount, _nullAnnotation);
+			final Statistics statistics = _statisticsShards.borrow();
+			statistics.numRows += distinctCount;
+			_statisticsShards.release(statistics);
+			return;
+		}
 
-			if (max < doubleValue) {
-				_annotationFactory.resetAnnotation(_maxAnnotation);
-			}
-			if (min > doubleValue) {
-				_annotationFactory.resetAnnotation(_minAnnotation);
-			}
+		final double doubleValue = value.doubleValue();
+		final Statistics statistics = _statisticsShards.borrow();
+		try {
+			statistics.numRows += distinctCount;
+			statistics.add(doubleValue, distinctCount);
+		} finally {
+			_statisticsShards.release(statistics);
+		}
 
-			for (int i = 0; i < distinctCount; i++) {
-			    if (_statistics instanceof DescriptiveStatistics) {
-			        ((DescriptiveStatistics)_statistics).addValue(doubleValue);
-			    } else {
-			        ((SummaryStatistics)_statistics).addValue(doubleValue);
-			    }
-			}
+		// the bounds only ever widen, so values strictly within the current
+		// bounds can skip the lock
+		if (!(doubleValue > _min && doubleValue < _max)) {
+			runBounds(row, doubleValue, distinctCount);
+		}
+	}
 
-			max = _statistics.getMax();
-			min = _statistics.getMin();
+	private synchronized void runBounds(InputRow row, double value, int distinctCount) {
+		if (Double.isNaN(value)) {
+			return;
+		}
+		if (Double.isNaN(_max) || _max < value) {
+			_max = value;
+			_annotationFactory.resetAnnotation(_maxAnnotation);
+		}
+		if (Double.isNaN(_min) || _min > value) {
+			_min = value;
+			_annotationFactory.resetAnnotation(_minAnnotation);
+		}
 
-			if (max == doubleValue) {
-				_annotationFactory.annotate(row, distinctCount, _maxAnnotation);
-			}
-			if (min == doubleValue) {
-				_annotationFactory.annotate(row, distinctCount, _minAnnotation);
+		if (_max == value) {
+			_annotationFactory.annotate(row, distinctCount, _maxAnnotation);
+		}
+		if (_min == value) {
+			_annotationFactory.annotate(row, distinctCount, _minAnnotation);
+		}
+	}
+
+	/**
+	 * Merges the statistics shards of this delegate and releases them.
+	 * Must be called before getting the statistics of the result, while no
+	 * values are being analyzed.
+	 */
+	public synchronized void release() {
+		for (Statistics statistics : _statisticsShards.drain()) {
+			if (_releasedStatistics == null) {
+				_releasedStatistics = statistics;
+			} else {
+				_releasedStatistics.merge(statistics);
 			}
-		} else {
-			_annotationFactory.annotate(row, distinctCount, _nullAnnotation);
+		}
+		if (_releasedStatistics == null) {
+			_releasedStatistics = new Statistics(_descriptiveStatistics, _quantileSketchK);
 		}
 	}
 
+	private synchronized Statistics getReleasedStatistics() {
+		if (_releasedStatistics == null) {
+			throw new IllegalStateException("Statistics have not been released");
+		}
+		return _releasedStatistics;
+	}
+
 	public RowAnnotation getNullAnnotation() {
 		return _nullAnnotation;
 	}
 
+	/**
+	 * Gets the statistics of the released values. These are
+	 * {@link DescriptiveStatistics} if exact percentiles are calculated, and
+	 * {@link NumberMoments} otherwise.
+	 * 
+	 * @return
+	 */
 	public StatisticalSummary getStatistics() {
-		return _statistics;
+		final Statistics statistics = getReleasedStatistics();
+		if (statistics.values == null) {
+			return statistics.moments;
+		}
+		return statistics.values;
+	}
+
+	/**
+	 * Gets a sketch of the released values, if percentiles are estimated.
+	 * 
+	 * @return a sketch, or null if percentiles are not estimated
+	 */
+	public QuantileSketch getQuantileSketch() {
+		final Statistics statistics = getReleasedStatistics();
+		if (statistics.quantileSketch == null) {
+			return null;
+		}
+		// a copy, since the released sketch may still be merged with values
+		// that are analyzed after the result has been built
+		final QuantileSketch result = new QuantileSketch(_quantileSketchK);
+		result.merge(statistics.quantileSketch);
+		return result;
 	}
 
 	public int getNullCount() {
@@ -108,6 +259,6 @@ final class NumberAnalyzerColumnDelegate {
 	}
 
 	public int getNumRows() {
-		return _numRows;
+		return getReleasedStatistics().numRows;
 	}
 }
@@ -19,6 +19,8 @@
  */
 package org.datacleaner.beans;
 
+import java.util.Map;
+
 import org.datacleaner.api.Distributed;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.Metric;
@@ -31,16 +33,49 @@ public class NumberAnalyzerResult extends CrosstabResult {
     private static final long serialVersionUID = 1L;
 
     private final InputColumn<? extends Number>[] _columns;
+    private final Map<String, QuantileSketch> _quantileSketches;
 
     public NumberAnalyzerResult(InputColumn<? extends Number>[] columns, Crosstab<?> crosstab) {
+        this(columns, crosstab, null);
+    }
+
+    /**
+     * 
+     * @param columns
+     * @param crosstab
+     * @param quantileSketches
+     *            the sketches of the column values (by column name), if
+     *            percentiles are estimated. They allow percentiles of several
+     *            results to be reduced.
+     */
+    public NumberAnalyzerResult(InputColumn<? extends Number>[] columns, Crosstab<?> crosstab,
+            Map<String, QuantileSketch> quantileSketches) {
         super(crosstab);
         _columns = columns;
+        _quantileSketches = quantileSketches;
     }
 
     public InputColumn<? extends Number>[] getColumns() {
         return _columns;
     }
 
+    /**
+     * Gets the sketch of the values of a column, if percentiles are estimated.
+     * 
+     * @param col
+     * @return the sketch, or null if percentiles are not estimated
+     */
+    public QuantileSketch getQuantileSketch(InputColumn<?> col) {
+        return getQuantileSketch(col.getName());
+    }
+
+    public QuantileSketch getQuantileSketch(String columnName) {
+        if (_quantileSketches == null) {
+            return null;
+        }
+        return _quantileSketches.get(columnName);
+    }
+
     @Metric(order = 1, value = NumberAnalyzer.MEASURE_ROW_COUNT)
     public Number getRowCount(InputColumn<?> col) {
         return (Number) getCrosstab().where(NumberAnalyzer.DIMENSION_COLUMN, col.getName())
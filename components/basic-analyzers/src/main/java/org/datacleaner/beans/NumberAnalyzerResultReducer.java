@@ -23,8 +23,10 @@ import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.math.stat.descriptive.AggregateSummaryStatistics;
@@ -47,6 +49,11 @@ import org.slf4j.LoggerFactory;
  * we can.
  * 
  * Warnings will be raised if non-reduceable metrics are encountered.
+ * 
+ * The median and percentiles are reduceable if the results hold a
+ * {@link QuantileSketch} of the column values, in which case the sketches are
+ * merged. The sketches of a column are merged once per reduction and the
+ * merged sketch is used for all percentiles and for the reduced result.
  */
 public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<NumberAnalyzerResult> {
 
@@ -55,6 +62,27 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
     private static final Set<String> SUM_MEASURES = new HashSet<String>(Arrays.asList(NumberAnalyzer.MEASURE_SUM,
             NumberAnalyzer.MEASURE_ROW_COUNT, NumberAnalyzer.MEASURE_NULL_COUNT));
 
+    private static final Map<String, Double> PERCENTILE_MEASURES = new HashMap<String, Double>();
+
+    static {
+        PERCENTILE_MEASURES.put(NumberAnalyzer.MEASURE_MEDIAN, 50.0);
+        PERCENTILE_MEASURES.put(NumberAnalyzer.MEASURE_PERCENTILE25, 25.0);
+        PERCENTILE_MEASURES.put(NumberAnalyzer.MEASURE_PERCENTILE75, 75.0);
+    }
+
+    // the merged sketches of the results that are being reduced, per column
+    private Map<String, QuantileSketch> _quantileSketches;
+
+    @Override
+    public synchronized NumberAnalyzerResult reduce(Collection<? extends NumberAnalyzerResult> results) {
+        _quantileSketches = new HashMap<String, QuantileSketch>();
+        try {
+            return super.reduce(results);
+        } finally {
+            _quantileSketches = null;
+        }
+    }
+
     @Override
     protected Serializable reduceValues(List<Object> slaveValues, String column, String measure,
             Collection<? extends NumberAnalyzerResult> results, Class<?> valueClass) {
@@ -74,12 +102,52 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         } else if (NumberAnalyzer.MEASURE_VARIANCE.equals(measure)) {
             StatisticalSummary summary = getSummary(column, results);
             return summary.getVariance();
+        } else if (PERCENTILE_MEASURES.containsKey(measure)) {
+            final QuantileSketch sketch = getQuantileSketch(column, results);
+            if (sketch != null) {
+                if (sketch.getN() == 0) {
+                    return null;
+                }
+                return sketch.getPercentile(PERCENTILE_MEASURES.get(measure));
+            }
         }
-        
+
         logger.warn("Encountered non-reduceable measure '{}'. Slave values are: {}", measure, slaveValues);
         return null;
     }
 
+    /**
+     * Gets the merged quantile sketch of a column of all results. The sketches
+     * are only merged the first time a column is requested.
+     * 
+     * @param column
+     * @param results
+     * @return the merged sketch, or null if not all results have a sketch
+     */
+    private QuantileSketch getQuantileSketch(String column, Collection<? extends NumberAnalyzerResult> results) {
+        if (_quantileSketches.containsKey(column)) {
+            return _quantileSketches.get(column);
+        }
+        final QuantileSketch result = mergeQuantileSketches(column, results);
+        _quantileSketches.put(column, result);
+        return result;
+    }
+
+    private QuantileSketch mergeQuantileSketches(String column, Collection<? extends NumberAnalyzerResult> results) {
+        QuantileSketch result = null;
+        for (NumberAnalyzerResult analyzerResult : results) {
+            final QuantileSketch sketch = analyzerResult.getQuantileSketch(column);
+            if (sketch == null) {
+                return null;
+            }
+            if (result == null) {
+                result = new QuantileSketch(sketch.getK());
+            }
+            result.merge(sketch);
+        }
+        return result;
+    }
+
     private StatisticalSummary getSummary(String column, Collection<? extends NumberAnalyzerResult> results) {
         final List<SummaryStatistics> statistics = new ArrayList<SummaryStatistics>(results.size());
         for (NumberAnalyzerResult analyzerResult : results) {
@@ -154,7 +222,19 @@ public class NumberAnalyzerResultReducer extends AbstractCrosstabResultReducer<N
         final NumberAnalyzerResult firstResult = results.iterator().next();
 
         final InputColumn<? extends Number>[] columns = firstResult.getColumns();
-        return new NumberAnalyzerResult(columns, crosstab);
+
+        // keep the merged sketches, so that the result can be reduced further
+        final Map<String, QuantileSketch> quantileSketches = new HashMap<String, QuantileSketch>();
+        for (InputColumn<? extends Number> column : columns) {
+            final QuantileSketch sketch = getQuantileSketch(column.getName(), results);
+            if (sketch != null) {
+                quantileSketches.put(column.getName(), sketch);
+            }
+        }
+        if (quantileSketches.isEmpty()) {
+            return new NumberAnalyzerResult(columns, crosstab);
+        }
+        return new NumberAnalyzerResult(columns, crosstab, quantileSketches);
     }
 
 }
@@ -0,0 +1,237 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import org.apache.commons.math.stat.descriptive.StatisticalSummary;
+import org.apache.commons.math.stat.descriptive.SummaryStatistics;
+
+/**
+ * Storeless statistics of a stream of numbers, which (unlike
+ * {@link SummaryStatistics}) can be merged with the statistics of another
+ * stream. This allows the number analyzer to gather statistics per thread and
+ * merge them when the result is built.
+ * 
+ * The moments are updated the same way as commons-math's storeless moments, so
+ * the statistics of a single stream are equal to those of
+ * {@link SummaryStatistics}. Streams are merged using the pairwise formulas of
+ * Pebay ("Formulas for Robust, One-Pass Parallel Computation of Covariances and
+ * Arbitrary-Order Statistical Moments").
+ * 
+ * This class is not thread-safe.
+ */
+final class NumberMoments implements StatisticalSummary {
+
+    private long _n;
+    private double _min;
+    private double _max;
+    private double _sum;
+    private double _sumsq;
+    private double _sumOfLogs;
+    private double _m1;
+    private double _m2;
+    private double _m3;
+    private double _m4;
+
+    public NumberMoments() {
+        _min = Double.NaN;
+        _max = Double.NaN;
+    }
+
+    public void addValue(double value) {
+        if (Double.isNaN(_max) || value > _max) {
+            _max = value;
+        }
+        if (Double.isNaN(_min) || value < _min) {
+            _min = value;
+        }
+        _sum += value;
+        _sumsq += value * value;
+        _sumOfLogs += Math.log(value);
+
+        final double prevM2 = _m2;
+        final double prevM3 = _m3;
+        _n++;
+        final double n = _n;
+        final double dev = value - _m1;
+        final double nDev = dev / n;
+        final double nDevSq = nDev * nDev;
+        _m1 += nDev;
+        _m2 += (n - 1) * dev * nDev;
+        _m3 = _m3 - 3.0 * nDev * prevM2 + (n - 1) * (n - 2) * nDevSq * dev;
+        _m4 = _m4 - 4.0 * nDev * prevM3 + 6.0 * nDevSq * prevM2 + ((n * n) - 3 * (n - 1))
+                * (nDevSq * nDevSq * (n - 1) * n);
+    }
+
+    /**
+     * Merges the statistics of another stream into this object. The other
+     * object is not modified.
+     * 
+     * @param other
+     */
+    public void merge(NumberMoments other) {
+        if (other._n == 0) {
+            return;
+        }
+        if (_n == 0) {
+            _n = other._n;
+            _min = other._min;
+            _max = other._max;
+            _sum = other._sum;
+            _sumsq = other._sumsq;
+            _sumOfLogs = other._sumOfLogs;
+            _m1 = other._m1;
+            _m2 = other._m2;
+            _m3 = other._m3;
+            _m4 = other._m4;
+            return;
+        }
+
+        if (other._max > _max) {
+            _max = other._max;
+        }
+        if (other._min < _min) {
+            _min = other._min;
+        }
+        _sum += other._sum;
+        _sumsq += other._sumsq;
+        _sumOfLogs += other._sumOfLogs;
+
+        final double nA = _n;
+        final double nB = other._n;
+        final double n = nA + nB;
+        final double delta = other._m1 - _m1;
+        final double deltaN = delta / n;
+        final double deltaNSq = deltaN * deltaN;
+
+        final double m4 = _m4 + other._m4 + delta * deltaNSq * deltaN * nA * nB * (nA * nA - nA * nB + nB * nB)
+                + 6.0 * deltaNSq * (nA * nA * other._m2 + nB * nB * _m2) + 4.0 * deltaN
+                * (nA * other._m3 - nB * _m3);
+        final double m3 = _m3 + other._m3 + delta * deltaNSq * nA * nB * (nA - nB) + 3.0 * deltaN
+                * (nA * other._m2 - nB * _m2);
+        final double m2 = _m2 + other._m2 + delta * deltaN * nA * nB;
+
+        _n += other._n;
+        _m1 += nB * deltaN;
+        _m2 = m2;
+        _m3 = m3;
+        _m4 = m4;
+    }
+
+    @Override
+    public long getN() {
+        return _n;
+    }
+
+    @Override
+    public double getMin() {
+        return _min;
+    }
+
+    @Override
+    public double getMax() {
+        return _max;
+    }
+
+    @Override
+    public double getSum() {
+        return _sum;
+    }
+
+    public double getSumsq() {
+        return _sumsq;
+    }
+
+    @Override
+    public double getMean() {
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        return _m1;
+    }
+
+    public double getGeometricMean() {
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        return Math.exp(_sumOfLogs / _n);
+    }
+
+    /**
+     * Gets the sum of squared deviations from the mean.
+     * 
+     * @return
+     */
+    public double getSecondMoment() {
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        return _m2;
+    }
+
+    @Override
+    public double getVariance() {
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        if (_n == 1) {
+            return 0.0;
+        }
+        return _m2 / (_n - 1.0);
+    }
+
+    @Override
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Gets the (bias corrected) skewness, like commons-math's Skewness.
+     * 
+     * @return
+     */
+    public double getSkewness() {
+        if (_n < 3) {
+            return Double.NaN;
+        }
+        final double variance = _m2 / (_n - 1);
+        if (variance < 10E-20) {
+            return 0.0;
+        }
+        final double n = _n;
+        return (n * _m3) / ((n - 1) * (n - 2) * Math.sqrt(variance) * variance);
+    }
+
+    /**
+     * Gets the (bias corrected) kurtosis, like commons-math's Kurtosis.
+     * 
+     * @return
+     */
+    public double getKurtosis() {
+        if (_n <= 3) {
+            return Double.NaN;
+        }
+        final double variance = _m2 / (_n - 1);
+        if (variance < 10E-20) {
+            return 0.0;
+        }
+        final double n = _n;
+        return (n * (n + 1) * _m4 - 3 * _m2 * _m2 * (n - 1)) / ((n - 1) * (n - 2) * (n - 3) * variance * variance);
+    }
+}
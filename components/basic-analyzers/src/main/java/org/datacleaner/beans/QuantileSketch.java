@@ -0,0 +1,330 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Mergeable sketch for estimating quantiles of a stream of numbers in bounded
+ * memory, based on the KLL algorithm (Karnin, Lang and Liberty, "Optimal
+ * Quantile Approximation in Streams").
+ * 
+ * Values are kept in a number of levels, where each value at level h
+ * represents 2^h values of the stream. When a level is full, it is sorted and
+ * every other value is promoted to the next level. The size of the sketch is
+ * determined by the parameter k, which bounds the rank error of estimated
+ * quantiles to approximately 2/k (ie. an error of 0.01 corresponds to k=200).
+ * 
+ * As long as no level has been compacted, the sketch holds all values, and the
+ * quantiles are exact.
+ * 
+ * This class is not thread-safe.
+ */
+public final class QuantileSketch implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 8;
+
+    private final int _k;
+    private double[][] _levels;
+    private int[] _levelSizes;
+    private long _n;
+    private double _min;
+    private double _max;
+    private boolean _compacted;
+    private long _randomState;
+
+    /**
+     * Creates a sketch for a given maximum rank error
+     * 
+     * @param rankError
+     *            the (approximate) maximum rank error, between 0 and 1
+     * @return
+     */
+    public static QuantileSketch forRankError(double rankError) {
+        if (rankError <= 0 || rankError >= 1) {
+            throw new IllegalArgumentException("Rank error must be between 0 and 1, exclusive: " + rankError);
+        }
+        return new QuantileSketch((int) Math.ceil(2.0 / rankError));
+    }
+
+    public QuantileSketch(int k) {
+        if (k < MIN_LEVEL_CAPACITY) {
+            throw new IllegalArgumentException("k must be at least " + MIN_LEVEL_CAPACITY);
+        }
+        _k = k;
+        _levels = new double[1][];
+        _levels[0] = new double[k];
+        _levelSizes = new int[1];
+        _n = 0;
+        _min = Double.NaN;
+        _max = Double.NaN;
+        _compacted = false;
+        _randomState = 0x9E3779B97F4A7C15L;
+    }
+
+    public int getK() {
+        return _k;
+    }
+
+    /**
+     * Gets the number of values added to the sketch
+     * 
+     * @return
+     */
+    public long getN() {
+        return _n;
+    }
+
+    public double getMin() {
+        return _min;
+    }
+
+    public double getMax() {
+        return _max;
+    }
+
+    /**
+     * Determines if the quantiles of this sketch are exact, ie. if all values
+     * are still retained.
+     * 
+     * @return
+     */
+    public boolean isExact() {
+        return !_compacted;
+    }
+
+    public void add(double value) {
+        add(value, 1);
+    }
+
+    /**
+     * Adds a value to the sketch a number of times.
+     * 
+     * @param value
+     * @param count
+     */
+    public void add(double value, int count) {
+        if (count <= 0 || Double.isNaN(value)) {
+            return;
+        }
+        updateMinMax(value, value);
+        _n += count;
+
+        // a count is added as values on the levels of it's binary digits
+        int level = 0;
+        int remaining = count;
+        while (remaining != 0) {
+            if ((remaining & 1) != 0) {
+                append(level, value);
+            }
+            remaining >>>= 1;
+            level++;
+        }
+        compress();
+    }
+
+    /**
+     * Merges another sketch into this sketch. The other sketch is not
+     * modified.
+     * 
+     * @param other
+     */
+    public void merge(QuantileSketch other) {
+        if (other == null || other._n == 0) {
+            return;
+        }
+        updateMinMax(other._min, other._max);
+        _n += other._n;
+        _compacted |= other._compacted;
+        for (int level = 0; level < other._levels.length; level++) {
+            for (int i = 0; i < other._levelSizes[level]; i++) {
+                append(level, other._levels[level][i]);
+            }
+        }
+        compress();
+    }
+
+    /**
+     * Estimates a percentile, using the same estimation method as the
+     * percentiles of commons-math's DescriptiveStatistics (which is exact if
+     * the sketch is exact).
+     * 
+     * @param percentile
+     *            the percentile, between 0 (exclusive) and 100 (inclusive)
+     * @return
+     */
+    public double getPercentile(double percentile) {
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in the range (0, 100]: " + percentile);
+        }
+        if (_n == 0) {
+            return Double.NaN;
+        }
+        if (_n == 1) {
+            return _min;
+        }
+
+        final double position = percentile * (_n + 1) / 100;
+        if (position < 1) {
+            return _min;
+        }
+        if (position >= _n) {
+            return _max;
+        }
+
+        // collect the values and their weights in sorted order
+        final int size = getRetainedValues();
+        final double[] values = new double[size];
+        final long[] weights = new long[size];
+        int index = 0;
+        for (int level = 0; level < _levels.length; level++) {
+            for (int i = 0; i < _levelSizes[level]; i++) {
+                values[index] = _levels[level][i];
+                weights[index] = 1L << level;
+                index++;
+            }
+        }
+        sortByValue(values, weights);
+
+        final long floorPosition = (long) Math.floor(position);
+        final double lower = getValueAtRank(values, weights, floorPosition);
+        final double upper = getValueAtRank(values, weights, floorPosition + 1);
+        return lower + (position - floorPosition) * (upper - lower);
+    }
+
+    /**
+     * Gets the number of values that are retained in the sketch.
+     * 
+     * @return
+     */
+    public int getRetainedValues() {
+        int size = 0;
+        for (int levelSize : _levelSizes) {
+            size += levelSize;
+        }
+        return size;
+    }
+
+    private double getValueAtRank(double[] values, long[] weights, long rank) {
+        // the weights of all retained values sum up to n (exactly, before
+        // compaction, and approximately after)
+        long cumulativeWeight = 0;
+        for (int i = 0; i < values.length; i++) {
+            cumulativeWeight += weights[i];
+            if (cumulativeWeight >= rank) {
+                return values[i];
+            }
+        }
+        return _max;
+    }
+
+    private void updateMinMax(double min, double max) {
+        if (Double.isNaN(_min) || min < _min) {
+            _min = min;
+        }
+        if (Double.isNaN(_max) || max > _max) {
+            _max = max;
+        }
+    }
+
+    private int getCapacity(int level) {
+        final int depth = _levels.length - level - 1;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(_k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void append(int level, double value) {
+        while (level >= _levels.length) {
+            _levels = Arrays.copyOf(_levels, _levels.length + 1);
+            _levels[_levels.length - 1] = new double[MIN_LEVEL_CAPACITY];
+            _levelSizes = Arrays.copyOf(_levelSizes, _levelSizes.length + 1);
+        }
+        final int size = _levelSizes[level];
+        if (size == _levels[level].length) {
+            _levels[level] = Arrays.copyOf(_levels[level], size * 2);
+        }
+        _levels[level][size] = value;
+        _levelSizes[level] = size + 1;
+    }
+
+    /**
+     * Compacts full levels, from the bottom and up, until all levels are within
+     * their capacity.
+     */
+    private void compress() {
+        for (int level = 0; level < _levels.length; level++) {
+            final int size = _levelSizes[level];
+            if (size < getCapacity(level)) {
+                continue;
+            }
+
+            final double[] values = _levels[level];
+            Arrays.sort(values, 0, size);
+
+            // promote every other value (starting at a random offset) and
+            // keep the odd one out, if any, at this level
+            final int offset = nextRandomBit();
+            final int pairs = size / 2;
+            for (int i = 0; i < pairs; i++) {
+                append(level + 1, values[2 * i + offset]);
+            }
+            if (size % 2 == 1) {
+                values[0] = values[size - 1];
+                _levelSizes[level] = 1;
+            } else {
+                _levelSizes[level] = 0;
+            }
+            _compacted = true;
+        }
+    }
+
+    private int nextRandomBit() {
+        // xorshift, with a fixed seed in order to make results reproducible
+        _randomState ^= (_randomState << 13);
+        _randomState ^= (_randomState >>> 7);
+        _randomState ^= (_randomState << 17);
+        return (int) (_randomState >>> 63);
+    }
+
+    private static void sortByValue(double[] values, long[] weights) {
+        final Integer[] indices = new Integer[values.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        Arrays.sort(indices, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Double.compare(values[o1], values[o2]);
+            }
+        });
+        final double[] sortedValues = new double[values.length];
+        final long[] sortedWeights = new long[values.length];
+        for (int i = 0; i < indices.length; i++) {
+            sortedValues[i] = values[indices[i]];
+            sortedWeights[i] = weights[indices[i]];
+        }
+        System.arraycopy(sortedValues, 0, values, 0, values.length);
+        System.arraycopy(sortedWeights, 0, weights, 0, weights.length);
+    }
+}
@@ -39,7 +39,6 @@ import org.datacleaner.result.CrosstabNavigator;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
-import org.datacleaner.util.AverageBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -152,63 +151,56 @@ public class StringAnalyzer implements Analyzer<StringAnalyzerResult> {
 
             columnDimension.addCategory(columnName);
 
-            final Integer numRows = delegate.getNumRows();
-            final Integer numNull = delegate.getNumNull();
-            final Integer numBlank = delegate.getNumBlank();
-            final Integer numEntirelyUppercase = delegate.getNumEntirelyUppercase();
-            final Integer numEntirelyLowercase = delegate.getNumEntirelyLowercase();
-            final Integer numChars = delegate.getNumChars();
+            final long numRows = delegate.getNumRows();
+            final long numNull = delegate.getNumNull();
+            final long numBlank = delegate.getNumBlank();
+            final long numEntirelyUppercase = delegate.getNumEntirelyUppercase();
+            final long numEntirelyLowercase = delegate.getNumEntirelyLowercase();
+            final long numChars = delegate.getNumChars();
             final Integer maxChars = delegate.getMaxChars();
             final Integer minChars = delegate.getMinChars();
-            final Integer numWords = delegate.getNumWords();
+            final long numWords = delegate.getNumWords();
             final Integer maxWords = delegate.getMaxWords();
             final Integer minWords = delegate.getMinWords();
             final Integer maxWhitespace = delegate.getMaxWhitespace();
             final Integer minWhitespace = delegate.getMinWhitespace();
-            final Integer numUppercase = delegate.getNumUppercase();
-            final Integer numUppercaseExclFirstLetter = delegate.getNumUppercaseExclFirstLetter();
-            final Integer numLowercase = delegate.getNumLowercase();
-            final Integer numDigits = delegate.getNumDigit();
-            final Integer numDiacritics = delegate.getNumDiacritics();
-            final Integer numNonLetter = delegate.getNumNonLetter();
-            final AverageBuilder charAverageBuilder = delegate.getCharAverageBuilder();
-            final AverageBuilder blanksAverageBuilder = delegate.getWhitespaceAverageBuilder();
-
-            Double avgChars = null;
-            if (charAverageBuilder.getNumValues() > 0) {
-                avgChars = charAverageBuilder.getAverage();
-            }
-            Double avgBlanks = null;
-            if (blanksAverageBuilder.getNumValues() > 0) {
-                avgBlanks = blanksAverageBuilder.getAverage();
-            }
+            final long numUppercase = delegate.getNumUppercase();
+            final long numUppercaseExclFirstLetter = delegate.getNumUppercaseExclFirstLetter();
+            final long numLowercase = delegate.getNumLowercase();
+            final long numDigits = delegate.getNumDigit();
+            final long numDiacritics = delegate.getNumDiacritics();
+            final long numNonLetter = delegate.getNumNonLetter();
+            final Double avgChars = delegate.getAvgChars();
+            final Double avgBlanks = delegate.getAvgWhitespace();
 
             // begin entering numbers into the crosstab
             CrosstabNavigator<Number> nav = crosstab.where(columnDimension, columnName);
 
-            nav.where(measureDimension, MEASURE_ROW_COUNT).put(numRows);
+            nav.where(measureDimension, MEASURE_ROW_COUNT).put(ColumnCounters.toNumber(numRows));
 
-            nav.where(measureDimension, MEASURE_NULL_COUNT).put(numNull);
+            nav.where(measureDimension, MEASURE_NULL_COUNT).put(ColumnCounters.toNumber(numNull));
             if (numNull > 0) {
                 addAttachment(nav, delegate.getNullAnnotation(), column);
             }
 
-            nav.where(measureDimension, MEASURE_BLANK_COUNT).put(numBlank);
+            nav.where(measureDimension, MEASURE_BLANK_COUNT).put(ColumnCounters.toNumber(numBlank));
             if (numBlank > 0) {
                 addAttachment(nav, delegate.getBlankAnnotation(), column);
             }
 
-            nav.where(measureDimension, MEASURE_ENTIRELY_UPPERCASE_COUNT).put(numEntirelyUppercase);
+            nav.where(measureDimension, MEASURE_ENTIRELY_UPPERCASE_COUNT).put(
+                    ColumnCounters.toNumber(numEntirelyUppercase));
             if (numEntirelyUppercase > 0) {
                 addAttachment(nav, delegate.getEntirelyUppercaseAnnotation(), column);
             }
 
-            nav.where(measureDimension, MEASURE_ENTIRELY_LOWERCASE_COUNT).put(numEntirelyLowercase);
+            nav.where(measureDimension, MEASURE_ENTIRELY_LOWERCASE_COUNT).put(
+                    ColumnCounters.toNumber(numEntirelyLowercase));
             if (numEntirelyLowercase > 0) {
                 addAttachment(nav, delegate.getEntirelyLowercaseAnnotation(), column);
             }
 
-            nav.where(measureDimension, MEASURE_TOTAL_CHAR_COUNT).put(numChars);
+            nav.where(measureDimension, MEASURE_TOTAL_CHAR_COUNT).put(ColumnCounters.toNumber(numChars));
 
             nav.where(measureDimension, MEASURE_MAX_CHARS).put(maxChars);
             if (maxChars != null) {
@@ -232,25 +224,26 @@ public class StringAnalyzer implements Analyzer<StringAnalyzerResult> {
             }
 
             nav.where(measureDimension, MEASURE_AVG_WHITE_SPACES).put(avgBlanks);
-            nav.where(measureDimension, MEASURE_UPPERCASE_CHARS).put(numUppercase);
-            nav.where(measureDimension, MEASURE_UPPERCASE_CHARS_EXCL_FIRST_LETTERS).put(numUppercaseExclFirstLetter);
+            nav.where(measureDimension, MEASURE_UPPERCASE_CHARS).put(ColumnCounters.toNumber(numUppercase));
+            nav.where(measureDimension, MEASURE_UPPERCASE_CHARS_EXCL_FIRST_LETTERS).put(
+                    ColumnCounters.toNumber(numUppercaseExclFirstLetter));
             if (numUppercaseExclFirstLetter > 0) {
                 addAttachment(nav, delegate.getUppercaseExclFirstLetterAnnotation(), column);
             }
 
-            nav.where(measureDimension, MEASURE_LOWERCASE_CHARS).put(numLowercase);
-            nav.where(measureDimension, MEASURE_DIGIT_CHARS).put(numDigits);
+            nav.where(measureDimension, MEASURE_LOWERCASE_CHARS).put(ColumnCounters.toNumber(numLowercase));
+            nav.where(measureDimension, MEASURE_DIGIT_CHARS).put(ColumnCounters.toNumber(numDigits));
             if (numDigits > 0) {
                 addAttachment(nav, delegate.getDigitAnnotation(), column);
             }
 
-            nav.where(measureDimension, MEASURE_DIACRITIC_CHARS).put(numDiacritics);
+            nav.where(measureDimension, MEASURE_DIACRITIC_CHARS).put(ColumnCounters.toNumber(numDiacritics));
             if (numDiacritics > 0) {
                 addAttachment(nav, delegate.getDiacriticAnnotation(), column);
             }
 
-            nav.where(measureDimension, MEASURE_NON_LETTER_CHARS).put(numNonLetter);
-            nav.where(measureDimension, MEASURE_WORD_COUNT).put(numWords);
+            nav.where(measureDimension, MEASURE_NON_LETTER_CHARS).put(ColumnCounters.toNumber(numNonLetter));
+            nav.where(measureDimension, MEASURE_WORD_COUNT).put(ColumnCounters.toNumber(numWords));
 
             nav.where(measureDimension, MEASURE_MAX_WORDS).put(maxWords);
             if (maxWords != null) {
@@ -24,7 +24,6 @@ import java.util.StringTokenizer;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
-import org.datacleaner.util.AverageBuilder;
 import org.datacleaner.util.CharIterator;
 
 /**
@@ -32,13 +31,33 @@ import org.datacleaner.util.CharIterator;
  * for a single column. The String Analyzer then consists of a number of these
  * delegates.
  * 
- * 
+ * Counts are accumulated in per-thread {@link ColumnCounters}. Only values that
+ * are at or beyond the current min/max bounds need to take the lock that
+ * guards the min/max values and their annotations.
  */
 final class StringAnalyzerColumnDelegate {
 
+    private static final int COUNTER_ROWS = 0;
+    private static final int COUNTER_NULL = 1;
+    private static final int COUNTER_BLANK = 2;
+    private static final int COUNTER_ENTIRELY_UPPERCASE = 3;
+    private static final int COUNTER_ENTIRELY_LOWERCASE = 4;
+    private static final int COUNTER_CHARS = 5;
+    private static final int COUNTER_UPPERCASE = 6;
+    private static final int COUNTER_UPPERCASE_EXCL_FIRST_LETTER = 7;
+    private static final int COUNTER_LOWERCASE = 8;
+    private static final int COUNTER_DIGIT = 9;
+    private static final int COUNTER_DIACRITICS = 10;
+    private static final int COUNTER_NON_LETTER = 11;
+    private static final int COUNTER_WORDS = 12;
+    // averages are built from the distinct non-null values
+    private static final int COUNTER_AVERAGE_VALUES = 13;
+    private static final int COUNTER_AVERAGE_CHARS = 14;
+    private static final int COUNTER_AVERAGE_WHITESPACE = 15;
+    private static final int NUM_COUNTERS = 16;
+
     private final RowAnnotationFactory _annotationFactory;
-    private final AverageBuilder _charAverageBuilder = new AverageBuilder();
-    private final AverageBuilder _whitespaceAverageBuilder = new AverageBuilder();
+    private final ColumnCounters _counters;
     private final RowAnnotation _nullAnnotation;
     private final RowAnnotation _blankAnnotation;
     private final RowAnnotation _entirelyUppercaseAnnotation;
@@ -52,26 +71,16 @@ final class StringAnalyzerColumnDelegate {
     private final RowAnnotation _diacriticAnnotation;
     private final RowAnnotation _maxWordsAnnotation;
     private final RowAnnotation _minWordsAnnotation;
-    private volatile int _numRows;
-    private volatile int _numEntirelyUppercase;
-    private volatile int _numEntirelyLowercase;
-    private volatile int _numChars;
     private volatile Integer _minChars;
     private volatile Integer _maxChars;
     private volatile Integer _minWhitespace;
     private volatile Integer _maxWhitespace;
-    private volatile int _numUppercase;
-    private volatile int _numUppercaseExclFirstLetter;
-    private volatile int _numLowercase;
-    private volatile int _numDigit;
-    private volatile int _numDiacritics;
-    private volatile int _numNonLetter;
-    private volatile int _numWords;
     private volatile Integer _maxWords;
     private volatile Integer _minWords;
 
     public StringAnalyzerColumnDelegate(RowAnnotationFactory annotationFactory) {
         _annotationFactory = annotationFactory;
+        _counters = new ColumnCounters(NUM_COUNTERS);
         _nullAnnotation = annotationFactory.createAnnotation();
         _blankAnnotation = annotationFactory.createAnnotation();
         _entirelyUppercaseAnnotation = annotationFactory.createAnnotation();
@@ -87,156 +96,182 @@ final class StringAnalyzerColumnDelegate {
         _minWordsAnnotation = annotationFactory.createAnnotation();
     }
 
-    public synchronized void run(InputRow row, final String value, int distinctCount) {
-        _numRows += distinctCount;
-
+    public void run(InputRow row, final String value, int distinctCount) {
         if (value == null) {
             _annotationFactory.annotate(row, distinctCount, _nullAnnotation);
-        } else {
-            final int numChars = value.length();
+            final long[] counters = _counters.borrow();
+            counters[COUNTER_ROWS] += distinctCount;
+            counters[COUNTER_NULL] += distinctCount;
+            _counters.release(counters);
+            return;
+        }
 
-            if (numChars == 0) {
-                _annotationFactory.annotate(row, distinctCount, _blankAnnotation);
-            }
+        final int numChars = value.length();
 
-            final int totalChars = numChars * distinctCount;
-            final int numWords = new StringTokenizer(value).countTokens();
-            final int totalWords = numWords * distinctCount;
-
-            int numWhitespace = 0;
-            int numDigits = 0;
-            int numDiacritics = 0;
-            int numLetters = 0;
-            int numNonLetters = 0;
-            int numUppercase = 0;
-            int numUppercaseExclFirstLetter = 0;
-            int numLowercase = 0;
-
-            boolean firstLetter = true;
-            CharIterator it = new CharIterator(value);
-            while (it.hasNext()) {
-                it.next();
-                if (it.isLetter()) {
-                    numLetters += distinctCount;
-                    if (it.isUpperCase()) {
-                        numUppercase += distinctCount;
-                        if (!firstLetter) {
-                            numUppercaseExclFirstLetter += distinctCount;
-                        }
-                    } else {
-                        numLowercase += distinctCount;
-                    }
-                    if (it.isDiacritic()) {
-                        numDiacritics += distinctCount;
+        if (numChars == 0) {
+            _annotationFactory.annotate(row, distinctCount, _blankAnnotation);
+        }
+
+        final int numWords = new StringTokenizer(value).countTokens();
+
+        int numWhitespace = 0;
+        int numDigits = 0;
+        int numDiacritics = 0;
+        int numLetters = 0;
+        int numNonLetters = 0;
+        int numUppercase = 0;
+        int numUppercaseExclFirstLetter = 0;
+        int numLowercase = 0;
+
+        boolean firstLetter = true;
+        CharIterator it = new CharIterator(value);
+        while (it.hasNext()) {
+            it.next();
+            if (it.isLetter()) {
+                numLetters++;
+                if (it.isUpperCase()) {
+                    numUppercase++;
+                    if (!firstLetter) {
+                        numUppercaseExclFirstLetter++;
                     }
-                    firstLetter = false;
                 } else {
-                    numNonLetters += distinctCount;
-                    if (it.isDigit()) {
-                        numDigits += distinctCount;
-                    }
-                    if (it.isWhitespace()) {
-                        numWhitespace++;
-                    }
-                    if (it.is('.')) {
-                        firstLetter = true;
-                    }
+                    numLowercase++;
+                }
+                if (it.isDiacritic()) {
+                    numDiacritics++;
+                }
+                firstLetter = false;
+            } else {
+                numNonLetters++;
+                if (it.isDigit()) {
+                    numDigits++;
+                }
+                if (it.isWhitespace()) {
+                    numWhitespace++;
+                }
+                if (it.is('.')) {
+                    firstLetter = true;
                 }
             }
+        }
 
-            _numUppercase += +numUppercase;
-            if (numUppercaseExclFirstLetter > 0) {
-                _annotationFactory.annotate(row, distinctCount, _uppercaseExclFirstLetterAnnotation);
-                _numUppercaseExclFirstLetter += numUppercaseExclFirstLetter;
-            }
-            _numLowercase += numLowercase;
-            _numNonLetter += numNonLetters;
-
-            if (_minChars == null) {
-                // This is the first time we encounter a non-null value, so
-                // we just set all counters
-                _minChars = numChars;
-                _maxChars = numChars;
-                _minWords = numWords;
-                _maxWords = numWords;
-                _minWhitespace = numWhitespace;
-                _maxWhitespace = numWhitespace;
-            }
-
-            _numChars += totalChars;
-            _numWords += totalWords;
-
-            if (numDiacritics > 0) {
-                _numDiacritics += numDiacritics;
-                _annotationFactory.annotate(row, distinctCount, _diacriticAnnotation);
-            }
-
-            if (numDigits > 0) {
-                _numDigit += numDigits;
-                _annotationFactory.annotate(row, distinctCount, _digitAnnotation);
-            }
+        if (numUppercaseExclFirstLetter > 0) {
+            _annotationFactory.annotate(row, distinctCount, _uppercaseExclFirstLetterAnnotation);
+        }
+        if (numDiacritics > 0) {
+            _annotationFactory.annotate(row, distinctCount, _diacriticAnnotation);
+        }
+        if (numDigits > 0) {
+            _annotationFactory.annotate(row, distinctCount, _digitAnnotation);
+        }
 
-            if (_maxChars < numChars) {
-                _annotationFactory.resetAnnotation(_maxCharsAnnotation);
-                _maxChars = numChars;
+        boolean entirelyUppercase = false;
+        boolean entirelyLowercase = false;
+        if (numLetters > 0) {
+            entirelyUppercase = isEntirelyUpperCase(value);
+            if (entirelyUppercase) {
+                _annotationFactory.annotate(row, distinctCount, _entirelyUppercaseAnnotation);
             }
-            if (_maxChars == numChars) {
-                _annotationFactory.annotate(row, distinctCount, _maxCharsAnnotation);
+            entirelyLowercase = isEntirelyLowerCase(value);
+            if (entirelyLowercase) {
+                _annotationFactory.annotate(row, distinctCount, _entirelyLowercaseAnnotation);
             }
+        }
 
-            if (_minChars > numChars) {
-                _annotationFactory.resetAnnotation(_minCharsAnnotation);
-                _minChars = numChars;
-            }
-            if (_minChars == numChars) {
-                _annotationFactory.annotate(row, distinctCount, _minCharsAnnotation);
-            }
+        // the bounds only ever widen, so values strictly within the current
+        // bounds can skip the lock
+        if (isAtOrBeyondBounds(numChars, _minChars, _maxChars) || isAtOrBeyondBounds(numWords, _minWords, _maxWords)
+                || isAtOrBeyondBounds(numWhitespace, _minWhitespace, _maxWhitespace)) {
+            runBounds(row, numChars, numWords, numWhitespace, distinctCount);
+        }
 
-            if (_maxWords < numWords) {
-                _maxWords = numWords;
-                _annotationFactory.resetAnnotation(_maxWordsAnnotation);
-            }
-            if (_maxWords == numWords) {
-                _annotationFactory.annotate(row, distinctCount, _maxWordsAnnotation);
-            }
-            if (_minWords > numWords) {
-                _minWords = numWords;
-                _annotationFactory.resetAnnotation(_minWordsAnnotation);
-            }
-            if (_minWords == numWords) {
-                _annotationFactory.annotate(row, distinctCount, _minWordsAnnotation);
-            }
+        final long[] counters = _counters.borrow();
+        counters[COUNTER_ROWS] += distinctCount;
+        if (numChars == 0) {
+            counters[COUNTER_BLANK] += distinctCount;
+        }
+        if (entirelyUppercase) {
+            counters[COUNTER_ENTIRELY_UPPERCASE] += distinctCount;
+        }
+        if (entirelyLowercase) {
+            counters[COUNTER_ENTIRELY_LOWERCASE] += distinctCount;
+        }
+        counters[COUNTER_CHARS] += (long) numChars * distinctCount;
+        counters[COUNTER_UPPERCASE] += (long) numUppercase * distinctCount;
+        counters[COUNTER_UPPERCASE_EXCL_FIRST_LETTER] += (long) numUppercaseExclFirstLetter * distinctCount;
+        counters[COUNTER_LOWERCASE] += (long) numLowercase * distinctCount;
+        counters[COUNTER_DIGIT] += (long) numDigits * distinctCount;
+        counters[COUNTER_DIACRITICS] += (long) numDiacritics * distinctCount;
+        counters[COUNTER_NON_LETTER] += (long) numNonLetters * distinctCount;
+        counters[COUNTER_WORDS] += (long) numWords * distinctCount;
+        counters[COUNTER_AVERAGE_VALUES]++;
+        counters[COUNTER_AVERAGE_CHARS] += numChars;
+        counters[COUNTER_AVERAGE_WHITESPACE] += numWhitespace;
+        _counters.release(counters);
+    }
+
+    private static boolean isAtOrBeyondBounds(int value, Integer min, Integer max) {
+        return min == null || max == null || value <= min.intValue() || value >= max.intValue();
+    }
+
+    private synchronized void runBounds(InputRow row, int numChars, int numWords, int numWhitespace,
+            int distinctCount) {
+        if (_minChars == null) {
+            // This is the first time we encounter a non-null value, so
+            // we just set all counters
+            _minChars = numChars;
+            _maxChars = numChars;
+            _minWords = numWords;
+            _maxWords = numWords;
+            _minWhitespace = numWhitespace;
+            _maxWhitespace = numWhitespace;
+        }
 
-            if (_maxWhitespace < numWhitespace) {
-                _maxWhitespace = numWhitespace;
-                _annotationFactory.resetAnnotation(_maxWhitespaceAnnotation);
-            }
-            if (_maxWhitespace == numWhitespace) {
-                _annotationFactory.annotate(row, distinctCount, _maxWhitespaceAnnotation);
-            }
+        if (_maxChars < numChars) {
+            _annotationFactory.resetAnnotation(_maxCharsAnnotation);
+            _maxChars = numChars;
+        }
+        if (_maxChars == numChars) {
+            _annotationFactory.annotate(row, distinctCount, _maxCharsAnnotation);
+        }
 
-            if (_minWhitespace > numWhitespace) {
-                _minWhitespace = numWhitespace;
-                _annotationFactory.resetAnnotation(_minWhitespaceAnnotation);
-            }
-            if (_minWhitespace == numWhitespace) {
-                _annotationFactory.annotate(row, distinctCount, _minWhitespaceAnnotation);
-            }
+        if (_minChars > numChars) {
+            _annotationFactory.resetAnnotation(_minCharsAnnotation);
+            _minChars = numChars;
+        }
+        if (_minChars == numChars) {
+            _annotationFactory.annotate(row, distinctCount, _minCharsAnnotation);
+        }
 
-            if (numLetters > 0) {
-                if (isEntirelyUpperCase(value)) {
-                    _numEntirelyUppercase += distinctCount;
-                    _annotationFactory.annotate(row, distinctCount, _entirelyUppercaseAnnotation);
-                }
+        if (_maxWords < numWords) {
+            _maxWords = numWords;
+            _annotationFactory.resetAnnotation(_maxWordsAnnotation);
+        }
+        if (_maxWords == numWords) {
+            _annotationFactory.annotate(row, distinctCount, _maxWordsAnnotation);
+        }
+        if (_minWords > numWords) {
+            _minWords = numWords;
+            _annotationFactory.resetAnnotation(_minWordsAnnotation);
+        }
+        if (_minWords == numWords) {
+            _annotationFactory.annotate(row, distinctCount, _minWordsAnnotation);
+        }
 
-                if (isEntirelyLowerCase(value)) {
-                    _numEntirelyLowercase += distinctCount;
-                    _annotationFactory.annotate(row, distinctCount, _entirelyLowercaseAnnotation);
-                }
-            }
+        if (_maxWhitespace < numWhitespace) {
+            _maxWhitespace = numWhitespace;
+            _annotationFactory.resetAnnotation(_maxWhitespaceAnnotation);
+        }
+        if (_maxWhitespace == numWhitespace) {
+            _annotationFactory.annotate(row, distinctCount, _maxWhitespaceAnnotation);
+        }
 
-            _charAverageBuilder.addValue(numChars);
-            _whitespaceAverageBuilder.addValue(numWhitespace);
+        if (_minWhitespace > numWhitespace) {
+            _minWhitespace = numWhitespace;
+            _annotationFactory.resetAnnotation(_minWhitespaceAnnotation);
+        }
+        if (_minWhitespace == numWhitespace) {
+            _annotationFactory.annotate(row, distinctCount, _minWhitespaceAnnotation);
         }
     }
 
@@ -248,24 +283,24 @@ final class StringAnalyzerColumnDelegate {
         return value.equals(value.toUpperCase());
     }
 
-    public int getNumRows() {
-        return _numRows;
+    public long getNumRows() {
+        return _counters.sum(COUNTER_ROWS);
     }
 
-    public int getNumNull() {
-        return _nullAnnotation.getRowCount();
+    public long getNumNull() {
+        return _counters.sum(COUNTER_NULL);
     }
 
-    public int getNumEntirelyUppercase() {
-        return _numEntirelyUppercase;
+    public long getNumEntirelyUppercase() {
+        return _counters.sum(COUNTER_ENTIRELY_UPPERCASE);
     }
 
-    public int getNumEntirelyLowercase() {
-        return _numEntirelyLowercase;
+    public long getNumEntirelyLowercase() {
+        return _counters.sum(COUNTER_ENTIRELY_LOWERCASE);
     }
 
-    public int getNumChars() {
-        return _numChars;
+    public long getNumChars() {
+        return _counters.sum(COUNTER_CHARS);
     }
 
     public Integer getMinChars() {
@@ -284,32 +319,32 @@ final class StringAnalyzerColumnDelegate {
         return _maxWhitespace;
     }
 
-    public int getNumUppercase() {
-        return _numUppercase;
+    public long getNumUppercase() {
+        return _counters.sum(COUNTER_UPPERCASE);
     }
 
-    public int getNumUppercaseExclFirstLetter() {
-        return _numUppercaseExclFirstLetter;
+    public long getNumUppercaseExclFirstLetter() {
+        return _counters.sum(COUNTER_UPPERCASE_EXCL_FIRST_LETTER);
     }
 
-    public int getNumLowercase() {
-        return _numLowercase;
+    public long getNumLowercase() {
+        return _counters.sum(COUNTER_LOWERCASE);
     }
 
-    public int getNumDigit() {
-        return _numDigit;
+    public long getNumDigit() {
+        return _counters.sum(COUNTER_DIGIT);
     }
 
-    public int getNumDiacritics() {
-        return _numDiacritics;
+    public long getNumDiacritics() {
+        return _counters.sum(COUNTER_DIACRITICS);
     }
 
-    public int getNumNonLetter() {
-        return _numNonLetter;
+    public long getNumNonLetter() {
+        return _counters.sum(COUNTER_NON_LETTER);
     }
 
-    public int getNumWords() {
-        return _numWords;
+    public long getNumWords() {
+        return _counters.sum(COUNTER_WORDS);
     }
 
     public Integer getMinWords() {
@@ -320,12 +355,20 @@ final class StringAnalyzerColumnDelegate {
         return _maxWords;
     }
 
-    public AverageBuilder getCharAverageBuilder() {
-        return _charAverageBuilder;
+    public Double getAvgChars() {
+        return getAverage(COUNTER_AVERAGE_CHARS);
     }
 
-    public AverageBuilder getWhitespaceAverageBuilder() {
-        return _whitespaceAverageBuilder;
+    public Double getAvgWhitespace() {
+        return getAverage(COUNTER_AVERAGE_WHITESPACE);
+    }
+
+    private Double getAverage(int counter) {
+        final long numValues = _counters.sum(COUNTER_AVERAGE_VALUES);
+        if (numValues == 0) {
+            return null;
+        }
+        return (double) _counters.sum(counter) / numValues;
     }
 
     public RowAnnotation getNullAnnotation() {
@@ -380,7 +423,7 @@ final class StringAnalyzerColumnDelegate {
         return _minWordsAnnotation;
     }
 
-    public Integer getNumBlank() {
-        return _blankAnnotation.getRowCount();
+    public long getNumBlank() {
+        return _counters.sum(COUNTER_BLANK);
     }
 }
@@ -59,33 +59,48 @@ public class StringAnalyzerResult extends CrosstabResult {
     }
 
     @Metric(StringAnalyzer.MEASURE_DIACRITIC_CHARS)
+    public long getDiacritiCharsAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_DIACRITIC_CHARS).longValue();
+    }
+
     public int getDiacritiChars(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_DIACRITIC_CHARS).get();
+        return toInt(getDiacritiCharsAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_DIGIT_CHARS)
+    public long getDigitCharsAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_DIGIT_CHARS).longValue();
+    }
+
     public int getDigitChars(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_DIGIT_CHARS).get();
+        return toInt(getDigitCharsAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_ENTIRELY_LOWERCASE_COUNT)
+    public long getEntirelyLowerCaseCountAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_ENTIRELY_LOWERCASE_COUNT).longValue();
+    }
+
     public int getEntirelyLowerCaseCount(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_ENTIRELY_LOWERCASE_COUNT).get();
+        return toInt(getEntirelyLowerCaseCountAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_ENTIRELY_UPPERCASE_COUNT)
+    public long getEntirelyUpperCaseCountAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_ENTIRELY_UPPERCASE_COUNT).longValue();
+    }
+
     public int getEntirelyUpperCaseCount(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_ENTIRELY_UPPERCASE_COUNT).get();
+        return toInt(getEntirelyUpperCaseCountAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_LOWERCASE_CHARS)
+    public long getLowerCaseCharsAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_LOWERCASE_CHARS).longValue();
+    }
+
     public int getLowerCaseChars(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_LOWERCASE_CHARS).get();
+        return toInt(getLowerCaseCharsAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_MAX_CHARS)
@@ -125,52 +140,99 @@ public class StringAnalyzerResult extends CrosstabResult {
     }
 
     @Metric(StringAnalyzer.MEASURE_NON_LETTER_CHARS)
+    public long getNonLetterCharsAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_NON_LETTER_CHARS).longValue();
+    }
+
     public int getNonLetterChars(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_NON_LETTER_CHARS).get();
+        return toInt(getNonLetterCharsAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_NULL_COUNT)
+    public long getNullCountAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_NULL_COUNT).longValue();
+    }
+
     public int getNullCount(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_NULL_COUNT).get();
+        return toInt(getNullCountAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_BLANK_COUNT)
-    public Integer getBlankCount(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
+    public Long getBlankCountAsLong(InputColumn<?> col) {
+        final Number count = (Number) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
                 .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_BLANK_COUNT).safeGet(null);
+        if (count == null) {
+            return null;
+        }
+        return count.longValue();
+    }
+
+    public Integer getBlankCount(InputColumn<?> col) {
+        final Long count = getBlankCountAsLong(col);
+        if (count == null) {
+            return null;
+        }
+        return toInt(count);
     }
 
     @Metric(StringAnalyzer.MEASURE_ROW_COUNT)
+    public long getRowCountAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_ROW_COUNT).longValue();
+    }
+
     public int getRowCount(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_ROW_COUNT).get();
+        return toInt(getRowCountAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_TOTAL_CHAR_COUNT)
+    public long getTotalCharCountAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_TOTAL_CHAR_COUNT).longValue();
+    }
+
     public int getTotalCharCount(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_TOTAL_CHAR_COUNT).get();
+        return toInt(getTotalCharCountAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_UPPERCASE_CHARS)
+    public long getUpperCaseCharsAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_UPPERCASE_CHARS).longValue();
+    }
+
     public int getUpperCaseChars(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_UPPERCASE_CHARS).get();
+        return toInt(getUpperCaseCharsAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_UPPERCASE_CHARS_EXCL_FIRST_LETTERS)
+    public long getUpperCaseCharsExcludingFirstLettersAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_UPPERCASE_CHARS_EXCL_FIRST_LETTERS).longValue();
+    }
+
     public int getUpperCaseCharsExcludingFirstLetters(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_UPPERCASE_CHARS_EXCL_FIRST_LETTERS)
-                .get();
+        return toInt(getUpperCaseCharsExcludingFirstLettersAsLong(col));
     }
 
     @Metric(StringAnalyzer.MEASURE_WORD_COUNT)
+    public long getWordCountAsLong(InputColumn<?> col) {
+        return getCount(col, StringAnalyzer.MEASURE_WORD_COUNT).longValue();
+    }
+
     public int getWordCount(InputColumn<?> col) {
-        return (Integer) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
-                .where(StringAnalyzer.DIMENSION_MEASURES, StringAnalyzer.MEASURE_WORD_COUNT).get();
+        return toInt(getWordCountAsLong(col));
     }
 
+    private Number getCount(InputColumn<?> col, String measure) {
+        return (Number) getCrosstab().where(StringAnalyzer.DIMENSION_COLUMN, col.getName())
+                .where(StringAnalyzer.DIMENSION_MEASURES, measure).get();
+    }
+
+    /**
+     * Converts a count to an int for the integer based getters. Counts beyond
+     * the integer range are only available from the long based getters.
+     * 
+     * @param count
+     * @return
+     */
+    private static int toInt(long count) {
+        return Math.toIntExact(count);
+    }
 }
@@ -30,7 +30,6 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.result.AbstractCrosstabResultReducer;
 import org.datacleaner.result.Crosstab;
 import org.datacleaner.result.CrosstabNavigator;
-import org.datacleaner.util.AverageBuilder;
 
 /**
  * Result reducer for {@link StringAnalyzerResult}s
@@ -59,13 +58,14 @@ public class StringAnalyzerResultReducer extends AbstractCrosstabResultReducer<S
         } else if (MAX_MEASURES.contains(category2)) {
             return maximum(slaveValues);
         } else {
-            return sumAsInteger(slaveValues);
+            return ColumnCounters.toNumber(sumAsLong(slaveValues));
         }
     }
 
     private Serializable weightedAverage(List<Object> slaveValues, Collection<? extends StringAnalyzerResult> results,
             String columnName, String measureName) {
-        final AverageBuilder averageBuilder = new AverageBuilder();
+        double total = 0;
+        long totalRowCount = 0;
 
         for (StringAnalyzerResult analyzerResult : results) {
             final Crosstab<?> crosstab = analyzerResult.getCrosstab();
@@ -75,10 +75,16 @@ public class StringAnalyzerResultReducer extends AbstractCrosstabResultReducer<S
                     StringAnalyzer.MEASURE_ROW_COUNT).get();
             final Number averageMeasureValue = (Number) nav.where(StringAnalyzer.DIMENSION_MEASURES, measureName).get();
 
-            averageBuilder.addValue(averageMeasureValue, rowCount.intValue());
+            if (averageMeasureValue != null) {
+                total += averageMeasureValue.doubleValue() * rowCount.longValue();
+                totalRowCount += rowCount.longValue();
+            }
         }
 
-        return averageBuilder.getAverage();
+        if (totalRowCount == 0) {
+            return null;
+        }
+        return total / totalRowCount;
     }
 
     @Override
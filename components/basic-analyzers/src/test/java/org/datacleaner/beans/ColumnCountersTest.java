@@ -0,0 +1,82 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import junit.framework.TestCase;
+
+public class ColumnCountersTest extends TestCase {
+
+    public void testSumAcrossThreads() throws Exception {
+        final ColumnCounters counters = new ColumnCounters(2);
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        final long[] shard = counters.borrow();
+                        shard[0]++;
+                        shard[1] += 2;
+                        counters.release(shard);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(4000, counters.sum(0));
+        assertEquals(8000, counters.sum(1));
+    }
+
+    public void testCountingContinuesAfterSum() throws Exception {
+        final ColumnCounters counters = new ColumnCounters(1);
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                final long[] shard = counters.borrow();
+                shard[0] += 5;
+                counters.release(shard);
+            }
+        };
+        thread.start();
+        thread.join();
+
+        long[] shard = counters.borrow();
+        shard[0] += 3;
+        counters.release(shard);
+        assertEquals(8, counters.sum(0));
+
+        // counting may continue after a sum, eg. when a result is built more
+        // than once
+        shard = counters.borrow();
+        shard[0]++;
+        counters.release(shard);
+        assertEquals(9, counters.sum(0));
+        assertEquals(9, counters.sum(0));
+    }
+
+    public void testToNumber() throws Exception {
+        assertEquals(Integer.valueOf(42), ColumnCounters.toNumber(42));
+        assertEquals(Long.valueOf(Integer.MAX_VALUE + 1L), ColumnCounters.toNumber(Integer.MAX_VALUE + 1L));
+    }
+}
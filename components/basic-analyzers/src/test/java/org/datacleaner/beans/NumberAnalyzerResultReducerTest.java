@@ -0,0 +1,104 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
+
+public class NumberAnalyzerResultReducerTest extends TestCase {
+
+    private final MockInputColumn<Integer> col = new MockInputColumn<Integer>("num", Integer.class);
+
+    private NumberAnalyzer createAnalyzer() {
+        final NumberAnalyzer analyzer = new NumberAnalyzer(col);
+        analyzer.descriptiveStatistics = true;
+        analyzer.percentileRankError = 0.01;
+        analyzer.init();
+        return analyzer;
+    }
+
+    public void testReduceMergesQuantileSketches() throws Exception {
+        final int numValues = 30000;
+        final NumberAnalyzer fullAnalyzer = createAnalyzer();
+        final NumberAnalyzer[] partialAnalyzers = new NumberAnalyzer[] { createAnalyzer(), createAnalyzer(),
+                createAnalyzer() };
+        for (int i = 1; i <= numValues; i++) {
+            fullAnalyzer.run(new MockInputRow().put(col, i), 1);
+            partialAnalyzers[i % partialAnalyzers.length].run(new MockInputRow().put(col, i), 1);
+        }
+
+        final NumberAnalyzerResult fullResult = fullAnalyzer.getResult();
+        final List<NumberAnalyzerResult> partialResults = new ArrayList<NumberAnalyzerResult>();
+        for (NumberAnalyzer partialAnalyzer : partialAnalyzers) {
+            final NumberAnalyzerResult partialResult = partialAnalyzer.getResult();
+            assertNotNull(partialResult.getQuantileSketch(col));
+            assertEquals(numValues / 3, partialResult.getQuantileSketch(col).getN());
+            partialResults.add(partialResult);
+        }
+
+        final NumberAnalyzerResult reducedResult = new NumberAnalyzerResultReducer().reduce(partialResults);
+
+        assertEquals(numValues, reducedResult.getRowCount(col).intValue());
+        assertEquals(0, reducedResult.getNullCount(col).intValue());
+        assertEquals(numValues, reducedResult.getHighestValue(col).intValue());
+        assertEquals(1, reducedResult.getLowestValue(col).intValue());
+        assertEquals(fullResult.getSum(col).doubleValue(), reducedResult.getSum(col).doubleValue(), 0.0001);
+
+        // the percentiles are estimated from the merged sketches, within the
+        // rank error of the sketches
+        final double maxError = 0.01 * numValues;
+        assertEquals(numValues * 0.5, reducedResult.getMedian(col).doubleValue(), maxError);
+        assertEquals(numValues * 0.25, reducedResult.getPercentile25(col).doubleValue(), maxError);
+        assertEquals(numValues * 0.75, reducedResult.getPercentile75(col).doubleValue(), maxError);
+        assertEquals(fullResult.getMedian(col).doubleValue(), reducedResult.getMedian(col).doubleValue(),
+                2 * maxError);
+
+        // the merged sketch is kept, so that the result can be reduced further
+        final QuantileSketch reducedSketch = reducedResult.getQuantileSketch(col);
+        assertNotNull(reducedSketch);
+        assertEquals(numValues, reducedSketch.getN());
+
+        final NumberAnalyzerResult rereducedResult = new NumberAnalyzerResultReducer().reduce(Arrays.asList(
+                reducedResult, partialResults.get(0)));
+        assertEquals(numValues + numValues / 3, rereducedResult.getQuantileSketch(col).getN());
+    }
+
+    public void testReduceWithoutSketches() throws Exception {
+        final NumberAnalyzer analyzer1 = new NumberAnalyzer(col);
+        final NumberAnalyzer analyzer2 = new NumberAnalyzer(col);
+        for (int i = 1; i <= 10; i++) {
+            analyzer1.run(new MockInputRow().put(col, i), 1);
+            analyzer2.run(new MockInputRow().put(col, i + 10), 1);
+        }
+
+        final NumberAnalyzerResult reducedResult = new NumberAnalyzerResultReducer().reduce(Arrays.asList(
+                analyzer1.getResult(), analyzer2.getResult()));
+        assertEquals(20, reducedResult.getRowCount(col).intValue());
+        assertEquals(20, reducedResult.getHighestValue(col).intValue());
+        assertEquals(210, reducedResult.getSum(col).intValue());
+        assertNull(reducedResult.getQuantileSketch(col));
+    }
+}
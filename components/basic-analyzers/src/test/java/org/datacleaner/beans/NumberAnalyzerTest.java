@@ -19,10 +19,15 @@
  */
 package org.datacleaner.beans;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
+import org.datacleaner.api.InputRow;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
+import org.datacleaner.result.AnnotatedRowsResult;
 import org.datacleaner.result.CrosstabResult;
 import org.datacleaner.result.renderer.CrosstabTextRenderer;
 
@@ -107,4 +112,44 @@ public class NumberAnalyzerTest extends TestCase {
         assertEquals("Sum of squares     337624.39 33762440   1300 ", resultLines[11]);
     }
 
+    public void testConcurrentRunMatchesSequentialRun() throws Exception {
+        final List<InputRow> rows = new ArrayList<InputRow>();
+        for (int i = 0; i < 10000; i++) {
+            final Long value = i % 13 == 0 ? null : Long.valueOf(i % 500);
+            rows.add(new MockInputRow(i).put(col1, i / 4f).put(col2, value).put(col3, (byte) (i % 7)));
+        }
+
+        for (InputRow row : rows) {
+            numberAnalyzer.run(row, 1);
+        }
+
+        final NumberAnalyzer concurrentNumberAnalyzer = new NumberAnalyzer(col1, col2, col3);
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int offset = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = offset; j < rows.size(); j += threads.length) {
+                        concurrentNumberAnalyzer.run(rows.get(j), 1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final NumberAnalyzerResult result = numberAnalyzer.getResult();
+        final NumberAnalyzerResult concurrentResult = concurrentNumberAnalyzer.getResult();
+        assertEquals(new CrosstabTextRenderer().render(result), new CrosstabTextRenderer().render(concurrentResult));
+        assertEquals(10000, concurrentResult.getRowCount(col2).intValue());
+        assertEquals(770, concurrentResult.getNullCount(col2).intValue());
+
+        final AnnotatedRowsResult maxRows = (AnnotatedRowsResult) concurrentResult.getCrosstab()
+                .where(NumberAnalyzer.DIMENSION_COLUMN, "bar")
+                .where(NumberAnalyzer.DIMENSION_MEASURE, NumberAnalyzer.MEASURE_HIGHEST_VALUE).explore().getResult();
+        assertEquals(19, maxRows.getAnnotation().getRowCount());
+    }
 }
@@ -0,0 +1,85 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class NumberMomentsTest extends TestCase {
+
+    public void testSimpleValues() throws Exception {
+        final NumberMoments moments = new NumberMoments();
+        for (int i = 1; i <= 5; i++) {
+            moments.addValue(i);
+        }
+        assertEquals(5, moments.getN());
+        assertEquals(1.0, moments.getMin());
+        assertEquals(5.0, moments.getMax());
+        assertEquals(15.0, moments.getSum());
+        assertEquals(55.0, moments.getSumsq());
+        assertEquals(3.0, moments.getMean());
+        assertEquals(10.0, moments.getSecondMoment(), 0.0000001);
+        assertEquals(2.5, moments.getVariance(), 0.0000001);
+        assertEquals(2.605171, moments.getGeometricMean(), 0.000001);
+        assertEquals(0.0, moments.getSkewness(), 0.0000001);
+        assertEquals(-1.2, moments.getKurtosis(), 0.0000001);
+    }
+
+    public void testNoValues() throws Exception {
+        final NumberMoments moments = new NumberMoments();
+        moments.merge(new NumberMoments());
+        assertEquals(0, moments.getN());
+        assertTrue(Double.isNaN(moments.getMin()));
+        assertTrue(Double.isNaN(moments.getMax()));
+        assertTrue(Double.isNaN(moments.getMean()));
+        assertTrue(Double.isNaN(moments.getVariance()));
+        assertTrue(Double.isNaN(moments.getSkewness()));
+    }
+
+    public void testMergeEqualsSequential() throws Exception {
+        final Random random = new Random(1234);
+        final NumberMoments sequential = new NumberMoments();
+        final NumberMoments[] parts = new NumberMoments[] { new NumberMoments(), new NumberMoments(),
+                new NumberMoments() };
+        for (int i = 0; i < 10000; i++) {
+            final double value = 100 + random.nextGaussian() * 15 + (i % 3) * random.nextDouble() * 40;
+            sequential.addValue(value);
+            parts[i % 7 == 0 ? 0 : (i % 2) + 1].addValue(value);
+        }
+
+        final NumberMoments merged = new NumberMoments();
+        for (NumberMoments part : parts) {
+            merged.merge(part);
+        }
+
+        assertEquals(sequential.getN(), merged.getN());
+        assertEquals(sequential.getMin(), merged.getMin());
+        assertEquals(sequential.getMax(), merged.getMax());
+        assertEquals(sequential.getSum(), merged.getSum(), 0.000001);
+        assertEquals(sequential.getSumsq(), merged.getSumsq(), 0.01);
+        assertEquals(sequential.getMean(), merged.getMean(), 0.0000001);
+        assertEquals(sequential.getGeometricMean(), merged.getGeometricMean(), 0.0000001);
+        assertEquals(sequential.getSecondMoment(), merged.getSecondMoment(), 0.001);
+        assertEquals(sequential.getVariance(), merged.getVariance(), 0.0000001);
+        assertEquals(sequential.getSkewness(), merged.getSkewness(), 0.0000001);
+        assertEquals(sequential.getKurtosis(), merged.getKurtosis(), 0.0000001);
+    }
+}
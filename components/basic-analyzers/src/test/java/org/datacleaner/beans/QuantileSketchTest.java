@@ -0,0 +1,88 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.math.stat.descriptive.DescriptiveStatistics;
+
+public class QuantileSketchTest extends TestCase {
+
+    public void testExactWhileNotCompacted() throws Exception {
+        final QuantileSketch sketch = new QuantileSketch(200);
+        final DescriptiveStatistics statistics = new DescriptiveStatistics();
+        final Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            final double value = random.nextInt(1000) / 10d;
+            final int count = 1 + random.nextInt(3);
+            sketch.add(value, count);
+            for (int j = 0; j < count; j++) {
+                statistics.addValue(value);
+            }
+        }
+
+        assertTrue(sketch.isExact());
+        assertEquals(statistics.getN(), sketch.getN());
+        assertEquals(statistics.getMin(), sketch.getMin());
+        assertEquals(statistics.getMax(), sketch.getMax());
+        for (double percentile : new double[] { 1, 25, 50, 75, 99, 100 }) {
+            assertEquals(statistics.getPercentile(percentile), sketch.getPercentile(percentile), 0.0000001);
+        }
+    }
+
+    public void testRankErrorOfMergedSketches() throws Exception {
+        final double rankError = 0.01;
+        final int n = 200000;
+
+        final QuantileSketch[] sketches = new QuantileSketch[4];
+        for (int i = 0; i < sketches.length; i++) {
+            sketches[i] = QuantileSketch.forRankError(rankError);
+        }
+
+        final double[] values = new double[n];
+        final Random random = new Random(2);
+        for (int i = 0; i < n; i++) {
+            values[i] = random.nextGaussian();
+            sketches[i % sketches.length].add(values[i]);
+        }
+        Arrays.sort(values);
+
+        final QuantileSketch merged = new QuantileSketch(sketches[0].getK());
+        for (QuantileSketch sketch : sketches) {
+            merged.merge(sketch);
+        }
+
+        assertFalse(merged.isExact());
+        assertEquals(n, merged.getN());
+        assertEquals(values[0], merged.getMin());
+        assertEquals(values[n - 1], merged.getMax());
+        assertTrue("Too many retained values: " + merged.getRetainedValues(), merged.getRetainedValues() < 1000);
+
+        for (double percentile : new double[] { 5, 25, 50, 75, 95 }) {
+            final double estimate = merged.getPercentile(percentile);
+            final int rank = Math.abs(Arrays.binarySearch(values, estimate));
+            final double actualPercentile = 100.0 * rank / n;
+            assertEquals("Percentile " + percentile, percentile, actualPercentile, rankError * 100);
+        }
+    }
+}
@@ -19,11 +19,15 @@
  */
 package org.datacleaner.beans;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.swing.table.TableModel;
 
 import junit.framework.TestCase;
 
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 import org.datacleaner.descriptors.AnalyzerDescriptor;
@@ -202,4 +206,47 @@ public class StringAnalyzerTest extends TestCase {
         assertTrue(metric.isParameterizedByInputColumn());
         assertFalse(metric.isParameterizedByString());
     }
+
+    public void testConcurrentRunMatchesSequentialRun() throws Exception {
+        final List<InputRow> rows = new ArrayList<InputRow>();
+        for (int i = 0; i < 10000; i++) {
+            final String greeting = (i % 7 == 0 ? "HELLO" : "hello") + " world".substring(0, i % 6);
+            final String greeter = i % 11 == 0 ? null : "Greeter no. " + i;
+            rows.add(new MockInputRow(i).put(c1, greeting).put(c2, greeter));
+        }
+
+        for (InputRow row : rows) {
+            stringAnalyzer.run(row, 1);
+        }
+
+        final StringAnalyzer concurrentStringAnalyzer = new StringAnalyzer(c1, c2);
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int offset = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = offset; j < rows.size(); j += threads.length) {
+                        concurrentStringAnalyzer.run(rows.get(j), 1);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final StringAnalyzerResult result = stringAnalyzer.getResult();
+        final StringAnalyzerResult concurrentResult = concurrentStringAnalyzer.getResult();
+        assertEquals(new CrosstabTextRenderer().render(result), new CrosstabTextRenderer().render(concurrentResult));
+        assertEquals(10000, concurrentResult.getRowCount(c1));
+        assertEquals(910, concurrentResult.getNullCount(c2));
+        final AnnotatedRowsResult maxCharsRows = (AnnotatedRowsResult) result.getCrosstab()
+                .where("Measures", "Max chars").where("Column", "greetings").explore().getResult();
+        final AnnotatedRowsResult concurrentMaxCharsRows = (AnnotatedRowsResult) concurrentResult.getCrosstab()
+                .where("Measures", "Max chars").where("Column", "greetings").explore().getResult();
+        assertEquals(1666, maxCharsRows.getAnnotation().getRowCount());
+        assertEquals(1666, concurrentMaxCharsRows.getAnnotation().getRowCount());
+    }
 }
@@ -23,13 +23,15 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.TreeMap;
 
 import org.apache.metamodel.util.Predicate;
 import org.apache.metamodel.util.Ref;
@@ -94,15 +96,23 @@ public class HtmlAnalysisResultWriter implements AnalysisResultWriter {
 
         final RendererFactory rendererFactory = new RendererFactory(configuration);
         final Map<ComponentJob, HtmlFragment> htmlFragments = new LinkedHashMap<ComponentJob, HtmlFragment>();
-        final Map<ComponentJob, AnalyzerResult> resultMap = new TreeMap<ComponentJob, AnalyzerResult>(
-                new ComponentJobComparator());
-        resultMap.putAll(result.getResultMap());
+        // sort the entries rather than copying them to a sorted map, so that
+        // (lazily loaded) results are only read if they are included
+        final List<Entry<ComponentJob, AnalyzerResult>> resultEntries = new ArrayList<Entry<ComponentJob, AnalyzerResult>>(
+                result.getResultMap().entrySet());
+        final ComponentJobComparator componentJobComparator = new ComponentJobComparator();
+        Collections.sort(resultEntries, new Comparator<Entry<ComponentJob, AnalyzerResult>>() {
+            @Override
+            public int compare(Entry<ComponentJob, AnalyzerResult> o1, Entry<ComponentJob, AnalyzerResult> o2) {
+                return componentJobComparator.compare(o1.getKey(), o2.getKey());
+            }
+        });
 
-        for (Entry<ComponentJob, AnalyzerResult> entry : resultMap.entrySet()) {
+        for (Entry<ComponentJob, AnalyzerResult> entry : resultEntries) {
             final ComponentJob componentJob = entry.getKey();
-            final AnalyzerResult analyzerResult = entry.getValue();
 
             if (_jobInclusionPredicate.eval(entry)) {
+                final AnalyzerResult analyzerResult = entry.getValue();
                 final Renderer<? super AnalyzerResult, ? extends HtmlFragment> renderer = rendererFactory.getRenderer(
                         analyzerResult, HtmlRenderingFormat.class);
                 if (renderer == null) {
@@ -120,8 +130,7 @@ public class HtmlAnalysisResultWriter implements AnalysisResultWriter {
                     writeRenderingError(writer, componentJob, analyzerResult, e);
                 }
             } else {
-                logger.debug("Skipping job {} / result {} because predicate evaluated false", componentJob,
-                        analyzerResult);
+                logger.debug("Skipping job {} because predicate evaluated false", componentJob);
             }
         }
 
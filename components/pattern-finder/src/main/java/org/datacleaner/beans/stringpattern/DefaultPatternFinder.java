@@ -44,7 +44,20 @@ public final class DefaultPatternFinder extends PatternFinder<InputRow> {
      * @param annotationFactory
      */
     public DefaultPatternFinder(TokenizerConfiguration configuration, RowAnnotationFactory annotationFactory) {
-        super(configuration);
+        this(configuration, annotationFactory, true);
+    }
+
+    /**
+     * Constructor which allows to skip all locking in the pattern finder, if
+     * it is only run by one thread at a time.
+     * 
+     * @param configuration
+     * @param annotationFactory
+     * @param concurrent
+     */
+    public DefaultPatternFinder(TokenizerConfiguration configuration, RowAnnotationFactory annotationFactory,
+            boolean concurrent) {
+        super(configuration, concurrent);
         if (annotationFactory == null) {
             throw new IllegalArgumentException("RowAnnotationFactory cannot be null");
         }
@@ -96,13 +96,107 @@ public class DefaultTokenizer implements Serializable, Tokenizer {
 				}
 			}
 		} else {
-			tokens = new ArrayList<Token>();
-			tokens.addAll(tokenizeInternal(string));
+			tokens = tokenizeSubstrings(string);
 		}
 
 		return tokens;
 	}
 
+	/**
+	 * Allocation-light variant of {@link #tokenizeInternal(String)}, which
+	 * produces the same tokens, but as ranges of the original string, without
+	 * copying characters or using intermediate lists.
+	 * 
+	 * @param string
+	 * @return
+	 */
+	private List<Token> tokenizeSubstrings(final String string) {
+		final Character thousandsSeparator = _configuration.getThousandsSeparator();
+		final Character decimalSeparator = _configuration.getDecimalSeparator();
+		final Character minusSign = _configuration.getMinusSign();
+		final boolean discriminateTextCase = _configuration.isDiscriminateTextCase();
+
+		final List<Token> result = new ArrayList<Token>();
+		SubstringToken lastToken = null;
+
+		final int length = string.length();
+		for (int i = 0; i < length; i++) {
+			final char c = string.charAt(i);
+
+			if (is(c, thousandsSeparator) || is(c, decimalSeparator)) {
+				if (lastToken != null && lastToken.getType() == TokenType.NUMBER && i + 1 < length
+						&& Character.isDigit(string.charAt(i + 1))) {
+					// the separator and the next digit are part of the number
+					i++;
+					lastToken = registerRange(result, lastToken, string, i - 1, i + 1, TokenType.NUMBER);
+				} else {
+					lastToken = registerRange(result, lastToken, string, i, i + 1, TokenType.DELIM);
+				}
+			} else if (is(c, minusSign)) {
+				if ((lastToken == null || lastToken.getType() != TokenType.NUMBER) && i + 1 < length
+						&& Character.isDigit(string.charAt(i + 1))) {
+					// the minus sign is the number operator
+					i++;
+					lastToken = registerRange(result, null, string, i - 1, i + 1, TokenType.NUMBER);
+				} else {
+					lastToken = registerRange(result, lastToken, string, i, i + 1, TokenType.DELIM);
+				}
+			} else if (Character.isDigit(c)) {
+				lastToken = registerRange(result, lastToken, string, i, i + 1, TokenType.NUMBER);
+			} else if (Character.isLetter(c)) {
+				if (discriminateTextCase && lastToken != null && lastToken.getType() == TokenType.TEXT) {
+					if (Character.isUpperCase(lastToken.charAt(0)) != Character.isUpperCase(c)) {
+						lastToken = null;
+					}
+				}
+				lastToken = registerRange(result, lastToken, string, i, i + 1, TokenType.TEXT);
+			} else if (Character.isWhitespace(c)) {
+				lastToken = registerRange(result, lastToken, string, i, i + 1, TokenType.WHITESPACE);
+			} else {
+				lastToken = registerRange(result, lastToken, string, i, i + 1, TokenType.DELIM);
+			}
+		}
+
+		if (_configuration.isTokenTypeEnabled(TokenType.MIXED) && result.size() > 1) {
+			// flatten mixed tokens, see flattenMixedTokens(List)
+			int size = 1;
+			SubstringToken previousToken = (SubstringToken) result.get(0);
+			for (int i = 1; i < result.size(); i++) {
+				final SubstringToken token = (SubstringToken) result.get(i);
+				final TokenType previousType = previousToken.getType();
+				final TokenType currentType = token.getType();
+				if (previousType != currentType && isMixedCandidate(previousType) && isMixedCandidate(currentType)) {
+					previousToken.setEnd(token.getEnd());
+					previousToken.setType(TokenType.MIXED);
+				} else {
+					result.set(size, token);
+					size++;
+					previousToken = token;
+				}
+			}
+			while (result.size() > size) {
+				result.remove(result.size() - 1);
+			}
+		}
+
+		return result;
+	}
+
+	private static boolean is(char c, Character character) {
+		return character != null && character.charValue() == c;
+	}
+
+	private static SubstringToken registerRange(List<Token> result, SubstringToken lastToken, String string,
+			int start, int end, TokenType tokenType) {
+		if (lastToken != null && lastToken.getType() == tokenType) {
+			lastToken.setEnd(end);
+			return lastToken;
+		}
+		final SubstringToken token = new SubstringToken(tokenType, string, start, end);
+		result.add(token);
+		return token;
+	}
+
 	private List<SimpleToken> tokenizeInternal(String string) {
 		List<SimpleToken> tokens = preliminaryTokenize(string, _configuration);
 
@@ -0,0 +1,110 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.stringpattern;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.datacleaner.storage.RowAnnotation;
+import org.datacleaner.storage.RowAnnotationFactory;
+
+/**
+ * Pattern finder which merges the patterns of several {@link DefaultPatternFinder}
+ * s into one set of patterns. Like the {@link PatternFinderResultReducer}, the
+ * patterns are reverse engineered based on their symbolic strings, but the
+ * annotated rows of the merged patterns are transferred as well.
+ * 
+ * Since annotations are transferred (not copied), the merged pattern finders
+ * only keep patterns, and subsequent merges will only add the rows that have
+ * been annotated since the previous merge.
+ */
+final class MergingPatternFinder extends PatternFinder<Entry<TokenPattern, RowAnnotation>> {
+
+    private final Map<TokenPattern, RowAnnotation> _annotations;
+    private final Map<TokenPattern, String> _samples;
+    private final RowAnnotationFactory _annotationFactory;
+
+    public MergingPatternFinder(TokenizerConfiguration configuration, RowAnnotationFactory annotationFactory) {
+        super(new ReverseTokenizer(configuration), configuration);
+        _annotations = new HashMap<TokenPattern, RowAnnotation>();
+        _samples = new HashMap<TokenPattern, String>();
+        _annotationFactory = annotationFactory;
+    }
+
+    /**
+     * Merges the patterns of a pattern finder into this pattern finder.
+     * 
+     * @param patternFinder
+     */
+    public void merge(DefaultPatternFinder patternFinder) {
+        final List<Entry<TokenPattern, RowAnnotation>> entries = new ArrayList<Entry<TokenPattern, RowAnnotation>>(
+                patternFinder.getAnnotations().entrySet());
+
+        // merge the most frequent patterns first, in order to get the same
+        // samples as the pattern finder result reducer
+        Collections.sort(entries, new Comparator<Entry<TokenPattern, RowAnnotation>>() {
+            @Override
+            public int compare(Entry<TokenPattern, RowAnnotation> o1, Entry<TokenPattern, RowAnnotation> o2) {
+                int result = o2.getValue().getRowCount() - o1.getValue().getRowCount();
+                if (result == 0) {
+                    result = o1.getKey().toSymbolicString().compareTo(o2.getKey().toSymbolicString());
+                }
+                return result;
+            }
+        });
+
+        for (Entry<TokenPattern, RowAnnotation> entry : entries) {
+            // patterns without rows have been drained by a previous merge
+            final int rowCount = entry.getValue().getRowCount();
+            if (rowCount > 0) {
+                run(entry, entry.getKey().toSymbolicString(), rowCount);
+            }
+        }
+    }
+
+    @Override
+    protected void storeNewPattern(TokenPattern pattern, Entry<TokenPattern, RowAnnotation> entry, String value,
+            int distinctCount) {
+        final RowAnnotation annotation = _annotationFactory.createAnnotation();
+        _annotationFactory.transferAnnotations(entry.getValue(), annotation);
+        _annotations.put(pattern, annotation);
+        _samples.put(pattern, entry.getKey().getSampleString());
+    }
+
+    @Override
+    protected void storeMatch(TokenPattern pattern, Entry<TokenPattern, RowAnnotation> entry, String value,
+            int distinctCount) {
+        final RowAnnotation annotation = _annotations.get(pattern);
+        _annotationFactory.transferAnnotations(entry.getValue(), annotation);
+    }
+
+    public Map<TokenPattern, RowAnnotation> getAnnotations() {
+        return _annotations;
+    }
+
+    public String getSample(TokenPattern pattern) {
+        return _samples.get(pattern);
+    }
+}
@@ -24,7 +24,6 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 
 /***
  * A string pattern finder. This component can consume rows and produce string
@@ -40,26 +39,50 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public abstract class PatternFinder<R> {
 
-    private final ConcurrentHashMap<String, Collection<TokenPattern>> _patterns;
+    private final PatternTable _patterns;
     private final TokenizerConfiguration _configuration;
     private final Tokenizer _tokenizer;
+    private final boolean _concurrent;
 
     public PatternFinder(Tokenizer tokenizer, TokenizerConfiguration configuration) {
+        this(tokenizer, configuration, true);
+    }
+
+    /**
+     * 
+     * @param tokenizer
+     * @param configuration
+     * @param concurrent
+     *            whether or not the pattern finder may be run by more than one
+     *            thread at the same time. A pattern finder that is only run
+     *            by one thread at a time, eg. a shard of a larger analysis,
+     *            skips all locking.
+     */
+    public PatternFinder(Tokenizer tokenizer, TokenizerConfiguration configuration, boolean concurrent) {
         _configuration = configuration;
         _tokenizer = tokenizer;
-        _patterns = new ConcurrentHashMap<>();
+        _concurrent = concurrent;
+        _patterns = new PatternTable();
     }
 
     public PatternFinder(TokenizerConfiguration configuration) {
         this(new DefaultTokenizer(configuration), configuration);
     }
 
+    public PatternFinder(TokenizerConfiguration configuration, boolean concurrent) {
+        this(new DefaultTokenizer(configuration), configuration, concurrent);
+    }
+
     /**
      * This method should be invoked by the user of the PatternFinder. Invoke it
      * for each value in your dataset. Repeated values are handled correctly but
      * if available it is more effecient to handle only the distinct values and
      * their corresponding distinct counts.
      * 
+     * A concurrent pattern finder is thread-safe. Matching is synchronized on
+     * the patterns that share the pattern code of the value, so values with
+     * different pattern codes can be matched concurrently.
+     * 
      * @param row
      *            the row containing the value
      * @param value
@@ -76,79 +99,78 @@ public abstract class PatternFinder<R> {
             throw new IllegalStateException("Error occurred while tokenizing value: " + value, e);
         }
 
-        final String patternCode = getPatternCode(tokens);
-        final Collection<TokenPattern> patterns = getOrCreatePatterns(patternCode);
+        final long patternCode = getPatternCode(tokens);
+
+        if (!_concurrent) {
+            run(_patterns.getOrCreate(patternCode), tokens, row, value, distinctCount);
+            return;
+        }
+
+        final List<TokenPattern> patterns;
+        synchronized (_patterns) {
+            patterns = _patterns.getOrCreate(patternCode);
+        }
 
         // lock on "patterns" since it is going to be the same collection for
         // all matching pattern codes.
         synchronized (patterns) {
-            boolean match = false;
-            for (TokenPattern pattern : patterns) {
-                if (pattern.match(tokens)) {
-                    storeMatch(pattern, row, value, distinctCount);
-                    match = true;
-                    break;
-                }
-            }
-
-            if (!match) {
-                final TokenPattern pattern;
-                try {
-                    pattern = new TokenPatternImpl(value, tokens, _configuration);
-                } catch (RuntimeException e) {
-                    throw new IllegalStateException("Error occurred while creating pattern for: " + tokens, e);
-                }
-
-                storeNewPattern(pattern, row, value, distinctCount);
-                patterns.add(pattern);
-            }
+            run(patterns, tokens, row, value, distinctCount);
         }
     }
 
-    /**
-     * Gets a collection of known {@link TokenPattern}s that matches the pattern
-     * code
-     * 
-     * @param patternCode
-     * @return
-     */
-    private Collection<TokenPattern> getOrCreatePatterns(String patternCode) {
-        // first try the cheapest get(..) method
-        final Collection<TokenPattern> patterns = _patterns.get(patternCode);
-        if (patterns != null) {
-            return patterns;
+    private void run(List<TokenPattern> patterns, List<Token> tokens, R row, String value, int distinctCount) {
+        final int size = patterns.size();
+        for (int i = 0; i < size; i++) {
+            final TokenPattern pattern = patterns.get(i);
+            if (pattern.match(tokens)) {
+                storeMatch(pattern, row, value, distinctCount);
+                return;
+            }
         }
 
-        // then try the concurrent version which requires a collection
-        final Collection<TokenPattern> newPatterns = new ArrayList<>(3);
-        final Collection<TokenPattern> existingPatterns = _patterns.putIfAbsent(patternCode, newPatterns);
-        if (existingPatterns == null) {
-            return newPatterns;
+        final TokenPattern pattern;
+        try {
+            pattern = new TokenPatternImpl(value, tokens, _configuration);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("Error occurred while creating pattern for: " + tokens, e);
         }
-        return existingPatterns;
+
+        storeNewPattern(pattern, row, value, distinctCount);
+        patterns.add(pattern);
     }
 
     /**
-     * Creates an almost unique String code for a list of tokens. This code is
-     * used to improve search time when looking for potential matching patterns.
+     * Creates an almost unique code for a list of tokens, based on the number
+     * of tokens and their types. This code is used to improve search time when
+     * looking for potential matching patterns.
      * 
      * @param tokens
      * @return
      */
-    private String getPatternCode(List<Token> tokens) {
-        final StringBuilder sb = new StringBuilder();
-        sb.append(tokens.size());
-        for (Token token : tokens) {
-            sb.append(token.getType().ordinal());
+    private static long getPatternCode(List<Token> tokens) {
+        final int size = tokens.size();
+        long code = 0xcbf29ce484222325L ^ size;
+        for (int i = 0; i < size; i++) {
+            code ^= tokens.get(i).getType().ordinal() + 1;
+            code *= 0x100000001b3L;
         }
-        return sb.toString();
+        code ^= (code >>> 33);
+        code *= 0xff51afd7ed558ccdL;
+        code ^= (code >>> 33);
+        return code;
     }
 
     public Collection<TokenPattern> getPatterns() {
         final Set<TokenPattern> result = new HashSet<TokenPattern>();
-        final Collection<Collection<TokenPattern>> values = _patterns.values();
-        for (Collection<TokenPattern> set : values) {
-            result.addAll(set);
+        synchronized (_patterns) {
+            for (int i = 0; i < _patterns.getCapacity(); i++) {
+                final List<TokenPattern> patterns = _patterns.getPatterns(i);
+                if (patterns != null) {
+                    synchronized (patterns) {
+                        result.addAll(patterns);
+                    }
+                }
+            }
         }
         return result;
     }
@@ -183,4 +205,64 @@ public abstract class PatternFinder<R> {
      *            the distinctCount that was handed to the run(...) method
      */
     protected abstract void storeMatch(TokenPattern pattern, R row, String value, int distinctCount);
+    /**
+     * Open addressing hash table of the lists of patterns that have the same
+     * pattern code.
+     */
+    private static final class PatternTable {
+
+        private long[] _codes = new long[16];
+        private List<?>[] _patterns = new List<?>[16];
+        private int _size = 0;
+
+        @SuppressWarnings("unchecked")
+        public List<TokenPattern> getOrCreate(long code) {
+            final int mask = _patterns.length - 1;
+            int slot = (int) code & mask;
+            while (true) {
+                final List<?> patterns = _patterns[slot];
+                if (patterns == null) {
+                    final List<TokenPattern> newPatterns = new ArrayList<>(3);
+                    _codes[slot] = code;
+                    _patterns[slot] = newPatterns;
+                    _size++;
+                    if (_size * 2 > _patterns.length) {
+                        resize();
+                    }
+                    return newPatterns;
+                }
+                if (_codes[slot] == code) {
+                    return (List<TokenPattern>) patterns;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void resize() {
+            final long[] oldCodes = _codes;
+            final List<?>[] oldPatterns = _patterns;
+            final int mask = oldPatterns.length * 2 - 1;
+            _codes = new long[oldPatterns.length * 2];
+            _patterns = new List<?>[oldPatterns.length * 2];
+            for (int i = 0; i < oldPatterns.length; i++) {
+                if (oldPatterns[i] != null) {
+                    int slot = (int) oldCodes[i] & mask;
+                    while (_patterns[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    _codes[slot] = oldCodes[i];
+                    _patterns[slot] = oldPatterns[i];
+                }
+            }
+        }
+
+        public int getCapacity() {
+            return _patterns.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public List<TokenPattern> getPatterns(int slot) {
+            return (List<TokenPattern>) _patterns[slot];
+        }
+    }
 }
@@ -21,9 +21,11 @@ package org.datacleaner.beans.stringpattern;
 
 import java.io.Serializable;
 import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -51,6 +53,7 @@ import org.datacleaner.result.CrosstabNavigator;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.util.NullTolerableComparator;
+import org.datacleaner.util.ShardPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -127,7 +130,12 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
     @Configured(required = false, order = 14)
     Character minusSign = DecimalFormatSymbols.getInstance().getMinusSign();
 
-    private Map<String, DefaultPatternFinder> _patternFinders;
+    // each call borrows a shard of pattern finders per group from the pool,
+    // the shards are collected per group and merged when the result is
+    // requested
+    private ShardPool<Map<String, DefaultPatternFinder>> _patternFinderShards;
+    private Map<String, List<DefaultPatternFinder>> _groupedPatternFinders;
+    private Map<String, MergingPatternFinder> _mergingPatternFinders;
     private TokenizerConfiguration _configuration;
 
     @Provided
@@ -165,7 +173,14 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
             _configuration.getPredefinedTokens().add(new PredefinedTokenDefinition(predefinedTokenName, tokenRegexes));
         }
 
-        _patternFinders = new HashMap<String, DefaultPatternFinder>();
+        _patternFinderShards = new ShardPool<Map<String, DefaultPatternFinder>>() {
+            @Override
+            protected Map<String, DefaultPatternFinder> createShard() {
+                return new HashMap<String, DefaultPatternFinder>();
+            }
+        };
+        _groupedPatternFinders = new HashMap<String, List<DefaultPatternFinder>>();
+        _mergingPatternFinders = new HashMap<String, MergingPatternFinder>();
     }
 
     @Override
@@ -182,36 +197,55 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
     }
 
     private void run(String group, String value, InputRow row, int distinctCount) {
-        DefaultPatternFinder patternFinder = getPatternFinderForGroup(group);
-        patternFinder.run(row, value, distinctCount);
+        final Map<String, DefaultPatternFinder> patternFinders = _patternFinderShards.borrow();
+        try {
+            DefaultPatternFinder patternFinder = patternFinders.get(group);
+            if (patternFinder == null) {
+                patternFinder = new DefaultPatternFinder(_configuration, _rowAnnotationFactory, false);
+                patternFinders.put(group, patternFinder);
+            }
+            patternFinder.run(row, value, distinctCount);
+        } finally {
+            _patternFinderShards.release(patternFinders);
+        }
     }
 
-    private DefaultPatternFinder getPatternFinderForGroup(String group) {
-        DefaultPatternFinder patternFinder = _patternFinders.get(group);
-        if (patternFinder == null) {
-            synchronized (this) {
-                patternFinder = _patternFinders.get(group);
-                if (patternFinder == null) {
-                    patternFinder = new DefaultPatternFinder(_configuration, _rowAnnotationFactory);
-                    _patternFinders.put(group, patternFinder);
+    /**
+     * Collects the pattern finders of all shards per group. The shards are
+     * drained from the pool, so that the pattern finders are only merged once
+     * and can be garbage collected together with the merged result.
+     */
+    private void collectShards() {
+        for (Map<String, DefaultPatternFinder> patternFinders : _patternFinderShards.drain()) {
+            for (Entry<String, DefaultPatternFinder> entry : patternFinders.entrySet()) {
+                List<DefaultPatternFinder> list = _groupedPatternFinders.get(entry.getKey());
+                if (list == null) {
+                    list = new ArrayList<DefaultPatternFinder>(1);
+                    _groupedPatternFinders.put(entry.getKey(), list);
                 }
+                list.add(entry.getValue());
             }
         }
-        return patternFinder;
     }
 
     @Override
-    public PatternFinderResult getResult() {
+    public synchronized PatternFinderResult getResult() {
+        collectShards();
+
         if (groupColumn == null) {
-            Crosstab<?> crosstab = createCrosstab(getPatternFinderForGroup(null));
+            final List<DefaultPatternFinder> patternFinders = _groupedPatternFinders.get(null);
+            final Crosstab<?> crosstab;
+            if (patternFinders == null) {
+                crosstab = createCrosstab();
+            } else {
+                crosstab = createCrosstab(null, patternFinders);
+            }
             return new PatternFinderResult(column, crosstab, _configuration);
         } else {
             final Map<String, Crosstab<?>> crosstabs = new TreeMap<String, Crosstab<?>>(NullTolerableComparator.get(
                     String.class));
-            final Set<Entry<String, DefaultPatternFinder>> patternFinderEntries = _patternFinders.entrySet();
-            for (Entry<String, DefaultPatternFinder> entry : patternFinderEntries) {
-                final DefaultPatternFinder patternFinder = entry.getValue();
-                final Crosstab<Serializable> crosstab = createCrosstab(patternFinder);
+            for (Entry<String, List<DefaultPatternFinder>> entry : _groupedPatternFinders.entrySet()) {
+                final Crosstab<Serializable> crosstab = createCrosstab(entry.getKey(), entry.getValue());
                 crosstabs.put(entry.getKey(), crosstab);
             }
             if (logger.isInfoEnabled()) {
@@ -231,10 +265,34 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
         return crosstab;
     }
 
-    private Crosstab<Serializable> createCrosstab(DefaultPatternFinder patternFinder) {
+    private Crosstab<Serializable> createCrosstab(String group, List<DefaultPatternFinder> patternFinders) {
+        final MergingPatternFinder mergingPatternFinder = _mergingPatternFinders.get(group);
+        if (mergingPatternFinder == null && patternFinders.size() == 1) {
+            final DefaultPatternFinder patternFinder = patternFinders.get(0);
+            return createCrosstab(patternFinder.getAnnotations(), null);
+        }
+
+        // more than one thread has found patterns for the group
+        final MergingPatternFinder patternFinder;
+        if (mergingPatternFinder == null) {
+            patternFinder = new MergingPatternFinder(_configuration, _rowAnnotationFactory);
+            _mergingPatternFinders.put(group, patternFinder);
+        } else {
+            patternFinder = mergingPatternFinder;
+        }
+        for (DefaultPatternFinder shardPatternFinder : patternFinders) {
+            patternFinder.merge(shardPatternFinder);
+        }
+        // merged pattern finders are not merged again on subsequent calls
+        patternFinders.clear();
+        return createCrosstab(patternFinder.getAnnotations(), patternFinder);
+    }
+
+    private Crosstab<Serializable> createCrosstab(Map<TokenPattern, RowAnnotation> annotations,
+            MergingPatternFinder mergingPatternFinder) {
         final Crosstab<Serializable> crosstab = createCrosstab();
 
-        final Set<Entry<TokenPattern, RowAnnotation>> entrySet = patternFinder.getAnnotations().entrySet();
+        final Set<Entry<TokenPattern, RowAnnotation>> entrySet = annotations.entrySet();
 
         // sort the entries so that the ones with the highest amount of
         // matches are at the top
@@ -262,7 +320,11 @@ public class PatternFinderAnalyzer implements Analyzer<PatternFinderResult> {
             nav.attach(AnnotatedRowsResult.createIfSampleRowsAvailable(annotation, _rowAnnotationFactory, column));
 
             nav.where(DIMENSION_NAME_MEASURES, MEASURE_SAMPLE);
-            nav.put(pattern.getSampleString(), true);
+            if (mergingPatternFinder == null) {
+                nav.put(pattern.getSampleString(), true);
+            } else {
+                nav.put(mergingPatternFinder.getSample(pattern), true);
+            }
         }
         return crosstab;
     }
@@ -0,0 +1,86 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.stringpattern;
+
+/**
+ * Token which refers to a range of characters in the tokenized string, instead
+ * of holding a copy of them. The string of the token is only created when it
+ * is requested.
+ */
+final class SubstringToken implements Token {
+
+	private final String _source;
+	private final int _start;
+	private int _end;
+	private TokenType _type;
+	private String _string;
+
+	public SubstringToken(TokenType type, String source, int start, int end) {
+		_type = type;
+		_source = source;
+		_start = start;
+		_end = end;
+	}
+
+	public int getStart() {
+		return _start;
+	}
+
+	public int getEnd() {
+		return _end;
+	}
+
+	public void setEnd(int end) {
+		_end = end;
+		_string = null;
+	}
+
+	@Override
+	public String getString() {
+		if (_string == null) {
+			_string = _source.substring(_start, _end);
+		}
+		return _string;
+	}
+
+	@Override
+	public int length() {
+		return _end - _start;
+	}
+
+	@Override
+	public char charAt(int index) {
+		return _source.charAt(_start + index);
+	}
+
+	@Override
+	public TokenType getType() {
+		return _type;
+	}
+
+	public void setType(TokenType type) {
+		_type = type;
+	}
+
+	@Override
+	public String toString() {
+		return "Token['" + getString() + "' (" + _type + ")]";
+	}
+}
@@ -155,7 +155,8 @@ public class TokenPatternSymbolImpl implements TokenPatternSymbol {
     public boolean matches(Token token, TokenizerConfiguration configuration) {
         if (EqualsBuilder.equals(_tokenType, token.getType())) {
             if (configuration.isDistriminateTokenLength(_tokenType)) {
-                if (toSymbolicString().length() != token.getString().length()) {
+                final int symbolicLength = (_symbolicString == null ? _length : _symbolicString.length());
+                if (symbolicLength != token.length()) {
                     // not a match, based on length
                     return false;
                 }
@@ -94,6 +94,47 @@ public class PatternFinderAnalyzerTest extends TestCase {
 		assertEquals("Aaaaaaa Aaaaaaa (AAA)           1 Account Manager (USA) ", resultLines[6]);
 	}
 
+	public void testMergePatternsOfMultipleThreads() throws Exception {
+		final PatternFinderAnalyzer pf = new PatternFinderAnalyzer();
+		final MockInputColumn<String> column = new MockInputColumn<String>("title", String.class);
+
+		pf.setRowAnnotationFactory(RowAnnotations.getDefaultFactory());
+		pf.setColumn(column);
+		pf.setDiscriminateTextCase(true);
+
+		pf.init();
+
+		pf.run(new MockInputRow().put(column, "Sales director"), 1);
+		pf.run(new MockInputRow().put(column, "Key account manager"), 1);
+
+		final Thread thread = new Thread() {
+			@Override
+			public void run() {
+				pf.run(new MockInputRow().put(column, "Account manager"), 1);
+				pf.run(new MockInputRow().put(column, "Sales manager (EMEA)"), 1);
+			}
+		};
+		thread.start();
+		thread.join();
+
+		String[] resultLines;
+		resultLines = new PatternFinderResultTextRenderer().render(pf.getResult()).split("\n");
+		assertEquals(4, resultLines.length);
+		assertEquals("                     Match count Sample      ", resultLines[0]);
+		assertEquals("Aaaaaaa aaaaaaaa               2 Sales director ", resultLines[1]);
+		assertEquals("Aaa aaaaaaa aaaaaaa            1 Key account manager ", resultLines[2]);
+		assertEquals("Aaaaa aaaaaaa (AAAA)           1 Sales manager (EMEA) ", resultLines[3]);
+
+		// merging again should not count the same rows twice
+		pf.run(new MockInputRow().put(column, "Sales manager"), 1);
+
+		resultLines = new PatternFinderResultTextRenderer().render(pf.getResult()).split("\n");
+		assertEquals(4, resultLines.length);
+		assertEquals("Aaaaaaa aaaaaaaa               3 Sales director ", resultLines[1]);
+		assertEquals("Aaa aaaaaaa aaaaaaa            1 Key account manager ", resultLines[2]);
+		assertEquals("Aaaaa aaaaaaa (AAAA)           1 Sales manager (EMEA) ", resultLines[3]);
+	}
+
 	public void testEmailAddresses() throws Exception {
 		PatternFinderAnalyzer pf = new PatternFinderAnalyzer();
 		MockInputColumn<String> column = new MockInputColumn<String>("title", String.class);
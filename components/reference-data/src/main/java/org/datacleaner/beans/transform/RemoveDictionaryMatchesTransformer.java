@@ -21,12 +21,7 @@ package org.datacleaner.beans.transform;
 
 import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -50,6 +45,7 @@ import org.datacleaner.components.categories.ReferenceDataCategory;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.reference.Dictionary;
 import org.datacleaner.reference.DictionaryConnection;
+import org.datacleaner.reference.TermMatcher;
 import org.datacleaner.util.StringUtils;
 
 import com.google.common.base.Joiner;
@@ -97,7 +93,7 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     DataCleanerConfiguration _configuration;
 
     private DictionaryConnection _dictionaryConnection;
-    private Map<String, Pattern> multiWordDictionaryPatterns;
+    private TermMatcher multiWordDictionaryMatcher;
 
     public RemoveDictionaryMatchesTransformer() {
     }
@@ -137,21 +133,18 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     @Initialize
     public void init() {
         _dictionaryConnection = _dictionary.openConnection(_configuration);
-        multiWordDictionaryPatterns = new LinkedHashMap<>();
-        
-        final Iterator<String> allValues = _dictionaryConnection.getLengthSortedValues();
+
+        // the matcher prefers the longest of overlapping matches by itself, so
+        // the values are not sorted by length
+        final List<String> multiWordValues = new ArrayList<>();
+        final Iterator<String> allValues = _dictionaryConnection.getAllValues();
         while (allValues.hasNext()) {
             final String value = allValues.next();
             if (!StringUtils.isSingleWord(value)) {
-                final Pattern pattern;
-                if (_dictionary.isCaseSensitive()) {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value) + "\\b");
-                } else {
-                    pattern = Pattern.compile("\\b" + Pattern.quote(value.toLowerCase()) + "\\b");
-                }
-                multiWordDictionaryPatterns.put(value, pattern);
+                multiWordValues.add(value);
             }
         }
+        multiWordDictionaryMatcher = new TermMatcher(multiWordValues, _dictionary.isCaseSensitive());
     }
 
     @Close
@@ -171,31 +164,27 @@ public class RemoveDictionaryMatchesTransformer implements Transformer {
     public Object[] transform(String value) {
         final List<String> removedParts = new ArrayList<>(2);
         if (!Strings.isNullOrEmpty(value)) {
-            for (Entry<String, Pattern> entry : multiWordDictionaryPatterns.entrySet()) {
-                final Pattern pattern = entry.getValue();
-                final Matcher matcher;
-                if (_dictionary.isCaseSensitive()) {
-                    matcher = pattern.matcher(value);
-                } else {
-                    matcher = pattern.matcher(value.toLowerCase());
-                }
-                while(matcher.find()){
-                    final int start;
-                    final int end;
-                    if (matcher.start() > 0 && value.charAt(matcher.start() - 1) == ' ') {
-                        start = matcher.start() - 1;
-                        end = matcher.end();
-                    } else if ( matcher.end() < value.length() && value.charAt(matcher.end()) == ' ') {
-                        start = matcher.start();
-                        end = matcher.end() + 1;
-                    } else {
-                        start = matcher.start();
-                        end = matcher.end();
+            // remove all multi-word matches in a single pass
+            final List<TermMatcher.Match> matches = multiWordDictionaryMatcher.find(value);
+            if (!matches.isEmpty()) {
+                final StringBuilder sb = new StringBuilder(value.length());
+                int position = 0;
+                for (TermMatcher.Match match : matches) {
+                    // also remove a space before (or else after) the match
+                    int start = match.getStart();
+                    int end = match.getEnd();
+                    if (start > position && value.charAt(start - 1) == ' ') {
+                        start--;
+                    } else if (end < value.length() && value.charAt(end) == ' ') {
+                        end++;
                     }
 
-                    value = value.substring(0, start) + value.substring(end);
-                    removedParts.add(entry.getKey());
+                    sb.append(value, position, start);
+                    position = end;
+                    removedParts.add(match.getTerm());
                 }
+                sb.append(value, position, value.length());
+                value = sb.toString();
             }
             
             // do word-by-word dictionary lookups
@@ -19,6 +19,11 @@
  */
 package org.datacleaner.beans.referentialintegrity;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -28,6 +33,7 @@ import org.datacleaner.api.Close;
 import org.datacleaner.api.ColumnProperty;
 import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
+import org.datacleaner.api.HasRuntimeMetrics;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
@@ -42,7 +48,7 @@ import org.datacleaner.storage.RowAnnotationFactory;
 
 @Named("Referential integrity")
 @Description("Check the integrity of a foreign key by checking that every value can be resolved in another table (which may be in a different datastore altogether).")
-public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegrityAnalyzerResult> {
+public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegrityAnalyzerResult>, HasRuntimeMetrics {
 
     private static final String PROPERTY_NAME_DATASTORE = "Datastore";
     private static final String PROPERTY_NAME_SCHEMA_NAME = "Schema name";
@@ -86,6 +92,21 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
     @Description("Ignore null values")
     boolean ignoreNullValues = true;
 
+    @Inject
+    @Configured(required = false)
+    @Description("How many values to look up in a single query. Set to 1 to look up each value separately.")
+    int batchSize = 500;
+
+    @Inject
+    @Configured(required = false)
+    @Description("Maximum number of lookup results to keep in the client-side cache.")
+    int cacheSize = TableLookupTransformer.DEFAULT_CACHE_SIZE;
+
+    @Inject
+    @Configured(required = false)
+    @Description("Load the complete lookup table into memory if it has no more than this number of records. Set to 0 to never load the table into memory.")
+    int preloadThreshold = 0;
+
     @Inject
     @Provided
     RowAnnotation annotation;
@@ -95,12 +116,17 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
     RowAnnotationFactory annotationFactory;
 
     private TableLookupTransformer _tableLookup;
+    private List<InputRow> _pendingRows;
+    private List<Integer> _pendingDistinctCounts;
 
     @Initialize
     public void init() {
         _tableLookup = new TableLookupTransformer(datastore, schemaName, tableName, new String[] { columnName },
-                new InputColumn<?>[] { foreignKey }, new String[] { columnName }, cacheLookups);
+                new InputColumn<?>[] { foreignKey }, new String[] { columnName }, cacheLookups, cacheSize,
+                preloadThreshold);
         _tableLookup.init();
+        _pendingRows = new ArrayList<>();
+        _pendingDistinctCounts = new ArrayList<>();
     }
 
     @Override
@@ -117,6 +143,15 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
             }
         }
 
+        if (batchSize > 1) {
+            _pendingRows.add(row);
+            _pendingDistinctCounts.add(distinctCount);
+            if (_pendingRows.size() >= batchSize) {
+                flushPendingRows();
+            }
+            return;
+        }
+
         Object[] result = _tableLookup.transform(row);
         assert result.length == 1;
 
@@ -126,8 +161,36 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
         }
     }
 
+    /**
+     * Looks up the foreign keys of all pending rows in one batch, and
+     * annotates the rows that could not be resolved.
+     */
+    private void flushPendingRows() {
+        if (_pendingRows.isEmpty()) {
+            return;
+        }
+
+        final List<List<Object>> queryInputs = new ArrayList<>(_pendingRows.size());
+        for (InputRow row : _pendingRows) {
+            queryInputs.add(Collections.<Object> singletonList(row.getValue(foreignKey)));
+        }
+
+        final Map<List<Object>, Object[]> results = _tableLookup.lookupBatch(queryInputs);
+
+        for (int i = 0; i < queryInputs.size(); i++) {
+            final Object[] result = results.get(queryInputs.get(i));
+            if (result == null || result[0] == null) {
+                annotationFactory.annotate(_pendingRows.get(i), _pendingDistinctCounts.get(i), annotation);
+            }
+        }
+
+        _pendingRows.clear();
+        _pendingDistinctCounts.clear();
+    }
+
     @Override
     public ReferentialIntegrityAnalyzerResult getResult() {
+        flushPendingRows();
         return new ReferentialIntegrityAnalyzerResult(annotation, annotationFactory,
                 new InputColumn<?>[] { foreignKey });
     }
@@ -138,6 +201,17 @@ public class ReferentialIntegrityAnalyzer implements Analyzer<ReferentialIntegri
             _tableLookup.close();
             _tableLookup = null;
         }
+        _pendingRows = null;
+        _pendingDistinctCounts = null;
+    }
+
+    @Override
+    public Map<String, Number> getRuntimeMetrics() {
+        final TableLookupTransformer tableLookup = _tableLookup;
+        if (tableLookup == null) {
+            return Collections.emptyMap();
+        }
+        return tableLookup.getRuntimeMetrics();
     }
 
 }
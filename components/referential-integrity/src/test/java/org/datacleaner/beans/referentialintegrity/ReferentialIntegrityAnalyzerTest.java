@@ -38,6 +38,18 @@ import org.datacleaner.test.TestHelper;
 public class ReferentialIntegrityAnalyzerTest extends TestCase {
 
     public void testSimpleScenario() throws Throwable {
+        runSimpleScenario(1, 0);
+    }
+
+    public void testBatchedLookups() throws Throwable {
+        runSimpleScenario(10, 0);
+    }
+
+    public void testPreloadedLookups() throws Throwable {
+        runSimpleScenario(10, 1000);
+    }
+
+    private void runSimpleScenario(int batchSize, int preloadThreshold) throws Throwable {
         Datastore datastore = TestHelper.createSampleDatabaseDatastore("orderdb");
 
         DataCleanerConfigurationImpl configuration = new DataCleanerConfigurationImpl()
@@ -57,6 +69,8 @@ public class ReferentialIntegrityAnalyzerTest extends TestCase {
         referentialIntegrity.schemaName = "PUBLIC";
         referentialIntegrity.tableName = "employees";
         referentialIntegrity.columnName = "EMPLOYEENUMBER";
+        referentialIntegrity.batchSize = batchSize;
+        referentialIntegrity.preloadThreshold = preloadThreshold;
 
         AnalysisJob analysisJob = jobBuilder.toAnalysisJob();
 
@@ -24,6 +24,7 @@ import java.io.IOException;
 import java.io.Writer;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Named;
@@ -45,14 +46,22 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.util.WriteBuffer;
 import org.datacleaner.util.sort.SortMergeWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 @Named("Unique key check")
 @Description("Check your keys (or other fields) for uniqueness")
 @Concurrent(true)
 public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerResult> {
 
+    private static final Logger logger = LoggerFactory.getLogger(UniqueKeyCheckAnalyzer.class);
+
     private static final CsvConfiguration CSV_CONFIGURATION = new CsvConfiguration();
 
+    private static final int MAX_SAMPLES = 1000;
+
+    private static final int STRIPE_BITS = 4;
+
     @Configured
     InputColumn<?> column;
 
@@ -60,10 +69,17 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
     @Description("How many values to buffer before loading them to disk. For high volume data, consider increasing the buffer to minimize the amount of open disk handles.")
     int _bufferSize = 20000;
 
+    @Configured(required = false)
+    @Description("How many distinct values to count in memory before falling back to sorting the values on disk. Set to 0 to always sort the values on disk.")
+    int _inMemoryThreshold = 1000000;
+
     private WriteBuffer _writeBuffer;
     private SortMergeWriter<String, Writer> _sorter;
     private AtomicInteger _rowCount;
     private AtomicInteger _nullCount;
+    private ValueCountTable[] _tables;
+    private AtomicInteger _distinctCount;
+    private volatile boolean _spilled;
 
     public UniqueKeyCheckAnalyzer() {
     }
@@ -72,10 +88,24 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         _bufferSize = bufferSize;
     }
 
+    public UniqueKeyCheckAnalyzer(int bufferSize, int inMemoryThreshold) {
+        _bufferSize = bufferSize;
+        _inMemoryThreshold = inMemoryThreshold;
+    }
+
     @Initialize
     public void init() {
         _rowCount = new AtomicInteger();
         _nullCount = new AtomicInteger();
+        _distinctCount = new AtomicInteger();
+        _spilled = _inMemoryThreshold <= 0;
+        if (!_spilled) {
+            // striped to reduce lock contention between threads
+            _tables = new ValueCountTable[1 << STRIPE_BITS];
+            for (int i = 0; i < _tables.length; i++) {
+                _tables[i] = new ValueCountTable();
+            }
+        }
         _sorter = new SortMergeWriter<String, Writer>(_bufferSize, ToStringComparator.getComparator()) {
             private final CsvWriter csvWriter = new CsvWriter(CSV_CONFIGURATION);
 
@@ -119,7 +149,11 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         if (value == null) {
             _nullCount.addAndGet(distinctCount);
         } else {
-            String str = value.toString();
+            final String str = value.toString();
+
+            if (!_spilled && countInMemory(str, distinctCount)) {
+                return;
+            }
 
             for (int i = 0; i < distinctCount; i++) {
                 _writeBuffer.addToBuffer(new Object[] { str });
@@ -127,8 +161,63 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
         }
     }
 
+    /**
+     * Counts a value in the in-memory tables.
+     * 
+     * @param value
+     * @param count
+     * @return false if the tables have been spilled to the sorter, in which
+     *         case the value has not been counted
+     */
+    private boolean countInMemory(String value, int count) {
+        final long fingerprint = ValueCountTable.fingerprint(value);
+        final ValueCountTable table = _tables[(int) (fingerprint >>> (64 - STRIPE_BITS))];
+        final boolean added;
+        synchronized (table) {
+            if (table.isClosed()) {
+                return false;
+            }
+            added = table.add(fingerprint, value, count);
+        }
+        if (added && _distinctCount.incrementAndGet() > _inMemoryThreshold) {
+            spill();
+        }
+        return true;
+    }
+
+    /**
+     * Moves all values counted in memory to the sorter. Each table is closed
+     * while holding it's lock, so that concurrent threads either add to the
+     * table before it is moved, or to the sorter afterwards.
+     */
+    private void spill() {
+        synchronized (_tables) {
+            if (_spilled) {
+                return;
+            }
+            logger.info("More than {} distinct values, falling back to sorting values on disk", _inMemoryThreshold);
+            for (ValueCountTable table : _tables) {
+                synchronized (table) {
+                    final int capacity = table.getCapacity();
+                    for (int i = 0; i < capacity; i++) {
+                        final String value = table.getValue(i);
+                        if (value != null) {
+                            _sorter.append(value, table.getCount(i));
+                        }
+                    }
+                    table.close();
+                }
+            }
+            _spilled = true;
+        }
+    }
+
     @Override
     public UniqueKeyCheckAnalyzerResult getResult() {
+        if (!_spilled) {
+            return getResultFromMemory();
+        }
+
         _writeBuffer.flushBuffer();
 
         File file;
@@ -153,7 +242,7 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
                 final String text = (String) dataSet.getRow().getValue(0);
                 final String countStr = (String) dataSet.getRow().getValue(1);
                 final int count = Integer.parseInt(countStr);
-                if (i < 1000) {
+                if (i < MAX_SAMPLES) {
                     // only build up to 1000 records in the sample
                     samples.put(text, count);
                 }
@@ -169,4 +258,37 @@ public class UniqueKeyCheckAnalyzer implements Analyzer<UniqueKeyCheckAnalyzerRe
 
         return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount, samples);
     }
+
+    private UniqueKeyCheckAnalyzerResult getResultFromMemory() {
+        int nonUniqueCount = 0;
+
+        // keep the first 1000 non-unique values in sorted order, like the
+        // sorted file would
+        final TreeMap<String, Integer> sortedSamples = new TreeMap<String, Integer>(
+                ToStringComparator.getComparator());
+        for (ValueCountTable table : _tables) {
+            synchronized (table) {
+                final int capacity = table.getCapacity();
+                for (int i = 0; i < capacity; i++) {
+                    final String value = table.getValue(i);
+                    final int count = table.getCount(i);
+                    if (value != null && count > 1) {
+                        nonUniqueCount += count;
+                        sortedSamples.put(value, count);
+                        if (sortedSamples.size() > MAX_SAMPLES) {
+                            sortedSamples.pollLastEntry();
+                        }
+                    }
+                }
+            }
+        }
+
+        final Map<String, Integer> samples = new LinkedHashMap<String, Integer>(sortedSamples);
+
+        final int rowCount = _rowCount.get();
+        final int nullCount = _nullCount.get();
+        final int uniqueCount = rowCount - nullCount - nonUniqueCount;
+
+        return new UniqueKeyCheckAnalyzerResult(rowCount, uniqueCount, nonUniqueCount, nullCount, samples);
+    }
 }
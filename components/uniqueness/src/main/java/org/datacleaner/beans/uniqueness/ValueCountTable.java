@@ -0,0 +1,174 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.uniqueness;
+
+/**
+ * Open addressing hash table which counts occurrences of string values, using
+ * parallel primitive arrays instead of map entries and boxed counts.
+ *
+ * Slots are located using a 64 bit fingerprint of the value, and the value
+ * itself is only compared when fingerprints are equal, in order to verify that
+ * it is not a fingerprint collision.
+ *
+ * This class is not thread-safe.
+ */
+final class ValueCountTable {
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+
+    private long[] _fingerprints;
+    private String[] _values;
+    private int[] _counts;
+    private int _size;
+    private boolean _closed;
+
+    public ValueCountTable() {
+        _fingerprints = new long[INITIAL_CAPACITY];
+        _values = new String[INITIAL_CAPACITY];
+        _counts = new int[INITIAL_CAPACITY];
+        _size = 0;
+        _closed = false;
+    }
+
+    /**
+     * Computes a 64 bit fingerprint of a string (FNV-1a over the characters,
+     * with a final avalanche step).
+     *
+     * @param value
+     * @return
+     */
+    public static long fingerprint(String value) {
+        long hash = 0xcbf29ce484222325L;
+        final int length = value.length();
+        for (int i = 0; i < length; i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+
+    /**
+     * Adds occurrences of a value to the table.
+     *
+     * @param fingerprint
+     *            the fingerprint of the value, see {@link #fingerprint(String)}
+     * @param value
+     * @param count
+     * @return true if the value was not previously in the table
+     */
+    public boolean add(long fingerprint, String value, int count) {
+        final int mask = _values.length - 1;
+        int slot = (int) fingerprint & mask;
+        while (true) {
+            final String existingValue = _values[slot];
+            if (existingValue == null) {
+                _fingerprints[slot] = fingerprint;
+                _values[slot] = value;
+                _counts[slot] = count;
+                _size++;
+                if (_size * 2 > _values.length) {
+                    resize();
+                }
+                return true;
+            }
+            if (_fingerprints[slot] == fingerprint && existingValue.equals(value)) {
+                _counts[slot] += count;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        final long[] oldFingerprints = _fingerprints;
+        final String[] oldValues = _values;
+        final int[] oldCounts = _counts;
+
+        final int newCapacity = oldValues.length * 2;
+        final int mask = newCapacity - 1;
+        _fingerprints = new long[newCapacity];
+        _values = new String[newCapacity];
+        _counts = new int[newCapacity];
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = (int) oldFingerprints[i] & mask;
+                while (_values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                _fingerprints[slot] = oldFingerprints[i];
+                _values[slot] = oldValues[i];
+                _counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Gets the number of slots in the table. Use together with
+     * {@link #getValue(int)} and {@link #getCount(int)} to iterate the table.
+     *
+     * @return
+     */
+    public int getCapacity() {
+        return _values.length;
+    }
+
+    /**
+     * Gets the value in a slot, or null if the slot is empty.
+     *
+     * @param slot
+     * @return
+     */
+    public String getValue(int slot) {
+        return _values[slot];
+    }
+
+    public int getCount(int slot) {
+        return _counts[slot];
+    }
+
+    /**
+     * Determines if this table has been closed, meaning that it's contents have
+     * been moved elsewhere and it should no longer be added to.
+     *
+     * @return
+     */
+    public boolean isClosed() {
+        return _closed;
+    }
+
+    /**
+     * Closes the table and releases it's contents.
+     */
+    public void close() {
+        _closed = true;
+        _fingerprints = null;
+        _values = null;
+        _counts = null;
+        _size = 0;
+    }
+}
@@ -37,8 +37,21 @@ public class UniqueKeyCheckAnalyzerTest extends TestCase {
     public void testSimpleScenario() throws Exception {
         final int bufferSizeInTest = 20;
 
+        runSimpleScenario(new UniqueKeyCheckAnalyzer(bufferSizeInTest));
+    }
+
+    @Test
+    public void testSimpleScenarioSpillingToDisk() throws Exception {
+        runSimpleScenario(new UniqueKeyCheckAnalyzer(20, 10));
+    }
+
+    @Test
+    public void testSimpleScenarioSortingOnDiskOnly() throws Exception {
+        runSimpleScenario(new UniqueKeyCheckAnalyzer(20, 0));
+    }
+
+    private void runSimpleScenario(UniqueKeyCheckAnalyzer analyzer) throws Exception {
         final MockInputColumn<String> col = new MockInputColumn<String>("foo");
-        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer(bufferSizeInTest);
         analyzer.column = col;
 
         analyzer.init();
@@ -68,4 +81,24 @@ public class UniqueKeyCheckAnalyzerTest extends TestCase {
         assertEquals("Unique key check result:\n" + " - Row count: 73\n" + " - Null count: 0\n"
                 + " - Unique count: 60\n" + " - Non-unique count: 13", result.toString());
     }
+
+    @Test
+    public void testDistinctCount() throws Exception {
+        final MockInputColumn<String> col = new MockInputColumn<String>("foo");
+        final UniqueKeyCheckAnalyzer analyzer = new UniqueKeyCheckAnalyzer();
+        analyzer.column = col;
+
+        analyzer.init();
+
+        analyzer.run(new MockInputRow().put(col, "foo"), 3);
+        analyzer.run(new MockInputRow().put(col, "bar"), 1);
+        analyzer.run(new MockInputRow().put(col, null), 2);
+
+        UniqueKeyCheckAnalyzerResult result = analyzer.getResult();
+        assertEquals(6, result.getRowCount());
+        assertEquals(1, result.getUniqueCount());
+        assertEquals(2, result.getNullCount());
+        assertEquals(3, result.getNonUniqueCount());
+        assertEquals("{foo=3}", result.getNonUniqueSamples().toString());
+    }
 }
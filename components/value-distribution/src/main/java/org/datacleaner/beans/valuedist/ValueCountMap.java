@@ -0,0 +1,123 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.beans.valuedist;
+
+/**
+ * Open addressing hash map of string values and their (primitive) counts,
+ * avoiding the entry and boxing overhead of a regular {@link java.util.Map}.
+ * 
+ * This class is not thread-safe.
+ */
+final class ValueCountMap {
+
+    private static final int INITIAL_CAPACITY = 1 << 6;
+
+    private String[] _values;
+    private int[] _counts;
+    private int _size;
+
+    public ValueCountMap() {
+        _values = new String[INITIAL_CAPACITY];
+        _counts = new int[INITIAL_CAPACITY];
+        _size = 0;
+    }
+
+    /**
+     * Adds to the count of a value.
+     * 
+     * @param value
+     *            the value, which cannot be null
+     * @param count
+     */
+    public void add(String value, int count) {
+        final int mask = _values.length - 1;
+        int slot = spread(value.hashCode()) & mask;
+        while (true) {
+            final String existingValue = _values[slot];
+            if (existingValue == null) {
+                _values[slot] = value;
+                _counts[slot] = count;
+                _size++;
+                if (_size * 2 > _values.length) {
+                    resize();
+                }
+                return;
+            }
+            if (existingValue.equals(value)) {
+                _counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        final String[] oldValues = _values;
+        final int[] oldCounts = _counts;
+        final int mask = oldValues.length * 2 - 1;
+        _values = new String[oldValues.length * 2];
+        _counts = new int[oldValues.length * 2];
+        for (int i = 0; i < oldValues.length; i++) {
+            final String value = oldValues[i];
+            if (value != null) {
+                int slot = spread(value.hashCode()) & mask;
+                while (_values[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                _values[slot] = value;
+                _counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int spread(int hash) {
+        // string hash codes are poorly distributed in the lower bits
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    public int size() {
+        return _size;
+    }
+
+    /**
+     * Gets the number of slots in the map. Use together with
+     * {@link #getValue(int)} and {@link #getCount(int)} to iterate the map.
+     * 
+     * @return
+     */
+    public int getCapacity() {
+        return _values.length;
+    }
+
+    /**
+     * Gets the value in a slot, or null if the slot is empty.
+     * 
+     * @param slot
+     * @return
+     */
+    public String getValue(int slot) {
+        return _values[slot];
+    }
+
+    public int getCount(int slot) {
+        return _counts[slot];
+    }
+}
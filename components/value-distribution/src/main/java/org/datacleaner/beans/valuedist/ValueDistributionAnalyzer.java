@@ -19,10 +19,12 @@
  */
 package org.datacleaner.beans.valuedist;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -41,7 +43,6 @@ import org.datacleaner.api.Provided;
 import org.datacleaner.storage.CollectionFactory;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotations;
-import org.datacleaner.util.NullTolerableComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -90,7 +91,13 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     @Provided
     RowAnnotationFactory _annotationFactory;
 
-    private final Map<String, ValueDistributionGroup> _valueDistributionGroups;
+    private final ConcurrentMap<String, ValueDistributionGroup> _valueDistributionGroups;
+
+    /**
+     * The group of records with a null group value, which cannot be held by
+     * {@link #_valueDistributionGroups}.
+     */
+    private volatile ValueDistributionGroup _nullValueDistributionGroup;
 
     /**
      * Constructor used for testing and ad-hoc purposes
@@ -121,8 +128,7 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
      * Main constructor
      */
     public ValueDistributionAnalyzer() {
-        _valueDistributionGroups = new TreeMap<>(
-                NullTolerableComparator.get(String.class));
+        _valueDistributionGroups = new ConcurrentHashMap<>();
     }
 
     @Override
@@ -153,19 +159,23 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
     }
 
     private ValueDistributionGroup getValueDistributionGroup(String group) {
+        if (group == null) {
+            if (_nullValueDistributionGroup == null) {
+                synchronized (this) {
+                    if (_nullValueDistributionGroup == null) {
+                        _nullValueDistributionGroup = createValueDistributionGroup(null);
+                    }
+                }
+            }
+            return _nullValueDistributionGroup;
+        }
+
         ValueDistributionGroup valueDistributionGroup = _valueDistributionGroups.get(group);
         if (valueDistributionGroup == null) {
             synchronized (this) {
                 valueDistributionGroup = _valueDistributionGroups.get(group);
                 if (valueDistributionGroup == null) {
-                    final InputColumn<?>[] inputColumns;
-                    if (_groupColumn == null) {
-                        inputColumns = new InputColumn[] { _column };
-                    } else {
-                        inputColumns = new InputColumn[] { _column, _groupColumn };
-                    }
-                    valueDistributionGroup = new ValueDistributionGroup(group, _annotationFactory,
-                            _recordDrillDownInformation, inputColumns);
+                    valueDistributionGroup = createValueDistributionGroup(group);
                     _valueDistributionGroups.put(group, valueDistributionGroup);
                 }
             }
@@ -173,6 +183,16 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
         return valueDistributionGroup;
     }
 
+    private ValueDistributionGroup createValueDistributionGroup(String group) {
+        final InputColumn<?>[] inputColumns;
+        if (_groupColumn == null) {
+            inputColumns = new InputColumn[] { _column };
+        } else {
+            inputColumns = new InputColumn[] { _column, _groupColumn };
+        }
+        return new ValueDistributionGroup(group, _annotationFactory, _recordDrillDownInformation, inputColumns);
+    }
+
     @Override
     public ValueDistributionAnalyzerResult getResult() {
         if (_groupColumn == null) {
@@ -181,11 +201,16 @@ public class ValueDistributionAnalyzer implements Analyzer<ValueDistributionAnal
 
             return valueDistributionGroup.createResult(_recordUniqueValues);
         } else {
-            logger.info("getResult() invoked, processing {} groups", _valueDistributionGroups.size());
+            final List<ValueDistributionGroup> valueDistributionGroups = new ArrayList<>(
+                    _valueDistributionGroups.values());
+            if (_nullValueDistributionGroup != null) {
+                valueDistributionGroups.add(_nullValueDistributionGroup);
+            }
+
+            logger.info("getResult() invoked, processing {} groups", valueDistributionGroups.size());
 
             final SortedSet<SingleValueDistributionResult> groupedResults = new TreeSet<>();
-            for (String group : _valueDistributionGroups.keySet()) {
-                final ValueDistributionGroup valueDistributibutionGroup = getValueDistributionGroup(group);
+            for (ValueDistributionGroup valueDistributibutionGroup : valueDistributionGroups) {
                 final SingleValueDistributionResult result = valueDistributibutionGroup
                         .createResult(_recordUniqueValues);
                 groupedResults.add(result);
@@ -25,7 +25,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
@@ -35,6 +36,7 @@ import org.datacleaner.result.ValueFrequency;
 import org.datacleaner.storage.RowAnnotation;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotationImpl;
+import org.datacleaner.util.ShardPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,19 +45,26 @@ import org.slf4j.LoggerFactory;
  * {@link ValueDistributionGroup} contains the counted values within a single
  * group.
  * 
- * 
+ * To avoid contention when many threads are counting values concurrently, each
+ * call borrows a {@link Counts} shard from a pool and counts into it. The pool
+ * only grows to the number of calls that run at the same time, and the shards
+ * are merged into a single set of counts when the result is created, so that
+ * the memory held by the group does not depend on how many threads have been
+ * used. When recording annotations, all calls share a single annotation per
+ * value, so that drill-down samples are not multiplied by the number of shards.
  */
 class ValueDistributionGroup {
 
     private static final Logger logger = LoggerFactory.getLogger(ValueDistributionGroup.class);
 
-    private final Map<String, RowAnnotation> _annotationMap;
+    private final ShardPool<Counts> _countShards;
+    private final Counts _mergedCounts;
+    private final ConcurrentMap<String, RowAnnotation> _annotations;
     private final RowAnnotation _nullValueAnnotation;
     private final RowAnnotationFactory _annotationFactory;
     private final String _groupName;
     private final boolean _recordAnnotations;
     private final InputColumn<?>[] _inputColumns;
-    private final AtomicInteger _totalCount;
 
     public ValueDistributionGroup(String groupName, RowAnnotationFactory annotationFactory, boolean recordAnnotations,
             InputColumn<?>[] inputColumns) {
@@ -63,43 +72,89 @@ class ValueDistributionGroup {
         _annotationFactory = annotationFactory;
         _recordAnnotations = recordAnnotations;
         _inputColumns = inputColumns;
-        _totalCount = new AtomicInteger();
-        _annotationMap = new HashMap<String, RowAnnotation>();
+        _countShards = new ShardPool<Counts>() {
+            @Override
+            protected Counts createShard() {
+                return new Counts(_recordAnnotations);
+            }
+        };
+        _mergedCounts = new Counts(recordAnnotations);
         if (recordAnnotations) {
             _nullValueAnnotation = _annotationFactory.createAnnotation();
+            _annotations = new ConcurrentHashMap<String, RowAnnotation>();
         } else {
-            _nullValueAnnotation = new RowAnnotationImpl();
+            _nullValueAnnotation = null;
+            _annotations = null;
         }
     }
 
     public void run(InputRow row, String value, int distinctCount) {
-        if (value == null) {
-            if (_recordAnnotations) {
-                _annotationFactory.annotate(row, distinctCount, _nullValueAnnotation);
-            } else {
-                ((RowAnnotationImpl) _nullValueAnnotation).incrementRowCount(distinctCount);
+        final Counts counts = _countShards.borrow();
+        try {
+            counts.totalCount += distinctCount;
+            if (!_recordAnnotations) {
+                if (value == null) {
+                    counts.nullCount += distinctCount;
+                } else {
+                    counts.valueCounts.add(value, distinctCount);
+                }
+                return;
             }
+        } finally {
+            _countShards.release(counts);
+        }
+
+        if (value == null) {
+            _annotationFactory.annotate(row, distinctCount, _nullValueAnnotation);
         } else {
-            RowAnnotation annotation;
-            synchronized (this) {
-                annotation = _annotationMap.get(value);
-                if (annotation == null) {
-                    if (_recordAnnotations) {
-                        annotation = _annotationFactory.createAnnotation();
-                    } else {
-                        annotation = new RowAnnotationImpl();
+            RowAnnotation annotation = _annotations.get(value);
+            if (annotation == null) {
+                annotation = _annotationFactory.createAnnotation();
+                final RowAnnotation existingAnnotation = _annotations.putIfAbsent(value, annotation);
+                if (existingAnnotation != null) {
+                    annotation = existingAnnotation;
+                }
+            }
+            _annotationFactory.annotate(row, distinctCount, annotation);
+        }
+    }
+
+    /**
+     * Merges the counts of all shards into {@link #_mergedCounts}. The shards
+     * are dropped from the pool, so that a group whose result has been
+     * created only holds a single set of counts.
+     */
+    private synchronized void mergeCountShards() {
+        for (Counts counts : _countShards.drain()) {
+            _mergedCounts.totalCount += counts.totalCount;
+            _mergedCounts.nullCount += counts.nullCount;
+            if (!_recordAnnotations) {
+                final ValueCountMap valueCounts = counts.valueCounts;
+                final int capacity = valueCounts.getCapacity();
+                for (int i = 0; i < capacity; i++) {
+                    final String value = valueCounts.getValue(i);
+                    if (value != null) {
+                        _mergedCounts.valueCounts.add(value, valueCounts.getCount(i));
                     }
-                    _annotationMap.put(value, annotation);
                 }
             }
+        }
+    }
 
-            if (_recordAnnotations) {
-                _annotationFactory.annotate(row, distinctCount, annotation);
-            } else {
-                ((RowAnnotationImpl) annotation).incrementRowCount(distinctCount);
+    private Map<String, RowAnnotation> createAnnotationMap() {
+        if (_recordAnnotations) {
+            return new HashMap<String, RowAnnotation>(_annotations);
+        }
+        final Map<String, RowAnnotation> annotationMap = new HashMap<String, RowAnnotation>();
+        final ValueCountMap valueCounts = _mergedCounts.valueCounts;
+        final int capacity = valueCounts.getCapacity();
+        for (int i = 0; i < capacity; i++) {
+            final String value = valueCounts.getValue(i);
+            if (value != null) {
+                annotationMap.put(value, new RowAnnotationImpl(valueCounts.getCount(i)));
             }
         }
-        _totalCount.addAndGet(distinctCount);
+        return annotationMap;
     }
 
     public SingleValueDistributionResult createResult(boolean recordUniqueValues) {
@@ -112,9 +167,21 @@ class ValueDistributionGroup {
             uniqueValues = null;
         }
 
+        mergeCountShards();
+        final Map<String, RowAnnotation> annotationMap = createAnnotationMap();
+        final int totalCount = _mergedCounts.totalCount;
+        final int nullCount = _mergedCounts.nullCount;
+
+        final RowAnnotation nullValueAnnotation;
+        if (_recordAnnotations) {
+            nullValueAnnotation = _nullValueAnnotation;
+        } else {
+            nullValueAnnotation = new RowAnnotationImpl(nullCount);
+        }
+
         int uniqueCount = 0;
-        final int entryCount = _annotationMap.size();
-        final Set<Entry<String, RowAnnotation>> entrySet = _annotationMap.entrySet();
+        final int entryCount = annotationMap.size();
+        final Set<Entry<String, RowAnnotation>> entrySet = annotationMap.entrySet();
 
         int i = 0;
         for (Entry<String, RowAnnotation> entry : entrySet) {
@@ -129,7 +196,7 @@ class ValueDistributionGroup {
         }
 
         final int distinctCount;
-        if (_nullValueAnnotation.getRowCount() > 0) {
+        if (nullValueAnnotation.getRowCount() > 0) {
             distinctCount = 1 + entryCount;
         } else {
             distinctCount = entryCount;
@@ -137,10 +204,10 @@ class ValueDistributionGroup {
 
         if (recordUniqueValues) {
             return new SingleValueDistributionResult(_groupName, topValues, uniqueValues, uniqueCount, distinctCount,
-                    _totalCount.get(), _annotationMap, _nullValueAnnotation, _annotationFactory, _inputColumns);
+                    totalCount, annotationMap, nullValueAnnotation, _annotationFactory, _inputColumns);
         } else {
-            return new SingleValueDistributionResult(_groupName, topValues, uniqueCount, distinctCount,
-                    _totalCount.get(), _annotationMap, _nullValueAnnotation, _annotationFactory, _inputColumns);
+            return new SingleValueDistributionResult(_groupName, topValues, uniqueCount, distinctCount, totalCount,
+                    annotationMap, nullValueAnnotation, _annotationFactory, _inputColumns);
         }
     }
 
@@ -157,4 +224,23 @@ class ValueDistributionGroup {
         }
         return uniqueCount;
     }
+
+    /**
+     * A shard of value counts. Only accessed by the call that has borrowed it
+     * until the result is created.
+     */
+    private static final class Counts {
+
+        private final ValueCountMap valueCounts;
+        private int totalCount;
+        private int nullCount;
+
+        public Counts(boolean recordAnnotations) {
+            if (recordAnnotations) {
+                valueCounts = null;
+            } else {
+                valueCounts = new ValueCountMap();
+            }
+        }
+    }
 }
@@ -22,7 +22,9 @@ package org.datacleaner.beans.valuedist;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.apache.metamodel.schema.MutableColumn;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
@@ -206,4 +208,48 @@ public class ValueDistributionAnalyzerTest {
         assertEquals("Group: 2200", resultLines[i++]);
         assertEquals(" - Copenhagen N: 3", resultLines[i++]);
     }
+
+    @Test
+    public void testConcurrentRuns() throws Exception {
+        runConcurrently(true);
+        runConcurrently(false);
+    }
+
+    private void runConcurrently(boolean recordDrillDownInformation) throws Exception {
+        final ValueDistributionAnalyzer vd = new ValueDistributionAnalyzer(new MockInputColumn<String>("foo",
+                String.class), true);
+        vd.setRecordDrillDownInformation(recordDrillDownInformation);
+
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++) {
+                        final String value = (i % 10 == 0 ? null : "value" + (i % 100));
+                        vd.runInternal(new MockInputRow(), value, 1);
+                    }
+                }
+            });
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final ValueCountingAnalyzerResult result = vd.getResult();
+        assertEquals(4000, result.getTotalCount());
+        assertEquals(400, result.getNullCount());
+        assertEquals(90, result.getDistinctCount().intValue());
+        assertEquals(40, result.getCount("value1").intValue());
+        assertEquals(40, result.getCount("value99").intValue());
+        assertEquals(recordDrillDownInformation, result.hasAnnotatedRows("value1"));
+
+        // the per-thread counts are released, but remain part of the result
+        final ValueCountingAnalyzerResult secondResult = vd.getResult();
+        assertEquals(4000, secondResult.getTotalCount());
+        assertEquals(40, secondResult.getCount("value1").intValue());
+    }
 }
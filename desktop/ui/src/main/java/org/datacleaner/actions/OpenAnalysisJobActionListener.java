@@ -29,6 +29,7 @@ import javax.swing.JOptionPane;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.Resource;
 import org.datacleaner.Version;
 import org.datacleaner.bootstrap.WindowContext;
 import org.datacleaner.configuration.DataCleanerConfiguration;
@@ -42,9 +43,11 @@ import org.datacleaner.job.NoSuchComponentException;
 import org.datacleaner.job.NoSuchDatastoreException;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
 import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.save.SectionedAnalysisResultReader;
 import org.datacleaner.user.UserPreferences;
 import org.datacleaner.util.ChangeAwareObjectInputStream;
 import org.datacleaner.util.FileFilters;
+import org.datacleaner.util.VfsResource;
 import org.datacleaner.util.VFSUtils;
 import org.datacleaner.util.WidgetUtils;
 import org.datacleaner.widgets.DCFileChooser;
@@ -137,16 +140,25 @@ public class OpenAnalysisJobActionListener implements ActionListener {
 
     public ResultWindow openAnalysisResult(final FileObject fileObject, DCModule parentModule) {
         final AnalysisResult analysisResult;
-        try {
-            ChangeAwareObjectInputStream is = new ChangeAwareObjectInputStream(fileObject.getContent().getInputStream());
+        final Resource resource = new VfsResource(fileObject);
+        if (SectionedAnalysisResultReader.isSectioned(resource)) {
+            // the file may be overwritten while the result window is open
+            final SectionedAnalysisResultReader reader = SectionedAnalysisResultReader.inMemory(resource);
+            reader.addClassLoader(ExtensionPackage.getExtensionClassLoader());
+            analysisResult = reader.getAnalysisResult();
+        } else {
             try {
-                is.addClassLoader(ExtensionPackage.getExtensionClassLoader());
-                analysisResult = (AnalysisResult) is.readObject();
-            } finally {
-                FileHelper.safeClose(is);
+                ChangeAwareObjectInputStream is = new ChangeAwareObjectInputStream(fileObject.getContent()
+                        .getInputStream());
+                try {
+                    is.addClassLoader(ExtensionPackage.getExtensionClassLoader());
+                    analysisResult = (AnalysisResult) is.readObject();
+                } finally {
+                    FileHelper.safeClose(is);
+                }
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
             }
-        } catch (Exception e) {
-            throw new IllegalStateException(e);
         }
 
         final File file = VFSUtils.toFile(fileObject);
@@ -25,6 +25,7 @@ import java.util.List;
 import junit.framework.TestCase;
 
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.datacleaner.api.Analyzer;
@@ -57,6 +58,7 @@ import org.datacleaner.job.builder.TransformerComponentBuilder;
 import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskRunner;
 import org.datacleaner.lifecycle.LifeCycleHelper;
+import org.datacleaner.test.MockAnalyzer;
 import org.datacleaner.test.TestHelper;
 
 @SuppressWarnings("deprecation")
@@ -251,6 +253,59 @@ public class RowProcessingQueryOptimizerTest extends TestCase {
         assertFalse(optimizer.isOptimizable());
     }
 
+    public void testGroupByOptimization() throws Exception {
+        final AnalyzerComponentBuilder<MockAnalyzer> mockAnalyzerBuilder = ajb.addAnalyzer(MockAnalyzer.class);
+        mockAnalyzerBuilder.addInputColumn(lastNameInputColumn);
+        publisher = createPublisher();
+        consumers.add(createConsumer(mockAnalyzerBuilder, publisher));
+
+        RowProcessingQueryOptimizer optimizer = new RowProcessingQueryOptimizerImpl(datastore, consumers, baseQuery,
+                false);
+        assertNull(optimizer.getDistinctCountSelectItem());
+        assertSame(baseQuery, optimizer.getOptimizedQuery());
+
+        optimizer = new RowProcessingQueryOptimizerImpl(datastore, consumers, baseQuery, true);
+        final SelectItem countItem = optimizer.getDistinctCountSelectItem();
+        assertNotNull(countItem);
+
+        final Query q = optimizer.getOptimizedQuery();
+        assertEquals("SELECT \"EMPLOYEES\".\"LASTNAME\", COUNT(*) FROM PUBLIC.\"EMPLOYEES\" "
+                + "GROUP BY \"EMPLOYEES\".\"LASTNAME\"", q.toSql());
+        assertSame(countItem, q.getSelectClause().getItem(1));
+
+        // the base query is not modified
+        assertEquals(0, baseQuery.getGroupByClause().getItemCount());
+    }
+
+    public void testNoGroupByOptimizationWithAnnotatingAnalyzer() throws Exception {
+        stringAnalyzerBuilder.setRequirement(null);
+        final AnalyzerComponentBuilder<MockAnalyzer> mockAnalyzerBuilder = ajb.addAnalyzer(MockAnalyzer.class);
+        mockAnalyzerBuilder.addInputColumn(lastNameInputColumn);
+        publisher = createPublisher();
+        consumers.add(createConsumer(mockAnalyzerBuilder, publisher));
+        consumers.add(createConsumer(stringAnalyzerBuilder, publisher));
+
+        final RowProcessingQueryOptimizer optimizer = new RowProcessingQueryOptimizerImpl(datastore, consumers,
+                baseQuery, true);
+        assertNull(optimizer.getDistinctCountSelectItem());
+        assertEquals(0, optimizer.getOptimizedQuery().getGroupByClause().getItemCount());
+    }
+
+    public void testNoGroupByOptimizationWithMaxRows() throws Exception {
+        final AnalyzerComponentBuilder<MockAnalyzer> mockAnalyzerBuilder = ajb.addAnalyzer(MockAnalyzer.class);
+        mockAnalyzerBuilder.addInputColumn(lastNameInputColumn);
+        mockAnalyzerBuilder.setRequirement(maxRowsBuilder, MaxRowsFilter.Category.VALID);
+        publisher = createPublisher();
+        consumers.add(createConsumer(maxRowsBuilder, publisher));
+        consumers.add(createConsumer(mockAnalyzerBuilder, publisher));
+
+        final RowProcessingQueryOptimizer optimizer = new RowProcessingQueryOptimizerImpl(datastore, consumers,
+                baseQuery, true);
+        assertTrue(optimizer.isOptimizable());
+        assertNull(optimizer.getDistinctCountSelectItem());
+        assertEquals(1000, optimizer.getOptimizedQuery().getMaxRows().intValue());
+    }
+
     private FilterConsumer createConsumer(FilterComponentBuilder<?, ?> filterJobBuilder,
             RowProcessingPublisher publisher) {
         FilterJob filterJob = filterJobBuilder.toFilterJob();
@@ -19,22 +19,35 @@
  */
 package org.datacleaner.components.tablelookup;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.query.CompiledQuery;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.LogicalOperator;
 import org.apache.metamodel.query.OperatorType;
 import org.apache.metamodel.query.Query;
 import org.apache.metamodel.query.QueryParameter;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.HasName;
 import org.datacleaner.api.Alias;
@@ -46,6 +59,7 @@ import org.datacleaner.api.Configured;
 import org.datacleaner.api.Description;
 import org.datacleaner.api.HasAnalyzerResult;
 import org.datacleaner.api.HasLabelAdvice;
+import org.datacleaner.api.HasRuntimeMetrics;
 import org.datacleaner.api.Initialize;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
@@ -59,8 +73,11 @@ import org.datacleaner.api.Transformer;
 import org.datacleaner.api.Validate;
 import org.datacleaner.components.categories.ImproveSuperCategory;
 import org.datacleaner.components.categories.ReferenceDataCategory;
+import org.datacleaner.components.convert.ConvertToNumberTransformer;
+import org.datacleaner.components.convert.ConvertToStringTransformer;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.reference.DatastoreCollation;
 import org.datacleaner.result.CategorizationResult;
 import org.datacleaner.storage.DummyRowAnnotationFactory;
 import org.datacleaner.storage.RowAnnotation;
@@ -80,7 +97,8 @@ import com.google.common.cache.Cache;
 @Description("Perform a lookup based on a table in any of your registered datastore (like a LEFT join).")
 @Concurrent(true)
 @Categorized(superCategory = ImproveSuperCategory.class, value = ReferenceDataCategory.class)
-public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasAnalyzerResult<CategorizationResult> {
+public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasAnalyzerResult<CategorizationResult>,
+        HasRuntimeMetrics {
 
     private static final Logger logger = LoggerFactory.getLogger(TableLookupTransformer.class);
 
@@ -88,6 +106,14 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     private static final String PROPERTY_NAME_SCHEMA_NAME = "Schema name";
     private static final String PROPERTY_NAME_TABLE_NAME = "Table name";
 
+    public static final int DEFAULT_CACHE_SIZE = 10000;
+
+    /**
+     * The maximum number of condition values to put in a single batched
+     * lookup query. Kept well below the IN-list limits of common databases.
+     */
+    private static final int MAX_BATCH_QUERY_CONDITIONS = 500;
+
     public static enum JoinSemantic implements HasName {
         @Alias("LEFT")
         LEFT_JOIN_MAX_ONE("Left join (max 1 record)"),
@@ -155,6 +181,18 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     @Description("Use a client-side cache to avoid looking up multiple times with same inputs.")
     boolean cacheLookups = true;
 
+    @Inject
+    @Configured(required = false)
+    @Description("Maximum number of lookup results to keep in the client-side cache.")
+    int cacheSize = DEFAULT_CACHE_SIZE;
+
+    @Inject
+    @Configured(required = false)
+    @Description("Load the complete lookup table into memory if it has no more than this number of records. "
+            + "Condition values are then compared in memory instead of by the datastore. "
+            + "Set to 0 to never load the table into memory.")
+    int preloadThreshold = 0;
+
     @Inject
     @Configured
     @Description("Which kind of semantic to apply to the lookup, compared to a SQL JOIN.")
@@ -180,10 +218,15 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     @Provided
     RowAnnotation _cached;
 
-    private final Cache<List<Object>, Object[]> cache = CollectionUtils2.<List<Object>, Object[]> createCache(10000,
-            5 * 60);
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+    private final AtomicLong lookupQueries = new AtomicLong();
+    private Cache<List<Object>, Object[]> cache;
+    private Map<List<Object>, List<Object[]>> preloadedRecords;
+    private int preloadedRecordCount;
     private Column[] queryOutputColumns;
     private Column[] queryConditionColumns;
+    private DatastoreCollation[] queryConditionCollations;
     private DatastoreConnection datastoreConnection;
     private CompiledQuery lookupQuery;
 
@@ -222,6 +265,29 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         _misses = _annotationFactory.createAnnotation();
     }
 
+    /**
+     * Constructor for direct usage within e.g. other components where we always
+     * expect to do LEFT JOIN (max one record) semantic lookups, with control
+     * over caching and preloading of the lookup table.
+     * 
+     * @param datastore
+     * @param schemaName
+     * @param tableName
+     * @param conditionColumns
+     * @param conditionValues
+     * @param outputColumns
+     * @param cacheLookups
+     * @param cacheSize
+     * @param preloadThreshold
+     */
+    public TableLookupTransformer(Datastore datastore, String schemaName, String tableName, String[] conditionColumns,
+            InputColumn<?>[] conditionValues, String[] outputColumns, boolean cacheLookups, int cacheSize,
+            int preloadThreshold) {
+        this(datastore, schemaName, tableName, conditionColumns, conditionValues, outputColumns, cacheLookups);
+        this.cacheSize = cacheSize;
+        this.preloadThreshold = preloadThreshold;
+    }
+
     @Override
     public String getSuggestedLabel() {
         if (tableName == null) {
@@ -233,6 +299,7 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     private void resetCachedColumns() {
         queryOutputColumns = null;
         queryConditionColumns = null;
+        queryConditionCollations = null;
     }
 
     private Column[] getQueryConditionColumns() {
@@ -297,8 +364,117 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
     public void init() {
         datastoreConnection = datastore.openConnection();
         resetCachedColumns();
-        cache.invalidateAll();
+        cache = CollectionUtils2.<List<Object>, Object[]> createCache(Math.max(1, cacheSize), 5 * 60);
+        cacheHits.set(0);
+        cacheMisses.set(0);
+        lookupQueries.set(0);
         compileLookupQuery();
+        preloadedRecords = preloadRecords();
+    }
+
+    /**
+     * Loads all records of the lookup table into memory, indexed by their
+     * (normalized) condition values, if the table is small enough.
+     * 
+     * @return the index of records, or null if the table should not be loaded
+     *         into memory
+     */
+    private Map<List<Object>, List<Object[]>> preloadRecords() {
+        preloadedRecordCount = 0;
+        if (preloadThreshold <= 0) {
+            return null;
+        }
+
+        final Column[] queryOutputColumns = getQueryOutputColumns(false);
+        final Column[] queryConditionColumns = getQueryConditionColumns();
+        final Table table = queryOutputColumns[0].getTable();
+        final DataContext dataContext = datastoreConnection.getDataContext();
+
+        final Number recordCount;
+        try (final DataSet dataSet = dataContext.query().from(table).selectCount().execute()) {
+            if (dataSet.next()) {
+                recordCount = ConvertToNumberTransformer.transformValue(dataSet.getRow().getValue(0));
+            } else {
+                recordCount = null;
+            }
+        }
+
+        if (recordCount == null || recordCount.longValue() > preloadThreshold) {
+            logger.info("Not loading lookup table '{}' into memory, record count is {}", table.getName(),
+                    recordCount);
+            return null;
+        }
+
+        final Query query = new Query().from(table).select(queryOutputColumns).select(queryConditionColumns);
+
+        final Map<List<Object>, List<Object[]>> records = new HashMap<>();
+        int count = 0;
+        try (final DataSet dataSet = dataContext.executeQuery(query)) {
+            while (dataSet.next()) {
+                final Object[] values = dataSet.getRow().getValues();
+                final List<Object> keyValues = Arrays.asList(values).subList(queryOutputColumns.length,
+                        values.length);
+                if (keyValues.contains(null)) {
+                    // null never equals anything in a lookup query
+                    continue;
+                }
+
+                final List<Object> key = createNormalizedKey(keyValues);
+                List<Object[]> list = records.get(key);
+                if (list == null) {
+                    list = new ArrayList<>(1);
+                    records.put(key, list);
+                }
+                list.add(Arrays.copyOf(values, queryOutputColumns.length));
+                count++;
+            }
+        }
+
+        logger.info("Loaded {} records of lookup table '{}' into memory", count, table.getName());
+        preloadedRecordCount = count;
+        return records;
+    }
+
+    /**
+     * Creates a key for comparing condition values in memory, converting
+     * values to the type of their respective condition column.
+     * 
+     * @param values
+     * @return
+     */
+    private List<Object> createNormalizedKey(List<Object> values) {
+        final Column[] queryConditionColumns = getQueryConditionColumns();
+        final List<Object> key = new ArrayList<>(values.size());
+        for (int i = 0; i < values.size(); i++) {
+            key.add(normalizeValue(queryConditionColumns[i], values.get(i)));
+        }
+        return key;
+    }
+
+    private static Object normalizeValue(Column column, Object value) {
+        if (value == null) {
+            return null;
+        }
+        final ColumnType type = column.getType();
+        if (type != null) {
+            if (type.isNumber()) {
+                final Number number = ConvertToNumberTransformer.transformValue(value);
+                if (number != null) {
+                    try {
+                        // ensures that eg. 1, 1L and 1.0 are considered equal
+                        return new BigDecimal(number.toString()).stripTrailingZeros();
+                    } catch (NumberFormatException e) {
+                        return number;
+                    }
+                }
+            } else if (type.isLiteral()) {
+                return ConvertToStringTransformer.transformValue(value);
+            }
+        }
+        if (value instanceof Date) {
+            return ((Date) value).getTime();
+        }
+        return value;
     }
 
     private void compileLookupQuery() {
@@ -385,12 +561,17 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         logger.info("Looking up based on condition values: {}", queryInput);
 
         Object[] result;
-        if (cacheLookups && joinSemantic.isCacheable()) {
+        if (preloadedRecords != null && !queryInput.contains(null)) {
+            cacheHits.incrementAndGet();
+            result = handlePreloadedRecords(inputRow, preloadedRecords.get(createNormalizedKey(queryInput)));
+        } else if (cacheLookups && joinSemantic.isCacheable()) {
             result = cache.getIfPresent(queryInput);
             if (result == null) {
+                cacheMisses.incrementAndGet();
                 result = performQuery(inputRow, queryInput);
                 cache.put(queryInput, result);
             } else {
+                cacheHits.incrementAndGet();
                 if (logger.isDebugEnabled()) {
                     logger.debug("Returning cached lookup result: {}", Arrays.toString(result));
                 }
@@ -406,6 +587,272 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         return result;
     }
 
+    /**
+     * Looks up a batch of condition values, resolving the ones that are not
+     * already cached or preloaded with as few queries as possible. Only
+     * applicable with the {@link JoinSemantic#LEFT_JOIN_MAX_ONE} semantic.
+     * 
+     * Unlike {@link #transform(InputRow)}, this method does not annotate any
+     * rows.
+     * 
+     * @param queryInputs
+     *            the condition values of each lookup
+     * @return a map of condition values and their lookup result. Lookups
+     *         without any match have a result of only null values.
+     */
+    public Map<List<Object>, Object[]> lookupBatch(Collection<List<Object>> queryInputs) {
+        if (joinSemantic != JoinSemantic.LEFT_JOIN_MAX_ONE) {
+            throw new IllegalStateException("Batched lookups are only supported with the '"
+                    + JoinSemantic.LEFT_JOIN_MAX_ONE.getName() + "' semantic");
+        }
+
+        final Map<List<Object>, Object[]> results = new HashMap<>();
+        final Set<List<Object>> pendingInputs = new LinkedHashSet<>();
+        for (List<Object> queryInput : queryInputs) {
+            if (results.containsKey(queryInput) || pendingInputs.contains(queryInput)) {
+                continue;
+            }
+
+            if (preloadedRecords != null && !queryInput.contains(null)) {
+                cacheHits.incrementAndGet();
+                final List<Object[]> records = preloadedRecords.get(createNormalizedKey(queryInput));
+                results.put(queryInput, records == null ? new Object[outputColumns.length] : records.get(0));
+                continue;
+            }
+
+            if (cacheLookups) {
+                final Object[] result = cache.getIfPresent(queryInput);
+                if (result != null) {
+                    cacheHits.incrementAndGet();
+                    results.put(queryInput, result);
+                    continue;
+                }
+                cacheMisses.incrementAndGet();
+            }
+
+            if (isCarthesianProductMode() || queryInput.contains(null)) {
+                // cannot be expressed as part of a batch query
+                putResult(results, queryInput, performLookupQuery(queryInput));
+            } else {
+                pendingInputs.add(queryInput);
+            }
+        }
+
+        if (!pendingInputs.isEmpty()) {
+            final int batchQuerySize = Math.max(1, MAX_BATCH_QUERY_CONDITIONS / getQueryConditionColumns().length);
+            final List<List<Object>> batch = new ArrayList<>(Math.min(batchQuerySize, pendingInputs.size()));
+            for (List<Object> queryInput : pendingInputs) {
+                batch.add(queryInput);
+                if (batch.size() == batchQuerySize) {
+                    performBatchQuery(batch, results);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                performBatchQuery(batch, results);
+            }
+        }
+
+        return results;
+    }
+
+    private void performBatchQuery(List<List<Object>> queryInputs, Map<List<Object>, Object[]> results) {
+        final Column[] queryOutputColumns = getQueryOutputColumns(false);
+        final Column[] queryConditionColumns = getQueryConditionColumns();
+
+        final Query query = new Query().from(queryOutputColumns[0].getTable()).select(queryOutputColumns)
+                .select(queryConditionColumns);
+        if (queryConditionColumns.length == 1) {
+            final List<Object> values = new ArrayList<>(queryInputs.size());
+            for (List<Object> queryInput : queryInputs) {
+                values.add(queryInput.get(0));
+            }
+            query.where(new FilterItem(new SelectItem(queryConditionColumns[0]), OperatorType.IN, values));
+        } else {
+            final FilterItem[] alternatives = new FilterItem[queryInputs.size()];
+            for (int i = 0; i < alternatives.length; i++) {
+                final List<Object> queryInput = queryInputs.get(i);
+                final FilterItem[] conditions = new FilterItem[queryConditionColumns.length];
+                for (int j = 0; j < conditions.length; j++) {
+                    conditions[j] = new FilterItem(new SelectItem(queryConditionColumns[j]), OperatorType.EQUALS_TO,
+                            queryInput.get(j));
+                }
+                alternatives[i] = new FilterItem(LogicalOperator.AND, conditions);
+            }
+            query.where(new FilterItem(LogicalOperator.OR, alternatives));
+        }
+
+        final Set<List<Object>> pendingKeys = new HashSet<>();
+        for (List<Object> queryInput : queryInputs) {
+            pendingKeys.add(createNormalizedKey(queryInput));
+        }
+
+        // the first record of each distinct combination of condition values
+        final Map<List<Object>, Object[]> records = new LinkedHashMap<>();
+        lookupQueries.incrementAndGet();
+        try (final DataSet dataSet = datastoreConnection.getDataContext().executeQuery(query)) {
+            while (dataSet.next()) {
+                final Object[] values = dataSet.getRow().getValues();
+                final List<Object> key = createNormalizedKey(Arrays.asList(values).subList(
+                        queryOutputColumns.length, values.length));
+                if (!records.containsKey(key)) {
+                    records.put(key, Arrays.copyOf(values, queryOutputColumns.length));
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.error("Error occurred while looking up based on conditions: " + queryInputs, e);
+            throw e;
+        }
+
+        // the records are mapped back to the condition values after the data
+        // set is closed, since the collation of a column may have to be probed
+        // with another query
+        final DatastoreCollation.KeyMatcher[] keyMatchers = createKeyMatchers(pendingKeys);
+        final Map<List<Object>, Object[]> matches = new HashMap<>();
+        boolean unmappedRecords = false;
+        for (Map.Entry<List<Object>, Object[]> record : records.entrySet()) {
+            final List<List<Object>> keys = getMatchingKeys(record.getKey(), pendingKeys, keyMatchers);
+            if (keys.isEmpty()) {
+                unmappedRecords = true;
+            }
+            for (List<Object> key : keys) {
+                if (!matches.containsKey(key)) {
+                    matches.put(key, record.getValue());
+                }
+            }
+        }
+
+        for (List<Object> queryInput : queryInputs) {
+            Object[] result = matches.get(createNormalizedKey(queryInput));
+            if (result == null) {
+                if (unmappedRecords) {
+                    // the datastore matched records that we cannot map back
+                    // to condition values in memory (eg. because of accent
+                    // insensitive comparison), so fall back to a single
+                    // lookup to be sure.
+                    result = performLookupQuery(queryInput);
+                } else {
+                    result = new Object[outputColumns.length];
+                }
+            }
+            putResult(results, queryInput, result);
+        }
+    }
+
+    /**
+     * Creates matchers of the values of string condition columns, which map
+     * the values of returned records back to the condition values that they
+     * are equal to in the datastore, eg. when the column is compared case
+     * insensitively.
+     * 
+     * @param pendingKeys
+     * @return a matcher per condition column, or null for columns that are
+     *         not compared as strings
+     */
+    private DatastoreCollation.KeyMatcher[] createKeyMatchers(Set<List<Object>> pendingKeys) {
+        final DatastoreCollation[] collations = getQueryConditionCollations();
+        final DatastoreCollation.KeyMatcher[] keyMatchers = new DatastoreCollation.KeyMatcher[collations.length];
+        for (int i = 0; i < collations.length; i++) {
+            if (collations[i] != null) {
+                final List<String> values = new ArrayList<>(pendingKeys.size());
+                for (List<Object> key : pendingKeys) {
+                    final Object value = key.get(i);
+                    if (value instanceof String) {
+                        values.add((String) value);
+                    }
+                }
+                keyMatchers[i] = collations[i].getKeyMatcher(values);
+            }
+        }
+        return keyMatchers;
+    }
+
+    private synchronized DatastoreCollation[] getQueryConditionCollations() {
+        if (queryConditionCollations == null) {
+            final Column[] queryConditionColumns = getQueryConditionColumns();
+            final DatastoreCollation[] collations = new DatastoreCollation[queryConditionColumns.length];
+            for (int i = 0; i < collations.length; i++) {
+                final ColumnType type = queryConditionColumns[i].getType();
+                if (type != null && type.isLiteral()) {
+                    collations[i] = new DatastoreCollation(datastoreConnection.getDataContext(),
+                            queryConditionColumns[i]);
+                }
+            }
+            queryConditionCollations = collations;
+        }
+        return queryConditionCollations;
+    }
+
+    /**
+     * Gets the condition values of a batch that the condition values of a
+     * returned record are equal to in the datastore.
+     * 
+     * @param recordKey
+     * @param pendingKeys
+     * @param keyMatchers
+     * @return
+     */
+    private static List<List<Object>> getMatchingKeys(List<Object> recordKey, Set<List<Object>> pendingKeys,
+            DatastoreCollation.KeyMatcher[] keyMatchers) {
+        List<List<Object>> candidates = Collections.singletonList(Collections.emptyList());
+        for (int i = 0; i < recordKey.size(); i++) {
+            final Object value = recordKey.get(i);
+            final Collection<?> matchingValues;
+            if (keyMatchers[i] != null && value instanceof String) {
+                matchingValues = keyMatchers[i].getMatchingKeys((String) value);
+            } else {
+                matchingValues = Collections.singletonList(value);
+            }
+
+            final List<List<Object>> nextCandidates = new ArrayList<>(candidates.size() * matchingValues.size());
+            for (List<Object> candidate : candidates) {
+                for (Object matchingValue : matchingValues) {
+                    final List<Object> nextCandidate = new ArrayList<>(candidate);
+                    nextCandidate.add(matchingValue);
+                    nextCandidates.add(nextCandidate);
+                }
+            }
+            candidates = nextCandidates;
+        }
+
+        final List<List<Object>> keys = new ArrayList<>(candidates.size());
+        for (List<Object> candidate : candidates) {
+            if (pendingKeys.contains(candidate)) {
+                keys.add(candidate);
+            }
+        }
+        return keys;
+    }
+
+    private void putResult(Map<List<Object>, Object[]> results, List<Object> queryInput, Object[] result) {
+        results.put(queryInput, result);
+        if (cacheLookups) {
+            cache.put(queryInput, result);
+        }
+    }
+
+    /**
+     * Executes the lookup query for a single set of condition values, without
+     * annotating any rows.
+     * 
+     * @param queryInput
+     * @return the first record found, or an array of only null values if no
+     *         record was found
+     */
+    private Object[] performLookupQuery(List<Object> queryInput) {
+        lookupQueries.incrementAndGet();
+        try (final DataSet dataSet = datastoreConnection.getDataContext().executeQuery(lookupQuery,
+                queryInput.toArray())) {
+            if (dataSet.next()) {
+                return dataSet.getRow().getValues();
+            }
+            return new Object[outputColumns.length];
+        } catch (RuntimeException e) {
+            logger.error("Error occurred while looking up based on conditions: " + queryInput, e);
+            throw e;
+        }
+    }
+
     private Object[] performQuery(InputRow row, List<Object> queryInput) {
         try {
             final Column[] queryConditionColumns = getQueryConditionColumns();
@@ -415,6 +862,7 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
                 parameterValues[i] = queryInput.get(i);
             }
 
+            lookupQueries.incrementAndGet();
             try (final DataSet dataSet = datastoreConnection.getDataContext()
                     .executeQuery(lookupQuery, parameterValues)) {
                 return handleDataSet(row, dataSet);
@@ -425,19 +873,38 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         }
     }
 
-    private Object[] handleDataSet(InputRow row, DataSet dataSet) {
-        if (!dataSet.next()) {
+    private Object[] handlePreloadedRecords(InputRow row, List<Object[]> records) {
+        if (records == null) {
+            return handleMiss(row);
+        }
 
-            logger.info("Result of lookup: None!");
-            _annotationFactory.annotate(row, 1, _misses);
+        _annotationFactory.annotate(row, 1, _matches);
 
-            switch (joinSemantic) {
-            case LEFT_JOIN_MAX_ONE:
-            case LEFT_JOIN:
-                return new Object[outputColumns.length];
-            default:
-                return null;
-            }
+        if (joinSemantic == JoinSemantic.LEFT_JOIN_MAX_ONE) {
+            return records.get(0);
+        }
+        for (Object[] record : records) {
+            outputRowCollector.putValues(record);
+        }
+        return null;
+    }
+
+    private Object[] handleMiss(InputRow row) {
+        logger.info("Result of lookup: None!");
+        _annotationFactory.annotate(row, 1, _misses);
+
+        switch (joinSemantic) {
+        case LEFT_JOIN_MAX_ONE:
+        case LEFT_JOIN:
+            return new Object[outputColumns.length];
+        default:
+            return null;
+        }
+    }
+
+    private Object[] handleDataSet(InputRow row, DataSet dataSet) {
+        if (!dataSet.next()) {
+            return handleMiss(row);
         }
 
         _annotationFactory.annotate(row, 1, _matches);
@@ -469,9 +936,13 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
             datastoreConnection.close();
             datastoreConnection = null;
         }
-        cache.invalidateAll();
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        preloadedRecords = null;
         queryOutputColumns = null;
         queryConditionColumns = null;
+        queryConditionCollations = null;
     }
 
     @Override
@@ -484,4 +955,14 @@ public class TableLookupTransformer implements Transformer, HasLabelAdvice, HasA
         }
         return new CategorizationResult(_annotationFactory, categories);
     }
+
+    @Override
+    public Map<String, Number> getRuntimeMetrics() {
+        final Map<String, Number> metrics = new LinkedHashMap<>();
+        metrics.put("Cache hits", cacheHits.get());
+        metrics.put("Cache misses", cacheMisses.get());
+        metrics.put("Lookup queries", lookupQueries.get());
+        metrics.put("Preloaded records", preloadedRecordCount);
+        return metrics;
+    }
 }
@@ -0,0 +1,300 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.metamodel.data.Row;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+
+/**
+ * An {@link InputRow} which holds both physical and transformed values in
+ * index-addressed arrays, as defined by a {@link ColumnarRowLayout}. Unlike
+ * the {@link MetaModelInputRow} and {@link TransformedInputRow} combination,
+ * transformed values are set directly into the row, so no additional objects
+ * are created per transformer.
+ * 
+ * Like {@link TransformedInputRow#of(InputRow)}, the row is mutated as it
+ * passes through the transformers of a job.
+ */
+public final class ColumnarInputRow extends AbstractInputRow {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final byte STATE_UNSET = 0;
+    private static final byte STATE_OBJECT = 1;
+    private static final byte STATE_PRIMITIVE = 2;
+
+    private final ColumnarRowLayout _layout;
+    private final long _id;
+    // object values, and the boxed values of primitive slots once read
+    private final Object[] _values;
+    private final long[] _primitives;
+    private final byte[] _states;
+
+    public ColumnarInputRow(ColumnarRowLayout layout, long id, Row row) {
+        this(layout, id);
+        final Object[] values = row.getValues();
+        final int physicalSlotCount = Math.min(values.length, layout.getPhysicalSlotCount());
+        System.arraycopy(values, 0, _values, 0, physicalSlotCount);
+        Arrays.fill(_states, 0, physicalSlotCount, STATE_OBJECT);
+    }
+
+    private ColumnarInputRow(ColumnarRowLayout layout, long id) {
+        _layout = layout;
+        _id = id;
+        _values = new Object[layout.getSlotCount()];
+        _primitives = new long[layout.getSlotCount()];
+        _states = new byte[layout.getSlotCount()];
+    }
+
+    public ColumnarRowLayout getLayout() {
+        return _layout;
+    }
+
+    @Override
+    public long getId() {
+        return _id;
+    }
+
+    /**
+     * Creates a copy of this row with a different id, retaining only the
+     * values of the slots before a particular slot. Used when a transformer
+     * produces more than one record based on a single row.
+     * 
+     * @param id
+     * @param slotLimit
+     *            the first slot which should not be retained
+     * @return
+     */
+    public ColumnarInputRow copy(long id, int slotLimit) {
+        final ColumnarInputRow copy = new ColumnarInputRow(_layout, id);
+        System.arraycopy(_values, 0, copy._values, 0, slotLimit);
+        System.arraycopy(_primitives, 0, copy._primitives, 0, slotLimit);
+        System.arraycopy(_states, 0, copy._states, 0, slotLimit);
+        return copy;
+    }
+
+    /**
+     * Sets transformed values into the slots, resolved using
+     * {@link ColumnarRowLayout#getSlots(InputColumn[])}.
+     * 
+     * @param slots
+     * @param values
+     */
+    public void setValues(int[] slots, Object[] values) {
+        for (int i = 0; i < slots.length; i++) {
+            final Object value = i < values.length ? values[i] : null;
+            setValue(slots[i], value);
+        }
+    }
+
+    private void setValue(int slot, Object value) {
+        switch (_layout.getType(slot)) {
+        case ColumnarRowLayout.TYPE_LONG:
+            if (value instanceof Long) {
+                setPrimitive(slot, ((Long) value).longValue());
+                return;
+            }
+            break;
+        case ColumnarRowLayout.TYPE_INTEGER:
+            if (value instanceof Integer) {
+                setPrimitive(slot, ((Integer) value).intValue());
+                return;
+            }
+            break;
+        case ColumnarRowLayout.TYPE_DOUBLE:
+            if (value instanceof Double) {
+                setPrimitive(slot, Double.doubleToRawLongBits(((Double) value).doubleValue()));
+                return;
+            }
+            break;
+        case ColumnarRowLayout.TYPE_BOOLEAN:
+            if (value instanceof Boolean) {
+                setPrimitive(slot, ((Boolean) value).booleanValue() ? 1 : 0);
+                return;
+            }
+            break;
+        default:
+            break;
+        }
+        // null values and values that do not match the declared type
+        _values[slot] = value;
+        _states[slot] = STATE_OBJECT;
+    }
+
+    private void setPrimitive(int slot, long value) {
+        // the boxed value of the slot is created when it is first read
+        _values[slot] = null;
+        _primitives[slot] = value;
+        _states[slot] = STATE_PRIMITIVE;
+    }
+
+    @Override
+    public boolean containsInputColumn(InputColumn<?> inputColumn) {
+        final int slot = _layout.getSlot(inputColumn);
+        return slot != -1 && _states[slot] != STATE_UNSET;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    protected <E> E getValueInternal(InputColumn<E> column) {
+        final int slot = _layout.getSlot(column);
+        if (slot == -1) {
+            return null;
+        }
+        return (E) getValue(slot);
+    }
+
+    /**
+     * Determines if the value of a slot is null (or not set).
+     * 
+     * @param slot
+     * @return
+     */
+    public boolean isNull(int slot) {
+        return _states[slot] != STATE_PRIMITIVE && getValue(slot) == null;
+    }
+
+    /**
+     * Gets the value of a slot as a long. Primitive values are read without
+     * boxing them.
+     * 
+     * @param slot
+     * @return
+     * @throws IllegalStateException
+     *             if the slot does not hold a number
+     */
+    public long getLong(int slot) throws IllegalStateException {
+        if (_states[slot] == STATE_PRIMITIVE) {
+            final long primitive = _primitives[slot];
+            switch (_layout.getType(slot)) {
+            case ColumnarRowLayout.TYPE_LONG:
+            case ColumnarRowLayout.TYPE_INTEGER:
+                return primitive;
+            case ColumnarRowLayout.TYPE_DOUBLE:
+                return (long) Double.longBitsToDouble(primitive);
+            default:
+                break;
+            }
+        }
+        return getNumber(slot).longValue();
+    }
+
+    /**
+     * Gets the value of a slot as a double. Primitive values are read without
+     * boxing them.
+     * 
+     * @param slot
+     * @return
+     * @throws IllegalStateException
+     *             if the slot does not hold a number
+     */
+    public double getDouble(int slot) throws IllegalStateException {
+        if (_states[slot] == STATE_PRIMITIVE) {
+            final long primitive = _primitives[slot];
+            switch (_layout.getType(slot)) {
+            case ColumnarRowLayout.TYPE_LONG:
+            case ColumnarRowLayout.TYPE_INTEGER:
+                return primitive;
+            case ColumnarRowLayout.TYPE_DOUBLE:
+                return Double.longBitsToDouble(primitive);
+            default:
+                break;
+            }
+        }
+        return getNumber(slot).doubleValue();
+    }
+
+    private Number getNumber(int slot) {
+        final Object value = getValue(slot);
+        if (value instanceof Number) {
+            return (Number) value;
+        }
+        throw new IllegalStateException("Slot " + slot + " does not hold a number: " + value);
+    }
+
+    private Object getValue(int slot) {
+        final Object value = _values[slot];
+        if (_states[slot] != STATE_PRIMITIVE) {
+            if (slot < _layout.getPhysicalSlotCount()) {
+                final Object convertedValue = MetaModelInputRow.convertValue(value);
+                if (convertedValue != value) {
+                    // LOBs are only read once
+                    _values[slot] = convertedValue;
+                }
+                return convertedValue;
+            }
+            return value;
+        }
+
+        if (value != null) {
+            // the primitive has been boxed before
+            return value;
+        }
+
+        final Object boxedValue = box(slot);
+        // racing threads may box the value more than once, which is harmless
+        // since the boxes are immutable and equal
+        _values[slot] = boxedValue;
+        return boxedValue;
+    }
+
+    private Object box(int slot) {
+        final long primitive = _primitives[slot];
+        switch (_layout.getType(slot)) {
+        case ColumnarRowLayout.TYPE_LONG:
+            return Long.valueOf(primitive);
+        case ColumnarRowLayout.TYPE_INTEGER:
+            return Integer.valueOf((int) primitive);
+        case ColumnarRowLayout.TYPE_DOUBLE:
+            return Double.valueOf(Double.longBitsToDouble(primitive));
+        case ColumnarRowLayout.TYPE_BOOLEAN:
+            return Boolean.valueOf(primitive != 0);
+        default:
+            throw new IllegalStateException("Not a primitive slot: " + slot);
+        }
+    }
+
+    @Override
+    public List<InputColumn<?>> getInputColumns() {
+        final List<InputColumn<?>> result = new ArrayList<InputColumn<?>>();
+        for (int i = 0; i < _states.length; i++) {
+            final InputColumn<?> column = _layout.getColumn(i);
+            if (column != null && _states[i] != STATE_UNSET) {
+                result.add(column);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder("ColumnarInputRow[id=");
+        sb.append(_id);
+        sb.append(",values=");
+        sb.append(getValues(getInputColumns()));
+        sb.append(']');
+        return sb.toString();
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.api.InputColumn;
+
+/**
+ * Defines the value slots of {@link ColumnarInputRow}s. A layout is created
+ * once per job execution, when the select items of the source query and the
+ * output columns of all transformers are known, and shared by all rows.
+ *
+ * The first slots hold the values of the select items (in the same order as
+ * the values of a MetaModel row), followed by a slot for each transformed
+ * column. Transformed columns of type {@link Long}, {@link Integer},
+ * {@link Double} or {@link Boolean} are stored as primitives.
+ */
+public final class ColumnarRowLayout implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    static final byte TYPE_OBJECT = 0;
+    static final byte TYPE_LONG = 1;
+    static final byte TYPE_INTEGER = 2;
+    static final byte TYPE_DOUBLE = 3;
+    static final byte TYPE_BOOLEAN = 4;
+
+    private final InputColumn<?>[] _columns;
+    private final byte[] _types;
+    private final int _physicalSlotCount;
+    private final Map<Column, Integer> _physicalSlots;
+    private final Map<InputColumn<?>, Integer> _virtualSlots;
+
+    /**
+     * 
+     * @param selectItems
+     *            the select items of the source query
+     * @param virtualColumns
+     *            the output columns of the transformers of the job
+     */
+    public ColumnarRowLayout(SelectItem[] selectItems, Collection<? extends InputColumn<?>> virtualColumns) {
+        _physicalSlotCount = selectItems.length;
+        _physicalSlots = new HashMap<>();
+        _virtualSlots = new HashMap<>();
+
+        _columns = new InputColumn<?>[selectItems.length + virtualColumns.size()];
+        _types = new byte[_columns.length];
+
+        for (int i = 0; i < selectItems.length; i++) {
+            final SelectItem selectItem = selectItems[i];
+            final Column column = selectItem.getColumn();
+            if (column != null && selectItem.getAggregateFunction() == null && !_physicalSlots.containsKey(column)) {
+                _physicalSlots.put(column, i);
+                _columns[i] = new MetaModelInputColumn(column);
+            }
+        }
+
+        int slot = selectItems.length;
+        for (InputColumn<?> virtualColumn : virtualColumns) {
+            if (virtualColumn.isVirtualColumn() && !_virtualSlots.containsKey(virtualColumn)) {
+                _virtualSlots.put(virtualColumn, slot);
+                _columns[slot] = virtualColumn;
+                _types[slot] = getType(virtualColumn.getDataType());
+            }
+            slot++;
+        }
+    }
+
+    private static byte getType(Class<?> dataType) {
+        if (dataType == Long.class) {
+            return TYPE_LONG;
+        } else if (dataType == Integer.class) {
+            return TYPE_INTEGER;
+        } else if (dataType == Double.class) {
+            return TYPE_DOUBLE;
+        } else if (dataType == Boolean.class) {
+            return TYPE_BOOLEAN;
+        }
+        return TYPE_OBJECT;
+    }
+
+    /**
+     * Gets the total number of slots of rows with this layout.
+     * 
+     * @return
+     */
+    public int getSlotCount() {
+        return _columns.length;
+    }
+
+    /**
+     * Gets the number of slots which are populated from the source query.
+     * 
+     * @return
+     */
+    public int getPhysicalSlotCount() {
+        return _physicalSlotCount;
+    }
+
+    /**
+     * Gets the slot of a column, or -1 if the column is not part of this
+     * layout.
+     * 
+     * @param column
+     * @return
+     */
+    public int getSlot(InputColumn<?> column) {
+        final Integer slot;
+        if (column.isPhysicalColumn()) {
+            slot = _physicalSlots.get(column.getPhysicalColumn());
+        } else {
+            slot = _virtualSlots.get(column);
+        }
+        if (slot == null) {
+            return -1;
+        }
+        return slot.intValue();
+    }
+
+    /**
+     * Gets the slots of a number of columns. Intended to be resolved once per
+     * component, rather than once per row.
+     * 
+     * @param columns
+     * @return an array of slots, or null if any of the columns is not part of
+     *         this layout
+     */
+    public int[] getSlots(InputColumn<?>[] columns) {
+        final int[] slots = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            slots[i] = getSlot(columns[i]);
+            if (slots[i] == -1) {
+                return null;
+            }
+        }
+        return slots;
+    }
+
+    InputColumn<?> getColumn(int slot) {
+        return _columns[slot];
+    }
+
+    byte getType(int slot) {
+        return _types[slot];
+    }
+}
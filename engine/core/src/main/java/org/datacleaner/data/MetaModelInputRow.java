@@ -117,7 +117,13 @@ public final class MetaModelInputRow extends AbstractLegacyAwareInputRow {
         return (E) value;
     }
 
-    private Object convertValue(Object value) {
+    /**
+     * Converts LOB values to strings and byte arrays.
+     * 
+     * @param value
+     * @return
+     */
+    static Object convertValue(Object value) {
         if (value instanceof Clob) {
             try {
                 Reader reader = ((Clob) value).getCharacterStream();
@@ -0,0 +1,334 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.datacleaner.job.tasks.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TaskRunner} implementation based on a work-stealing
+ * {@link ForkJoinPool}. Tasks submitted from the pool's own worker threads are
+ * pushed to the worker's local queue, which avoids contention on a single
+ * shared queue.
+ *
+ * The number of tasks that are queued or executing at any time is bounded.
+ * When the bound is reached, a task that submits other tasks will help
+ * executing queued tasks until there is room again (or execute the submitted
+ * task itself), while other threads will block. This prevents eg. a row
+ * processing publisher from racing ahead of its consumers.
+ *
+ * Optionally the task runner can execute tasks on a fixed set of virtual
+ * worker threads, which is useful for I/O bound components, such as table
+ * lookups or HTTP requests, since the parallelism can then be set far beyond
+ * the number of processors without the cost of as many platform threads. The
+ * virtual threads are reused for many tasks and their number is bounded by
+ * the parallelism, like the workers of the work-stealing pool, so that state
+ * which components keep per running task stays bounded as well. Virtual
+ * threads are only available on Java 21 and newer. On older runtimes the
+ * work-stealing pool is used instead.
+ */
+public final class ForkJoinTaskRunner implements ScheduledTaskRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForkJoinTaskRunner.class);
+
+    private static final ThreadLocal<ForkJoinTaskRunner> CURRENT_RUNNER = new ThreadLocal<ForkJoinTaskRunner>();
+
+    private final WorkStealingPool _pool;
+    private final ExecutorService _virtualThreadExecutor;
+    private final ScheduledThreadPoolExecutor _executorScheduledService;
+    private final Semaphore _permits;
+    private final int _parallelism;
+    private final int _maxQueuedTasks;
+
+    public ForkJoinTaskRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ForkJoinTaskRunner(int parallelism) {
+        this(parallelism, Math.max(1000, parallelism * 10), false);
+    }
+
+    /**
+     *
+     * @param parallelism
+     *            the parallelism level (number of worker threads) of the
+     *            work-stealing pool, or the number of virtual worker threads
+     * @param maxQueuedTasks
+     *            the maximum number of tasks that may be queued or executing at
+     *            the same time
+     * @param virtualThreads
+     *            whether or not to execute tasks on virtual worker threads (if
+     *            supported by the runtime)
+     */
+    public ForkJoinTaskRunner(int parallelism, int maxQueuedTasks, boolean virtualThreads) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be a positive number");
+        }
+        if (maxQueuedTasks <= 0) {
+            throw new IllegalArgumentException("Max queued tasks must be a positive number");
+        }
+        _parallelism = parallelism;
+        _maxQueuedTasks = maxQueuedTasks;
+        _permits = new Semaphore(maxQueuedTasks);
+
+        if (virtualThreads) {
+            _virtualThreadExecutor = createVirtualThreadExecutor(parallelism);
+        } else {
+            _virtualThreadExecutor = null;
+        }
+
+        if (_virtualThreadExecutor == null) {
+            _pool = new WorkStealingPool(parallelism);
+        } else {
+            _pool = null;
+        }
+
+        _executorScheduledService = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory());
+    }
+
+    private static ExecutorService createVirtualThreadExecutor(int parallelism) {
+        try {
+            // Thread.ofVirtual().name("datacleaner-virtual-", 0).factory()
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object namedBuilder = builderClass.getMethod("name", String.class, long.class).invoke(builder,
+                    "datacleaner-virtual-", 0L);
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(
+                    namedBuilder);
+            return Executors.newFixedThreadPool(parallelism, threadFactory);
+        } catch (NoSuchMethodException e) {
+            logger.warn("Virtual threads are not supported by this Java runtime, using work-stealing pool instead");
+            return null;
+        } catch (Exception e) {
+            logger.warn("Failed to create virtual thread executor, using work-stealing pool instead", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return the parallelism level of the work-stealing pool, or the number
+     *         of virtual worker threads
+     */
+    public int getParallelism() {
+        return _parallelism;
+    }
+
+    /**
+     * @return the maximum number of tasks that may be queued or executing at
+     *         the same time
+     */
+    public int getMaxQueuedTasks() {
+        return _maxQueuedTasks;
+    }
+
+    /**
+     * @return whether or not tasks are executed on virtual worker threads
+     */
+    public boolean isVirtualThreads() {
+        return _virtualThreadExecutor != null;
+    }
+
+    @Override
+    public void run(final Task task, final TaskListener listener) {
+        logger.debug("run({},{})", task, listener);
+        executeInternal(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(TaskRunnable taskRunnable) {
+        logger.debug("run({})", taskRunnable);
+        executeInternal(taskRunnable);
+    }
+
+    private void executeInternal(final TaskRunnable taskRunnable) {
+        final boolean acquired = acquirePermit();
+        if (!acquired) {
+            // caller is one of our own tasks and the bound has been reached -
+            // run the task in the calling thread
+            taskRunnable.run();
+            return;
+        }
+
+        final Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                final ForkJoinTaskRunner previousRunner = CURRENT_RUNNER.get();
+                CURRENT_RUNNER.set(ForkJoinTaskRunner.this);
+                try {
+                    taskRunnable.run();
+                } finally {
+                    _permits.release();
+                    if (previousRunner == null) {
+                        CURRENT_RUNNER.remove();
+                    } else {
+                        CURRENT_RUNNER.set(previousRunner);
+                    }
+                }
+            }
+        };
+
+        try {
+            if (_virtualThreadExecutor != null) {
+                _virtualThreadExecutor.execute(runnable);
+            } else if (isOwnWorkerThread()) {
+                ForkJoinTask.adapt(runnable).fork();
+            } else {
+                _pool.execute(runnable);
+            }
+        } catch (RejectedExecutionException e) {
+            _permits.release();
+            logger.error("Unexpected rejected execution!", e);
+        }
+    }
+
+    /**
+     * Acquires a permit for submitting a task.
+     *
+     * @return true if a permit was acquired, or false if the task should
+     *         instead be executed by the calling thread
+     */
+    private boolean acquirePermit() {
+        if (_permits.tryAcquire()) {
+            return true;
+        }
+
+        if (CURRENT_RUNNER.get() == this) {
+            // the caller is itself one of our tasks, so blocking could
+            // deadlock. Instead help out executing queued tasks until there is
+            // room, or else let the caller run the task.
+            if (_pool != null) {
+                while (!_permits.tryAcquire()) {
+                    final ForkJoinTask<?> task = pollTask();
+                    if (task == null) {
+                        return false;
+                    }
+                    task.quietlyInvoke();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        try {
+            _permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return true;
+    }
+
+    private boolean isOwnWorkerThread() {
+        final Thread thread = Thread.currentThread();
+        return thread instanceof ForkJoinWorkerThread && ((ForkJoinWorkerThread) thread).getPool() == _pool;
+    }
+
+    private ForkJoinTask<?> pollTask() {
+        if (isOwnWorkerThread()) {
+            return WorkerTaskPoller.poll();
+        }
+        return _pool.pollSubmissionTask();
+    }
+
+    @Override
+    public void runScheduled(final Task task, final TaskListener listener, long initialDelay, long delay,
+            TimeUnit unit) {
+        logger.debug("Schedule task ({},{}), delay {} {}", task, listener, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(new TaskRunnable(task, listener), initialDelay, delay, unit);
+    }
+
+    @Override
+    public void runScheduled(TaskRunnable taskRunnable, long initialDelay, long delay, TimeUnit unit) {
+        logger.debug("Schedule task ({}), delay {} {}", taskRunnable, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(taskRunnable, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown() called, shutting down executor service");
+        if (_pool != null) {
+            _pool.shutdown();
+        }
+        if (_virtualThreadExecutor != null) {
+            _virtualThreadExecutor.shutdown();
+        }
+        _executorScheduledService.shutdown();
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        shutdown();
+    }
+
+    @Override
+    public void assistExecution() {
+        if (_pool == null) {
+            Thread.yield();
+            return;
+        }
+        final ForkJoinTask<?> task = pollTask();
+        if (task == null) {
+            Thread.yield();
+        } else {
+            task.quietlyInvoke();
+        }
+    }
+
+    /**
+     * Subclass of {@link ForkJoinPool} which exposes polling of externally
+     * submitted tasks, used to let non-worker threads assist in execution.
+     */
+    private static final class WorkStealingPool extends ForkJoinPool {
+
+        public WorkStealingPool(int parallelism) {
+            super(parallelism, defaultForkJoinWorkerThreadFactory, null, true);
+        }
+
+        public ForkJoinTask<?> pollSubmissionTask() {
+            return pollSubmission();
+        }
+    }
+
+    /**
+     * Helper to get access to {@link ForkJoinTask#pollTask()}, used to let a
+     * worker thread execute tasks from its own queue (or steal from others)
+     * while waiting.
+     */
+    private static abstract class WorkerTaskPoller extends ForkJoinTask<Void> {
+
+        private static final long serialVersionUID = 1L;
+
+        public static ForkJoinTask<?> poll() {
+            return pollTask();
+        }
+    }
+}
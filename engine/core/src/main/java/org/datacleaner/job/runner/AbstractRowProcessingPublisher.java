@@ -180,7 +180,13 @@ public abstract class AbstractRowProcessingPublisher implements RowProcessingPub
     protected final Task createCollectResultTask(RowProcessingConsumer consumer, Queue<JobAndResult> resultQueue) {
         final Object component = consumer.getComponent();
         if (component instanceof HasAnalyzerResult) {
-            final HasAnalyzerResult<?> hasAnalyzerResult = (HasAnalyzerResult<?>) component;
+            final HasAnalyzerResult<?> hasAnalyzerResult;
+            if (consumer instanceof AnalyzerConsumer) {
+                // reduces the results of any additional thread instances
+                hasAnalyzerResult = ((AnalyzerConsumer) consumer)::getResult;
+            } else {
+                hasAnalyzerResult = (HasAnalyzerResult<?>) component;
+            }
             final AnalysisListener analysisListener = _publishers.getAnalysisListener();
             return new CollectResultsTask(hasAnalyzerResult, _stream.getAnalysisJob(), consumer.getComponentJob(),
                     resultQueue, analysisListener);
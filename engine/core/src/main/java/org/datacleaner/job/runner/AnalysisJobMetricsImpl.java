@@ -43,7 +43,17 @@ final class AnalysisJobMetricsImpl implements AnalysisJobMetrics {
     public ComponentMetrics getComponentMetrics(ComponentJob componentJob) {
         final Table table = getRowProcessingTable(componentJob);
         final RowProcessingMetrics rowProcessingMetrics = getRowProcessingMetrics(table);
-        return new ComponentMetricsImpl(rowProcessingMetrics, componentJob);
+        final RowProcessingConsumer consumer = getRowProcessingConsumer(table, componentJob);
+        return new ComponentMetricsImpl(rowProcessingMetrics, componentJob, consumer);
+    }
+
+    private RowProcessingConsumer getRowProcessingConsumer(Table table, ComponentJob componentJob) {
+        final RowProcessingStream stream = _publishers.getStream(table);
+        final RowProcessingPublisher publisher = _publishers.getRowProcessingPublisher(stream);
+        if (publisher == null) {
+            return null;
+        }
+        return publisher.getConsumer(componentJob);
     }
 
     @SuppressWarnings("deprecation")
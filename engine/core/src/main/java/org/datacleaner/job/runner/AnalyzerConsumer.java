@@ -19,12 +19,28 @@
  */
 package org.datacleaner.job.runner;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.AnalyzerResultReducer;
 import org.datacleaner.api.Concurrent;
+import org.datacleaner.api.HasOutputDataStreams;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
+import org.datacleaner.descriptors.AnalyzerDescriptor;
+import org.datacleaner.descriptors.ComponentDescriptor;
+import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.job.AnalyzerJob;
 import org.datacleaner.job.FilterOutcomes;
+import org.datacleaner.lifecycle.LifeCycleHelper;
+import org.datacleaner.util.ShardPool;
+import org.datacleaner.util.SystemProperties;
 
 final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements RowProcessingConsumer {
 
@@ -32,6 +48,11 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
     private final Analyzer<?> _analyzer;
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
+    private final RowProcessingPublishers _publishers;
+    private final boolean _threadInstancesEnabled;
+    private final ShardPool<Analyzer<?>> _instancePool;
+    private final AtomicBoolean _analyzerPooled;
+    private final Queue<Analyzer<?>> _threadInstances;
 
     public AnalyzerConsumer(Analyzer<?> analyzer, AnalyzerJob analyzerJob, InputColumn<?>[] inputColumns,
             RowProcessingPublisher publisher) {
@@ -40,6 +61,23 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
         _analyzerJob = analyzerJob;
         _inputColumns = inputColumns;
         _concurrent = determineConcurrent();
+        _publishers = publisher.getPublishers();
+        _threadInstancesEnabled = determineThreadInstancesEnabled();
+        _analyzerPooled = new AtomicBoolean();
+        _threadInstances = new ConcurrentLinkedQueue<>();
+        _instancePool = new ShardPool<Analyzer<?>>() {
+            @Override
+            protected Analyzer<?> createShard() {
+                if (_analyzerPooled.compareAndSet(false, true)) {
+                    // the first instance in the pool is the instance of the
+                    // job itself
+                    return _analyzer;
+                }
+                final Analyzer<?> threadInstance = createThreadInstance();
+                _threadInstances.add(threadInstance);
+                return threadInstance;
+            }
+        };
     }
 
     private boolean determineConcurrent() {
@@ -51,14 +89,41 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
         return concurrent.value();
     }
 
+    /**
+     * Determines if the analyzer should be run using a pool of instances, one
+     * per concurrently running row, instead of synchronizing on a single
+     * instance. This is only
+     * possible when the results of the instances can be reduced to a single
+     * result, like in distributed execution.
+     * 
+     * @return
+     */
+    private boolean determineThreadInstancesEnabled() {
+        if (_concurrent || _publishers == null) {
+            return false;
+        }
+        if (!SystemProperties.getBoolean(SystemProperties.ROW_PROCESSING_THREAD_INSTANCES, false)) {
+            return false;
+        }
+        if (_analyzer instanceof HasOutputDataStreams) {
+            return false;
+        }
+        return _analyzerJob.getDescriptor().getResultReducerClass() != null;
+    }
+
     @Override
     public Analyzer<?> getComponent() {
         return _analyzer;
     }
 
+    @Override
+    public Collection<?> getThreadComponentInstances() {
+        return _threadInstances;
+    }
+
     @Override
     public boolean isConcurrent() {
-        return _concurrent;
+        return _concurrent || _threadInstancesEnabled;
     }
 
     @Override
@@ -68,10 +133,82 @@ final class AnalyzerConsumer extends AbstractRowProcessingConsumer implements Ro
 
     @Override
     public void consumeInternal(InputRow row, int distinctCount, FilterOutcomes outcomes, RowProcessingChain chain) {
-        _analyzer.run(row, distinctCount);
+        if (!_threadInstancesEnabled) {
+            _analyzer.run(row, distinctCount);
+        } else {
+            // the instance is only borrowed while the row is analyzed, so the
+            // number of instances is bounded by the number of rows that are
+            // analyzed at the same time, not by the number of threads
+            final Analyzer<?> analyzer = _instancePool.borrow();
+            try {
+                analyzer.run(row, distinctCount);
+            } finally {
+                _instancePool.release(analyzer);
+            }
+        }
         chain.processNext(row, distinctCount, outcomes);
     }
 
+    /**
+     * Creates and initializes an additional instance of the analyzer. Like on
+     * the slave nodes of a distributed job, only the distributed
+     * initialization methods are invoked.
+     * 
+     * @return
+     */
+    private Analyzer<?> createThreadInstance() {
+        final AnalyzerDescriptor<?> descriptor = _analyzerJob.getDescriptor();
+        final LifeCycleHelper lifeCycleHelper = getThreadInstanceLifeCycleHelper();
+        final Analyzer<?> analyzer = descriptor.newInstance();
+        lifeCycleHelper.assignConfiguredProperties(descriptor, analyzer, _analyzerJob.getConfiguration());
+        lifeCycleHelper.assignProvidedProperties(descriptor, analyzer);
+        lifeCycleHelper.validate(descriptor, analyzer);
+        lifeCycleHelper.initialize(descriptor, analyzer);
+        return analyzer;
+    }
+
+    private LifeCycleHelper getThreadInstanceLifeCycleHelper() {
+        final LifeCycleHelper lifeCycleHelper = _publishers.getConsumerSpecificLifeCycleHelper(this);
+        return new LifeCycleHelper(lifeCycleHelper.getInjectionManager(), false);
+    }
+
+    /**
+     * Gets the result of the analyzer. If additional instances have been
+     * created for concurrently analyzed rows, their results are reduced using the
+     * {@link AnalyzerResultReducer} of the analyzer.
+     * 
+     * @return
+     */
+    public AnalyzerResult getResult() {
+        if (_threadInstances.isEmpty()) {
+            return _analyzer.getResult();
+        }
+
+        final List<AnalyzerResult> results = new ArrayList<>(_threadInstances.size() + 1);
+        results.add(_analyzer.getResult());
+        for (Analyzer<?> threadInstance : _threadInstances) {
+            results.add(threadInstance.getResult());
+        }
+
+        final ComponentDescriptor<? extends AnalyzerResultReducer<?>> reducerDescriptor = Descriptors.ofComponent(
+                _analyzerJob.getDescriptor().getResultReducerClass());
+        final LifeCycleHelper lifeCycleHelper = getThreadInstanceLifeCycleHelper();
+
+        @SuppressWarnings("unchecked")
+        final AnalyzerResultReducer<AnalyzerResult> reducer = (AnalyzerResultReducer<AnalyzerResult>) reducerDescriptor
+                .newInstance();
+        boolean success = false;
+        try {
+            lifeCycleHelper.assignProvidedProperties(reducerDescriptor, reducer);
+            lifeCycleHelper.initialize(reducerDescriptor, reducer);
+            final AnalyzerResult result = reducer.reduce(results);
+            success = true;
+            return result;
+        } finally {
+            lifeCycleHelper.close(reducerDescriptor, reducer, success);
+        }
+    }
+
     @Override
     public AnalyzerJob getComponentJob() {
         return _analyzerJob;
@@ -19,6 +19,10 @@
  */
 package org.datacleaner.job.runner;
 
+import java.util.Collections;
+import java.util.Map;
+
+import org.datacleaner.api.HasRuntimeMetrics;
 import org.datacleaner.job.ComponentJob;
 
 public interface ComponentMetrics {
@@ -26,4 +30,15 @@ public interface ComponentMetrics {
 	public ComponentJob getComponentJob();
 
 	public RowProcessingMetrics getRowProcessingMetrics();
+
+	/**
+	 * Gets the runtime metrics reported by the component, if it implements
+	 * {@link HasRuntimeMetrics}.
+	 * 
+	 * @return a map of metric names and their current values. Empty if the
+	 *         component does not report any runtime metrics.
+	 */
+	default Map<String, Number> getRuntimeMetrics() {
+		return Collections.emptyMap();
+	}
 }
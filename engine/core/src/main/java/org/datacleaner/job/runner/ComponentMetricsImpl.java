@@ -19,16 +19,23 @@
  */
 package org.datacleaner.job.runner;
 
+import java.util.Collections;
+import java.util.Map;
+
+import org.datacleaner.api.HasRuntimeMetrics;
 import org.datacleaner.job.ComponentJob;
 
 final class ComponentMetricsImpl implements ComponentMetrics {
 
 	private final RowProcessingMetrics _rowProcessingMetrics;
 	private final ComponentJob _componentJob;
+	private final RowProcessingConsumer _consumer;
 
-	public ComponentMetricsImpl(RowProcessingMetrics rowProcessingMetrics, ComponentJob componentJob) {
+	public ComponentMetricsImpl(RowProcessingMetrics rowProcessingMetrics, ComponentJob componentJob,
+			RowProcessingConsumer consumer) {
 		_rowProcessingMetrics = rowProcessingMetrics;
 		_componentJob = componentJob;
+		_consumer = consumer;
 	}
 
 	@Override
@@ -41,4 +48,18 @@ final class ComponentMetricsImpl implements ComponentMetrics {
 		return _rowProcessingMetrics;
 	}
 
+	@Override
+	public Map<String, Number> getRuntimeMetrics() {
+		if (_consumer != null) {
+			final Object component = _consumer.getComponent();
+			if (component instanceof HasRuntimeMetrics) {
+				final Map<String, Number> metrics = ((HasRuntimeMetrics) component).getRuntimeMetrics();
+				if (metrics != null) {
+					return metrics;
+				}
+			}
+		}
+		return Collections.emptyMap();
+	}
+
 }
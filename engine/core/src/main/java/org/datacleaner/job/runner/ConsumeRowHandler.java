@@ -38,6 +38,7 @@ import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskListener;
 import org.datacleaner.job.tasks.Task;
 import org.datacleaner.lifecycle.LifeCycleHelper;
+import org.datacleaner.util.ShardPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +55,14 @@ public class ConsumeRowHandler {
     private final List<RowProcessingConsumer> _consumers;
     private final Collection<? extends FilterOutcome> _alwaysSatisfiedOutcomes;
 
+    /**
+     * The pipelines that are not currently running. Each call borrows a
+     * pipeline for the duration of the run, so the number of pipelines is
+     * bounded by the number of rows that are consumed at the same time
+     * (including re-entrant calls), not by the number of threads.
+     */
+    private final ShardPool<ConsumeRowPipeline> _pipelines;
+
     public static class Configuration {
         public boolean includeNonDistributedTasks = true;
         public AnalysisListener analysisListener = new InfoLoggingAnalysisListener();
@@ -74,6 +83,7 @@ public class ConsumeRowHandler {
             Configuration rowConsumerConfiguration) {
         _consumers = extractConsumers(job, configuration, rowConsumerConfiguration);
         _alwaysSatisfiedOutcomes = rowConsumerConfiguration.alwaysSatisfiedOutcomes;
+        _pipelines = createPipelinePool();
     }
 
     /**
@@ -96,6 +106,16 @@ public class ConsumeRowHandler {
             Collection<? extends FilterOutcome> alwaysSatisfiedOutcomes) {
         _consumers = consumers;
         _alwaysSatisfiedOutcomes = alwaysSatisfiedOutcomes;
+        _pipelines = createPipelinePool();
+    }
+
+    private ShardPool<ConsumeRowPipeline> createPipelinePool() {
+        return new ShardPool<ConsumeRowPipeline>() {
+            @Override
+            protected ConsumeRowPipeline createShard() {
+                return new ConsumeRowPipeline(_consumers);
+            }
+        };
     }
 
     /**
@@ -142,9 +162,47 @@ public class ConsumeRowHandler {
      */
     public ConsumeRowResult consumeRow(final InputRow row) {
         final FilterOutcomes outcomes = new FilterOutcomesImpl(_alwaysSatisfiedOutcomes);
-        final ConsumeRowHandlerDelegate delegate = new ConsumeRowHandlerDelegate(_consumers, row, 0, outcomes);
-        final ConsumeRowResult result = delegate.consume();
-        return result;
+        final List<InputRow> resultRows = new ArrayList<InputRow>(1);
+        final List<FilterOutcomes> resultOutcomes = new ArrayList<FilterOutcomes>(1);
+        final ConsumeRowPipeline pipeline = _pipelines.borrow();
+        try {
+            pipeline.run(row, 1, outcomes, resultRows, resultOutcomes);
+        } finally {
+            _pipelines.release(pipeline);
+        }
+        return new ConsumeRowResult(resultRows, resultOutcomes);
+    }
+
+    /**
+     * Consumes a {@link InputRow} by applying all transformations etc. to it,
+     * without collecting the resulting rows. This is cheaper than
+     * {@link #consumeRow(InputRow)} since no result objects or
+     * {@link FilterOutcomes} need to be allocated for the row.
+     * 
+     * @param row
+     */
+    public void consumeRowWithoutResult(final InputRow row) {
+        consumeRowWithoutResult(row, 1);
+    }
+
+    /**
+     * Consumes a {@link InputRow} which represents a number of identical
+     * source records, without collecting the resulting rows.
+     * 
+     * @param row
+     * @param distinctCount
+     *            the number of source records that the row represents
+     * 
+     * @see #consumeRowWithoutResult(InputRow)
+     */
+    public void consumeRowWithoutResult(final InputRow row, final int distinctCount) {
+        final ConsumeRowPipeline pipeline = _pipelines.borrow();
+        try {
+            final FilterOutcomes outcomes = pipeline.resetScratchOutcomes(_alwaysSatisfiedOutcomes);
+            pipeline.run(row, distinctCount, outcomes, null, null);
+        } finally {
+            _pipelines.release(pipeline);
+        }
     }
 
     private List<RowProcessingConsumer> extractConsumers(AnalysisJob analysisJob,
@@ -0,0 +1,229 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.job.FilterOutcome;
+import org.datacleaner.job.FilterOutcomes;
+
+/**
+ * Executes the chain of {@link RowProcessingConsumer}s of a
+ * {@link ConsumeRowHandler} for a row. Instances hold scratch state and are
+ * reused for many rows, but only by a single thread at a time.
+ * 
+ * The consumers are invoked in a loop: When a consumer passes a row on to the
+ * rest of the chain (via {@link #processNext(InputRow, int, FilterOutcomes)}),
+ * the row is kept until the consumer returns, after which the loop continues
+ * with the next consumer. Only when a consumer passes on more than one row
+ * (eg. using an OutputRowCollector), the rows are processed by nested
+ * executions of the remaining chain, in the order they are passed on.
+ */
+final class ConsumeRowPipeline implements RowProcessingChain {
+
+    private final RowProcessingConsumer[] _consumers;
+    private final ScratchFilterOutcomes _scratchOutcomes;
+
+    private List<InputRow> _resultRows;
+    private List<FilterOutcomes> _resultOutcomes;
+
+    // state of the current consumer step
+    private int _index;
+    private int _nextCount;
+    private InputRow _nextRow;
+    private int _nextDistinctCount;
+    private FilterOutcomes _nextOutcomes;
+
+    public ConsumeRowPipeline(List<RowProcessingConsumer> consumers) {
+        _consumers = consumers.toArray(new RowProcessingConsumer[consumers.size()]);
+        _scratchOutcomes = new ScratchFilterOutcomes();
+    }
+
+    /**
+     * Gets the scratch {@link FilterOutcomes} of this pipeline, reset to a set
+     * of available outcomes. Only to be used for rows where the outcomes are
+     * not retained in a result.
+     * 
+     * @param availableOutcomes
+     * @return
+     */
+    public FilterOutcomes resetScratchOutcomes(Collection<? extends FilterOutcome> availableOutcomes) {
+        _scratchOutcomes.reset(availableOutcomes);
+        return _scratchOutcomes;
+    }
+
+    /**
+     * Runs a row through the chain of consumers.
+     * 
+     * @param row
+     * @param distinctCount
+     *            the number of source records that the row represents
+     * @param outcomes
+     * @param resultRows
+     *            a list to add the resulting rows to, or null if the results
+     *            are not needed
+     * @param resultOutcomes
+     *            a list to add the outcomes of the resulting rows to, or null
+     *            if the results are not needed
+     */
+    public void run(InputRow row, int distinctCount, FilterOutcomes outcomes, List<InputRow> resultRows,
+            List<FilterOutcomes> resultOutcomes) {
+        _resultRows = resultRows;
+        _resultOutcomes = resultOutcomes;
+        try {
+            execute(row, distinctCount, outcomes, 0);
+        } finally {
+            _resultRows = null;
+            _resultOutcomes = null;
+            clearNext();
+        }
+    }
+
+    private void execute(InputRow row, int distinctCount, FilterOutcomes outcomes, int fromIndex) {
+        for (int i = fromIndex; i < _consumers.length; i++) {
+            final RowProcessingConsumer consumer = _consumers[i];
+            if (!consumer.satisfiedForConsume(outcomes, row)) {
+                continue;
+            }
+
+            _index = i;
+            _nextCount = 0;
+            if (consumer.isConcurrent()) {
+                consumer.consume(row, distinctCount, outcomes, this);
+            } else {
+                synchronized (consumer) {
+                    consumer.consume(row, distinctCount, outcomes, this);
+                }
+            }
+
+            if (_nextCount != 1) {
+                // either the row was not passed on, or several rows were and
+                // have been processed already
+                clearNext();
+                return;
+            }
+
+            row = _nextRow;
+            distinctCount = _nextDistinctCount;
+            outcomes = _nextOutcomes;
+            clearNext();
+        }
+
+        // finished!
+        if (_resultRows != null) {
+            _resultRows.add(row);
+            _resultOutcomes.add(outcomes);
+        }
+    }
+
+    @Override
+    public void processNext(InputRow row, int distinctCount, FilterOutcomes outcomes) {
+        _nextCount++;
+        if (_nextCount == 1) {
+            // continued by the loop in execute(...) when the consumer returns
+            _nextRow = row;
+            _nextDistinctCount = distinctCount;
+            _nextOutcomes = outcomes;
+            return;
+        }
+
+        if (_nextCount == 2) {
+            final InputRow firstRow = _nextRow;
+            final int firstDistinctCount = _nextDistinctCount;
+            final FilterOutcomes firstOutcomes = _nextOutcomes;
+            clearNext();
+            executeNested(firstRow, firstDistinctCount, firstOutcomes);
+        }
+        executeNested(row, distinctCount, outcomes);
+    }
+
+    private void executeNested(InputRow row, int distinctCount, FilterOutcomes outcomes) {
+        final int index = _index;
+        final int nextCount = _nextCount;
+        execute(row, distinctCount, outcomes, index + 1);
+        _index = index;
+        _nextCount = nextCount;
+    }
+
+    private void clearNext() {
+        _nextRow = null;
+        _nextOutcomes = null;
+    }
+
+    /**
+     * Array based {@link FilterOutcomes} which can be reset and reused without
+     * allocating, as long as the number of outcomes does not grow.
+     */
+    private static final class ScratchFilterOutcomes implements FilterOutcomes {
+
+        private FilterOutcome[] _outcomes = new FilterOutcome[8];
+        private int _size = 0;
+
+        public void reset(Collection<? extends FilterOutcome> availableOutcomes) {
+            Arrays.fill(_outcomes, 0, _size, null);
+            _size = 0;
+            if (availableOutcomes != null) {
+                for (FilterOutcome outcome : availableOutcomes) {
+                    add(outcome);
+                }
+            }
+        }
+
+        @Override
+        public void add(FilterOutcome filterOutcome) {
+            if (contains(filterOutcome)) {
+                return;
+            }
+            if (_size == _outcomes.length) {
+                _outcomes = Arrays.copyOf(_outcomes, _size * 2);
+            }
+            _outcomes[_size] = filterOutcome;
+            _size++;
+        }
+
+        @Override
+        public boolean contains(FilterOutcome outcome) {
+            for (int i = 0; i < _size; i++) {
+                if (_outcomes[i].equals(outcome)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public FilterOutcome[] getOutcomes() {
+            return Arrays.copyOf(_outcomes, _size);
+        }
+
+        @Override
+        public FilterOutcomes clone() {
+            return new FilterOutcomesImpl(Arrays.asList(getOutcomes()));
+        }
+
+        @Override
+        public String toString() {
+            return "FilterOutcomes[" + Arrays.toString(getOutcomes()) + "]";
+        }
+    }
+}
@@ -37,6 +37,7 @@ final class FilterConsumer extends AbstractRowProcessingConsumer implements RowP
     private final FilterJob _filterJob;
     private final InputColumn<?>[] _inputColumns;
     private final boolean _concurrent;
+    private volatile FilterOutcome[] _outcomesByOrdinal;
 
     public FilterConsumer(Filter<?> filter, FilterJob filterJob, InputColumn<?>[] inputColumns,
             RowProcessingPublisher publisher) {
@@ -74,11 +75,38 @@ final class FilterConsumer extends AbstractRowProcessingConsumer implements RowP
     @Override
     public void consumeInternal(InputRow row, int distinctCount, FilterOutcomes outcomes, RowProcessingChain chain) {
         Enum<?> category = _filter.categorize(row);
-        FilterOutcome outcome = new ImmutableFilterOutcome(_filterJob, category);
+        FilterOutcome outcome = getOutcome(category);
         outcomes.add(outcome);
         chain.processNext(row, distinctCount, outcomes);
     }
 
+    /**
+     * Gets the {@link FilterOutcome} of a category. Outcomes are immutable, so
+     * a single instance per category is shared by all rows.
+     * 
+     * @param category
+     * @return
+     */
+    private FilterOutcome getOutcome(Enum<?> category) {
+        if (category == null) {
+            return new ImmutableFilterOutcome(_filterJob, category);
+        }
+        FilterOutcome[] outcomesByOrdinal = _outcomesByOrdinal;
+        if (outcomesByOrdinal == null) {
+            final Enum<?>[] categories = category.getDeclaringClass().getEnumConstants();
+            outcomesByOrdinal = new FilterOutcome[categories.length];
+            for (int i = 0; i < categories.length; i++) {
+                outcomesByOrdinal[i] = new ImmutableFilterOutcome(_filterJob, categories[i]);
+            }
+            _outcomesByOrdinal = outcomesByOrdinal;
+        }
+        final int ordinal = category.ordinal();
+        if (ordinal >= outcomesByOrdinal.length || outcomesByOrdinal[ordinal].getCategory() != category) {
+            return new ImmutableFilterOutcome(_filterJob, category);
+        }
+        return outcomesByOrdinal[ordinal];
+    }
+
     @Override
     public FilterJob getComponentJob() {
         return _filterJob;
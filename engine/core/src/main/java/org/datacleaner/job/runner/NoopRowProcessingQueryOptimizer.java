@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.datacleaner.job.FilterOutcome;
 
 /**
@@ -45,6 +46,11 @@ public class NoopRowProcessingQueryOptimizer implements RowProcessingQueryOptimi
         return _query;
     }
 
+    @Override
+    public SelectItem getDistinctCountSelectItem() {
+        return null;
+    }
+
     @Override
     public List<RowProcessingConsumer> getOptimizedConsumers() {
         return _consumers;
@@ -67,7 +67,7 @@ public class OutputDataStreamRowCollector implements OutputRowCollector {
         }
         final int rowNumber = _rowCounter.incrementAndGet();
         final MetaModelInputRow inputRow = new MetaModelInputRow(rowNumber, row);
-        _consumeRowHandler.consumeRow(inputRow);
+        _consumeRowHandler.consumeRowWithoutResult(inputRow);
         _publisher.getAnalysisListener().rowProcessingProgress(_publisher.getAnalysisJob(),
                 _publisher.getRowProcessingMetrics(), inputRow, rowNumber);
     }
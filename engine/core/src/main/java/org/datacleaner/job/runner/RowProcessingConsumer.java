@@ -20,6 +20,7 @@
 package org.datacleaner.job.runner;
 
 import java.util.Collection;
+import java.util.Collections;
 
 import org.datacleaner.api.AnalyzerResult;
 import org.datacleaner.api.Concurrent;
@@ -104,6 +105,18 @@ public interface RowProcessingConsumer {
      */
     public Object getComponent();
 
+    /**
+     * Gets any additional instances of the component which have been created
+     * for rows that are processed concurrently, instead of synchronizing access
+     * to {@link #getComponent()}. Such instances are closed along with the
+     * component, but only by it's distributed close methods.
+     * 
+     * @return
+     */
+    public default Collection<?> getThreadComponentInstances() {
+        return Collections.emptyList();
+    }
+
     /**
      * Determines if the {@link ComponentJob} represented in this consumer is
      * expected to produce an {@link AnalyzerResult}
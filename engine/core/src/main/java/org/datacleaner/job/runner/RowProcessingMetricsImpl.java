@@ -108,6 +108,7 @@ final class RowProcessingMetricsImpl implements RowProcessingMetrics {
                     countQuery.setFirstRow(null);
                     countQuery.getSelectClause().removeItems();
                     countQuery.getOrderByClause().removeItems();
+                    countQuery.getGroupByClause().removeItems();
                     countQuery.selectCount();
                     countQuery.getSelectClause().getItem(0).setFunctionApproximationAllowed(true);
 
@@ -24,6 +24,7 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.datacleaner.api.QueryOptimizedFilter;
 import org.datacleaner.job.FilterOutcome;
 
@@ -42,6 +43,15 @@ public interface RowProcessingQueryOptimizer {
      */
     public Query getOptimizedQuery();
 
+    /**
+     * Gets the {@link SelectItem} of the optimized query which holds the
+     * number of source records that each row represents, or null if every row
+     * represents a single record.
+     * 
+     * @return
+     */
+    public SelectItem getDistinctCountSelectItem();
+
     /**
      * Gets the optimized list of {@link RowProcessingConsumer}. This list will
      * consist of the original consumers, except the eliminated ones (see
@@ -30,12 +30,16 @@ import java.util.Set;
 
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.datacleaner.api.Analyzer;
 import org.datacleaner.api.Filter;
+import org.datacleaner.api.HasOutputDataStreams;
 import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.QueryOptimizedFilter;
 import org.datacleaner.components.maxrows.MaxRowsFilter;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.descriptors.FilterDescriptor;
+import org.datacleaner.descriptors.ProvidedPropertyDescriptor;
 import org.datacleaner.job.ComponentJob;
 import org.datacleaner.job.ComponentRequirement;
 import org.datacleaner.job.FilterOutcome;
@@ -43,6 +47,8 @@ import org.datacleaner.job.HasComponentRequirement;
 import org.datacleaner.job.HasFilterOutcomes;
 import org.datacleaner.job.InputColumnSinkJob;
 import org.datacleaner.job.InputColumnSourceJob;
+import org.datacleaner.storage.RowAnnotation;
+import org.datacleaner.util.SystemProperties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -58,12 +64,31 @@ public class RowProcessingQueryOptimizerImpl implements RowProcessingQueryOptimi
     private final Query _baseQuery;
     private final List<RowProcessingConsumer> _consumers;
     private final Map<FilterConsumer, FilterOutcome> _optimizedFilters;
+    private final boolean _groupByEnabled;
+    private Query _optimizedQuery;
+    private SelectItem _distinctCountSelectItem;
 
     public RowProcessingQueryOptimizerImpl(Datastore datastore, List<RowProcessingConsumer> consumers, Query baseQuery) {
+        this(datastore, consumers, baseQuery, SystemProperties.getBoolean(SystemProperties.QUERY_GROUPBY_OPTIMIZE,
+                false));
+    }
+
+    /**
+     * 
+     * @param datastore
+     * @param consumers
+     * @param baseQuery
+     * @param groupByEnabled
+     *            whether or not the query may be grouped by all it's columns,
+     *            if the consumers allow it
+     */
+    public RowProcessingQueryOptimizerImpl(Datastore datastore, List<RowProcessingConsumer> consumers,
+            Query baseQuery, boolean groupByEnabled) {
         _datastore = datastore;
         _consumers = consumers;
         _baseQuery = baseQuery;
         _optimizedFilters = new HashMap<FilterConsumer, FilterOutcome>();
+        _groupByEnabled = groupByEnabled;
 
         init();
     }
@@ -215,8 +240,103 @@ public class RowProcessingQueryOptimizerImpl implements RowProcessingQueryOptimi
         return true;
     }
 
+    /**
+     * Determines if the optimized query can be grouped by all of it's columns,
+     * feeding the consumers with the number of records in each group as the
+     * distinct count.
+     * 
+     * @param query
+     *            the query, with filter optimizations applied
+     * @return
+     */
+    private boolean isGroupable(Query query) {
+        if (!_groupByEnabled) {
+            return false;
+        }
+        if (query.getFirstRow() != null || query.getMaxRows() != null) {
+            // grouping would change which records are included
+            return false;
+        }
+        if (!query.getGroupByClause().isEmpty() || query.getSelectClause().isEmpty()) {
+            return false;
+        }
+        for (SelectItem selectItem : query.getSelectClause().getItems()) {
+            if (selectItem.getColumn() == null || selectItem.getAggregateFunction() != null) {
+                return false;
+            }
+        }
+        if (!_datastore.getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
+            // grouping would then be done in memory
+            logger.debug("Datastore performance characteristics indicate that query grouping will not improve performance");
+            return false;
+        }
+
+        final List<RowProcessingConsumer> consumers = getOptimizedConsumers();
+        if (consumers.isEmpty()) {
+            return false;
+        }
+        for (RowProcessingConsumer consumer : consumers) {
+            if (!isGroupable(consumer)) {
+                logger.debug("Consumer {} does not allow grouping of the query", consumer);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isGroupable(RowProcessingConsumer consumer) {
+        if (!(consumer instanceof AnalyzerConsumer)) {
+            // transformers and filters may depend on individual records
+            return false;
+        }
+        final Analyzer<?> analyzer = ((AnalyzerConsumer) consumer).getComponent();
+        if (analyzer instanceof HasOutputDataStreams) {
+            return false;
+        }
+        for (InputColumn<?> inputColumn : consumer.getRequiredInput()) {
+            if (!inputColumn.isPhysicalColumn()) {
+                return false;
+            }
+        }
+        final Set<ProvidedPropertyDescriptor> providedProperties = consumer.getComponentJob().getDescriptor()
+                .getProvidedProperties();
+        for (ProvidedPropertyDescriptor providedProperty : providedProperties) {
+            if (providedProperty.isRowAnnotationFactory() || providedProperty.getBaseType() == RowAnnotation.class) {
+                // annotated (drill-to-detail) records would be groups
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
-    public Query getOptimizedQuery() {
+    public synchronized Query getOptimizedQuery() {
+        if (_optimizedQuery == null) {
+            Query q = createFilterOptimizedQuery();
+            if (isGroupable(q)) {
+                if (q == _baseQuery) {
+                    q = q.clone();
+                }
+                for (SelectItem selectItem : q.getSelectClause().getItems()) {
+                    q.groupBy(selectItem.getColumn());
+                }
+                final SelectItem countItem = SelectItem.getCountAllItem();
+                q.select(countItem);
+                _distinctCountSelectItem = countItem;
+                logger.info("Grouping query, analyzers will be fed distinct counts: {}", q);
+            }
+            _optimizedQuery = q;
+        }
+        return _optimizedQuery;
+    }
+
+    @Override
+    public synchronized SelectItem getDistinctCountSelectItem() {
+        getOptimizedQuery();
+        return _distinctCountSelectItem;
+    }
+
+    private Query createFilterOptimizedQuery() {
         Query q = _baseQuery;
 
         final Set<Entry<FilterConsumer, FilterOutcome>> entries = _optimizedFilters.entrySet();
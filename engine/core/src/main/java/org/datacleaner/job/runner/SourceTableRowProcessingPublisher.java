@@ -30,19 +30,24 @@ import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
 import org.apache.metamodel.jdbc.JdbcDataContext;
 import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.apache.metamodel.schema.Table;
 import org.apache.metamodel.util.CollectionUtils;
 import org.apache.metamodel.util.Func;
 import org.apache.metamodel.util.LazyRef;
 import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
 import org.datacleaner.connection.Datastore;
 import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.data.ColumnarInputRow;
+import org.datacleaner.data.ColumnarRowLayout;
 import org.datacleaner.data.MetaModelInputRow;
 import org.datacleaner.job.concurrent.ForkTaskListener;
 import org.datacleaner.job.concurrent.RunNextTaskTaskListener;
 import org.datacleaner.job.concurrent.TaskListener;
 import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.tasks.ConsumeRowBatchTask;
 import org.datacleaner.job.tasks.ConsumeRowTask;
 import org.datacleaner.job.tasks.RunRowProcessingPublisherTask;
 import org.datacleaner.util.SystemProperties;
@@ -58,6 +63,8 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
 
     private final Set<Column> _physicalColumns = new LinkedHashSet<Column>();
     private final LazyRef<RowProcessingQueryOptimizer> _queryOptimizerRef;
+    private final int _batchSize;
+    private final boolean _columnarRows;
 
     /**
      * Constructor to use for creating a
@@ -71,6 +78,8 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
         super(publishers, stream);
 
         _queryOptimizerRef = createQueryOptimizerRef();
+        _batchSize = Math.max(1, SystemProperties.getInt(SystemProperties.ROW_PROCESSING_BATCH_SIZE, 1));
+        _columnarRows = SystemProperties.getBoolean(SystemProperties.ROW_PROCESSING_COLUMNAR, false);
 
         final boolean aggressiveOptimizeSelectClause = SystemProperties.getBoolean(
                 SystemProperties.QUERY_SELECTCLAUSE_OPTIMIZE, false);
@@ -186,6 +195,7 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
     protected boolean processRowsInternal(AnalysisListener analysisListener, RowProcessingMetrics rowProcessingMetrics) {
         final RowProcessingQueryOptimizer queryOptimizer = getQueryOptimizer();
         final Query finalQuery = queryOptimizer.getOptimizedQuery();
+        final SelectItem distinctCountSelectItem = queryOptimizer.getDistinctCountSelectItem();
 
         final RowIdGenerator idGenerator;
         if (finalQuery.getFirstRow() == null) {
@@ -218,35 +228,114 @@ public final class SourceTableRowProcessingPublisher extends AbstractRowProcessi
                 logger.debug("Final query firstRow={}, maxRows={}", finalQuery.getFirstRow(), finalQuery.getMaxRows());
             }
 
-            // represents the distinct count of rows as well as the number of
-            // tasks to execute
+            // the number of tasks to execute
             int numTasks = 0;
 
+            // represents the distinct count of rows
+            long numRows = 0;
+
+            List<InputRow> batch = null;
+            int[] batchDistinctCounts = null;
+            long batchFirstRowNumber = 0;
+
             try (final DataSet dataSet = dataContext.executeQuery(finalQuery)) {
+                final ColumnarRowLayout rowLayout;
+                if (_columnarRows) {
+                    rowLayout = new ColumnarRowLayout(dataSet.getSelectItems(), consumeRowHandler.getOutputColumns());
+                } else {
+                    rowLayout = null;
+                }
+
                 while (dataSet.next()) {
                     if (taskListener.isErrornous()) {
                         break;
                     }
 
-                    numTasks++;
-
                     final Row metaModelRow = dataSet.getRow();
                     final int rowId = idGenerator.nextPhysicalRowId();
 
-                    final MetaModelInputRow inputRow = new MetaModelInputRow(rowId, metaModelRow);
+                    final InputRow inputRow;
+                    if (rowLayout == null) {
+                        inputRow = new MetaModelInputRow(rowId, metaModelRow);
+                    } else {
+                        inputRow = new ColumnarInputRow(rowLayout, rowId, metaModelRow);
+                    }
 
-                    final ConsumeRowTask task = new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics, inputRow,
-                            analysisListener, numTasks);
-                    getTaskRunner().run(task, taskListener);
+                    long remainingCount;
+                    if (distinctCountSelectItem == null) {
+                        remainingCount = 1;
+                    } else {
+                        remainingCount = ((Number) metaModelRow.getValue(distinctCountSelectItem)).longValue();
+                    }
 
+                    // consumers take the distinct count as an int, so a group
+                    // with more records is consumed in several parts
+                    while (remainingCount > 0) {
+                        final int distinctCount = (int) Math.min(remainingCount, Integer.MAX_VALUE);
+                        remainingCount -= distinctCount;
+                        numRows += distinctCount;
+
+                        if (_batchSize == 1) {
+                            numTasks++;
+                            final ConsumeRowTask task = new ConsumeRowTask(consumeRowHandler, rowProcessingMetrics,
+                                    inputRow, analysisListener, numRows, distinctCount);
+                            getTaskRunner().run(task, taskListener);
+                        } else {
+                            if (batch == null) {
+                                batch = new ArrayList<InputRow>(_batchSize);
+                                batchFirstRowNumber = numRows - distinctCount + 1;
+                                if (distinctCountSelectItem != null) {
+                                    batchDistinctCounts = new int[_batchSize];
+                                }
+                            }
+                            if (batchDistinctCounts != null) {
+                                batchDistinctCounts[batch.size()] = distinctCount;
+                            }
+                            batch.add(inputRow);
+                            if (batch.size() == _batchSize) {
+                                numTasks++;
+                                runBatch(consumeRowHandler, rowProcessingMetrics, analysisListener, taskListener,
+                                        batch, batchDistinctCounts, batchFirstRowNumber);
+                                batch = null;
+                                batchDistinctCounts = null;
+                            }
+                        }
+                    }
                 }
             }
+
+            if (batch != null && !taskListener.isErrornous()) {
+                numTasks++;
+                runBatch(consumeRowHandler, rowProcessingMetrics, analysisListener, taskListener, batch,
+                        batchDistinctCounts, batchFirstRowNumber);
+            }
+
             taskListener.awaitTasks(numTasks);
         }
 
         return !taskListener.isErrornous();
     }
 
+    private void runBatch(ConsumeRowHandler consumeRowHandler, RowProcessingMetrics rowProcessingMetrics,
+            AnalysisListener analysisListener, TaskListener taskListener, List<InputRow> batch,
+            int[] distinctCounts, long firstRowNumber) {
+        final ConsumeRowBatchTask task = new ConsumeRowBatchTask(consumeRowHandler, rowProcessingMetrics, batch,
+                analysisListener, firstRowNumber, distinctCounts);
+        getTaskRunner().run(task, taskListener);
+    }
+
+    /**
+     * Gets the number of records that are dispatched together in a single
+     * task.
+     * 
+     * @see SystemProperties#ROW_PROCESSING_BATCH_SIZE
+     * 
+     * @return
+     */
+    public int getBatchSize() {
+        return _batchSize;
+    }
+
     @Override
     protected boolean runRowProcessingInternal(List<TaskRunnable> postProcessingTasks) {
         final TaskListener runCompletionListener = new ForkTaskListener("run row processing (" + getStream() + ")",
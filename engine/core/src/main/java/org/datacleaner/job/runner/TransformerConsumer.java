@@ -27,6 +27,8 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.api.OutputRowCollector;
 import org.datacleaner.api.Transformer;
+import org.datacleaner.data.ColumnarInputRow;
+import org.datacleaner.data.ColumnarRowLayout;
 import org.datacleaner.data.TransformedInputRow;
 import org.datacleaner.descriptors.ProvidedPropertyDescriptor;
 import org.datacleaner.job.FilterOutcomes;
@@ -45,6 +47,7 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
     private final boolean _concurrent;
     private final Set<ProvidedPropertyDescriptor> _outputRowCollectorProperties;
     private RowIdGenerator _idGenerator;
+    private volatile OutputSlots _outputSlots;
 
     public TransformerConsumer(Transformer transformer, TransformerJob transformerJob, InputColumn<?>[] inputColumns,
             RowProcessingPublisher publisher) {
@@ -108,8 +111,7 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
             if (values == null) {
                 return;
             }
-            final TransformedInputRow resultRow = TransformedInputRow.of(row);
-            addValuesToRow(resultRow, outputColumns, values);
+            final InputRow resultRow = createResultRow(row, outputColumns, values, 1);
             chain.processNext(resultRow, distinctCount, outcomes);
         } finally {
             unregisterListener(_transformer);
@@ -138,16 +140,7 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
             @Override
             public void onValues(Object[] values) {
                 final int recordNo = recordNumber.incrementAndGet();
-                final boolean isFirst = recordNo == 1;
-                final TransformedInputRow resultRow;
-                if (isFirst) {
-                    // retain the first record's id
-                    resultRow = TransformedInputRow.of(row);
-                } else {
-                    resultRow = new TransformedInputRow(row, getNextVirtualRowId(row, recordNo));
-                }
-
-                addValuesToRow(resultRow, outputColumns, values);
+                final InputRow resultRow = createResultRow(row, outputColumns, values, recordNo);
 
                 final FilterOutcomes clonedOutcomeSink = outcomes.clone();
                 chain.processNext(resultRow, 1, clonedOutcomeSink);
@@ -177,6 +170,63 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
         return _idGenerator.nextVirtualRowId();
     }
 
+    /**
+     * Creates (or mutates) the row to pass on to the rest of the chain.
+     * 
+     * @param row
+     * @param outputColumns
+     * @param values
+     * @param recordNo
+     *            the number of the record produced based on the row, starting
+     *            with 1. Records after the first one get new ids.
+     * @return
+     */
+    private InputRow createResultRow(InputRow row, InputColumn<?>[] outputColumns, Object[] values, int recordNo) {
+        final boolean isFirst = recordNo == 1;
+        if (row instanceof ColumnarInputRow) {
+            final ColumnarInputRow columnarRow = (ColumnarInputRow) row;
+            final int[] slots = getOutputSlots(columnarRow.getLayout(), outputColumns);
+            if (slots != null) {
+                final ColumnarInputRow resultRow;
+                if (isFirst) {
+                    resultRow = columnarRow;
+                } else {
+                    // values of later components are not retained in the copy
+                    resultRow = columnarRow.copy(getNextVirtualRowId(row, recordNo), getMinimum(slots, columnarRow.getLayout().getSlotCount()));
+                }
+                resultRow.setValues(slots, values);
+                return resultRow;
+            }
+        }
+
+        final TransformedInputRow resultRow;
+        if (isFirst) {
+            // retain the first record's id
+            resultRow = TransformedInputRow.of(row);
+        } else {
+            resultRow = new TransformedInputRow(row, getNextVirtualRowId(row, recordNo));
+        }
+        addValuesToRow(resultRow, outputColumns, values);
+        return resultRow;
+    }
+
+    private int[] getOutputSlots(ColumnarRowLayout layout, InputColumn<?>[] outputColumns) {
+        OutputSlots outputSlots = _outputSlots;
+        if (outputSlots == null || outputSlots.layout != layout) {
+            outputSlots = new OutputSlots(layout, layout.getSlots(outputColumns));
+            _outputSlots = outputSlots;
+        }
+        return outputSlots.slots;
+    }
+
+    private static int getMinimum(int[] slots, int slotCount) {
+        int minimum = slotCount;
+        for (int slot : slots) {
+            minimum = Math.min(minimum, slot);
+        }
+        return minimum;
+    }
+
     private void addValuesToRow(TransformedInputRow resultRow, final InputColumn<?>[] outputColumns, Object[] values) {
         assert outputColumns.length == values.length;
 
@@ -202,4 +252,18 @@ final class TransformerConsumer extends AbstractRowProcessingConsumer implements
     public String toString() {
         return "TransformerConsumer[" + _transformer + "]";
     }
+
+    /**
+     * The slots of the output columns in a particular {@link ColumnarRowLayout}
+     */
+    private static final class OutputSlots {
+
+        final ColumnarRowLayout layout;
+        final int[] slots;
+
+        OutputSlots(ColumnarRowLayout layout, int[] slots) {
+            this.layout = layout;
+            this.slots = slots;
+        }
+    }
 }
@@ -19,6 +19,7 @@
  */
 package org.datacleaner.job.tasks;
 
+import java.util.Collection;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.datacleaner.descriptors.ComponentDescriptor;
@@ -73,6 +74,15 @@ public class CloseTaskListener implements TaskListener {
             // close can occur AFTER completion
             _lifeCycleHelper.close(descriptor, component, _success.get());
 
+            final Collection<?> threadComponentInstances = _consumer.getThreadComponentInstances();
+            if (!threadComponentInstances.isEmpty()) {
+                final LifeCycleHelper distributedLifeCycleHelper = new LifeCycleHelper(_lifeCycleHelper
+                        .getInjectionManager(), false);
+                for (Object threadComponentInstance : threadComponentInstances) {
+                    distributedLifeCycleHelper.close(descriptor, threadComponentInstance, _success.get());
+                }
+            }
+
             _consumer.getActiveOutputDataStreams().forEach(ActiveOutputDataStream::close);
         }
     }
@@ -0,0 +1,109 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.tasks;
+
+import java.util.List;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.runner.AnalysisListener;
+import org.datacleaner.job.runner.ConsumeRowHandler;
+import org.datacleaner.job.runner.RowProcessingConsumer;
+import org.datacleaner.job.runner.RowProcessingMetrics;
+
+/**
+ * A {@link Task} that dispatches ("consumes") a block of records to all
+ * relevant {@link RowProcessingConsumer}s. Semantically equivalent to
+ * executing a {@link ConsumeRowTask} for each record, but avoids the overhead
+ * of creating and queueing a task per record.
+ * 
+ * If consuming a record fails, the remaining records of the batch are not
+ * consumed and the error is propagated to the task's listener.
+ */
+public final class ConsumeRowBatchTask implements Task {
+
+    private final RowProcessingMetrics _rowProcessingMetrics;
+    private final List<InputRow> _rows;
+    private final AnalysisListener _analysisListener;
+    private final ConsumeRowHandler _consumeRowHandler;
+    private final long _firstRowNumber;
+    private final int[] _distinctCounts;
+
+    /**
+     * 
+     * @param consumeRowHandler
+     * @param rowProcessingMetrics
+     * @param rows
+     * @param analysisListener
+     * @param firstRowNumber
+     *            the row number of the first row in the batch. Subsequent
+     *            rows are numbered sequentially.
+     */
+    public ConsumeRowBatchTask(ConsumeRowHandler consumeRowHandler, RowProcessingMetrics rowProcessingMetrics,
+            List<InputRow> rows, AnalysisListener analysisListener, long firstRowNumber) {
+        this(consumeRowHandler, rowProcessingMetrics, rows, analysisListener, firstRowNumber, null);
+    }
+
+    /**
+     * 
+     * @param consumeRowHandler
+     * @param rowProcessingMetrics
+     * @param rows
+     * @param analysisListener
+     * @param firstRowNumber
+     *            the row number of the first row in the batch
+     * @param distinctCounts
+     *            the number of source records that each of the rows
+     *            represents, or null if every row represents a single record.
+     *            Row numbers are incremented accordingly.
+     */
+    public ConsumeRowBatchTask(ConsumeRowHandler consumeRowHandler, RowProcessingMetrics rowProcessingMetrics,
+            List<InputRow> rows, AnalysisListener analysisListener, long firstRowNumber, int[] distinctCounts) {
+        _consumeRowHandler = consumeRowHandler;
+        _rowProcessingMetrics = rowProcessingMetrics;
+        _rows = rows;
+        _analysisListener = analysisListener;
+        _firstRowNumber = firstRowNumber;
+        _distinctCounts = distinctCounts;
+    }
+
+    @Override
+    public void execute() {
+        final AnalysisJob analysisJob = _rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob();
+        long rowNumber = _firstRowNumber - 1;
+        for (int i = 0; i < _rows.size(); i++) {
+            final InputRow row = _rows.get(i);
+            final int distinctCount = _distinctCounts == null ? 1 : _distinctCounts[i];
+            rowNumber += distinctCount;
+            _consumeRowHandler.consumeRowWithoutResult(row, distinctCount);
+            _analysisListener.rowProcessingProgress(analysisJob, _rowProcessingMetrics, row,
+                    ConsumeRowTask.toProgressRowNumber(rowNumber));
+        }
+    }
+
+    /**
+     * Gets the number of records in this batch
+     * 
+     * @return
+     */
+    public int getRowCount() {
+        return _rows.size();
+    }
+}
@@ -35,22 +35,52 @@ public final class ConsumeRowTask implements Task {
     private final InputRow _row;
     private final AnalysisListener _analysisListener;
     private final ConsumeRowHandler _consumeRowHandler;
-    private final int _rowNumber;
+    private final long _rowNumber;
+    private final int _distinctCount;
 
     public ConsumeRowTask(ConsumeRowHandler consumeRowHandler, RowProcessingMetrics rowProcessingMetrics, InputRow row,
-            AnalysisListener analysisListener, int rowNumber) {
+            AnalysisListener analysisListener, long rowNumber) {
+        this(consumeRowHandler, rowProcessingMetrics, row, analysisListener, rowNumber, 1);
+    }
+
+    /**
+     * 
+     * @param consumeRowHandler
+     * @param rowProcessingMetrics
+     * @param row
+     * @param analysisListener
+     * @param rowNumber
+     *            the number of the last source record that the row
+     *            represents
+     * @param distinctCount
+     *            the number of source records that the row represents
+     */
+    public ConsumeRowTask(ConsumeRowHandler consumeRowHandler, RowProcessingMetrics rowProcessingMetrics, InputRow row,
+            AnalysisListener analysisListener, long rowNumber, int distinctCount) {
         _consumeRowHandler = consumeRowHandler;
         _rowProcessingMetrics = rowProcessingMetrics;
         _row = row;
         _analysisListener = analysisListener;
         _rowNumber = rowNumber;
+        _distinctCount = distinctCount;
     }
 
     @Override
     public void execute() {
-        _consumeRowHandler.consumeRow(_row).getRows();
+        _consumeRowHandler.consumeRowWithoutResult(_row, _distinctCount);
         _analysisListener.rowProcessingProgress(_rowProcessingMetrics.getAnalysisJobMetrics().getAnalysisJob(),
-                _rowProcessingMetrics, _row, _rowNumber);
+                _rowProcessingMetrics, _row, toProgressRowNumber(_rowNumber));
+    }
+
+    /**
+     * Converts a row number for reporting progress, which is limited to an
+     * int.
+     * 
+     * @param rowNumber
+     * @return
+     */
+    static int toProgressRowNumber(long rowNumber) {
+        return (int) Math.min(rowNumber, Integer.MAX_VALUE);
     }
 
 }
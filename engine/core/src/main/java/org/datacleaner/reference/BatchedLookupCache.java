@@ -0,0 +1,191 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Bounded, least-recently-used cache of lookups in a reference data source,
+ * which resolves cache misses in batches.
+ * 
+ * Misses are queued, and a thread which finds that no batch is in progress
+ * looks up all queued keys (up to the maximum batch size) in a single query.
+ * Threads that miss while a batch is in progress wait for it, and are then
+ * handled by the next batch. A single thread therefore never waits for other
+ * lookups, while concurrent threads share queries.
+ * 
+ * This class is thread-safe.
+ */
+final class BatchedLookupCache {
+
+    /**
+     * Looks up a batch of keys in the reference data source.
+     */
+    interface BatchLookup {
+
+        /**
+         * Looks up keys
+         * 
+         * @param keys
+         * @return the values of the keys that were found. Keys that were not
+         *         found should not be contained in the map.
+         */
+        Map<String, String> lookup(List<String> keys);
+    }
+
+    private static final Object NOT_FOUND = new Object();
+
+    private final BatchLookup _batchLookup;
+    private final int _maxBatchSize;
+    private final ReferenceDataLookupMetrics _metrics;
+    private final LinkedHashMap<String, Object> _cache;
+    private final Map<String, PendingLookup> _pendingLookups;
+    private final ArrayDeque<PendingLookup> _queue;
+    private boolean _batchInProgress;
+
+    public BatchedLookupCache(BatchLookup batchLookup, final int cacheSize, int maxBatchSize,
+            ReferenceDataLookupMetrics metrics) {
+        _batchLookup = batchLookup;
+        _maxBatchSize = Math.max(1, maxBatchSize);
+        _metrics = metrics;
+        _cache = new LinkedHashMap<String, Object>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<String, Object> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        _pendingLookups = new HashMap<>();
+        _queue = new ArrayDeque<>();
+        _batchInProgress = false;
+    }
+
+    /**
+     * Gets the value of a key
+     * 
+     * @param key
+     * @return the value, or null if the key was not found
+     */
+    public String get(String key) {
+        final PendingLookup pendingLookup;
+        synchronized (this) {
+            final Object cachedValue = _cache.get(key);
+            if (cachedValue != null) {
+                _metrics.recordHit();
+                return cachedValue == NOT_FOUND ? null : (String) cachedValue;
+            }
+            _metrics.recordMiss();
+
+            final PendingLookup existingLookup = _pendingLookups.get(key);
+            if (existingLookup == null) {
+                pendingLookup = new PendingLookup(key);
+                _pendingLookups.put(key, pendingLookup);
+                _queue.add(pendingLookup);
+            } else {
+                pendingLookup = existingLookup;
+            }
+        }
+
+        while (true) {
+            final List<PendingLookup> batch;
+            synchronized (this) {
+                while (!pendingLookup._done && _batchInProgress) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException("Interrupted while waiting for lookup of: " + key, e);
+                    }
+                }
+                if (pendingLookup._done) {
+                    if (pendingLookup._error != null) {
+                        throw pendingLookup._error;
+                    }
+                    return pendingLookup._value;
+                }
+
+                _batchInProgress = true;
+                batch = new ArrayList<>(Math.min(_maxBatchSize, _queue.size()));
+                while (batch.size() < _maxBatchSize && !_queue.isEmpty()) {
+                    batch.add(_queue.poll());
+                }
+            }
+
+            runBatch(batch);
+        }
+    }
+
+    private void runBatch(List<PendingLookup> batch) {
+        final List<String> keys = new ArrayList<>(batch.size());
+        for (PendingLookup pendingLookup : batch) {
+            keys.add(pendingLookup._key);
+        }
+
+        Map<String, String> values = null;
+        RuntimeException error = null;
+        final long startTime = System.currentTimeMillis();
+        try {
+            values = _batchLookup.lookup(keys);
+        } catch (RuntimeException e) {
+            error = e;
+        } finally {
+            _metrics.recordQuery(System.currentTimeMillis() - startTime);
+        }
+
+        synchronized (this) {
+            for (PendingLookup pendingLookup : batch) {
+                if (error == null) {
+                    final String value = values.get(pendingLookup._key);
+                    pendingLookup._value = value;
+                    _cache.put(pendingLookup._key, value == null ? NOT_FOUND : value);
+                } else {
+                    pendingLookup._error = error;
+                }
+                pendingLookup._done = true;
+                _pendingLookups.remove(pendingLookup._key);
+            }
+            _batchInProgress = false;
+            notifyAll();
+        }
+    }
+
+    /**
+     * A lookup that is queued or in progress. Guarded by the cache monitor.
+     */
+    private static final class PendingLookup {
+
+        private final String _key;
+        private boolean _done;
+        private String _value;
+        private RuntimeException _error;
+
+        public PendingLookup(String key) {
+            _key = key;
+        }
+    }
+}
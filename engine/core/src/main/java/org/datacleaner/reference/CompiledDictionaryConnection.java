@@ -0,0 +1,78 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * {@link DictionaryConnection} which looks up values in a
+ * {@link CompiledReferenceIndex}.
+ */
+final class CompiledDictionaryConnection implements DictionaryConnection {
+
+    private final CompiledReferenceIndex _index;
+    private final boolean _caseSensitive;
+
+    public CompiledDictionaryConnection(CompiledReferenceIndex index, boolean caseSensitive) {
+        _index = index;
+        _caseSensitive = caseSensitive;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (value == null) {
+            return false;
+        }
+        if (!_caseSensitive) {
+            value = value.toLowerCase();
+        }
+        return _index.containsKey(value);
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * Note that sorting the values requires all of them to be held in memory.
+     * Callers which do not depend on the order should use
+     * {@link #getAllValues()}, which iterates the index.
+     */
+    @Override
+    public Iterator<String> getLengthSortedValues() {
+        final SortedSet<String> values = new TreeSet<>(Comparator.comparingInt(String::length).reversed()
+                .thenComparing(String::compareTo));
+        final Iterator<String> it = _index.keyIterator();
+        while (it.hasNext()) {
+            values.add(it.next());
+        }
+        return values.iterator();
+    }
+
+    @Override
+    public Iterator<String> getAllValues() {
+        return _index.keyIterator();
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,681 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.datacleaner.util.StringUtils;
+
+/**
+ * Read-only, memory-mapped index of (case folded) reference data keys and
+ * optionally a value for each key. Used to look up values in large text file
+ * based dictionaries and synonym catalogs without holding them on the java
+ * heap.
+ * 
+ * The keys are sorted by code point (which is the same as their UTF-8 byte
+ * order) and stored in blocks of {@value #BLOCK_SIZE}, each front-coded
+ * relative to the previous key of the block. A key is looked up by binary
+ * search over the first keys of the blocks, followed by a scan of a single
+ * block.
+ * 
+ * The header of the file records the size, last modification date and
+ * checksum of the source that the index was built from, see
+ * {@link CompiledReferenceIndexCache}.
+ * 
+ * Instances are thread-safe.
+ */
+final class CompiledReferenceIndex {
+
+    private static final int MAGIC = 0x44434958;
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 16;
+
+    private static final int CHUNK_BITS = 30;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    // header layout
+    private static final int POSITION_SOURCE_SIZE = 8;
+    private static final int POSITION_SOURCE_LAST_MODIFIED = 16;
+    private static final int POSITION_SOURCE_CHECKSUM = 24;
+    private static final int POSITION_VERIFIED_TIME = 32;
+    private static final int POSITION_HAS_VALUES = 40;
+    private static final int POSITION_ENTRY_COUNT = 41;
+    private static final int POSITION_BLOCK_COUNT = 45;
+    private static final int POSITION_BLOCK_OFFSETS = 49;
+
+    /**
+     * Orders strings by code point, which is consistent with the order of
+     * their UTF-8 representations.
+     */
+    public static final Comparator<String> CODE_POINT_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String s1, String s2) {
+            final int length1 = s1.length();
+            final int length2 = s2.length();
+            int i1 = 0;
+            int i2 = 0;
+            while (i1 < length1 && i2 < length2) {
+                final int c1 = s1.codePointAt(i1);
+                final int c2 = s2.codePointAt(i2);
+                if (c1 != c2) {
+                    return c1 < c2 ? -1 : 1;
+                }
+                i1 += Character.charCount(c1);
+                i2 += Character.charCount(c2);
+            }
+            return (length1 - i1) - (length2 - i2);
+        }
+    };
+
+    private final File _file;
+    private final MappedByteBuffer[] _chunks;
+    private final boolean _hasValues;
+    private final int _entryCount;
+    private final int _blockCount;
+    private final long _sourceChecksum;
+    private volatile long _sourceSize;
+    private volatile long _sourceLastModified;
+    private volatile long _verifiedTime;
+    private volatile Map<String, String> _multiWordEntries;
+
+    private CompiledReferenceIndex(File file) throws IOException {
+        _file = file;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+            final FileChannel channel = randomAccessFile.getChannel();
+            final long size = channel.size();
+            final int chunkCount = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            _chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                final long position = ((long) i) * CHUNK_SIZE;
+                _chunks[i] = channel.map(MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, size - position));
+            }
+        }
+
+        if (_chunks.length == 0 || getInt(0) != MAGIC || getInt(4) != VERSION) {
+            throw new IOException("Not a compiled reference data index: " + file);
+        }
+        _sourceSize = getLong(POSITION_SOURCE_SIZE);
+        _sourceLastModified = getLong(POSITION_SOURCE_LAST_MODIFIED);
+        _sourceChecksum = getLong(POSITION_SOURCE_CHECKSUM);
+        _verifiedTime = getLong(POSITION_VERIFIED_TIME);
+        _hasValues = getByte(POSITION_HAS_VALUES) != 0;
+        _entryCount = getInt(POSITION_ENTRY_COUNT);
+        _blockCount = getInt(POSITION_BLOCK_COUNT);
+    }
+
+    /**
+     * Opens an existing index file
+     * 
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static CompiledReferenceIndex open(File file) throws IOException {
+        return new CompiledReferenceIndex(file);
+    }
+
+    /**
+     * Writes an index file.
+     * 
+     * @param file
+     * @param entries
+     *            the keys of the index, and their values. If all values are
+     *            null, no values are stored.
+     * @param sourceSize
+     * @param sourceLastModified
+     * @param sourceChecksum
+     * @throws IOException
+     */
+    public static void write(File file, final Map<String, String> entries, long sourceSize,
+            long sourceLastModified, long sourceChecksum) throws IOException {
+        final List<String> keys = new ArrayList<>(entries.keySet());
+        Collections.sort(keys, CODE_POINT_ORDER);
+
+        boolean hasValues = false;
+        for (String value : entries.values()) {
+            if (value != null) {
+                hasValues = true;
+                break;
+            }
+        }
+
+        final Iterator<String> keyIterator = keys.iterator();
+        final Iterator<Entry<String, String>> sortedEntries = new Iterator<Entry<String, String>>() {
+            @Override
+            public boolean hasNext() {
+                return keyIterator.hasNext();
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                final String key = keyIterator.next();
+                return new SimpleImmutableEntry<>(key, entries.get(key));
+            }
+        };
+        write(file, sortedEntries, keys.size(), hasValues, sourceSize, sourceLastModified, sourceChecksum);
+    }
+
+    /**
+     * Writes an index file from entries that are already sorted by
+     * {@link #CODE_POINT_ORDER} and have distinct keys, so that they don't
+     * have to be held in memory, see {@link CompiledReferenceIndexBuilder}.
+     * 
+     * @param file
+     * @param sortedEntries
+     * @param entryCount
+     *            the number of entries to write
+     * @param hasValues
+     *            whether any of the entries has a (non-null) value
+     * @param sourceSize
+     * @param sourceLastModified
+     * @param sourceChecksum
+     * @throws IOException
+     */
+    public static void write(File file, Iterator<Entry<String, String>> sortedEntries, int entryCount,
+            boolean hasValues, long sourceSize, long sourceLastModified, long sourceChecksum) throws IOException {
+        final int blockCount = (entryCount + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        final long[] blockOffsets = new long[blockCount];
+
+        try (CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(
+                file), 64 * 1024)); DataOutputStream out = new DataOutputStream(counter)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceLastModified);
+            out.writeLong(sourceChecksum);
+            out.writeLong(System.currentTimeMillis());
+            out.writeByte(hasValues ? 1 : 0);
+            out.writeInt(entryCount);
+            out.writeInt(blockCount);
+            // placeholders for the block offsets
+            for (int i = 0; i < blockCount; i++) {
+                out.writeLong(0);
+            }
+
+            byte[] previousKey = null;
+            for (int i = 0; i < entryCount; i++) {
+                final Entry<String, String> entry = sortedEntries.next();
+                final String key = entry.getKey();
+                final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                if (i % BLOCK_SIZE == 0) {
+                    out.flush();
+                    blockOffsets[i / BLOCK_SIZE] = counter.getCount();
+                    writeVarInt(out, keyBytes.length);
+                    out.write(keyBytes);
+                } else {
+                    final int prefixLength = getCommonPrefixLength(previousKey, keyBytes);
+                    writeVarInt(out, prefixLength);
+                    writeVarInt(out, keyBytes.length - prefixLength);
+                    out.write(keyBytes, prefixLength, keyBytes.length - prefixLength);
+                }
+                if (hasValues) {
+                    final String value = entry.getValue();
+                    final byte[] valueBytes = (value == null ? "" : value).getBytes(StandardCharsets.UTF_8);
+                    writeVarInt(out, valueBytes.length);
+                    out.write(valueBytes);
+                }
+                previousKey = keyBytes;
+            }
+        }
+
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw")) {
+            final ByteBuffer buffer = ByteBuffer.allocate(blockCount * 8);
+            for (long blockOffset : blockOffsets) {
+                buffer.putLong(blockOffset);
+            }
+            buffer.flip();
+            randomAccessFile.getChannel().write(buffer, POSITION_BLOCK_OFFSETS);
+        }
+    }
+
+    /**
+     * Records that the index has been verified against a source with a
+     * particular size and modification date.
+     * 
+     * @param sourceSize
+     * @param sourceLastModified
+     */
+    public void setVerified(long sourceSize, long sourceLastModified) throws IOException {
+        final long now = System.currentTimeMillis();
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(_file, "rw")) {
+            final ByteBuffer buffer = ByteBuffer.allocate(32);
+            buffer.putLong(sourceSize);
+            buffer.putLong(sourceLastModified);
+            buffer.putLong(_sourceChecksum);
+            buffer.putLong(now);
+            buffer.flip();
+            randomAccessFile.getChannel().write(buffer, POSITION_SOURCE_SIZE);
+        }
+        _sourceSize = sourceSize;
+        _sourceLastModified = sourceLastModified;
+        _verifiedTime = now;
+    }
+
+    public File getFile() {
+        return _file;
+    }
+
+    public long getSourceSize() {
+        return _sourceSize;
+    }
+
+    public long getSourceLastModified() {
+        return _sourceLastModified;
+    }
+
+    public long getSourceChecksum() {
+        return _sourceChecksum;
+    }
+
+    /**
+     * Gets the time that the index was built, or last verified against it's
+     * source.
+     * 
+     * @return
+     */
+    public long getVerifiedTime() {
+        return _verifiedTime;
+    }
+
+    public int getEntryCount() {
+        return _entryCount;
+    }
+
+    /**
+     * Determines if the index contains a key
+     * 
+     * @param key
+     *            the (case folded) key
+     * @return
+     */
+    public boolean containsKey(String key) {
+        return find(key) != -1;
+    }
+
+    /**
+     * Gets the value of a key
+     * 
+     * @param key
+     *            the (case folded) key
+     * @return the value, or null if the key is not in the index (or the index
+     *         has no values)
+     */
+    public String get(String key) {
+        final long position = find(key);
+        if (position == -1 || !_hasValues) {
+            return null;
+        }
+        return readString(position);
+    }
+
+    /**
+     * Finds the position after a key in the index
+     * 
+     * @param key
+     * @return the position after the key, or -1 if it was not found
+     */
+    private long find(String key) {
+        if (key == null || _blockCount == 0) {
+            return -1;
+        }
+        final byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+
+        // find the last block with a first key less than or equal to the key
+        int low = 0;
+        int high = _blockCount - 1;
+        while (low < high) {
+            final int mid = (low + high + 1) >>> 1;
+            if (compareFirstKey(mid, keyBytes) <= 0) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        final int blockEntries = Math.min(BLOCK_SIZE, _entryCount - low * BLOCK_SIZE);
+        long position = getBlockOffset(low);
+        byte[] current = new byte[Math.max(16, keyBytes.length)];
+        int currentLength = 0;
+        for (int i = 0; i < blockEntries; i++) {
+            final int prefixLength;
+            if (i == 0) {
+                prefixLength = 0;
+            } else {
+                prefixLength = (int) readVarInt(position);
+                position += varIntLength(prefixLength);
+            }
+            final int suffixLength = (int) readVarInt(position);
+            position += varIntLength(suffixLength);
+
+            currentLength = prefixLength + suffixLength;
+            if (currentLength > current.length) {
+                final byte[] newCurrent = new byte[currentLength * 2];
+                System.arraycopy(current, 0, newCurrent, 0, prefixLength);
+                current = newCurrent;
+            }
+            getBytes(position, current, prefixLength, suffixLength);
+            position += suffixLength;
+
+            final int comparison = compare(current, currentLength, keyBytes);
+            if (comparison == 0) {
+                return position;
+            }
+            if (comparison > 0) {
+                return -1;
+            }
+            if (_hasValues) {
+                position = skipString(position);
+            }
+        }
+        return -1;
+    }
+
+    private int compareFirstKey(int block, byte[] keyBytes) {
+        long position = getBlockOffset(block);
+        final int length = (int) readVarInt(position);
+        position += varIntLength(length);
+        final int commonLength = Math.min(length, keyBytes.length);
+        for (int i = 0; i < commonLength; i++) {
+            final int b1 = getByte(position + i) & 0xFF;
+            final int b2 = keyBytes[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return length - keyBytes.length;
+    }
+
+    private static int compare(byte[] bytes, int length, byte[] keyBytes) {
+        final int commonLength = Math.min(length, keyBytes.length);
+        for (int i = 0; i < commonLength; i++) {
+            final int b1 = bytes[i] & 0xFF;
+            final int b2 = keyBytes[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return length - keyBytes.length;
+    }
+
+    /**
+     * Gets an iterator of all keys of the index, in key order.
+     * 
+     * @return
+     */
+    public Iterator<String> keyIterator() {
+        return new Iterator<String>() {
+
+            private final EntryCursor _cursor = new EntryCursor();
+
+            @Override
+            public boolean hasNext() {
+                return _cursor.hasNext();
+            }
+
+            @Override
+            public String next() {
+                _cursor.next();
+                return _cursor.getKey();
+            }
+        };
+    }
+
+    /**
+     * Gets an iterator of all entries of the index, in key order.
+     * 
+     * @return
+     */
+    public Iterator<Entry<String, String>> entryIterator() {
+        return new Iterator<Entry<String, String>>() {
+
+            private final EntryCursor _cursor = new EntryCursor();
+
+            @Override
+            public boolean hasNext() {
+                return _cursor.hasNext();
+            }
+
+            @Override
+            public Entry<String, String> next() {
+                _cursor.next();
+                return new SimpleImmutableEntry<>(_cursor.getKey(), _cursor.getValue());
+            }
+        };
+    }
+
+    /**
+     * Gets the entries of the index which have multi-word keys. These are
+     * collected (once) for matching multi-word terms inline in strings.
+     * 
+     * @return
+     */
+    public Map<String, String> getMultiWordEntries() {
+        Map<String, String> multiWordEntries = _multiWordEntries;
+        if (multiWordEntries == null) {
+            multiWordEntries = new HashMap<>();
+            final EntryCursor cursor = new EntryCursor();
+            while (cursor.hasNext()) {
+                cursor.next();
+                final String key = cursor.getKey();
+                if (!StringUtils.isSingleWord(key)) {
+                    multiWordEntries.put(key, cursor.getValue());
+                }
+            }
+            multiWordEntries = Collections.unmodifiableMap(multiWordEntries);
+            _multiWordEntries = multiWordEntries;
+        }
+        return multiWordEntries;
+    }
+
+    /**
+     * Sequential reader of the entries of the index
+     */
+    private final class EntryCursor {
+
+        private int _index = 0;
+        private long _position;
+        private byte[] _key = new byte[64];
+        private int _keyLength;
+        private String _value;
+
+        public boolean hasNext() {
+            return _index < _entryCount;
+        }
+
+        public void next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final int prefixLength;
+            if (_index % BLOCK_SIZE == 0) {
+                _position = getBlockOffset(_index / BLOCK_SIZE);
+                prefixLength = 0;
+            } else {
+                prefixLength = (int) readVarInt(_position);
+                _position += varIntLength(prefixLength);
+            }
+            final int suffixLength = (int) readVarInt(_position);
+            _position += varIntLength(suffixLength);
+            _keyLength = prefixLength + suffixLength;
+            if (_keyLength > _key.length) {
+                final byte[] newKey = new byte[_keyLength * 2];
+                System.arraycopy(_key, 0, newKey, 0, prefixLength);
+                _key = newKey;
+            }
+            getBytes(_position, _key, prefixLength, suffixLength);
+            _position += suffixLength;
+
+            if (_hasValues) {
+                _value = readString(_position);
+                _position = skipString(_position);
+            }
+            _index++;
+        }
+
+        public String getKey() {
+            return new String(_key, 0, _keyLength, StandardCharsets.UTF_8);
+        }
+
+        public String getValue() {
+            return _value;
+        }
+    }
+
+    private long getBlockOffset(int block) {
+        return getLong(POSITION_BLOCK_OFFSETS + block * 8L);
+    }
+
+    private String readString(long position) {
+        final int length = (int) readVarInt(position);
+        final byte[] bytes = new byte[length];
+        getBytes(position + varIntLength(length), bytes, 0, length);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long skipString(long position) {
+        final int length = (int) readVarInt(position);
+        return position + varIntLength(length) + length;
+    }
+
+    private byte getByte(long position) {
+        return _chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & (CHUNK_SIZE - 1)));
+    }
+
+    private void getBytes(long position, byte[] destination, int offset, int length) {
+        for (int i = 0; i < length; i++) {
+            destination[offset + i] = getByte(position + i);
+        }
+    }
+
+    private int getInt(long position) {
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            result = (result << 8) | (getByte(position + i) & 0xFF);
+        }
+        return result;
+    }
+
+    private long getLong(long position) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (getByte(position + i) & 0xFF);
+        }
+        return result;
+    }
+
+    private long readVarInt(long position) {
+        long result = 0;
+        int shift = 0;
+        while (true) {
+            final byte b = getByte(position++);
+            result |= ((long) (b & 0x7F)) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+            shift += 7;
+        }
+    }
+
+    private static int varIntLength(long value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int getCommonPrefixLength(byte[] b1, byte[] b2) {
+        final int length = Math.min(b1.length, b2.length);
+        for (int i = 0; i < length; i++) {
+            if (b1[i] != b2[i]) {
+                return i;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Output stream which counts the bytes written to it
+     */
+    private static final class CountingOutputStream extends OutputStream {
+
+        private final OutputStream _out;
+        private long _count = 0;
+
+        public CountingOutputStream(OutputStream out) {
+            _out = out;
+        }
+
+        public long getCount() {
+            return _count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            _out.write(b);
+            _count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            _out.write(b, off, len);
+            _count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            _out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            _out.close();
+        }
+    }
+}
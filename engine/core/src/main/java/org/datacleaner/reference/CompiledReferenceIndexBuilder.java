@@ -0,0 +1,230 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.util.sort.SortMergeWriter;
+
+/**
+ * Builds a {@link CompiledReferenceIndex} from entries that are passed in any
+ * order, without holding them all on the java heap. The entries are sorted
+ * with a {@link SortMergeWriter}, which spills them to temporary files in the
+ * index directory, and the sorted entries are then written to the index.
+ * 
+ * If a key is passed more than once, the last value is kept.
+ * 
+ * Instances are not thread-safe and can only be written once.
+ */
+final class CompiledReferenceIndexBuilder implements BiConsumer<String, String> {
+
+    /**
+     * Orders entries by key, and entries with the same key from last to first,
+     * so that the last value of a key is the first one to be written.
+     */
+    private static final Comparator<IndexEntry> ENTRY_ORDER = new Comparator<IndexEntry>() {
+        @Override
+        public int compare(IndexEntry o1, IndexEntry o2) {
+            final int diff = CompiledReferenceIndex.CODE_POINT_ORDER.compare(o1._key, o2._key);
+            if (diff != 0) {
+                return diff;
+            }
+            return Long.compare(o2._sequence, o1._sequence);
+        }
+    };
+
+    private final File _directory;
+    private final EntrySorter _sorter;
+    private long _sequence;
+
+    public CompiledReferenceIndexBuilder(File directory) {
+        this(directory, SortMergeWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    CompiledReferenceIndexBuilder(File directory, int bufferSize) {
+        _directory = directory;
+        _sorter = new EntrySorter(directory, bufferSize);
+    }
+
+    @Override
+    public void accept(String key, String value) {
+        if (key == null) {
+            return;
+        }
+        _sorter.append(new IndexEntry(key, value, _sequence++));
+    }
+
+    /**
+     * Writes the index file.
+     * 
+     * @param file
+     * @param sourceSize
+     * @param sourceLastModified
+     * @param sourceChecksum
+     * @return the number of entries in the index
+     * @throws IOException
+     */
+    public int write(File file, long sourceSize, long sourceLastModified, long sourceChecksum) throws IOException {
+        final File sortedFile = File.createTempFile("sorted_", ".tmp", _directory);
+        try {
+            _sorter.write(sortedFile);
+            _sorter.deleteTempFiles();
+
+            final int entryCount = _sorter._entryCount;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sortedFile),
+                    64 * 1024))) {
+                final Iterator<Entry<String, String>> entries = new Iterator<Entry<String, String>>() {
+                    private int _remaining = entryCount;
+
+                    @Override
+                    public boolean hasNext() {
+                        return _remaining > 0;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        _remaining--;
+                        try {
+                            final String key = readString(in);
+                            final String value = readString(in);
+                            return new SimpleImmutableEntry<>(key, value);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                };
+                CompiledReferenceIndex.write(file, entries, entryCount, _sorter._hasValues, sourceSize,
+                        sourceLastModified, sourceChecksum);
+            }
+            return entryCount;
+        } finally {
+            _sorter.deleteTempFiles();
+            sortedFile.delete();
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        final byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        final int length = in.readInt();
+        if (length == -1) {
+            return null;
+        }
+        final byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class IndexEntry implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final String _key;
+        private final String _value;
+        private final long _sequence;
+
+        public IndexEntry(String key, String value, long sequence) {
+            _key = key;
+            _value = value;
+            _sequence = sequence;
+        }
+    }
+
+    /**
+     * Writes the sorted entries, skipping all but the first of each key.
+     */
+    private static final class EntrySorter extends SortMergeWriter<IndexEntry, DataOutputStream> {
+
+        private final File _directory;
+        private final List<File> _tempFiles;
+        private String _previousKey;
+        private int _entryCount;
+        private boolean _hasValues;
+
+        public EntrySorter(File directory, int bufferSize) {
+            super(bufferSize, ENTRY_ORDER);
+            _directory = directory;
+            _tempFiles = new ArrayList<>();
+        }
+
+        @Override
+        protected synchronized File createTempFile() throws IOException {
+            final File file = File.createTempFile("sort_", ".tmp", _directory);
+            file.deleteOnExit();
+            _tempFiles.add(file);
+            return file;
+        }
+
+        public synchronized void deleteTempFiles() {
+            for (File file : _tempFiles) {
+                file.delete();
+            }
+            _tempFiles.clear();
+        }
+
+        @Override
+        protected DataOutputStream createWriter(Resource resource) {
+            return new DataOutputStream(new BufferedOutputStream(resource.write(), 64 * 1024));
+        }
+
+        @Override
+        protected void writeHeader(DataOutputStream writer) throws IOException {
+            // no header
+        }
+
+        @Override
+        protected void writeRow(DataOutputStream writer, IndexEntry row, int count) throws IOException {
+            if (row._key.equals(_previousKey)) {
+                return;
+            }
+            writeString(writer, row._key);
+            writeString(writer, row._value);
+            _previousKey = row._key;
+            _entryCount++;
+            if (row._value != null) {
+                _hasValues = true;
+            }
+        }
+    }
+}
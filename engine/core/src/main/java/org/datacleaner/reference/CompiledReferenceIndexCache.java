@@ -0,0 +1,316 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import org.apache.metamodel.util.Action;
+import org.apache.metamodel.util.Func;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * JVM-wide cache of {@link CompiledReferenceIndex}es for text file based
+ * reference data. An index is built the first time a resource is used and is
+ * kept in the index directory (see
+ * {@link SystemProperties#REFERENCE_DATA_INDEX_DIRECTORY}), so that subsequent
+ * jobs - also in other JVMs - can map it instead of loading the resource.
+ * Indexes are built with a {@link CompiledReferenceIndexBuilder}, so the
+ * entries of the resource are not held in memory.
+ * 
+ * An index is trusted without reading the resource if the size and last
+ * modification date of the resource are unchanged, and the resource was not
+ * modified shortly before the index was built or verified (since modification
+ * dates have a limited granularity). Otherwise the checksum of the resource is
+ * compared to the one of the index, and the index is rebuilt if they differ.
+ */
+final class CompiledReferenceIndexCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompiledReferenceIndexCache.class);
+
+    private static final String DIRECTORY_NAME = "reference_index";
+    private static final String FILE_SUFFIX = ".idx";
+
+    /**
+     * The granularity of modification dates which we have to assume
+     */
+    private static final long LAST_MODIFIED_GRANULARITY_MILLIS = 2000;
+
+    private static final ConcurrentHashMap<String, CompiledReferenceIndex> _indexes = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Object> _locks = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<CompiledReferenceIndex, Object> _derivedObjects = new ConcurrentHashMap<>();
+
+    private CompiledReferenceIndexCache() {
+        // prevent instantiation
+    }
+
+    /**
+     * Parses a resource into the (case folded) keys and values of an index.
+     */
+    public interface EntryLoader {
+
+        /**
+         * Passes the keys and values of a resource to a consumer. If a key is
+         * passed more than once, the last value is kept.
+         * 
+         * @param in
+         * @param entries
+         */
+        public void load(InputStream in, BiConsumer<String, String> entries);
+    }
+
+    /**
+     * Gets the directory of the indexes, or null if indexes are disabled. The
+     * default directory is private to the user, since indexes that are found
+     * in it are trusted.
+     * 
+     * @return
+     */
+    public static File getDirectory() {
+        final String directory = SystemProperties.getString(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY, null);
+        if (directory == null) {
+            return new File(SystemProperties.getString("user.home", ".") + "/.datacleaner", DIRECTORY_NAME);
+        }
+        if ("false".equalsIgnoreCase(directory)) {
+            return null;
+        }
+        return new File(directory);
+    }
+
+    /**
+     * Gets an up-to-date index of a resource, building it if necessary.
+     * 
+     * @param resource
+     *            the resource that the index is based on
+     * @param kind
+     *            the kind of reference data, and any settings that the
+     *            contents of the index depends on
+     * @param loader
+     *            parser of the resource into the keys and values of the index
+     * @return the index, or null if indexes are disabled or it could not be
+     *         built, in which case the resource should be loaded into memory.
+     */
+    public static CompiledReferenceIndex getIndex(Resource resource, String kind, EntryLoader loader) {
+        final File directory = getDirectory();
+        if (directory == null) {
+            return null;
+        }
+
+        final String key = kind + ':' + resource.getQualifiedPath();
+        final Object lock = getLock(key);
+        synchronized (lock) {
+            try {
+                return getIndex(directory, key, resource, loader);
+            } catch (IOException e) {
+                logger.warn("Failed to build index of {}, loading it into memory instead", resource, e);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Gets an object which is derived from the contents of an index, eg. a
+     * {@link TermMatcher} of it's multi-word keys, creating it if necessary.
+     * The object is shared by all connections to the index, and is released
+     * when the index is replaced. Each index can have only one derived object.
+     * 
+     * @param index
+     * @param factory
+     *            function which creates the derived object of an index
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> E getDerivedObject(CompiledReferenceIndex index, Function<CompiledReferenceIndex, E> factory) {
+        return (E) _derivedObjects.computeIfAbsent(index, factory);
+    }
+
+    private static Object getLock(String key) {
+        final Object lock = new Object();
+        final Object existingLock = _locks.putIfAbsent(key, lock);
+        return existingLock == null ? lock : existingLock;
+    }
+
+    private static CompiledReferenceIndex getIndex(File directory, String key, Resource resource,
+            EntryLoader loader) throws IOException {
+        final long size = resource.getSize();
+        final long lastModified = resource.getLastModified();
+        final String filePrefix = UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)).toString() + '_';
+
+        CompiledReferenceIndex index = _indexes.get(key);
+        if (index == null) {
+            index = openExistingIndex(directory, filePrefix);
+        }
+
+        if (index != null) {
+            if (size == index.getSourceSize() && lastModified == index.getSourceLastModified() && lastModified > 0
+                    && lastModified < index.getVerifiedTime() - LAST_MODIFIED_GRANULARITY_MILLIS) {
+                _indexes.put(key, index);
+                return index;
+            }
+
+            final long checksum = resource.read(new Func<InputStream, Long>() {
+                @Override
+                public Long eval(InputStream in) {
+                    return checksum(in);
+                }
+            });
+            if (checksum == index.getSourceChecksum()) {
+                index.setVerified(size, lastModified);
+                _indexes.put(key, index);
+                return index;
+            }
+        }
+
+        final CompiledReferenceIndex newIndex = buildIndex(directory, filePrefix, resource, size, lastModified,
+                loader);
+        _indexes.put(key, newIndex);
+        if (index != null) {
+            _derivedObjects.remove(index);
+        }
+        if (index != null && !index.getFile().equals(newIndex.getFile())) {
+            // connections may still be reading the old index, in which case it
+            // is not deleted until they are done (or at all, on some platforms)
+            if (!index.getFile().delete()) {
+                index.getFile().deleteOnExit();
+            }
+        }
+        return newIndex;
+    }
+
+    private static CompiledReferenceIndex openExistingIndex(File directory, final String filePrefix) {
+        final File[] files = directory.listFiles((dir, name) -> name.startsWith(filePrefix) && name.endsWith(
+                FILE_SUFFIX));
+        if (files == null || files.length == 0) {
+            return null;
+        }
+        File newestFile = files[0];
+        for (File file : files) {
+            if (file.lastModified() > newestFile.lastModified()) {
+                newestFile = file;
+            }
+        }
+        try {
+            return CompiledReferenceIndex.open(newestFile);
+        } catch (IOException e) {
+            logger.info("Ignoring unreadable reference data index: {}", newestFile, e);
+            return null;
+        }
+    }
+
+    private static CompiledReferenceIndex buildIndex(File directory, String filePrefix, Resource resource,
+            long size, long lastModified, final EntryLoader loader) throws IOException {
+        createDirectory(directory);
+
+        final CompiledReferenceIndexBuilder builder = new CompiledReferenceIndexBuilder(directory);
+        final CRC32 crc = new CRC32();
+        resource.read(new Action<InputStream>() {
+            @Override
+            public void run(InputStream in) {
+                final CheckedInputStream checkedInputStream = new CheckedInputStream(in, crc);
+                loader.load(new FilterInputStream(checkedInputStream) {
+                    @Override
+                    public void close() {
+                        // the stream is closed by the resource
+                    }
+                }, builder);
+                // make sure that the whole resource is part of the checksum
+                checksum(checkedInputStream);
+            }
+        });
+        final long checksum = crc.getValue();
+
+        final File tempFile = File.createTempFile(filePrefix, ".tmp", directory);
+        try {
+            final int entryCount = builder.write(tempFile, size, lastModified, checksum);
+            logger.info("Built index of {} with {} entries", resource, entryCount);
+
+            final File file = new File(directory, filePrefix + Long.toHexString(checksum) + FILE_SUFFIX);
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            return CompiledReferenceIndex.open(file);
+        } finally {
+            if (tempFile.exists()) {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Creates the index directory if it doesn't exist. Where supported, it is
+     * only accessible by the user.
+     * 
+     * @param directory
+     * @throws IOException
+     */
+    private static void createDirectory(File directory) throws IOException {
+        if (directory.isDirectory()) {
+            return;
+        }
+        if (!directory.mkdirs() && !directory.isDirectory()) {
+            throw new IOException("Could not create directory: " + directory);
+        }
+        try {
+            Files.setPosixFilePermissions(directory.toPath(), PosixFilePermissions.fromString("rwx------"));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system
+            logger.debug("Could not restrict permissions of directory: {}", directory, e);
+        }
+    }
+
+    /**
+     * Reads the remainder of a stream, returning it's CRC32 checksum (if not
+     * already wrapped in a {@link CheckedInputStream}).
+     * 
+     * @param in
+     * @return
+     */
+    private static long checksum(InputStream in) {
+        final CheckedInputStream checkedInputStream;
+        if (in instanceof CheckedInputStream) {
+            checkedInputStream = (CheckedInputStream) in;
+        } else {
+            checkedInputStream = new CheckedInputStream(in, new CRC32());
+        }
+        final byte[] buffer = new byte[64 * 1024];
+        try {
+            while (checkedInputStream.read(buffer) != -1) {
+                // only the checksum is needed
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return checkedInputStream.getChecksum().getValue();
+    }
+}
@@ -0,0 +1,157 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.datacleaner.util.StringUtils;
+
+/**
+ * {@link SynonymCatalogConnection} which looks up master terms in a
+ * {@link CompiledReferenceIndex}.
+ * 
+ * The keys of the index are the (case folded) synonyms. The values are the
+ * master terms, followed by the original synonym if it differs from the key,
+ * see {@link #createValue(String, String, String)}.
+ */
+final class CompiledSynonymCatalogConnection implements SynonymCatalogConnection {
+
+    private static final char SYNONYM_SEPARATOR = '\u0000';
+
+    /**
+     * The master terms of the multi-word synonyms of an index, and a matcher
+     * of the synonyms. Built once per index, see
+     * {@link CompiledReferenceIndexCache#getDerivedObject(CompiledReferenceIndex, java.util.function.Function)}
+     * .
+     */
+    private static final class MultiWordSynonyms {
+
+        private final Map<String, String> _masterTerms;
+        private final TermMatcher _matcher;
+
+        public MultiWordSynonyms(CompiledReferenceIndex index, boolean caseSensitive) {
+            final Map<String, String> masterTerms = new HashMap<>();
+            for (Entry<String, String> entry : index.getMultiWordEntries().entrySet()) {
+                masterTerms.put(entry.getKey(), getMasterTermOfValue(entry.getValue()));
+            }
+            _masterTerms = Collections.unmodifiableMap(masterTerms);
+            _matcher = new TermMatcher(masterTerms.keySet(), caseSensitive);
+        }
+    }
+
+    private final CompiledReferenceIndex _index;
+    private final boolean _caseSensitive;
+    private final MultiWordSynonyms _multiWordSynonyms;
+
+    public CompiledSynonymCatalogConnection(CompiledReferenceIndex index, boolean caseSensitive) {
+        _index = index;
+        _caseSensitive = caseSensitive;
+        _multiWordSynonyms = CompiledReferenceIndexCache.getDerivedObject(index, i -> new MultiWordSynonyms(i,
+                caseSensitive));
+    }
+
+    /**
+     * Creates the index value of a synonym
+     * 
+     * @param masterTerm
+     * @param synonym
+     *            the original synonym
+     * @param key
+     *            the (case folded) key of the synonym
+     * @return
+     */
+    public static String createValue(String masterTerm, String synonym, String key) {
+        if (synonym.equals(key)) {
+            return masterTerm;
+        }
+        return masterTerm + SYNONYM_SEPARATOR + synonym;
+    }
+
+    private static String getMasterTermOfValue(String value) {
+        if (value == null) {
+            return null;
+        }
+        final int separatorIndex = value.indexOf(SYNONYM_SEPARATOR);
+        if (separatorIndex == -1) {
+            return value;
+        }
+        return value.substring(0, separatorIndex);
+    }
+
+    @Override
+    public Collection<Synonym> getSynonyms() {
+        final Map<String, Synonym> synonyms = new TreeMap<>();
+        final Iterator<Entry<String, String>> it = _index.entryIterator();
+        while (it.hasNext()) {
+            final Entry<String, String> entry = it.next();
+            final String value = entry.getValue();
+            final int separatorIndex = value.indexOf(SYNONYM_SEPARATOR);
+            final String masterTerm;
+            final String synonymValue;
+            if (separatorIndex == -1) {
+                masterTerm = value;
+                synonymValue = entry.getKey();
+            } else {
+                masterTerm = value.substring(0, separatorIndex);
+                synonymValue = value.substring(separatorIndex + 1);
+            }
+
+            MutableSynonym synonym = (MutableSynonym) synonyms.get(masterTerm);
+            if (synonym == null) {
+                synonym = new MutableSynonym(masterTerm);
+                synonyms.put(masterTerm, synonym);
+            }
+            synonym.addSynonym(synonymValue);
+        }
+        return synonyms.values();
+    }
+
+    @Override
+    public String getMasterTerm(String term) {
+        if (term == null) {
+            return null;
+        }
+        if (_caseSensitive) {
+            return getMasterTermOfValue(_index.get(term));
+        }
+        // like SimpleSynonymCatalog, case insensitive lookups only apply to
+        // single words
+        if (!StringUtils.isSingleWord(term)) {
+            return null;
+        }
+        return getMasterTermOfValue(_index.get(term.toLowerCase()));
+    }
+
+    @Override
+    public Replacement replaceInline(String sentence) {
+        return SimpleSynonymCatalog.replaceInline(sentence, _multiWordSynonyms._matcher,
+                _multiWordSynonyms._masterTerms, this);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.metamodel.DataContext;
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.schema.Column;
+
+/**
+ * Approximates the way that a datastore compares the values of a column with
+ * the keys of a lookup query. Depending on the collation of the column, a
+ * database may compare strings case insensitively and/or ignore trailing
+ * spaces. The values returned by an IN query for a batch of keys therefore
+ * don't always equal the keys that they were found by, and one value may
+ * match several keys of the batch.
+ * 
+ * The comparison is probed (once) with a value that the column is known to
+ * contain: it is looked up with a different case and with a trailing space.
+ * If the probe is inconclusive, because the column also contains the probed
+ * variant, it is repeated with the next value.
+ * 
+ * Other collation rules, such as accent insensitivity, are not detected.
+ * Values that only match keys by such rules are treated as not found.
+ * 
+ * This class is thread-safe.
+ */
+public final class DatastoreCollation {
+
+    private final DataContext _dataContext;
+    private final Column _column;
+
+    // null while unknown
+    private volatile Boolean _caseInsensitive;
+    private volatile Boolean _trailingSpacesIgnored;
+
+    public DatastoreCollation(DataContext dataContext, Column column) {
+        _dataContext = dataContext;
+        _column = column;
+    }
+
+    /**
+     * Creates a matcher of the values returned for a batch of keys.
+     * 
+     * @param keys
+     * @return
+     */
+    public KeyMatcher getKeyMatcher(Collection<String> keys) {
+        return new KeyMatcher(keys);
+    }
+
+    /**
+     * Maps the values returned for a batch of keys back to the keys.
+     */
+    public final class KeyMatcher {
+
+        private final Set<String> _keys;
+        private Map<String, List<String>> _keysByNormalizedValue;
+
+        private KeyMatcher(Collection<String> keys) {
+            _keys = new HashSet<>(keys);
+        }
+
+        /**
+         * Gets the keys that a returned value matches in the datastore
+         * 
+         * @param value
+         * @return
+         */
+        public Collection<String> getMatchingKeys(String value) {
+            probe(value);
+
+            final boolean caseInsensitive = Boolean.TRUE.equals(_caseInsensitive);
+            final boolean trailingSpacesIgnored = Boolean.TRUE.equals(_trailingSpacesIgnored);
+            if (!caseInsensitive && !trailingSpacesIgnored) {
+                if (_keys.contains(value)) {
+                    return Collections.singletonList(value);
+                }
+                return Collections.emptyList();
+            }
+
+            if (_keysByNormalizedValue == null) {
+                _keysByNormalizedValue = new HashMap<>();
+                for (String key : _keys) {
+                    final String normalizedKey = normalize(key, caseInsensitive, trailingSpacesIgnored);
+                    List<String> keys = _keysByNormalizedValue.get(normalizedKey);
+                    if (keys == null) {
+                        keys = new ArrayList<>(1);
+                        _keysByNormalizedValue.put(normalizedKey, keys);
+                    }
+                    keys.add(key);
+                }
+            }
+            final List<String> keys = _keysByNormalizedValue.get(normalize(value, caseInsensitive,
+                    trailingSpacesIgnored));
+            if (keys == null) {
+                return Collections.emptyList();
+            }
+            return keys;
+        }
+    }
+
+    private static String normalize(String value, boolean caseInsensitive, boolean trailingSpacesIgnored) {
+        if (trailingSpacesIgnored) {
+            int length = value.length();
+            while (length > 0 && value.charAt(length - 1) == ' ') {
+                length--;
+            }
+            value = value.substring(0, length);
+        }
+        if (caseInsensitive) {
+            value = value.toLowerCase();
+        }
+        return value;
+    }
+
+    private void probe(String value) {
+        if (_caseInsensitive == null) {
+            final String upperCase = value.toUpperCase();
+            final String variant = upperCase.equals(value) ? value.toLowerCase() : upperCase;
+            if (!variant.equals(value)) {
+                _caseInsensitive = isMatchedBy(variant);
+            }
+        }
+        if (_trailingSpacesIgnored == null) {
+            _trailingSpacesIgnored = isMatchedBy(value + ' ');
+        }
+    }
+
+    /**
+     * Looks up a variant of a value that the column contains.
+     * 
+     * @param variant
+     * @return true if the variant matches values that differ from it, false
+     *         if it matches no values, or null if it is contained in the
+     *         column itself
+     */
+    private Boolean isMatchedBy(String variant) {
+        final Query query = _dataContext.query().from(_column.getTable()).select(_column).where(_column).eq(variant)
+                .toQuery();
+        query.setMaxRows(10);
+        boolean found = false;
+        try (DataSet dataSet = _dataContext.executeQuery(query)) {
+            while (dataSet.next()) {
+                final Object value = dataSet.getRow().getValue(0);
+                if (variant.equals(value)) {
+                    // inconclusive, since the variant itself is in the column
+                    return null;
+                }
+                found = true;
+            }
+        }
+        return found;
+    }
+}
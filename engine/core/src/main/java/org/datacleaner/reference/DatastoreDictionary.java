@@ -52,6 +52,7 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
     private final String _datastoreName;
     private final String _qualifiedColumnName;
     private final boolean _loadIntoMemory;
+    private transient volatile ReferenceDataLookupMetrics _lookupMetrics;
 
     public DatastoreDictionary(String name, String datastoreName, String qualifiedColumnName) {
         this(name, datastoreName, qualifiedColumnName, true);
@@ -80,6 +81,21 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
     }
 
     public SimpleDictionary loadIntoMemory(DatastoreConnection datastoreConnection) {
+        final Set<String> values = loadValues(datastoreConnection, -1);
+        return new SimpleDictionary(getName(), values);
+    }
+
+    /**
+     * Loads the values of the dictionary, unless there are more than a
+     * particular number of records in the dictionary column.
+     * 
+     * @param datastoreConnection
+     * @param maxValues
+     *            the maximum number of records to load, or -1 for no limit
+     * @return the values, or null if there were more than the maximum number
+     *         of records
+     */
+    Set<String> loadValues(DatastoreConnection datastoreConnection, int maxValues) {
         final DataContext dataContext = datastoreConnection.getDataContext();
         final Column column = getColumn(datastoreConnection);
 
@@ -87,11 +103,16 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
         if (datastoreConnection.getDatastore().getPerformanceCharacteristics().isQueryOptimizationPreferred()) {
             query.getSelectClause().setDistinct(true);
         }
+        if (maxValues >= 0) {
+            query.setMaxRows(maxValues + 1);
+        }
 
         final Set<String> values = new HashSet<>();
 
+        int rowCount = 0;
         try (final DataSet dataSet = dataContext.executeQuery(query)) {
             while (dataSet.next()) {
+                rowCount++;
                 final Object value = dataSet.getRow().getValue(0);
                 if (value != null) {
                     values.add(value.toString());
@@ -99,7 +120,31 @@ public final class DatastoreDictionary extends AbstractReferenceData implements
             }
         }
 
-        return new SimpleDictionary(getName(), values);
+        if (maxValues >= 0 && rowCount > maxValues) {
+            // not all records were read
+            return null;
+        }
+        return values;
+    }
+
+    /**
+     * Gets the metrics of lookups made through connections to this dictionary,
+     * when it is not loaded into memory.
+     * 
+     * @return
+     */
+    public ReferenceDataLookupMetrics getLookupMetrics() {
+        ReferenceDataLookupMetrics lookupMetrics = _lookupMetrics;
+        if (lookupMetrics == null) {
+            synchronized (this) {
+                lookupMetrics = _lookupMetrics;
+                if (lookupMetrics == null) {
+                    lookupMetrics = new ReferenceDataLookupMetrics();
+                    _lookupMetrics = lookupMetrics;
+                }
+            }
+        }
+        return lookupMetrics;
     }
 
     @Override
@@ -19,51 +19,132 @@
  */
 package org.datacleaner.reference;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * {@link DictionaryConnection} for {@link DatastoreDictionary}s that are not
+ * loaded into memory. If the dictionary column has no more records than the
+ * preload threshold (see
+ * {@link SystemProperties#REFERENCE_DATA_PRELOAD_THRESHOLD}), it is preloaded
+ * anyway. Otherwise values are looked up in batched queries through a
+ * {@link BatchedLookupCache}.
+ */
 final class DatastoreDictionaryConnection implements DictionaryConnection {
 
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreDictionaryConnection.class);
+
     private final DatastoreConnection _datastoreConnection;
     private final DatastoreDictionary _dictionary;
+    private final ReferenceDataLookupMetrics _metrics;
+    private final DictionaryConnection _preloadedConnection;
+    private final BatchedLookupCache _lookupCache;
 
     public DatastoreDictionaryConnection(DatastoreDictionary dictionary, DatastoreConnection datastoreConnection) {
         _dictionary = dictionary;
         _datastoreConnection = datastoreConnection;
+        _metrics = dictionary.getLookupMetrics();
+
+        final int preloadThreshold = SystemProperties.getInt(SystemProperties.REFERENCE_DATA_PRELOAD_THRESHOLD,
+                100000);
+        final long startTime = System.currentTimeMillis();
+        final Set<String> values = dictionary.loadValues(datastoreConnection, preloadThreshold);
+        if (values == null) {
+            _preloadedConnection = null;
+
+            final Column column = dictionary.getColumn(datastoreConnection);
+            final DatastoreCollation collation = new DatastoreCollation(datastoreConnection.getDataContext(),
+                    column);
+            final int cacheSize = SystemProperties.getInt(SystemProperties.REFERENCE_DATA_CACHE_SIZE, 10000);
+            final int batchSize = SystemProperties.getInt(SystemProperties.REFERENCE_DATA_BATCH_SIZE, 100);
+            _lookupCache = new BatchedLookupCache(new BatchedLookupCache.BatchLookup() {
+                @Override
+                public Map<String, String> lookup(List<String> keys) {
+                    return lookupValues(column, collation, keys);
+                }
+            }, cacheSize, batchSize, _metrics);
+        } else {
+            // dictionary lookups through queries are case sensitive
+            _preloadedConnection = new SimpleDictionary(dictionary.getName(), values, true).openConnection(null);
+            _lookupCache = null;
+            _metrics.recordPreload(System.currentTimeMillis() - startTime);
+        }
     }
 
-    @Override
-    public boolean containsValue(String value) {
+    private Map<String, String> lookupValues(Column column, DatastoreCollation collation, List<String> keys) {
         final DataContext dataContext = _datastoreConnection.getDataContext();
-        final Column column = _dictionary.getColumn(_datastoreConnection);
-        final DataSet dataSet = dataContext.query().from(column.getTable()).select(column).where(column).eq(value)
-                .maxRows(1).execute();
-        try {
-            if (dataSet.next()) {
-                return true;
+        final Query query = dataContext.query().from(column.getTable()).select(column).toQuery();
+        query.where(new FilterItem(new SelectItem(column), OperatorType.IN, keys.toArray(new String[keys.size()])));
+
+        final Set<String> foundValues = new HashSet<>();
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
+            while (dataSet.next()) {
+                final Object value = dataSet.getRow().getValue(0);
+                if (value != null) {
+                    foundValues.add(value.toString());
+                }
+            }
+        }
+
+        // the values are mapped back to the keys after the data set is closed,
+        // since the collation may have to be probed with another query
+        final DatastoreCollation.KeyMatcher keyMatcher = collation.getKeyMatcher(keys);
+        final Map<String, String> values = new HashMap<>();
+        for (String value : foundValues) {
+            for (String key : keyMatcher.getMatchingKeys(value)) {
+                values.put(key, value);
             }
+        }
+        return values;
+    }
+
+    @Override
+    public boolean containsValue(String value) {
+        if (_preloadedConnection != null) {
+            _metrics.recordHit();
+            return _preloadedConnection.containsValue(value);
+        }
+        if (value == null) {
             return false;
-        } finally {
-            dataSet.close();
         }
+        return _lookupCache.get(value) != null;
     }
 
     @Override
     public Iterator<String> getAllValues() {
+        if (_preloadedConnection != null) {
+            return _preloadedConnection.getAllValues();
+        }
         return _dictionary.loadIntoMemory(_datastoreConnection).openConnection(null).getAllValues();
     }
 
     @Override
     public Iterator<String> getLengthSortedValues() {
+        if (_preloadedConnection != null) {
+            return _preloadedConnection.getLengthSortedValues();
+        }
         return _dictionary.loadIntoMemory(_datastoreConnection).openConnection(null).getLengthSortedValues();
     }
 
     @Override
     public void close() {
+        logger.debug("Closing connection to {}: {}", _dictionary, _metrics);
         _datastoreConnection.close();
     }
 
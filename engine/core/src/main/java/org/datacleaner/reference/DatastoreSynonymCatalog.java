@@ -29,6 +29,7 @@ import java.util.Objects;
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.Query;
 import org.apache.metamodel.schema.Column;
 import org.datacleaner.components.convert.ConvertToStringTransformer;
 import org.datacleaner.configuration.DataCleanerConfiguration;
@@ -45,6 +46,7 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
     private final String _masterTermColumnPath;
     private final String[] _synonymColumnPaths;
     private final boolean _loadIntoMemory;
+    private transient volatile ReferenceDataLookupMetrics _lookupMetrics;
 
     public DatastoreSynonymCatalog(String name, String datastoreName, String masterTermColumnPath,
             String[] synonymColumnPaths) {
@@ -128,14 +130,37 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
     }
 
     public SimpleSynonymCatalog loadIntoMemory(final DatastoreConnection datastoreConnection) {
+        final Map<String, String> synonymMap = loadSynonyms(datastoreConnection, -1);
+        final SimpleSynonymCatalog simpleSynonymCatalog = new SimpleSynonymCatalog(getName(), synonymMap);
+        return simpleSynonymCatalog;
+    }
+
+    /**
+     * Loads the synonyms of the catalog, unless there are more than a
+     * particular number of records in the catalog table.
+     * 
+     * @param datastoreConnection
+     * @param maxRecords
+     *            the maximum number of records to load, or -1 for no limit
+     * @return the synonyms mapped to their master terms, or null if there were
+     *         more than the maximum number of records
+     */
+    Map<String, String> loadSynonyms(final DatastoreConnection datastoreConnection, int maxRecords) {
         final Map<String, String> synonymMap = new HashMap<>();
 
         final Column masterTermColumn = getMasterTermColumn(datastoreConnection);
         final Column[] columns = getSynonymColumns(datastoreConnection);
 
-        try (DataSet dataSet = datastoreConnection.getDataContext().query().from(masterTermColumn.getTable().getName())
-                .select(masterTermColumn).select(columns).execute()) {
+        final Query query = datastoreConnection.getDataContext().query().from(masterTermColumn.getTable().getName())
+                .select(masterTermColumn).select(columns).toQuery();
+        if (maxRecords >= 0) {
+            query.setMaxRows(maxRecords + 1);
+        }
+
+        int rowCount = 0;
+        try (DataSet dataSet = datastoreConnection.getDataContext().executeQuery(query)) {
             while (dataSet.next()) {
+                rowCount++;
                 final Row row = dataSet.getRow();
                 final String masterTerm = getMasterTerm(row, masterTermColumn);
                 final String[] synonyms = getSynonyms(row, columns);
@@ -145,8 +170,31 @@ public final class DatastoreSynonymCatalog extends AbstractReferenceData impleme
             }
         }
 
-        final SimpleSynonymCatalog simpleSynonymCatalog = new SimpleSynonymCatalog(getName(), synonymMap);
-        return simpleSynonymCatalog;
+        if (maxRecords >= 0 && rowCount > maxRecords) {
+            // not all records were read
+            return null;
+        }
+        return synonymMap;
+    }
+
+    /**
+     * Gets the metrics of lookups made through connections to this synonym
+     * catalog, when it is not loaded into memory.
+     * 
+     * @return
+     */
+    public ReferenceDataLookupMetrics getLookupMetrics() {
+        ReferenceDataLookupMetrics lookupMetrics = _lookupMetrics;
+        if (lookupMetrics == null) {
+            synchronized (this) {
+                lookupMetrics = _lookupMetrics;
+                if (lookupMetrics == null) {
+                    lookupMetrics = new ReferenceDataLookupMetrics();
+                    _lookupMetrics = lookupMetrics;
+                }
+            }
+        }
+        return lookupMetrics;
     }
 
     protected static String getMasterTerm(Row row, Column column) {
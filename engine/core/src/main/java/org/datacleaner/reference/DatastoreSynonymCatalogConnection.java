@@ -19,66 +19,184 @@
  */
 package org.datacleaner.reference;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.metamodel.DataContext;
 import org.apache.metamodel.data.DataSet;
-import org.apache.metamodel.query.builder.SatisfiedWhereBuilder;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
 import org.apache.metamodel.schema.Column;
 import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.util.SystemProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * {@link SynonymCatalogConnection} for {@link DatastoreSynonymCatalog}s that
+ * are not loaded into memory. If the catalog table has no more records than the
+ * preload threshold (see
+ * {@link SystemProperties#REFERENCE_DATA_PRELOAD_THRESHOLD}), it is preloaded
+ * anyway. Otherwise master terms are looked up in batched queries through a
+ * {@link BatchedLookupCache}.
+ */
 final class DatastoreSynonymCatalogConnection implements SynonymCatalogConnection {
 
+    private static final Logger logger = LoggerFactory.getLogger(DatastoreSynonymCatalogConnection.class);
+
     private final DatastoreConnection _datastoreConnection;
     private final DatastoreSynonymCatalog _synonymCatalog;
+    private final ReferenceDataLookupMetrics _metrics;
+    private final BatchedLookupCache _lookupCache;
+    private volatile SynonymCatalogConnection _inMemoryConnection;
 
     public DatastoreSynonymCatalogConnection(DatastoreSynonymCatalog synonymCatalog,
             DatastoreConnection datastoreConnection) {
         _synonymCatalog = synonymCatalog;
         _datastoreConnection = datastoreConnection;
-    }
+        _metrics = synonymCatalog.getLookupMetrics();
 
-    @Override
-    public Collection<Synonym> getSynonyms() {
-        final SimpleSynonymCatalog simpleSynonymCatalog = _synonymCatalog.loadIntoMemory(_datastoreConnection);
-        return simpleSynonymCatalog.openConnection(null).getSynonyms();
+        final int preloadThreshold = SystemProperties.getInt(SystemProperties.REFERENCE_DATA_PRELOAD_THRESHOLD,
+                100000);
+        final long startTime = System.currentTimeMillis();
+        final Map<String, String> synonymMap = synonymCatalog.loadSynonyms(datastoreConnection, preloadThreshold);
+        if (synonymMap == null) {
+            final Column masterTermColumn = synonymCatalog.getMasterTermColumn(datastoreConnection);
+            final Column[] columns = synonymCatalog.getSynonymColumns(datastoreConnection);
+            final DatastoreCollation[] collations = new DatastoreCollation[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                collations[i] = new DatastoreCollation(datastoreConnection.getDataContext(), columns[i]);
+            }
+            final int cacheSize = SystemProperties.getInt(SystemProperties.REFERENCE_DATA_CACHE_SIZE, 10000);
+            final int batchSize = SystemProperties.getInt(SystemProperties.REFERENCE_DATA_BATCH_SIZE, 100);
+            _lookupCache = new BatchedLookupCache(new BatchedLookupCache.BatchLookup() {
+                @Override
+                public Map<String, String> lookup(List<String> keys) {
+                    return lookupMasterTerms(masterTermColumn, columns, collations, keys);
+                }
+            }, cacheSize, batchSize, _metrics);
+        } else {
+            _lookupCache = null;
+            _inMemoryConnection = new SimpleSynonymCatalog(synonymCatalog.getName(), synonymMap).openConnection(
+                    null);
+            _metrics.recordPreload(System.currentTimeMillis() - startTime);
+        }
     }
 
-    @Override
-    public String getMasterTerm(String term) {
+    private Map<String, String> lookupMasterTerms(Column masterTermColumn, Column[] columns,
+            DatastoreCollation[] collations, List<String> terms) {
         final DataContext dataContext = _datastoreConnection.getDataContext();
 
-        final Column masterTermColumn = _synonymCatalog.getMasterTermColumn(_datastoreConnection);
-        final Column[] columns = _synonymCatalog.getSynonymColumns(_datastoreConnection);
+        final Object operand = terms.toArray(new String[terms.size()]);
+        final FilterItem[] filterItems = new FilterItem[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            filterItems[i] = new FilterItem(new SelectItem(columns[i]), OperatorType.IN, operand);
+        }
 
-        SatisfiedWhereBuilder<?> queryBuilder = dataContext.query().from(masterTermColumn.getTable())
-                .select(masterTermColumn).where(columns[0]).eq(term);
-        for (int i = 1; i < columns.length; i++) {
-            final Column column = columns[i];
-            queryBuilder = queryBuilder.or(column).eq(term);
+        final Query query = dataContext.query().from(masterTermColumn.getTable()).select(masterTermColumn).select(
+                columns).toQuery();
+        if (filterItems.length == 1) {
+            query.where(filterItems[0]);
+        } else {
+            // any of the synonym columns may match
+            query.where(new FilterItem(filterItems));
         }
-        queryBuilder.maxRows(1);
 
-        try (DataSet dataSet = queryBuilder.execute()) {
+        final List<Object[]> rows = new ArrayList<>();
+        try (DataSet dataSet = dataContext.executeQuery(query)) {
             while (dataSet.next()) {
-                final Object value = dataSet.getRow().getValue(0);
-                if (value != null) {
-                    return value.toString();
+                final Row row = dataSet.getRow();
+                if (row.getValue(0) != null) {
+                    rows.add(row.getValues());
                 }
             }
         }
 
-        return null;
+        // the synonyms are mapped back to the terms after the data set is
+        // closed, since the collations may have to be probed with other
+        // queries
+        final DatastoreCollation.KeyMatcher[] keyMatchers = new DatastoreCollation.KeyMatcher[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            keyMatchers[i] = collations[i].getKeyMatcher(terms);
+        }
+        final Set<String> remainingTerms = new HashSet<>(terms);
+        final Map<String, String> masterTerms = new HashMap<>();
+        for (Object[] row : rows) {
+            final String masterTerm = row[0].toString();
+            for (int i = 0; i < columns.length; i++) {
+                final Object synonym = row[i + 1];
+                if (synonym != null) {
+                    for (String term : keyMatchers[i].getMatchingKeys(synonym.toString())) {
+                        if (remainingTerms.remove(term)) {
+                            masterTerms.put(term, masterTerm);
+                        }
+                    }
+                }
+            }
+        }
+        return masterTerms;
     }
 
     @Override
-    public Replacement replaceInline(final String sentence) {
+    public Collection<Synonym> getSynonyms() {
+        if (_lookupCache == null) {
+            return getInMemoryConnection().getSynonyms();
+        }
         final SimpleSynonymCatalog simpleSynonymCatalog = _synonymCatalog.loadIntoMemory(_datastoreConnection);
-        return simpleSynonymCatalog.openConnection(null).replaceInline(sentence);
+        return simpleSynonymCatalog.openConnection(null).getSynonyms();
+    }
+
+    @Override
+    public String getMasterTerm(String term) {
+        if (_lookupCache == null) {
+            _metrics.recordHit();
+            return getInMemoryConnection().getMasterTerm(term);
+        }
+        if (term == null) {
+            return null;
+        }
+        return _lookupCache.get(term);
+    }
+
+    @Override
+    public Replacement replaceInline(final String sentence) {
+        return getInMemoryConnection().replaceInline(sentence);
+    }
+
+    /**
+     * Gets a connection to the synonym catalog loaded into memory. It is
+     * loaded only once per connection, since it's matcher for multi-word
+     * synonyms is relatively expensive to build.
+     * 
+     * @return
+     */
+    private SynonymCatalogConnection getInMemoryConnection() {
+        SynonymCatalogConnection inMemoryConnection = _inMemoryConnection;
+        if (inMemoryConnection == null) {
+            synchronized (this) {
+                inMemoryConnection = _inMemoryConnection;
+                if (inMemoryConnection == null) {
+                    final SimpleSynonymCatalog simpleSynonymCatalog = _synonymCatalog.loadIntoMemory(
+                            _datastoreConnection);
+                    inMemoryConnection = simpleSynonymCatalog.openConnection(null);
+                    _inMemoryConnection = inMemoryConnection;
+                }
+            }
+        }
+        return inMemoryConnection;
     }
 
     @Override
     public void close() {
+        logger.debug("Closing connection to {}: {}", _synonymCatalog, _metrics);
         _datastoreConnection.close();
     }
 
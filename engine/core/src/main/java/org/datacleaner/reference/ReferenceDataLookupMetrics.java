@@ -0,0 +1,122 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of the lookups made through connections to a datastore based
+ * dictionary or synonym catalog. The metrics are accumulated over all
+ * connections opened from the same reference data instance.
+ */
+public final class ReferenceDataLookupMetrics {
+
+    private final AtomicLong _hitCount = new AtomicLong();
+    private final AtomicLong _missCount = new AtomicLong();
+    private final AtomicLong _queryCount = new AtomicLong();
+    private final AtomicLong _queryTimeMillis = new AtomicLong();
+    private final AtomicLong _preloadCount = new AtomicLong();
+    private final AtomicLong _preloadTimeMillis = new AtomicLong();
+
+    void recordHit() {
+        _hitCount.incrementAndGet();
+    }
+
+    void recordMiss() {
+        _missCount.incrementAndGet();
+    }
+
+    void recordQuery(long timeMillis) {
+        _queryCount.incrementAndGet();
+        _queryTimeMillis.addAndGet(timeMillis);
+    }
+
+    void recordPreload(long timeMillis) {
+        _preloadCount.incrementAndGet();
+        _preloadTimeMillis.addAndGet(timeMillis);
+    }
+
+    /**
+     * Gets the number of lookups that were answered by a preloaded or cached
+     * value.
+     * 
+     * @return
+     */
+    public long getHitCount() {
+        return _hitCount.get();
+    }
+
+    /**
+     * Gets the number of lookups that had to be queried.
+     * 
+     * @return
+     */
+    public long getMissCount() {
+        return _missCount.get();
+    }
+
+    /**
+     * Gets the fraction (between 0 and 1) of lookups that did not have to be
+     * queried.
+     * 
+     * @return
+     */
+    public double getHitRate() {
+        final long hitCount = getHitCount();
+        final long lookupCount = hitCount + getMissCount();
+        if (lookupCount == 0) {
+            return 0;
+        }
+        return ((double) hitCount) / lookupCount;
+    }
+
+    /**
+     * Gets the number of (batched) lookup queries that have been executed.
+     * 
+     * @return
+     */
+    public long getQueryCount() {
+        return _queryCount.get();
+    }
+
+    public long getQueryTimeMillis() {
+        return _queryTimeMillis.get();
+    }
+
+    /**
+     * Gets the number of times that the reference data has been preloaded.
+     * 
+     * @return
+     */
+    public long getPreloadCount() {
+        return _preloadCount.get();
+    }
+
+    public long getPreloadTimeMillis() {
+        return _preloadTimeMillis.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ReferenceDataLookupMetrics[hits=" + getHitCount() + ",misses=" + getMissCount() + ",queries="
+                + getQueryCount() + ",queryTimeMillis=" + getQueryTimeMillis() + ",preloads=" + getPreloadCount()
+                + ",preloadTimeMillis=" + getPreloadTimeMillis() + "]";
+    }
+}
@@ -34,10 +34,9 @@ import java.util.Objects;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.reference.SynonymCatalogConnection.Replacement;
 import org.datacleaner.util.ReadObjectBuilder;
 import org.datacleaner.util.ReadObjectBuilder.Adaptor;
 import org.datacleaner.util.StringUtils;
@@ -159,6 +158,8 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
 
             private final SortedMap<String, String> _sortedMultiWordSynonymMap = createMultiWordSynonymMap();
             private final Map<String, String> _singleWordSynonymMap = createSingleWordSynonymMap();
+            private final TermMatcher _multiWordSynonymMatcher = new TermMatcher(_sortedMultiWordSynonymMap.keySet(),
+                    _caseSensitive);
 
             @Override
             public Collection<Synonym> getSynonyms() {
@@ -189,79 +190,90 @@ public final class SimpleSynonymCatalog extends AbstractReferenceData implements
 
             @Override
             public Replacement replaceInline(String sentence) {
-                final List<String> synonyms = new ArrayList<>();
-                final List<String> masterTerms = new ArrayList<>();
-
-                // matchString will contain a copy of "sentence" but potentially
-                // lower-cased for case-insensitive matching
-                String matchString;
-                if (!_caseSensitive) {
-                    matchString = sentence.toLowerCase();
-                } else {
-                    matchString = sentence;
-                }
+                return SimpleSynonymCatalog.replaceInline(sentence, _multiWordSynonymMatcher,
+                        _sortedMultiWordSynonymMap, this);
+            }
 
-                final Set<Entry<String, String>> entries = _sortedMultiWordSynonymMap.entrySet();
-                for (Entry<String, String> entry : entries) {
-                    final String synonym = entry.getKey();
-                    final String masterTerm = entry.getValue();
-                    final Matcher matcher = Pattern.compile("\\b" + synonym + "\\b").matcher(matchString);
-                    while (matcher.find()) {
-                        sentence = sentence.substring(0, matcher.start()) + masterTerm + sentence.substring(matcher
-                                .end());
-                        if (_caseSensitive) {
-                            matchString = sentence.toLowerCase();
-                        } else {
-                            matchString = sentence;
-                        }
-                        synonyms.add(synonym);
-                        masterTerms.add(masterTerm);
-                    }
-                }
+            @Override
+            public void close() {
+            }
+        };
+    }
 
-                final StringBuilder sb = new StringBuilder();
-                final List<String> tokens = StringUtils.splitOnWordBoundaries(sentence, true);
-                for (String token : tokens) {
-                    if (StringUtils.isSingleWord(token)) {
-                        final String masterTerm = getMasterTerm(token);
-                        if (masterTerm == null) {
-                            // no match, just add it
-                            sb.append(token);
-                        } else {
-                            // match - add the master term
-                            if (!masterTerm.equals(token)) {
-                                synonyms.add(token);
-                                masterTerms.add(masterTerm);
-                            }
-                            sb.append(masterTerm);
-                        }
-                    } else {
-                        // it's a delim, just add it
-                        sb.append(token);
-                    }
-                }
+    /**
+     * Replaces synonyms in a sentence with their master terms. Multi-word
+     * synonyms are replaced first, after which every single word is looked up
+     * using {@link SynonymCatalogConnection#getMasterTerm(String)}.
+     * 
+     * @param sentence
+     * @param multiWordSynonymMatcher
+     *            matcher of the (case folded) multi-word synonyms
+     * @param multiWordSynonyms
+     *            the master terms of the multi-word synonyms
+     * @param connection
+     *            the connection to look up single words in
+     * @return
+     */
+    static Replacement replaceInline(String sentence, TermMatcher multiWordSynonymMatcher,
+            Map<String, String> multiWordSynonyms, SynonymCatalogConnection connection) {
+        final List<String> synonyms = new ArrayList<>();
+        final List<String> masterTerms = new ArrayList<>();
+
+        // replace all multi-word synonyms in a single pass
+        final List<TermMatcher.Match> matches = multiWordSynonymMatcher.find(sentence);
+        if (!matches.isEmpty()) {
+            final StringBuilder sb = new StringBuilder(sentence.length());
+            int position = 0;
+            for (TermMatcher.Match match : matches) {
+                final String synonym = match.getTerm();
+                final String masterTerm = multiWordSynonyms.get(synonym);
+                sb.append(sentence, position, match.getStart());
+                sb.append(masterTerm);
+                position = match.getEnd();
+                synonyms.add(synonym);
+                masterTerms.add(masterTerm);
+            }
+            sb.append(sentence, position, sentence.length());
+            sentence = sb.toString();
+        }
 
-                final String finalSentence = sb.toString();
-                return new Replacement() {
-                    @Override
-                    public String getReplacedString() {
-                        return finalSentence;
+        final StringBuilder sb = new StringBuilder();
+        final List<String> tokens = StringUtils.splitOnWordBoundaries(sentence, true);
+        for (String token : tokens) {
+            if (StringUtils.isSingleWord(token)) {
+                final String masterTerm = connection.getMasterTerm(token);
+                if (masterTerm == null) {
+                    // no match, just add it
+                    sb.append(token);
+                } else {
+                    // match - add the master term
+                    if (!masterTerm.equals(token)) {
+                        synonyms.add(token);
+                        masterTerms.add(masterTerm);
                     }
+                    sb.append(masterTerm);
+                }
+            } else {
+                // it's a delim, just add it
+                sb.append(token);
+            }
+        }
 
-                    @Override
-                    public List<String> getSynonyms() {
-                        return synonyms;
-                    }
+        final String finalSentence = sb.toString();
+        return new Replacement() {
+            @Override
+            public String getReplacedString() {
+                return finalSentence;
+            }
 
-                    @Override
-                    public List<String> getMasterTerms() {
-                        return masterTerms;
-                    }
-                };
+            @Override
+            public List<String> getSynonyms() {
+                return synonyms;
             }
 
             @Override
-            public void close() {
+            public List<String> getMasterTerms() {
+                return masterTerms;
             }
         };
     }
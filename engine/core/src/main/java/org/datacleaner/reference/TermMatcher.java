@@ -0,0 +1,385 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aho-Corasick automaton which finds occurrences of a (potentially large)
+ * number of terms in a string in a single pass. Only occurrences which start
+ * and end on word boundaries (like the <code>\b</code> regular expression
+ * construct) are found. Overlapping occurrences are resolved by preferring the
+ * leftmost, and then the longest, term.
+ * 
+ * Instances are immutable and thread-safe once built.
+ */
+public final class TermMatcher {
+
+    /**
+     * Represents an occurrence of a term in a string.
+     */
+    public static final class Match {
+
+        private final int _start;
+        private final int _end;
+        private final int _termIndex;
+        private final String _term;
+
+        private Match(int start, int end, int termIndex, String term) {
+            _start = start;
+            _end = end;
+            _termIndex = termIndex;
+            _term = term;
+        }
+
+        /**
+         * Gets the index of the first character of the occurrence
+         * 
+         * @return
+         */
+        public int getStart() {
+            return _start;
+        }
+
+        /**
+         * Gets the index after the last character of the occurrence
+         * 
+         * @return
+         */
+        public int getEnd() {
+            return _end;
+        }
+
+        /**
+         * Gets the index of the matched term, in the order that the terms was
+         * given to the matcher.
+         * 
+         * @return
+         */
+        public int getTermIndex() {
+            return _termIndex;
+        }
+
+        /**
+         * Gets the matched term, as it was given to the matcher.
+         * 
+         * @return
+         */
+        public String getTerm() {
+            return _term;
+        }
+
+        @Override
+        public String toString() {
+            return "Match[" + _start + "-" + _end + "," + _term + "]";
+        }
+    }
+
+    private static final char[] NO_LABELS = new char[0];
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final String[] _terms;
+    private final boolean _caseSensitive;
+
+    // the automaton, indexed by state. State 0 is the root.
+    private final char[][] _labels;
+    private final int[][] _targets;
+    private final int[] _failure;
+    private final int[] _depth;
+    // the term that ends in a state (or -1) and the next state (following
+    // failure links) that a term ends in (or -1)
+    private final int[] _termIndexes;
+    private final int[] _outputLinks;
+
+    /**
+     * Builds a matcher for a collection of terms.
+     * 
+     * @param terms
+     * @param caseSensitive
+     */
+    public TermMatcher(Iterable<String> terms, boolean caseSensitive) {
+        _caseSensitive = caseSensitive;
+
+        final List<String> termList = new ArrayList<>();
+        final TrieNode root = new TrieNode(0);
+        final List<TrieNode> nodes = new ArrayList<>();
+        nodes.add(root);
+        for (String term : terms) {
+            if (term == null || term.isEmpty()) {
+                continue;
+            }
+            TrieNode node = root;
+            for (int i = 0; i < term.length(); i++) {
+                final char c = normalize(term.charAt(i));
+                TrieNode child = node.getChild(c);
+                if (child == null) {
+                    child = new TrieNode(nodes.size());
+                    nodes.add(child);
+                    node.addChild(c, child);
+                }
+                node = child;
+            }
+            if (node.termIndex == -1) {
+                node.termIndex = termList.size();
+                termList.add(term);
+            }
+        }
+        _terms = termList.toArray(new String[termList.size()]);
+
+        final int stateCount = nodes.size();
+        _labels = new char[stateCount][];
+        _targets = new int[stateCount][];
+        _failure = new int[stateCount];
+        _depth = new int[stateCount];
+        _termIndexes = new int[stateCount];
+        _outputLinks = new int[stateCount];
+
+        // breadth first traversal, so that failure links point to states
+        // that are already processed
+        final List<TrieNode> queue = new ArrayList<>();
+        queue.add(root);
+        _outputLinks[0] = -1;
+        _termIndexes[0] = -1;
+        for (int q = 0; q < queue.size(); q++) {
+            final TrieNode node = queue.get(q);
+            final int state = node.id;
+            final int childCount = node.childCount;
+            if (childCount == 0) {
+                _labels[state] = NO_LABELS;
+                _targets[state] = NO_TARGETS;
+            } else {
+                // sort the transitions for binary search
+                final long[] sorted = new long[childCount];
+                for (int i = 0; i < childCount; i++) {
+                    sorted[i] = ((long) node.labels[i] << 32) | node.children[i].id;
+                }
+                Arrays.sort(sorted);
+                _labels[state] = new char[childCount];
+                _targets[state] = new int[childCount];
+                for (int i = 0; i < childCount; i++) {
+                    _labels[state][i] = (char) (sorted[i] >>> 32);
+                    _targets[state][i] = (int) sorted[i];
+                }
+            }
+
+            for (int i = 0; i < childCount; i++) {
+                final char c = node.labels[i];
+                final TrieNode child = node.children[i];
+                final int childState = child.id;
+                _depth[childState] = _depth[state] + 1;
+                _termIndexes[childState] = child.termIndex;
+                if (state == 0) {
+                    _failure[childState] = 0;
+                } else {
+                    int failure = _failure[state];
+                    int target = transition(failure, c);
+                    while (target == -1 && failure != 0) {
+                        failure = _failure[failure];
+                        target = transition(failure, c);
+                    }
+                    _failure[childState] = target == -1 ? 0 : target;
+                }
+                final int failureState = _failure[childState];
+                _outputLinks[childState] = _termIndexes[failureState] != -1 ? failureState
+                        : _outputLinks[failureState];
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of (distinct) terms in the matcher
+     * 
+     * @return
+     */
+    public int getTermCount() {
+        return _terms.length;
+    }
+
+    /**
+     * Gets a term of the matcher
+     * 
+     * @param termIndex
+     * @return
+     */
+    public String getTerm(int termIndex) {
+        return _terms[termIndex];
+    }
+
+    public boolean isCaseSensitive() {
+        return _caseSensitive;
+    }
+
+    /**
+     * Finds the non-overlapping occurrences of the terms in a string, ordered
+     * by their position.
+     * 
+     * @param str
+     * @return
+     */
+    public List<Match> find(final String str) {
+        if (str == null || str.isEmpty() || _terms.length == 0) {
+            return Collections.emptyList();
+        }
+
+        final int length = str.length();
+
+        // the length of the longest term starting at each position
+        int[] longestAt = null;
+
+        int state = 0;
+        for (int i = 0; i < length; i++) {
+            final char c = normalize(str.charAt(i));
+            int target = transition(state, c);
+            while (target == -1 && state != 0) {
+                state = _failure[state];
+                target = transition(state, c);
+            }
+            state = target == -1 ? 0 : target;
+
+            final int end = i + 1;
+            if (!isBoundary(str, end)) {
+                continue;
+            }
+
+            int outputState = _termIndexes[state] != -1 ? state : _outputLinks[state];
+            while (outputState != -1) {
+                final int termLength = _depth[outputState];
+                final int start = end - termLength;
+                if (isBoundary(str, start)) {
+                    if (longestAt == null) {
+                        longestAt = new int[length];
+                    }
+                    if (termLength > longestAt[start]) {
+                        longestAt[start] = termLength;
+                    }
+                }
+                outputState = _outputLinks[outputState];
+            }
+        }
+
+        if (longestAt == null) {
+            return Collections.emptyList();
+        }
+
+        final List<Match> matches = new ArrayList<>(2);
+        int i = 0;
+        while (i < length) {
+            final int termLength = longestAt[i];
+            if (termLength == 0) {
+                i++;
+            } else {
+                final int termIndex = getTermIndex(str, i, termLength);
+                matches.add(new Match(i, i + termLength, termIndex, _terms[termIndex]));
+                i += termLength;
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Determines if any of the terms occur in a string.
+     * 
+     * @param str
+     * @return
+     */
+    public boolean containsAny(final String str) {
+        return !find(str).isEmpty();
+    }
+
+    private int getTermIndex(String str, int start, int termLength) {
+        int state = 0;
+        for (int i = start; i < start + termLength; i++) {
+            state = transition(state, normalize(str.charAt(i)));
+        }
+        return _termIndexes[state];
+    }
+
+    private int transition(int state, char c) {
+        final int index = Arrays.binarySearch(_labels[state], c);
+        if (index < 0) {
+            return -1;
+        }
+        return _targets[state][index];
+    }
+
+    private char normalize(char c) {
+        if (_caseSensitive) {
+            return c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    /**
+     * Determines if there is a word boundary before a character index
+     * 
+     * @param str
+     * @param index
+     * @return
+     */
+    private static boolean isBoundary(String str, int index) {
+        final boolean wordBefore = index > 0 && isWordCharacter(str.charAt(index - 1));
+        final boolean wordAfter = index < str.length() && isWordCharacter(str.charAt(index));
+        return wordBefore != wordAfter;
+    }
+
+    private static boolean isWordCharacter(char c) {
+        return c == '_' || Character.isLetterOrDigit(c);
+    }
+
+    /**
+     * Mutable node used while building the automaton
+     */
+    private static final class TrieNode {
+
+        private final int id;
+        private char[] labels = NO_LABELS;
+        private TrieNode[] children;
+        private int childCount = 0;
+        private int termIndex = -1;
+
+        public TrieNode(int id) {
+            this.id = id;
+        }
+
+        public TrieNode getChild(char c) {
+            for (int i = 0; i < childCount; i++) {
+                if (labels[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        public void addChild(char c, TrieNode child) {
+            if (childCount == labels.length) {
+                final int capacity = Math.max(2, childCount * 2);
+                labels = Arrays.copyOf(labels, capacity);
+                children = children == null ? new TrieNode[capacity] : Arrays.copyOf(children, capacity);
+            }
+            labels[childCount] = c;
+            children[childCount] = child;
+            childCount++;
+        }
+    }
+}
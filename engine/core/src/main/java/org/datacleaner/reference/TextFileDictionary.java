@@ -29,9 +29,11 @@ import java.lang.reflect.Field;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
+import org.apache.metamodel.util.Action;
 import org.apache.metamodel.util.FileHelper;
-import org.apache.metamodel.util.Func;
 import org.apache.metamodel.util.Resource;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.util.ReadObjectBuilder;
@@ -93,26 +95,23 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
     public DictionaryConnection openConnection(DataCleanerConfiguration configuration) {
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
-        final Set<String> values = resource.read(new Func<InputStream, Set<String>>() {
-            @Override
-            public Set<String> eval(InputStream in) {
-                final Set<String> values = new HashSet<>();
-                final BufferedReader reader = FileHelper.getBufferedReader(in, getEncoding());
-                try {
-                    String line = reader.readLine();
-                    while (line != null) {
-                        if (!_caseSensitive) {
-                            line = line.toLowerCase();
-                        }
-                        values.add(line);
-                        line = reader.readLine();
+
+        final CompiledReferenceIndex index = CompiledReferenceIndexCache.getIndex(resource, "dictionary:"
+                + _caseSensitive + ':' + getEncoding(), new CompiledReferenceIndexCache.EntryLoader() {
+                    @Override
+                    public void load(InputStream in, BiConsumer<String, String> entries) {
+                        readValues(resource, in, value -> entries.accept(value, null));
                     }
-                } catch (IOException e) {
-                    logger.error("Failed to read line from resource: {}", resource, e);
-                } finally {
-                    FileHelper.safeClose(reader);
-                }
-                return values;
+                });
+        if (index != null) {
+            return new CompiledDictionaryConnection(index, _caseSensitive);
+        }
+
+        final Set<String> values = new HashSet<>();
+        resource.read(new Action<InputStream>() {
+            @Override
+            public void run(InputStream in) {
+                readValues(resource, in, values::add);
             }
         });
 
@@ -120,6 +119,24 @@ public final class TextFileDictionary extends AbstractReferenceData implements D
         return simpleDictionary.openConnection(configuration);
     }
 
+    private void readValues(Resource resource, InputStream in, Consumer<String> values) {
+        final BufferedReader reader = FileHelper.getBufferedReader(in, getEncoding());
+        try {
+            String line = reader.readLine();
+            while (line != null) {
+                if (!_caseSensitive) {
+                    line = line.toLowerCase();
+                }
+                values.accept(line);
+                line = reader.readLine();
+            }
+        } catch (IOException e) {
+            logger.error("Failed to read line from resource: {}", resource, e);
+        } finally {
+            FileHelper.safeClose(reader);
+        }
+    }
+
     @Override
     public String toString() {
         return "TextFileDictionary[name=" + getName() + ", filename=" + _filename + ", encoding=" + _encoding + "]";
@@ -27,9 +27,10 @@ import java.io.ObjectInputStream;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.BiConsumer;
 
+import org.apache.metamodel.util.Action;
 import org.apache.metamodel.util.FileHelper;
-import org.apache.metamodel.util.Func;
 import org.apache.metamodel.util.Resource;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.util.ReadObjectBuilder;
@@ -75,44 +76,67 @@ public final class TextFileSynonymCatalog extends AbstractReferenceData implemen
         final ResourceConverter rc = new ResourceConverter(configuration);
         final Resource resource = rc.fromString(Resource.class, _filename);
 
-        final Map<String, String> synonyms = resource.read(new Func<InputStream, Map<String, String>>() {
-            @Override
-            public Map<String, String> eval(InputStream in) {
-                final Map<String, String> synonyms = new HashMap<>();
-
-                final CSVParser parser = new CSVParser(',', '"', '\\');
-                final BufferedReader reader = FileHelper.getBufferedReader(in, _encoding);
-                try {
-                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
-                        line = line.trim();
-                        final String[] values;
-                        try {
-                            values = parser.parseLine(line);
-                        } catch (Exception e) {
-                            throw new IllegalStateException("Failed to parse line: " + line, e);
-                        }
-                        if (values.length > 0) {
-                            synonyms.put(values[0], values[0]);
-                        }
-                        if (values.length > 1) {
-                            for (int i = 1; i < values.length; i++) {
-                                synonyms.put(values[i], values[0]);
-                            }
-                        }
+        final CompiledReferenceIndex index = CompiledReferenceIndexCache.getIndex(resource, "synonyms:"
+                + _caseSensitive + ':' + _encoding, new CompiledReferenceIndexCache.EntryLoader() {
+                    @Override
+                    public void load(InputStream in, BiConsumer<String, String> entries) {
+                        readSynonyms(in, (synonym, masterTerm) -> {
+                            final String key = _caseSensitive ? synonym : synonym.toLowerCase();
+                            entries.accept(key, CompiledSynonymCatalogConnection.createValue(masterTerm, synonym,
+                                    key));
+                        });
                     }
-                } catch (IOException e) {
-                    throw new IllegalStateException(e);
-                } finally {
-                    FileHelper.safeClose(reader);
-                }
+                });
+        if (index != null) {
+            return new CompiledSynonymCatalogConnection(index, _caseSensitive);
+        }
 
-                return synonyms;
+        final Map<String, String> synonyms = new HashMap<>();
+        resource.read(new Action<InputStream>() {
+            @Override
+            public void run(InputStream in) {
+                readSynonyms(in, synonyms::put);
             }
         });
 
         return new SimpleSynonymCatalog(getName(), synonyms, _caseSensitive).openConnection(configuration);
     }
 
+    /**
+     * Reads the synonyms of the catalog, passing each synonym (including the
+     * master terms themselves) and it's master term to a consumer.
+     * 
+     * @param in
+     * @param synonyms
+     */
+    private void readSynonyms(InputStream in, BiConsumer<String, String> synonyms) {
+        final CSVParser parser = new CSVParser(',', '"', '\\');
+        final BufferedReader reader = FileHelper.getBufferedReader(in, _encoding);
+        try {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                line = line.trim();
+                final String[] values;
+                try {
+                    values = parser.parseLine(line);
+                } catch (Exception e) {
+                    throw new IllegalStateException("Failed to parse line: " + line, e);
+                }
+                if (values.length > 0) {
+                    synonyms.accept(values[0], values[0]);
+                }
+                if (values.length > 1) {
+                    for (int i = 1; i < values.length; i++) {
+                        synonyms.accept(values[i], values[0]);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            FileHelper.safeClose(reader);
+        }
+    }
+
     private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
         ReadObjectBuilder.create(this, TextFileSynonymCatalog.class).readObject(stream);
     }
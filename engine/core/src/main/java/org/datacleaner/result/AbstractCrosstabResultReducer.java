@@ -167,6 +167,23 @@ public abstract class AbstractCrosstabResultReducer<R extends CrosstabResult> im
         return sum;
     }
 
+    /**
+     * Helper method to get a sum of values (sum will be calculated as a long)
+     * 
+     * @param slaveValues
+     * @return
+     */
+    protected static Long sumAsLong(List<?> slaveValues) {
+        long sum = 0;
+        for (Object slaveValue : slaveValues) {
+            Number value = (Number) slaveValue;
+            if (value != null) {
+                sum += value.longValue();
+            }
+        }
+        return sum;
+    }
+
     /**
      * Helper method to get a sum of values (sum will be calculated as a double)
      * 
@@ -19,6 +19,7 @@
  */
 package org.datacleaner.result.save;
 
+import java.io.IOException;
 import java.io.OutputStream;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -43,11 +44,27 @@ public class AnalysisResultSaveHandler {
 
     private final AnalysisResult _analysisResult;
     private final Resource _resource;
+    private final boolean _sectioned;
     private Map<ComponentJob, AnalyzerResult> _unsafeResultElements;
 
     public AnalysisResultSaveHandler(AnalysisResult analysisResult, Resource resource) {
+        this(analysisResult, resource, false);
+    }
+
+    /**
+     * 
+     * @param analysisResult
+     * @param resource
+     * @param sectioned
+     *            whether to save the result in the format of
+     *            {@link SectionedAnalysisResultWriter}, which allows reading
+     *            single component results, instead of as a single java
+     *            serialized object
+     */
+    public AnalysisResultSaveHandler(AnalysisResult analysisResult, Resource resource, boolean sectioned) {
         _analysisResult = analysisResult;
         _resource = resource;
+        _sectioned = sectioned;
     }
 
     public boolean saveAttempt() {
@@ -61,14 +78,29 @@ public class AnalysisResultSaveHandler {
 
     public void saveWithoutUnsafeResultElements() {
         final AnalysisResult safeAnalysisResult = createSafeAnalysisResult();
-        saveOrThrow(safeAnalysisResult, _resource);
+        saveOrThrow(safeAnalysisResult, _resource, _sectioned);
     }
 
     public void saveOrThrow() throws SerializationException {
-        saveOrThrow(_analysisResult, _resource);
+        saveOrThrow(_analysisResult, _resource, _sectioned);
     }
 
-    private static void saveOrThrow(AnalysisResult analysisResult, Resource resource) {
+    private static void saveOrThrow(AnalysisResult analysisResult, Resource resource, boolean sectioned) {
+        if (sectioned) {
+            final OutputStream out = resource.write();
+            try {
+                new SectionedAnalysisResultWriter().write(analysisResult, out);
+            } catch (IOException e) {
+                throw new SerializationException(e);
+            } catch (SerializationException e) {
+                logger.error("Error serializing analysis result: " + analysisResult, e);
+                throw e;
+            } finally {
+                FileHelper.safeClose(out);
+            }
+            return;
+        }
+
         final SimpleAnalysisResult simpleAnalysisResult;
         if (analysisResult instanceof SimpleAnalysisResult) {
             simpleAnalysisResult = (SimpleAnalysisResult) analysisResult;
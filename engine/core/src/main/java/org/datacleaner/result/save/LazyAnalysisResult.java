@@ -0,0 +1,249 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.AbstractAnalysisResult;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.SimpleAnalysisResult;
+
+/**
+ * {@link AnalysisResult} which is backed by a sectioned result file, see
+ * {@link SectionedAnalysisResultReader}. The component jobs are read up front,
+ * but the result of each component is only read when it is requested, eg.
+ * through {@link #getResult(ComponentJob)} or the values of
+ * {@link #getResultMap()}. Results that have been read are kept in memory.
+ * 
+ * The result reads from the resource of the reader until all results have
+ * been read. Use {@link SectionedAnalysisResultReader#inMemory(org.apache.metamodel.util.Resource)}
+ * if the resource may be moved or deleted in the meantime.
+ * 
+ * When serialized, this result is replaced by a {@link SimpleAnalysisResult}
+ * holding all the results.
+ */
+public final class LazyAnalysisResult extends AbstractAnalysisResult implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient SectionedAnalysisResultReader _reader;
+    private final transient List<ComponentJob> _componentJobs;
+    private final transient Map<ComponentJob, Integer> _componentIndexes;
+    private final transient AnalyzerResult[] _results;
+    private final transient Map<ComponentJob, AnalyzerResult> _resultMap;
+
+    LazyAnalysisResult(SectionedAnalysisResultReader reader, List<ComponentJob> componentJobs) {
+        _reader = reader;
+        _componentJobs = componentJobs;
+        _componentIndexes = new HashMap<>(componentJobs.size());
+        for (int i = 0; i < componentJobs.size(); i++) {
+            _componentIndexes.put(componentJobs.get(i), i);
+        }
+        _results = new AnalyzerResult[componentJobs.size()];
+        _resultMap = Collections.unmodifiableMap(new LazyResultMap());
+    }
+
+    @Override
+    public Date getCreationDate() {
+        return _reader.getCreationDate();
+    }
+
+    @Override
+    public Map<ComponentJob, AnalyzerResult> getResultMap() {
+        return _resultMap;
+    }
+
+    @Override
+    public List<AnalyzerResult> getResults() {
+        return new ArrayList<>(_resultMap.values());
+    }
+
+    /**
+     * Gets the metric values of a component, as they were computed when the
+     * result was written. Only metrics that are not parameterized are
+     * available this way.
+     * 
+     * @param componentJob
+     * @return a map of metric values by metric name, or null if not available
+     */
+    public Map<String, Number> getMetricValues(ComponentJob componentJob) {
+        final Integer index = _componentIndexes.get(componentJob);
+        if (index == null) {
+            return null;
+        }
+        return _reader.readMetricValues(index);
+    }
+
+    /**
+     * Determines if the result of a component has already been read.
+     * 
+     * @param componentJob
+     * @return
+     */
+    public boolean isLoaded(ComponentJob componentJob) {
+        final Integer index = _componentIndexes.get(componentJob);
+        if (index == null) {
+            return false;
+        }
+        synchronized (_results) {
+            return _results[index] != null;
+        }
+    }
+
+    private AnalyzerResult getResult(int index) {
+        synchronized (_results) {
+            if (_results[index] == null) {
+                _results[index] = _reader.readResult(index);
+            }
+            return _results[index];
+        }
+    }
+
+    /**
+     * Replaces this result with a fully loaded one when serialized.
+     * 
+     * @return
+     * @throws ObjectStreamException
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        return new SimpleAnalysisResult(new LinkedHashMap<>(_resultMap), getCreationDate());
+    }
+
+    private final class LazyResultMap extends AbstractMap<ComponentJob, AnalyzerResult> {
+
+        @Override
+        public int size() {
+            return _componentJobs.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return _componentIndexes.containsKey(key);
+        }
+
+        @Override
+        public AnalyzerResult get(Object key) {
+            final Integer index = _componentIndexes.get(key);
+            if (index == null) {
+                return null;
+            }
+            return getResult(index);
+        }
+
+        @Override
+        public Set<Entry<ComponentJob, AnalyzerResult>> entrySet() {
+            return new AbstractSet<Entry<ComponentJob, AnalyzerResult>>() {
+                @Override
+                public int size() {
+                    return _componentJobs.size();
+                }
+
+                @Override
+                public Iterator<Entry<ComponentJob, AnalyzerResult>> iterator() {
+                    return new Iterator<Entry<ComponentJob, AnalyzerResult>>() {
+
+                        private int _index = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return _index < _componentJobs.size();
+                        }
+
+                        @Override
+                        public Entry<ComponentJob, AnalyzerResult> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            final int index = _index++;
+                            return new LazyEntry(index);
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    /**
+     * Map entry which only reads the result when its value is requested.
+     */
+    private final class LazyEntry implements Map.Entry<ComponentJob, AnalyzerResult> {
+
+        private final int _index;
+
+        public LazyEntry(int index) {
+            _index = index;
+        }
+
+        @Override
+        public ComponentJob getKey() {
+            return _componentJobs.get(_index);
+        }
+
+        @Override
+        public AnalyzerResult getValue() {
+            return getResult(_index);
+        }
+
+        @Override
+        public AnalyzerResult setValue(AnalyzerResult value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?, ?> other = (Map.Entry<?, ?>) obj;
+            return Objects.equals(getKey(), other.getKey()) && Objects.equals(getValue(), other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(getKey()) ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + (isLoaded(getKey()) ? getValue() : "(not loaded)");
+        }
+    }
+}
@@ -0,0 +1,407 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.InMemoryResource;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.util.ChangeAwareObjectInputStream;
+
+/**
+ * Reader of analysis results stored in the sectioned format written by
+ * {@link SectionedAnalysisResultWriter}.
+ * 
+ * The file starts with a header, which holds the creation date of the result
+ * and an index of the sections of the file. The component jobs, the result of
+ * each component and the metric values of each component are stored in
+ * separate, individually compressed sections. Only the header is read when the
+ * reader is created, and each section is read only when it is requested.
+ * 
+ * Objects referenced by several results, such as a row annotation factory, are
+ * stored in a single shared section. It is read along with the first result
+ * that refers to it, and the same instances are used by all results.
+ */
+public class SectionedAnalysisResultReader {
+
+    static final byte[] MAGIC = { 'D', 'C', 'R', 'E', 'S', 'U', 'L', 'T' };
+    static final int FORMAT_VERSION = 2;
+
+    static final byte SECTION_COMPONENT_JOBS = 1;
+    static final byte SECTION_RESULT = 2;
+    static final byte SECTION_METRICS = 3;
+    static final byte SECTION_SHARED_OBJECTS = 4;
+
+    static final byte METRIC_TYPE_LONG = 'L';
+    static final byte METRIC_TYPE_DOUBLE = 'D';
+
+    /**
+     * Entry of the section index in the header.
+     */
+    static final class Section {
+
+        final byte type;
+        final int componentIndex;
+        final long offset;
+        final int length;
+
+        Section(byte type, int componentIndex, long offset, int length) {
+            this.type = type;
+            this.componentIndex = componentIndex;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Stand-in for an object of the shared section in a result section.
+     */
+    static final class SharedObjectReference implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        final int index;
+
+        SharedObjectReference(int index) {
+            this.index = index;
+        }
+    }
+
+    private final Resource _resource;
+    private final Date _creationDate;
+    private final List<Section> _sections;
+    private final long _headerLength;
+    private final List<ClassLoader> _classLoaders;
+    private List<?> _sharedObjects;
+
+    /**
+     * Creates a reader and reads the header of the resource.
+     * 
+     * @param resource
+     * @throws IllegalStateException
+     *             if the resource is not in the sectioned format, or the
+     *             header cannot be read
+     */
+    public SectionedAnalysisResultReader(Resource resource) throws IllegalStateException {
+        _resource = resource;
+        _classLoaders = new ArrayList<>(1);
+
+        final DataInputStream in = new DataInputStream(resource.read());
+        try {
+            final byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(MAGIC, magic)) {
+                throw new IllegalStateException("Not a sectioned analysis result: " + resource);
+            }
+            final int version = in.readInt();
+            // version 1 is the same format, without a shared section
+            if (version < 1 || version > FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported analysis result format version: " + version);
+            }
+            _creationDate = new Date(in.readLong());
+            final int sectionCount = in.readInt();
+            final List<Section> sections = new ArrayList<>(sectionCount);
+            for (int i = 0; i < sectionCount; i++) {
+                sections.add(new Section(in.readByte(), in.readInt(), in.readLong(), in.readInt()));
+            }
+            _sections = Collections.unmodifiableList(sections);
+            _headerLength = getHeaderLength(sectionCount);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read header of analysis result: " + resource, e);
+        } finally {
+            FileHelper.safeClose(in);
+        }
+    }
+
+    /**
+     * Creates a reader of an in-memory copy of a resource. Use this when the
+     * resource may be moved, overwritten or deleted while the result is in
+     * use, eg. a result in a repository, which is renamed when its job or
+     * timestamp is changed. The whole (compressed) file is read up front, but
+     * the sections are still only deserialized when they are requested.
+     * 
+     * @param resource
+     * @return
+     * @throws IllegalStateException
+     *             if the resource is not in the sectioned format, or cannot
+     *             be read
+     */
+    public static SectionedAnalysisResultReader inMemory(Resource resource) throws IllegalStateException {
+        final byte[] bytes;
+        final InputStream in = resource.read();
+        try {
+            bytes = FileHelper.readAsBytes(in);
+        } finally {
+            FileHelper.safeClose(in);
+        }
+        return new SectionedAnalysisResultReader(new InMemoryResource(resource.getQualifiedPath(), bytes, resource
+                .getLastModified()));
+    }
+
+    static long getHeaderLength(int sectionCount) {
+        return MAGIC.length + 4 + 8 + 4 + sectionCount * (1 + 4 + 8 + 4L);
+    }
+
+    /**
+     * Determines if a resource holds an analysis result in the sectioned
+     * format. Other resources are expected to hold a (legacy) java serialized
+     * result.
+     * 
+     * @param resource
+     * @return
+     */
+    public static boolean isSectioned(Resource resource) {
+        final InputStream in = resource.read();
+        try {
+            final byte[] magic = new byte[MAGIC.length];
+            new DataInputStream(in).readFully(magic);
+            return Arrays.equals(MAGIC, magic);
+        } catch (EOFException e) {
+            return false;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read analysis result: " + resource, e);
+        } finally {
+            FileHelper.safeClose(in);
+        }
+    }
+
+    /**
+     * Adds a class loader to use when deserializing the sections, eg. for
+     * results of extension components.
+     * 
+     * @param classLoader
+     */
+    public void addClassLoader(ClassLoader classLoader) {
+        _classLoaders.add(classLoader);
+    }
+
+    public Resource getResource() {
+        return _resource;
+    }
+
+    public Date getCreationDate() {
+        return _creationDate;
+    }
+
+    /**
+     * Creates an analysis result which reads the result of each component on
+     * demand.
+     * 
+     * @return
+     */
+    public LazyAnalysisResult getAnalysisResult() {
+        return new LazyAnalysisResult(this, readComponentJobs());
+    }
+
+    /**
+     * Reads the component jobs of the result, in the order of their component
+     * index.
+     * 
+     * @return
+     */
+    public List<ComponentJob> readComponentJobs() {
+        final Section section = getSection(SECTION_COMPONENT_JOBS, -1);
+        if (section == null) {
+            throw new IllegalStateException("No component jobs in analysis result: " + _resource);
+        }
+        @SuppressWarnings("unchecked")
+        final List<ComponentJob> componentJobs = (List<ComponentJob>) readObject(section, false);
+        return componentJobs;
+    }
+
+    /**
+     * Reads the result of a single component.
+     * 
+     * @param componentIndex
+     * @return
+     */
+    public AnalyzerResult readResult(int componentIndex) {
+        final Section section = getSection(SECTION_RESULT, componentIndex);
+        if (section == null) {
+            throw new IllegalStateException("No result of component no. " + componentIndex + " in analysis result: "
+                    + _resource);
+        }
+        return (AnalyzerResult) readObject(section, true);
+    }
+
+    /**
+     * Reads the metric values of a single component, as they were computed
+     * when the result was written. Only metrics that are not parameterized are
+     * included.
+     * 
+     * @param componentIndex
+     * @return a map of metric values by metric name, or null if no metric
+     *         values were written for the component
+     */
+    public Map<String, Number> readMetricValues(int componentIndex) {
+        final Section section = getSection(SECTION_METRICS, componentIndex);
+        if (section == null) {
+            return null;
+        }
+        final DataInputStream in = new DataInputStream(openSection(section));
+        try {
+            final int count = in.readInt();
+            final Map<String, Number> metricValues = new LinkedHashMap<>(count);
+            for (int i = 0; i < count; i++) {
+                final String name = in.readUTF();
+                final byte type = in.readByte();
+                switch (type) {
+                case METRIC_TYPE_LONG:
+                    metricValues.put(name, in.readLong());
+                    break;
+                case METRIC_TYPE_DOUBLE:
+                    metricValues.put(name, in.readDouble());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown metric value type: " + type);
+                }
+            }
+            return metricValues;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read metric values of component no. " + componentIndex, e);
+        } finally {
+            FileHelper.safeClose(in);
+        }
+    }
+
+    List<Section> getSections() {
+        return _sections;
+    }
+
+    private Section getSection(byte type, int componentIndex) {
+        for (Section section : _sections) {
+            if (section.type == type && section.componentIndex == componentIndex) {
+                return section;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads the compressed bytes of a section.
+     * 
+     * @param section
+     * @return
+     */
+    byte[] readSectionBytes(Section section) {
+        final InputStream in = _resource.read();
+        try {
+            long remaining = _headerLength + section.offset;
+            while (remaining > 0) {
+                final long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    // skip(...) may refuse to move, fall back to reading
+                    if (in.read() == -1) {
+                        throw new EOFException();
+                    }
+                    remaining--;
+                } else {
+                    remaining -= skipped;
+                }
+            }
+            final byte[] bytes = new byte[section.length];
+            new DataInputStream(in).readFully(bytes);
+            return bytes;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read section of analysis result: " + _resource, e);
+        } finally {
+            FileHelper.safeClose(in);
+        }
+    }
+
+    private InputStream openSection(Section section) {
+        return new InflaterInputStream(new ByteArrayInputStream(readSectionBytes(section)));
+    }
+
+    private synchronized List<?> getSharedObjects() {
+        if (_sharedObjects == null) {
+            final Section section = getSection(SECTION_SHARED_OBJECTS, -1);
+            if (section == null) {
+                _sharedObjects = Collections.emptyList();
+            } else {
+                _sharedObjects = (List<?>) readObject(section, false);
+            }
+        }
+        return _sharedObjects;
+    }
+
+    private Object readObject(Section section, boolean resolveSharedObjects) {
+        ChangeAwareObjectInputStream in = null;
+        try {
+            if (resolveSharedObjects) {
+                in = new SharedObjectResolvingInputStream(openSection(section));
+            } else {
+                in = new ChangeAwareObjectInputStream(openSection(section));
+            }
+            for (ClassLoader classLoader : _classLoaders) {
+                in.addClassLoader(classLoader);
+            }
+            return in.readObject();
+        } catch (Exception e) {
+            if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+            throw new IllegalStateException(e);
+        } finally {
+            FileHelper.safeClose(in);
+        }
+    }
+
+    /**
+     * Input stream which replaces {@link SharedObjectReference}s with the
+     * objects of the shared section.
+     */
+    private final class SharedObjectResolvingInputStream extends ChangeAwareObjectInputStream {
+
+        public SharedObjectResolvingInputStream(InputStream in) throws IOException {
+            super(in);
+            enableResolveObject(true);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof SharedObjectReference) {
+                final List<?> sharedObjects = getSharedObjects();
+                final int index = ((SharedObjectReference) obj).index;
+                if (index >= sharedObjects.size()) {
+                    throw new IOException("No shared object no. " + index + " in analysis result: " + _resource);
+                }
+                return sharedObjects.get(index);
+            }
+            return obj;
+        }
+    }
+}
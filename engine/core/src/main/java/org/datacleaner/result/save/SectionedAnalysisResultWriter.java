@@ -0,0 +1,260 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.FORMAT_VERSION;
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.MAGIC;
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.METRIC_TYPE_DOUBLE;
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.METRIC_TYPE_LONG;
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.SECTION_COMPONENT_JOBS;
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.SECTION_METRICS;
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.SECTION_RESULT;
+import static org.datacleaner.result.save.SectionedAnalysisResultReader.SECTION_SHARED_OBJECTS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.zip.DeflaterOutputStream;
+
+import org.apache.commons.lang.SerializationException;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.descriptors.ComponentDescriptor;
+import org.datacleaner.descriptors.MetricDescriptor;
+import org.datacleaner.descriptors.MetricParameters;
+import org.datacleaner.descriptors.ResultDescriptor;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.save.SectionedAnalysisResultReader.Section;
+import org.datacleaner.result.save.SectionedAnalysisResultReader.SharedObjectReference;
+import org.datacleaner.storage.RowAnnotation;
+import org.datacleaner.storage.RowAnnotationFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writer of analysis results in a sectioned format, which allows reading the
+ * result (and metric values) of a single component without deserializing the
+ * whole result. See {@link SectionedAnalysisResultReader} for the layout.
+ * 
+ * Objects that are typically referenced by the results of several components
+ * (row annotation factories, row annotations and input columns) are written
+ * once to a shared section, and the result sections refer to them by index.
+ */
+public class SectionedAnalysisResultWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SectionedAnalysisResultWriter.class);
+
+    /**
+     * Writes an analysis result.
+     * 
+     * @param analysisResult
+     * @param out
+     * @throws SerializationException
+     *             if a component job or result cannot be serialized
+     * @throws IOException
+     *             if writing to the output stream fails
+     */
+    public void write(AnalysisResult analysisResult, OutputStream out) throws SerializationException, IOException {
+        final Map<ComponentJob, AnalyzerResult> resultMap = analysisResult.getResultMap();
+        final List<ComponentJob> componentJobs = new ArrayList<>(resultMap.keySet());
+
+        final List<Section> sections = new ArrayList<>();
+        final List<byte[]> sectionBytes = new ArrayList<>();
+        addSection(sections, sectionBytes, SECTION_COMPONENT_JOBS, -1, serialize(componentJobs));
+
+        final Map<Object, SharedObjectReference> sharedObjects = new IdentityHashMap<>();
+        final List<Object> sharedObjectList = new ArrayList<>();
+        for (int i = 0; i < componentJobs.size(); i++) {
+            final ComponentJob componentJob = componentJobs.get(i);
+            final AnalyzerResult analyzerResult = resultMap.get(componentJob);
+            addSection(sections, sectionBytes, SECTION_RESULT, i, serialize(analyzerResult, sharedObjects,
+                    sharedObjectList));
+
+            final Map<String, Number> metricValues = getMetricValues(componentJob, analyzerResult);
+            if (!metricValues.isEmpty()) {
+                addSection(sections, sectionBytes, SECTION_METRICS, i, serializeMetricValues(metricValues));
+            }
+        }
+
+        if (!sharedObjectList.isEmpty()) {
+            addSection(sections, sectionBytes, SECTION_SHARED_OBJECTS, -1, serialize(sharedObjectList));
+        }
+
+        writeSections(analysisResult.getCreationDate(), sections, sectionBytes, out);
+    }
+
+    /**
+     * Writes a copy of a sectioned analysis result with a new creation date,
+     * without deserializing any of the sections.
+     * 
+     * @param reader
+     * @param creationDate
+     * @param out
+     * @throws IOException
+     */
+    public void write(SectionedAnalysisResultReader reader, Date creationDate, OutputStream out) throws IOException {
+        final List<Section> sections = new ArrayList<>();
+        final List<byte[]> sectionBytes = new ArrayList<>();
+        for (Section section : reader.getSections()) {
+            addSection(sections, sectionBytes, section.type, section.componentIndex, reader.readSectionBytes(section));
+        }
+        writeSections(creationDate, sections, sectionBytes, out);
+    }
+
+    private void addSection(List<Section> sections, List<byte[]> sectionBytes, byte type, int componentIndex,
+            byte[] bytes) {
+        final long offset;
+        if (sections.isEmpty()) {
+            offset = 0;
+        } else {
+            final Section previous = sections.get(sections.size() - 1);
+            offset = previous.offset + previous.length;
+        }
+        sections.add(new Section(type, componentIndex, offset, bytes.length));
+        sectionBytes.add(bytes);
+    }
+
+    private void writeSections(Date creationDate, List<Section> sections, List<byte[]> sectionBytes, OutputStream out)
+            throws IOException {
+        final DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.write(MAGIC);
+        dataOut.writeInt(FORMAT_VERSION);
+        dataOut.writeLong(creationDate == null ? System.currentTimeMillis() : creationDate.getTime());
+        dataOut.writeInt(sections.size());
+        for (Section section : sections) {
+            dataOut.writeByte(section.type);
+            dataOut.writeInt(section.componentIndex);
+            dataOut.writeLong(section.offset);
+            dataOut.writeInt(section.length);
+        }
+        for (byte[] bytes : sectionBytes) {
+            dataOut.write(bytes);
+        }
+        dataOut.flush();
+    }
+
+    private Map<String, Number> getMetricValues(ComponentJob componentJob, AnalyzerResult analyzerResult) {
+        final Map<String, Number> metricValues = new LinkedHashMap<>();
+        final ComponentDescriptor<?> descriptor = componentJob.getDescriptor();
+        if (!(descriptor instanceof ResultDescriptor) || analyzerResult == null) {
+            return metricValues;
+        }
+        for (MetricDescriptor metric : ((ResultDescriptor) descriptor).getResultMetrics()) {
+            if (metric.isParameterizedByInputColumn() || metric.isParameterizedByString()) {
+                continue;
+            }
+            try {
+                final Number value = metric.getValue(analyzerResult, new MetricParameters());
+                if (value != null) {
+                    metricValues.put(metric.getName(), value);
+                }
+            } catch (Exception e) {
+                logger.debug("Could not compute metric '{}' of {}: {}", metric.getName(), componentJob, e);
+            }
+        }
+        return metricValues;
+    }
+
+    private static byte[] serializeMetricValues(Map<String, Number> metricValues) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeInt(metricValues.size());
+            for (Entry<String, Number> entry : metricValues.entrySet()) {
+                final Number value = entry.getValue();
+                out.writeUTF(entry.getKey());
+                if (value instanceof Long || value instanceof Integer || value instanceof Short
+                        || value instanceof Byte) {
+                    out.writeByte(METRIC_TYPE_LONG);
+                    out.writeLong(value.longValue());
+                } else {
+                    out.writeByte(METRIC_TYPE_DOUBLE);
+                    out.writeDouble(value.doubleValue());
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static boolean isShared(Object object) {
+        return object instanceof RowAnnotationFactory || object instanceof RowAnnotation
+                || object instanceof InputColumn;
+    }
+
+    /**
+     * Serializes an object, replacing the shared objects it references with
+     * references to the shared section.
+     * 
+     * @param object
+     * @param sharedObjects
+     *            the references of the shared objects found so far
+     * @param sharedObjectList
+     *            the shared objects found so far, in the order of their index
+     * @return
+     * @throws SerializationException
+     */
+    private static byte[] serialize(Object object, final Map<Object, SharedObjectReference> sharedObjects,
+            final List<Object> sharedObjectList) throws SerializationException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes)) {
+            {
+                enableReplaceObject(true);
+            }
+
+            @Override
+            protected Object replaceObject(Object obj) throws IOException {
+                if (!isShared(obj)) {
+                    return obj;
+                }
+                SharedObjectReference reference = sharedObjects.get(obj);
+                if (reference == null) {
+                    reference = new SharedObjectReference(sharedObjectList.size());
+                    sharedObjects.put(obj, reference);
+                    sharedObjectList.add(obj);
+                }
+                return reference;
+            }
+        }) {
+            out.writeObject(object);
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] serialize(Object object) throws SerializationException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new DeflaterOutputStream(bytes))) {
+            out.writeObject(object);
+        } catch (IOException e) {
+            throw new SerializationException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
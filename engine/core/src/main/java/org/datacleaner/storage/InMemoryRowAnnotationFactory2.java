@@ -152,6 +152,22 @@ public final class InMemoryRowAnnotationFactory2 extends AbstractRowAnnotationFa
         _storage.remove(from);
     }
 
+    /**
+     * Adds sample rows for an annotation without affecting the row count of
+     * the annotation. Used when converting other {@link RowAnnotationFactory}
+     * implementations into an {@link InMemoryRowAnnotationFactory2}.
+     * 
+     * @param annotation
+     * @param rows
+     */
+    void addSampleRows(RowAnnotation annotation, Collection<InputRow> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        final Collection<InputRow> rowCollection = getInputRowCollection(rows.size(), annotation);
+        addInputRowsToCollection(rowCollection, rows);
+    }
+
     @Override
     public boolean hasSampleRows(RowAnnotation annotation) {
         return _storage.containsKey(annotation);
@@ -0,0 +1,265 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A temporary file which is memory-mapped in fixed size chunks, so that it's
+ * contents live outside of the java heap. The file grows on demand and can be
+ * addressed with long positions, also beyond the 2 GB limit of a single
+ * {@link MappedByteBuffer}.
+ *
+ * Writes to different regions of the file may be done concurrently, but
+ * growing the file (see {@link #ensureCapacity(long)}) is synchronized.
+ */
+final class MappedFile implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFile.class);
+
+    private final File _file;
+    private final RandomAccessFile _randomAccessFile;
+    private final FileChannel _channel;
+    private final int _chunkSize;
+    private volatile MappedByteBuffer[] _chunks;
+
+    public MappedFile(File directory, String prefix, int chunkSize) throws IllegalStateException {
+        if (Integer.bitCount(chunkSize) != 1) {
+            throw new IllegalArgumentException("Chunk size must be a power of two: " + chunkSize);
+        }
+        _chunkSize = chunkSize;
+        _chunks = new MappedByteBuffer[0];
+        try {
+            _file = File.createTempFile(prefix, ".dat", directory);
+            _file.deleteOnExit();
+            _randomAccessFile = new RandomAccessFile(_file, "rw");
+            _channel = _randomAccessFile.getChannel();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create memory mapped file in " + directory, e);
+        }
+    }
+
+    public File getFile() {
+        return _file;
+    }
+
+    public long getCapacity() {
+        return ((long) _chunks.length) * _chunkSize;
+    }
+
+    /**
+     * Ensures that the file can hold at least the specified number of bytes.
+     *
+     * @param capacity
+     */
+    public void ensureCapacity(long capacity) {
+        if (capacity <= getCapacity()) {
+            return;
+        }
+        synchronized (this) {
+            final MappedByteBuffer[] chunks = _chunks;
+            final int requiredChunks = (int) ((capacity + _chunkSize - 1) / _chunkSize);
+            if (requiredChunks <= chunks.length) {
+                return;
+            }
+            final List<MappedByteBuffer> newChunks = new ArrayList<>(requiredChunks);
+            for (MappedByteBuffer chunk : chunks) {
+                newChunks.add(chunk);
+            }
+            try {
+                for (int i = chunks.length; i < requiredChunks; i++) {
+                    newChunks.add(_channel.map(MapMode.READ_WRITE, ((long) i) * _chunkSize, _chunkSize));
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not grow memory mapped file: " + _file, e);
+            }
+            _chunks = newChunks.toArray(new MappedByteBuffer[requiredChunks]);
+        }
+    }
+
+    public byte getByte(long position) {
+        return _chunks[chunkIndex(position)].get(chunkOffset(position));
+    }
+
+    public void putByte(long position, byte value) {
+        _chunks[chunkIndex(position)].put(chunkOffset(position), value);
+    }
+
+    public int getInt(long position) {
+        final int offset = chunkOffset(position);
+        if (offset + 4 <= _chunkSize) {
+            return _chunks[chunkIndex(position)].getInt(offset);
+        }
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            result = (result << 8) | (getByte(position + i) & 0xFF);
+        }
+        return result;
+    }
+
+    public void putInt(long position, int value) {
+        final int offset = chunkOffset(position);
+        if (offset + 4 <= _chunkSize) {
+            _chunks[chunkIndex(position)].putInt(offset, value);
+            return;
+        }
+        for (int i = 0; i < 4; i++) {
+            putByte(position + i, (byte) (value >>> (24 - 8 * i)));
+        }
+    }
+
+    public long getLong(long position) {
+        final int offset = chunkOffset(position);
+        if (offset + 8 <= _chunkSize) {
+            return _chunks[chunkIndex(position)].getLong(offset);
+        }
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = (result << 8) | (getByte(position + i) & 0xFF);
+        }
+        return result;
+    }
+
+    public void putLong(long position, long value) {
+        final int offset = chunkOffset(position);
+        if (offset + 8 <= _chunkSize) {
+            _chunks[chunkIndex(position)].putLong(offset, value);
+            return;
+        }
+        for (int i = 0; i < 8; i++) {
+            putByte(position + i, (byte) (value >>> (56 - 8 * i)));
+        }
+    }
+
+    public void getBytes(long position, byte[] destination, int destinationOffset, int length) {
+        while (length > 0) {
+            final MappedByteBuffer chunk = _chunks[chunkIndex(position)];
+            final int offset = chunkOffset(position);
+            final int count = Math.min(length, _chunkSize - offset);
+            // duplicate the buffer, since it's position is shared between
+            // threads
+            final ByteBuffer buffer = chunk.duplicate();
+            buffer.position(offset);
+            buffer.get(destination, destinationOffset, count);
+            position += count;
+            destinationOffset += count;
+            length -= count;
+        }
+    }
+
+    public void putBytes(long position, byte[] source, int sourceOffset, int length) {
+        while (length > 0) {
+            final MappedByteBuffer chunk = _chunks[chunkIndex(position)];
+            final int offset = chunkOffset(position);
+            final int count = Math.min(length, _chunkSize - offset);
+            final ByteBuffer buffer = chunk.duplicate();
+            buffer.position(offset);
+            buffer.put(source, sourceOffset, count);
+            position += count;
+            sourceOffset += count;
+            length -= count;
+        }
+    }
+
+    private int chunkIndex(long position) {
+        return (int) (position / _chunkSize);
+    }
+
+    private int chunkOffset(long position) {
+        return (int) (position & (_chunkSize - 1));
+    }
+
+    /**
+     * Closes and deletes the file. The chunks are unmapped right away (when
+     * the JVM allows it), so the file must not be accessed after, or while,
+     * closing it.
+     */
+    @Override
+    public void close() {
+        final MappedByteBuffer[] chunks;
+        synchronized (this) {
+            chunks = _chunks;
+            _chunks = new MappedByteBuffer[0];
+        }
+        for (MappedByteBuffer chunk : chunks) {
+            unmap(chunk);
+        }
+        try {
+            _channel.close();
+            _randomAccessFile.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close memory mapped file: {}", _file, e);
+        }
+        if (!_file.delete()) {
+            logger.debug("Unable to delete memory mapped file (will be deleted on exit): {}", _file);
+        }
+    }
+
+    /**
+     * Unmaps a buffer without waiting for it to be garbage collected, which
+     * would otherwise keep the file handle and address space reserved.
+     *
+     * @param buffer
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            try {
+                // Java 9 and later
+                final Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+                final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+                theUnsafe.setAccessible(true);
+                invokeCleaner.invoke(theUnsafe.get(null), buffer);
+            } catch (NoSuchMethodException e) {
+                // Java 8
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    final Method cleanMethod = cleaner.getClass().getMethod("clean");
+                    cleanMethod.setAccessible(true);
+                    cleanMethod.invoke(cleaner);
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("Unable to unmap buffer, it will be unmapped when garbage collected", e);
+        }
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        close();
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An open addressing hash table of binary keys and values, which is stored
+ * entirely in {@link MappedFile}s outside of the java heap.
+ *
+ * Records are appended to a log file as [key length][value length][key][value].
+ * The slot table holds the 64 bit hash of each key along with the position of
+ * it's record, so that probing and resizing doesn't require reading records.
+ * A value is updated in place when the new value fits in the record, and
+ * otherwise a new record is appended, leaving the old one as garbage. The log
+ * is compacted once more than half of it is garbage.
+ *
+ * This class is not thread-safe.
+ */
+final class OffHeapHashStore implements Closeable {
+
+    private static final int SLOT_SIZE = 16;
+    private static final int RECORD_CHUNK_SIZE = 1 << 26;
+    private static final int SLOT_CHUNK_SIZE = 1 << 24;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final long MIN_COMPACTION_SIZE = 1 << 20;
+
+    private final File _directory;
+    private MappedFile _records;
+    private MappedFile _slots;
+    private long _capacity;
+    private long _size;
+    private long _recordsEnd;
+    private long _garbageBytes;
+
+    public OffHeapHashStore(File directory) {
+        _directory = directory;
+        _records = new MappedFile(directory, "records_", RECORD_CHUNK_SIZE);
+        _capacity = INITIAL_CAPACITY;
+        _slots = createSlots(_capacity);
+        _size = 0;
+        // position 0 is reserved to denote empty slots
+        _recordsEnd = 8;
+        _garbageBytes = 0;
+    }
+
+    private MappedFile createSlots(long capacity) {
+        final MappedFile slots = new MappedFile(_directory, "slots_", SLOT_CHUNK_SIZE);
+        slots.ensureCapacity(capacity * SLOT_SIZE);
+        return slots;
+    }
+
+    public long size() {
+        return _size;
+    }
+
+    /**
+     * Gets the number of bytes used in the record log, including garbage.
+     *
+     * @return
+     */
+    long getRecordsSize() {
+        return _recordsEnd;
+    }
+
+    /**
+     * Gets the number of bytes in the record log that are garbage, ie. no
+     * longer part of a live record.
+     *
+     * @return
+     */
+    long getGarbageBytes() {
+        return _garbageBytes;
+    }
+
+    public byte[] get(byte[] key) {
+        final long slot = findSlot(key, hash(key));
+        final long recordPosition = getRecordPosition(slot);
+        if (recordPosition == 0) {
+            return null;
+        }
+        return readValue(recordPosition);
+    }
+
+    public boolean containsKey(byte[] key) {
+        final long slot = findSlot(key, hash(key));
+        return getRecordPosition(slot) != 0;
+    }
+
+    /**
+     * Puts a key/value pair into the store.
+     *
+     * @param key
+     * @param value
+     * @return the previous value, or null if there was none
+     */
+    public byte[] put(byte[] key, byte[] value) {
+        final long hash = hash(key);
+        final long slot = findSlot(key, hash);
+        final long existingPosition = getRecordPosition(slot);
+        if (existingPosition != 0) {
+            final byte[] previousValue = readValue(existingPosition);
+            final int keyLength = _records.getInt(existingPosition);
+            final int previousValueLength = previousValue.length;
+            if (value.length <= previousValueLength) {
+                // overwrite in place, which is the common case for fixed
+                // size values such as counters
+                _records.putInt(existingPosition + 4, value.length);
+                _records.putBytes(existingPosition + 8 + keyLength, value, 0, value.length);
+                _garbageBytes += previousValueLength - value.length;
+            } else {
+                final long recordPosition = appendRecord(key, value);
+                _slots.putLong(slot * SLOT_SIZE + 8, recordPosition);
+                _garbageBytes += 8 + keyLength + previousValueLength;
+            }
+            compactIfNeeded();
+            return previousValue;
+        }
+
+        final long recordPosition = appendRecord(key, value);
+        _slots.putLong(slot * SLOT_SIZE, hash);
+        _slots.putLong(slot * SLOT_SIZE + 8, recordPosition);
+
+        _size++;
+        if (_size * 2 > _capacity) {
+            resize();
+        }
+        return null;
+    }
+
+    /**
+     * Removes a key from the store.
+     *
+     * @param key
+     * @return the removed value, or null if the key was not present
+     */
+    public byte[] remove(byte[] key) {
+        long slot = findSlot(key, hash(key));
+        final long recordPosition = getRecordPosition(slot);
+        if (recordPosition == 0) {
+            return null;
+        }
+        final byte[] value = readValue(recordPosition);
+        _garbageBytes += 8 + _records.getInt(recordPosition) + value.length;
+
+        // backward shift deletion, keeping probe sequences intact without
+        // tombstones
+        final long mask = _capacity - 1;
+        long next = (slot + 1) & mask;
+        while (true) {
+            final long nextPosition = getRecordPosition(next);
+            if (nextPosition == 0) {
+                break;
+            }
+            final long nextHash = _slots.getLong(next * SLOT_SIZE);
+            final long home = nextHash & mask;
+            // determine if the entry at 'next' can be moved to 'slot'
+            final boolean movable;
+            if (slot <= next) {
+                movable = home <= slot || home > next;
+            } else {
+                movable = home <= slot && home > next;
+            }
+            if (movable) {
+                _slots.putLong(slot * SLOT_SIZE, nextHash);
+                _slots.putLong(slot * SLOT_SIZE + 8, nextPosition);
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        _slots.putLong(slot * SLOT_SIZE, 0);
+        _slots.putLong(slot * SLOT_SIZE + 8, 0);
+
+        _size--;
+        compactIfNeeded();
+        return value;
+    }
+
+    /**
+     * Creates a cursor for iterating through the entries of the store. The
+     * store should not be modified while iterating.
+     *
+     * @return
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    private long findSlot(byte[] key, long hash) {
+        final long mask = _capacity - 1;
+        long slot = hash & mask;
+        while (true) {
+            final long recordPosition = getRecordPosition(slot);
+            if (recordPosition == 0) {
+                return slot;
+            }
+            if (_slots.getLong(slot * SLOT_SIZE) == hash && keyEquals(recordPosition, key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long getRecordPosition(long slot) {
+        return _slots.getLong(slot * SLOT_SIZE + 8);
+    }
+
+    private void resize() {
+        final long newCapacity = _capacity * 2;
+        final long newMask = newCapacity - 1;
+        final MappedFile newSlots = createSlots(newCapacity);
+        for (long slot = 0; slot < _capacity; slot++) {
+            final long recordPosition = getRecordPosition(slot);
+            if (recordPosition != 0) {
+                final long hash = _slots.getLong(slot * SLOT_SIZE);
+                long newSlot = hash & newMask;
+                while (newSlots.getLong(newSlot * SLOT_SIZE + 8) != 0) {
+                    newSlot = (newSlot + 1) & newMask;
+                }
+                newSlots.putLong(newSlot * SLOT_SIZE, hash);
+                newSlots.putLong(newSlot * SLOT_SIZE + 8, recordPosition);
+            }
+        }
+        _slots.close();
+        _slots = newSlots;
+        _capacity = newCapacity;
+    }
+
+    private void compactIfNeeded() {
+        if (_recordsEnd >= MIN_COMPACTION_SIZE && _garbageBytes * 2 > _recordsEnd) {
+            compact();
+        }
+    }
+
+    /**
+     * Copies the live records to a new record log, dropping the garbage.
+     */
+    private void compact() {
+        final MappedFile newRecords = new MappedFile(_directory, "records_", RECORD_CHUNK_SIZE);
+        long newRecordsEnd = 8;
+        byte[] buffer = new byte[1024];
+        for (long slot = 0; slot < _capacity; slot++) {
+            final long recordPosition = getRecordPosition(slot);
+            if (recordPosition != 0) {
+                final int recordLength = 8 + _records.getInt(recordPosition) + _records.getInt(recordPosition + 4);
+                if (recordLength > buffer.length) {
+                    buffer = new byte[Math.max(recordLength, buffer.length * 2)];
+                }
+                _records.getBytes(recordPosition, buffer, 0, recordLength);
+                newRecords.ensureCapacity(newRecordsEnd + recordLength);
+                newRecords.putBytes(newRecordsEnd, buffer, 0, recordLength);
+                _slots.putLong(slot * SLOT_SIZE + 8, newRecordsEnd);
+                newRecordsEnd += recordLength;
+            }
+        }
+        _records.close();
+        _records = newRecords;
+        _recordsEnd = newRecordsEnd;
+        _garbageBytes = 0;
+    }
+
+    private long appendRecord(byte[] key, byte[] value) {
+        final long position = _recordsEnd;
+        final long end = position + 8 + key.length + value.length;
+        _records.ensureCapacity(end);
+        _records.putInt(position, key.length);
+        _records.putInt(position + 4, value.length);
+        _records.putBytes(position + 8, key, 0, key.length);
+        _records.putBytes(position + 8 + key.length, value, 0, value.length);
+        _recordsEnd = end;
+        return position;
+    }
+
+    private boolean keyEquals(long recordPosition, byte[] key) {
+        final int keyLength = _records.getInt(recordPosition);
+        if (keyLength != key.length) {
+            return false;
+        }
+        final long keyPosition = recordPosition + 8;
+        for (int i = 0; i < keyLength; i++) {
+            if (_records.getByte(keyPosition + i) != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] readKey(long recordPosition) {
+        final int keyLength = _records.getInt(recordPosition);
+        final byte[] key = new byte[keyLength];
+        _records.getBytes(recordPosition + 8, key, 0, keyLength);
+        return key;
+    }
+
+    private byte[] readValue(long recordPosition) {
+        final int keyLength = _records.getInt(recordPosition);
+        final int valueLength = _records.getInt(recordPosition + 4);
+        final byte[] value = new byte[valueLength];
+        _records.getBytes(recordPosition + 8 + keyLength, value, 0, valueLength);
+        return value;
+    }
+
+    /**
+     * Computes a 64 bit hash of a byte array (FNV-1a with a final avalanche
+     * step).
+     *
+     * @param bytes
+     * @return
+     */
+    static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < bytes.length; i++) {
+            hash ^= bytes[i];
+            hash *= 0x100000001b3L;
+        }
+        hash ^= (hash >>> 33);
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= (hash >>> 33);
+        return hash;
+    }
+
+    @Override
+    public void close() {
+        _slots.close();
+        _records.close();
+    }
+
+    @Override
+    public String toString() {
+        return "OffHeapHashStore[size=" + _size + ",capacity=" + _capacity + ",files="
+                + Arrays.asList(_slots.getFile(), _records.getFile()) + "]";
+    }
+
+    /**
+     * Cursor for iterating the entries of an {@link OffHeapHashStore}.
+     */
+    final class Cursor {
+
+        private long _slot = -1;
+        private long _nextSlot = -1;
+
+        public boolean hasNext() {
+            if (_nextSlot <= _slot) {
+                _nextSlot = _slot + 1;
+                while (_nextSlot < _capacity && getRecordPosition(_nextSlot) == 0) {
+                    _nextSlot++;
+                }
+            }
+            return _nextSlot < _capacity;
+        }
+
+        public void next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _slot = _nextSlot;
+        }
+
+        public byte[] getKey() {
+            return readKey(getRecordPosition(_slot));
+        }
+
+        public byte[] getValue() {
+            return readValue(getRecordPosition(_slot));
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.File;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.datacleaner.api.InputRow;
+
+/**
+ * {@link RowAnnotationFactory} which keeps sample records outside of the java
+ * heap, in a {@link MappedFile}. Only the positions of the sample records are
+ * kept on the heap.
+ *
+ * When serialized (eg. as part of an analysis result), this factory is
+ * replaced by an {@link InMemoryRowAnnotationFactory2} holding the same sample
+ * records.
+ */
+public final class OffHeapRowAnnotationFactory extends AbstractRowAnnotationFactory2 implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final int RECORD_CHUNK_SIZE = 1 << 26;
+
+    private final transient ConcurrentHashMap<RowAnnotation, SampleSet> _samples;
+    private final transient OffHeapSerializer<InputRow> _serializer;
+    private final transient MappedFile _records;
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
+    private transient long _recordsEnd;
+
+    /**
+     *
+     * @param directory
+     *            the directory to store sample records in
+     * @param maxSampleSets
+     *            the maximum number of sample record collections to keep
+     * @param maxSampleRecords
+     *            the maximum number of records to keep in each collection
+     */
+    public OffHeapRowAnnotationFactory(File directory, int maxSampleSets, int maxSampleRecords) {
+        _samples = new ConcurrentHashMap<>();
+        _serializer = OffHeapSerializer.forType(InputRow.class);
+        _records = new MappedFile(directory, "annotated_rows_", RECORD_CHUNK_SIZE);
+        _maxSampleSets = Math.max(0, maxSampleSets);
+        _maxSampleRecords = Math.max(0, maxSampleRecords);
+        _recordsEnd = 0;
+    }
+
+    private SampleSet getSampleSet(RowAnnotation annotation) {
+        SampleSet sampleSet = _samples.get(annotation);
+        if (sampleSet == null) {
+            if (_samples.size() >= _maxSampleSets) {
+                return null;
+            }
+            sampleSet = new SampleSet();
+            final SampleSet existingSampleSet = _samples.putIfAbsent(annotation, sampleSet);
+            if (existingSampleSet != null) {
+                sampleSet = existingSampleSet;
+            }
+        }
+        return sampleSet;
+    }
+
+    @Override
+    public void annotate(InputRow row, RowAnnotation annotation) {
+        super.annotate(row, annotation);
+
+        final SampleSet sampleSet = getSampleSet(annotation);
+        if (sampleSet == null || sampleSet.size() >= _maxSampleRecords) {
+            return;
+        }
+
+        // serialize outside of any lock
+        final byte[] bytes = _serializer.toBytes(row);
+
+        synchronized (sampleSet) {
+            if (sampleSet.size() >= _maxSampleRecords) {
+                return;
+            }
+            sampleSet.add(appendRecord(bytes));
+        }
+    }
+
+    @Override
+    public void resetAnnotation(RowAnnotation annotation) {
+        super.resetAnnotation(annotation);
+
+        _samples.remove(annotation);
+    }
+
+    @Override
+    public void transferAnnotations(RowAnnotation from, RowAnnotation to) {
+        super.transferAnnotations(from, to);
+
+        final SampleSet fromSampleSet = _samples.remove(from);
+        if (fromSampleSet == null) {
+            return;
+        }
+
+        final SampleSet toSampleSet = getSampleSet(to);
+        if (toSampleSet == null) {
+            return;
+        }
+
+        // the records are already stored, so only their positions are
+        // transferred
+        final long[] positions;
+        synchronized (fromSampleSet) {
+            positions = fromSampleSet.toArray();
+        }
+        synchronized (toSampleSet) {
+            for (long position : positions) {
+                if (toSampleSet.size() >= _maxSampleRecords) {
+                    return;
+                }
+                toSampleSet.add(position);
+            }
+        }
+    }
+
+    @Override
+    public List<InputRow> getSampleRows(RowAnnotation annotation) {
+        final SampleSet sampleSet = _samples.get(annotation);
+        if (sampleSet == null) {
+            return Collections.emptyList();
+        }
+        final long[] positions;
+        synchronized (sampleSet) {
+            positions = sampleSet.toArray();
+        }
+        final List<InputRow> rows = new ArrayList<>(positions.length);
+        for (long position : positions) {
+            rows.add(readRecord(position));
+        }
+        return Collections.unmodifiableList(rows);
+    }
+
+    @Override
+    public boolean hasSampleRows(RowAnnotation annotation) {
+        final SampleSet sampleSet = _samples.get(annotation);
+        return sampleSet != null && sampleSet.size() > 0;
+    }
+
+    private long appendRecord(byte[] bytes) {
+        synchronized (_records) {
+            final long position = _recordsEnd;
+            final long end = position + 4 + bytes.length;
+            _records.ensureCapacity(end);
+            _records.putInt(position, bytes.length);
+            _records.putBytes(position + 4, bytes, 0, bytes.length);
+            _recordsEnd = end;
+            return position;
+        }
+    }
+
+    private InputRow readRecord(long position) {
+        final int length = _records.getInt(position);
+        final byte[] bytes = new byte[length];
+        _records.getBytes(position + 4, bytes, 0, length);
+        return _serializer.fromBytes(bytes);
+    }
+
+    /**
+     * Replaces this factory with an in-memory equivalent when serialized.
+     *
+     * @return
+     * @throws ObjectStreamException
+     */
+    private Object writeReplace() throws ObjectStreamException {
+        final InMemoryRowAnnotationFactory2 factory = new InMemoryRowAnnotationFactory2(_maxSampleSets,
+                _maxSampleRecords);
+        for (Entry<RowAnnotation, SampleSet> entry : _samples.entrySet()) {
+            factory.addSampleRows(entry.getKey(), getSampleRows(entry.getKey()));
+        }
+        return factory;
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        _records.close();
+    }
+
+    /**
+     * Growable array of record positions. Access must be synchronized on the
+     * instance, except for {@link #size()}.
+     */
+    private static final class SampleSet {
+
+        private long[] _positions = new long[10];
+        private volatile int _size = 0;
+
+        public int size() {
+            return _size;
+        }
+
+        public void add(long position) {
+            if (_size == _positions.length) {
+                _positions = Arrays.copyOf(_positions, _size * 2);
+            }
+            _positions[_size] = position;
+            _size++;
+        }
+
+        public long[] toArray() {
+            return Arrays.copyOf(_positions, _size);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.datacleaner.util.ChangeAwareObjectInputStream;
+import org.datacleaner.util.ReflectionUtils;
+
+/**
+ * Converts values to and from their binary representation, for storage outside
+ * of the java heap. The first byte of the binary representation marks whether
+ * or not the value is null.
+ *
+ * Compact representations are used for strings, numbers, booleans, characters
+ * and byte arrays. Other {@link Serializable} types use java serialization.
+ *
+ * @param <E>
+ *            the value type
+ */
+abstract class OffHeapSerializer<E> {
+
+    private static final byte NULL_MARKER = 0;
+    private static final byte VALUE_MARKER = 1;
+
+    private static final byte[] NULL_BYTES = new byte[] { NULL_MARKER };
+
+    @SuppressWarnings("unchecked")
+    public static <E> OffHeapSerializer<E> forType(Class<E> type) throws UnsupportedOperationException {
+        if (ReflectionUtils.isString(type)) {
+            return (OffHeapSerializer<E>) new StringSerializer();
+        }
+        if (ReflectionUtils.isInteger(type)) {
+            return (OffHeapSerializer<E>) new IntegerSerializer();
+        }
+        if (ReflectionUtils.isLong(type)) {
+            return (OffHeapSerializer<E>) new LongSerializer();
+        }
+        if (ReflectionUtils.isBoolean(type)) {
+            return (OffHeapSerializer<E>) new BooleanSerializer();
+        }
+        if (ReflectionUtils.isDouble(type)) {
+            return (OffHeapSerializer<E>) new DoubleSerializer();
+        }
+        if (ReflectionUtils.isByteArray(type)) {
+            return (OffHeapSerializer<E>) new ByteArraySerializer();
+        }
+        if (Serializable.class.isAssignableFrom(type) || ReflectionUtils.isNumber(type)
+                || ReflectionUtils.isCharacter(type)) {
+            return new JavaSerializer<E>();
+        }
+        throw new UnsupportedOperationException("Cannot provide off-heap collection of type " + type);
+    }
+
+    public final byte[] toBytes(E value) {
+        if (value == null) {
+            return NULL_BYTES;
+        }
+        return toBytesInternal(value);
+    }
+
+    public final E fromBytes(byte[] bytes) {
+        if (bytes[0] == NULL_MARKER) {
+            return null;
+        }
+        return fromBytesInternal(bytes);
+    }
+
+    /**
+     * Creates the binary representation of a non-null value. The first byte
+     * must be {@link #VALUE_MARKER}.
+     *
+     * @param value
+     * @return
+     */
+    protected abstract byte[] toBytesInternal(E value);
+
+    /**
+     * Reads a non-null value from it's binary representation, skipping the
+     * first (marker) byte.
+     *
+     * @param bytes
+     * @return
+     */
+    protected abstract E fromBytesInternal(byte[] bytes);
+
+    private static final class StringSerializer extends OffHeapSerializer<String> {
+        @Override
+        protected byte[] toBytesInternal(String value) {
+            final byte[] stringBytes = value.getBytes(StandardCharsets.UTF_8);
+            final byte[] bytes = new byte[stringBytes.length + 1];
+            bytes[0] = VALUE_MARKER;
+            System.arraycopy(stringBytes, 0, bytes, 1, stringBytes.length);
+            return bytes;
+        }
+
+        @Override
+        protected String fromBytesInternal(byte[] bytes) {
+            return new String(bytes, 1, bytes.length - 1, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class IntegerSerializer extends OffHeapSerializer<Integer> {
+        @Override
+        protected byte[] toBytesInternal(Integer value) {
+            return ByteBuffer.allocate(5).put(VALUE_MARKER).putInt(value.intValue()).array();
+        }
+
+        @Override
+        protected Integer fromBytesInternal(byte[] bytes) {
+            return ByteBuffer.wrap(bytes, 1, 4).getInt();
+        }
+    }
+
+    private static final class LongSerializer extends OffHeapSerializer<Long> {
+        @Override
+        protected byte[] toBytesInternal(Long value) {
+            return ByteBuffer.allocate(9).put(VALUE_MARKER).putLong(value.longValue()).array();
+        }
+
+        @Override
+        protected Long fromBytesInternal(byte[] bytes) {
+            return ByteBuffer.wrap(bytes, 1, 8).getLong();
+        }
+    }
+
+    private static final class DoubleSerializer extends OffHeapSerializer<Double> {
+        @Override
+        protected byte[] toBytesInternal(Double value) {
+            return ByteBuffer.allocate(9).put(VALUE_MARKER).putDouble(value.doubleValue()).array();
+        }
+
+        @Override
+        protected Double fromBytesInternal(byte[] bytes) {
+            return ByteBuffer.wrap(bytes, 1, 8).getDouble();
+        }
+    }
+
+    private static final class BooleanSerializer extends OffHeapSerializer<Boolean> {
+        @Override
+        protected byte[] toBytesInternal(Boolean value) {
+            return new byte[] { VALUE_MARKER, (byte) (value.booleanValue() ? 1 : 0) };
+        }
+
+        @Override
+        protected Boolean fromBytesInternal(byte[] bytes) {
+            return bytes[1] != 0;
+        }
+    }
+
+    private static final class ByteArraySerializer extends OffHeapSerializer<byte[]> {
+        @Override
+        protected byte[] toBytesInternal(byte[] value) {
+            final byte[] bytes = new byte[value.length + 1];
+            bytes[0] = VALUE_MARKER;
+            System.arraycopy(value, 0, bytes, 1, value.length);
+            return bytes;
+        }
+
+        @Override
+        protected byte[] fromBytesInternal(byte[] bytes) {
+            final byte[] value = new byte[bytes.length - 1];
+            System.arraycopy(bytes, 1, value, 0, value.length);
+            return value;
+        }
+    }
+
+    private static final class JavaSerializer<E> extends OffHeapSerializer<E> {
+        @Override
+        protected byte[] toBytesInternal(E value) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(VALUE_MARKER);
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+                objectOut.writeObject(value);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not serialize value: " + value, e);
+            }
+            return out.toByteArray();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected E fromBytesInternal(byte[] bytes) {
+            final ByteArrayInputStream in = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+            try (ObjectInputStream objectIn = new ChangeAwareObjectInputStream(in)) {
+                return (E) objectIn.readObject();
+            } catch (IOException | ClassNotFoundException e) {
+                throw new IllegalStateException("Could not deserialize value", e);
+            }
+        }
+    }
+}
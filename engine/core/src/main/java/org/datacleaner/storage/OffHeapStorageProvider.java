@@ -0,0 +1,170 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link StorageProvider} which keeps collections in memory while they are
+ * small, and spills them to memory-mapped files outside of the java heap when
+ * they grow beyond a threshold, or when the heap is close to being exhausted.
+ *
+ * This is a light-weight alternative to the Berkeley DB based storage provider,
+ * without any transactional overhead. Like the collections of
+ * {@link InMemoryStorageProvider}, the collections are not thread-safe.
+ */
+public final class OffHeapStorageProvider implements StorageProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapStorageProvider.class);
+
+    private static final String DIRECTORY_PREFIX = "datacleaner_offheap_";
+
+    public static final int DEFAULT_IN_MEMORY_THRESHOLD = 100000;
+    public static final double DEFAULT_MAX_HEAP_USAGE = 0.8;
+
+    private final File _parentDirectory;
+    private final int _inMemoryThreshold;
+    private final double _maxHeapUsage;
+    private final int _maxSampleSets;
+    private final int _maxSampleRecords;
+    private File _storageDirectory;
+
+    public OffHeapStorageProvider(File parentDirectory) {
+        this(parentDirectory, DEFAULT_IN_MEMORY_THRESHOLD, DEFAULT_MAX_HEAP_USAGE,
+                InMemoryStorageProvider.DEFAULT_MAX_SAMPLE_SETS, InMemoryStorageProvider.DEFAULT_MAX_SAMPLE_RECORDS);
+    }
+
+    /**
+     *
+     * @param parentDirectory
+     *            the directory in which to create files
+     * @param inMemoryThreshold
+     *            the number of elements that a collection may hold before
+     *            being spilled
+     * @param maxHeapUsage
+     *            the fraction (between 0 and 1) of the maximum heap size that
+     *            may be used before collections are spilled, regardless of
+     *            their size
+     * @param maxSampleSets
+     *            the maximum number of annotated row samples to keep
+     * @param maxSampleRecords
+     *            the maximum number of records in each annotated row sample
+     */
+    public OffHeapStorageProvider(File parentDirectory, int inMemoryThreshold, double maxHeapUsage,
+            int maxSampleSets, int maxSampleRecords) {
+        if (parentDirectory == null) {
+            throw new IllegalArgumentException("Parent directory cannot be null");
+        }
+        if (!parentDirectory.exists()) {
+            if (!parentDirectory.mkdirs()) {
+                throw new IllegalArgumentException("Could not create directory: " + parentDirectory);
+            }
+        }
+        _parentDirectory = parentDirectory;
+        _inMemoryThreshold = Math.max(0, inMemoryThreshold);
+        _maxHeapUsage = maxHeapUsage;
+        _maxSampleSets = Math.max(0, maxSampleSets);
+        _maxSampleRecords = Math.max(0, maxSampleRecords);
+    }
+
+    public File getParentDirectory() {
+        return _parentDirectory;
+    }
+
+    public int getInMemoryThreshold() {
+        return _inMemoryThreshold;
+    }
+
+    public double getMaxHeapUsage() {
+        return _maxHeapUsage;
+    }
+
+    /**
+     * Gets the directory in which the files of this storage provider are
+     * created. The directory is created on first use.
+     *
+     * @return
+     */
+    public synchronized File getStorageDirectory() {
+        if (_storageDirectory == null) {
+            while (_storageDirectory == null) {
+                final File candidateDir = new File(_parentDirectory, DIRECTORY_PREFIX + UUID.randomUUID().toString());
+                if (!candidateDir.exists() && candidateDir.mkdir()) {
+                    _storageDirectory = candidateDir;
+                } else if (!_parentDirectory.isDirectory()) {
+                    throw new IllegalStateException("Not a directory: " + _parentDirectory);
+                }
+            }
+            _storageDirectory.deleteOnExit();
+            logger.info("Using directory for off-heap collections: {}", _storageDirectory.getAbsolutePath());
+        }
+        return _storageDirectory;
+    }
+
+    /**
+     * Determines if a collection of a particular size should be spilled to
+     * off-heap storage. The heap usage is only checked periodically, since it
+     * is a relatively expensive check.
+     *
+     * @param size
+     *            the current size of the collection
+     * @return
+     */
+    boolean isSpillRequired(int size) {
+        if (size > _inMemoryThreshold) {
+            return true;
+        }
+        if ((size & 0x3FF) == 0 && size > 0) {
+            final Runtime runtime = Runtime.getRuntime();
+            final long usedMemory = runtime.totalMemory() - runtime.freeMemory();
+            return usedMemory > runtime.maxMemory() * _maxHeapUsage;
+        }
+        return false;
+    }
+
+    @Override
+    public <E> List<E> createList(Class<E> valueType) throws IllegalStateException {
+        return new SpillingList<E>(this, OffHeapSerializer.forType(valueType));
+    }
+
+    @Override
+    public <E> Set<E> createSet(Class<E> valueType) throws IllegalStateException {
+        final Map<E, Boolean> map = createMap(valueType, Boolean.class);
+        return Collections.newSetFromMap(map);
+    }
+
+    @Override
+    public <K, V> Map<K, V> createMap(Class<K> keyType, Class<V> valueType) throws IllegalStateException {
+        return new SpillingMap<K, V>(this, OffHeapSerializer.forType(keyType), OffHeapSerializer.forType(valueType));
+    }
+
+    @Override
+    public RowAnnotationFactory createRowAnnotationFactory() {
+        return new OffHeapRowAnnotationFactory(getStorageDirectory(), _maxSampleSets, _maxSampleRecords);
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link List} implementation which keeps it's elements in an
+ * {@link ArrayList} until the {@link OffHeapStorageProvider} decides that it
+ * should spill, after which all elements are moved to {@link MappedFile}s: One
+ * holding the serialized elements and one holding the position of each
+ * element.
+ *
+ * Like the collections of {@link InMemoryStorageProvider}, this list is not
+ * thread-safe.
+ */
+final class SpillingList<E> extends AbstractList<E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillingList.class);
+
+    private static final int RECORD_CHUNK_SIZE = 1 << 26;
+    private static final int INDEX_CHUNK_SIZE = 1 << 22;
+
+    private final OffHeapStorageProvider _storageProvider;
+    private final OffHeapSerializer<E> _serializer;
+    private List<E> _heapList;
+    private MappedFile _records;
+    private MappedFile _index;
+    private int _size;
+    private long _recordsEnd;
+
+    public SpillingList(OffHeapStorageProvider storageProvider, OffHeapSerializer<E> serializer) {
+        _storageProvider = storageProvider;
+        _serializer = serializer;
+        _heapList = new ArrayList<E>();
+    }
+
+    public boolean isSpilled() {
+        return _heapList == null;
+    }
+
+    private void spill() {
+        logger.info("Spilling list with {} elements to off-heap storage", _heapList.size());
+        _records = new MappedFile(_storageProvider.getStorageDirectory(), "list_records_", RECORD_CHUNK_SIZE);
+        _index = new MappedFile(_storageProvider.getStorageDirectory(), "list_index_", INDEX_CHUNK_SIZE);
+        _size = 0;
+        _recordsEnd = 0;
+        final List<E> heapList = _heapList;
+        _heapList = null;
+        for (E element : heapList) {
+            add(element);
+        }
+    }
+
+    @Override
+    public int size() {
+        if (_heapList != null) {
+            return _heapList.size();
+        }
+        return _size;
+    }
+
+    @Override
+    public E get(int index) {
+        if (_heapList != null) {
+            return _heapList.get(index);
+        }
+        checkIndex(index);
+        return readElement(_index.getLong(index * 8L));
+    }
+
+    @Override
+    public E set(int index, E element) {
+        if (_heapList != null) {
+            return _heapList.set(index, element);
+        }
+        checkIndex(index);
+        final E previous = readElement(_index.getLong(index * 8L));
+        _index.putLong(index * 8L, appendElement(element));
+        return previous;
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (_heapList != null) {
+            _heapList.add(index, element);
+            if (_storageProvider.isSpillRequired(_heapList.size())) {
+                spill();
+            }
+            return;
+        }
+        if (index < 0 || index > _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+        _index.ensureCapacity((_size + 1) * 8L);
+        for (int i = _size; i > index; i--) {
+            _index.putLong(i * 8L, _index.getLong((i - 1) * 8L));
+        }
+        _index.putLong(index * 8L, appendElement(element));
+        _size++;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        if (_heapList != null) {
+            return _heapList.remove(index);
+        }
+        checkIndex(index);
+        final E previous = readElement(_index.getLong(index * 8L));
+        for (int i = index; i < _size - 1; i++) {
+            _index.putLong(i * 8L, _index.getLong((i + 1) * 8L));
+        }
+        _size--;
+        modCount++;
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        if (_heapList != null) {
+            _heapList.clear();
+            return;
+        }
+        _records.close();
+        _index.close();
+        _records = null;
+        _index = null;
+        _heapList = new ArrayList<E>();
+        modCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= _size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + _size);
+        }
+    }
+
+    private long appendElement(E element) {
+        final byte[] bytes = _serializer.toBytes(element);
+        final long position = _recordsEnd;
+        final long end = position + 4 + bytes.length;
+        _records.ensureCapacity(end);
+        _records.putInt(position, bytes.length);
+        _records.putBytes(position + 4, bytes, 0, bytes.length);
+        _recordsEnd = end;
+        return position;
+    }
+
+    private E readElement(long position) {
+        final int length = _records.getInt(position);
+        final byte[] bytes = new byte[length];
+        _records.getBytes(position + 4, bytes, 0, length);
+        return _serializer.fromBytes(bytes);
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        if (_records != null) {
+            _records.close();
+            _index.close();
+        }
+    }
+}
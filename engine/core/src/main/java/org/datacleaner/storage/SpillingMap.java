@@ -0,0 +1,187 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Map} implementation which keeps it's entries in a {@link HashMap}
+ * until the {@link OffHeapStorageProvider} decides that it should spill, after
+ * which all entries are moved to an {@link OffHeapHashStore}.
+ *
+ * Once spilled, keys are compared by their binary representation, and
+ * iterators do not support removal.
+ *
+ * Like the collections of {@link InMemoryStorageProvider}, this map is not
+ * thread-safe.
+ */
+final class SpillingMap<K, V> extends AbstractMap<K, V> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillingMap.class);
+
+    private final OffHeapStorageProvider _storageProvider;
+    private final OffHeapSerializer<K> _keySerializer;
+    private final OffHeapSerializer<V> _valueSerializer;
+    private Map<K, V> _heapMap;
+    private OffHeapHashStore _store;
+
+    public SpillingMap(OffHeapStorageProvider storageProvider, OffHeapSerializer<K> keySerializer,
+            OffHeapSerializer<V> valueSerializer) {
+        _storageProvider = storageProvider;
+        _keySerializer = keySerializer;
+        _valueSerializer = valueSerializer;
+        _heapMap = new HashMap<K, V>();
+    }
+
+    public boolean isSpilled() {
+        return _store != null;
+    }
+
+    private void spill() {
+        logger.info("Spilling map with {} entries to off-heap storage", _heapMap.size());
+        final OffHeapHashStore store = new OffHeapHashStore(_storageProvider.getStorageDirectory());
+        for (Entry<K, V> entry : _heapMap.entrySet()) {
+            store.put(_keySerializer.toBytes(entry.getKey()), _valueSerializer.toBytes(entry.getValue()));
+        }
+        _store = store;
+        _heapMap = null;
+    }
+
+    @Override
+    public int size() {
+        if (_store == null) {
+            return _heapMap.size();
+        }
+        return (int) Math.min(Integer.MAX_VALUE, _store.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public boolean containsKey(Object key) {
+        if (_store == null) {
+            return _heapMap.containsKey(key);
+        }
+        return _store.containsKey(_keySerializer.toBytes((K) key));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V get(Object key) {
+        if (_store == null) {
+            return _heapMap.get(key);
+        }
+        final byte[] bytes = _store.get(_keySerializer.toBytes((K) key));
+        if (bytes == null) {
+            return null;
+        }
+        return _valueSerializer.fromBytes(bytes);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (_store == null) {
+            final V previous = _heapMap.put(key, value);
+            if (_storageProvider.isSpillRequired(_heapMap.size())) {
+                spill();
+            }
+            return previous;
+        }
+        final byte[] previous = _store.put(_keySerializer.toBytes(key), _valueSerializer.toBytes(value));
+        if (previous == null) {
+            return null;
+        }
+        return _valueSerializer.fromBytes(previous);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public V remove(Object key) {
+        if (_store == null) {
+            return _heapMap.remove(key);
+        }
+        final byte[] previous = _store.remove(_keySerializer.toBytes((K) key));
+        if (previous == null) {
+            return null;
+        }
+        return _valueSerializer.fromBytes(previous);
+    }
+
+    @Override
+    public void clear() {
+        if (_store != null) {
+            _store.close();
+            _store = null;
+        }
+        _heapMap = new HashMap<K, V>();
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (_store == null) {
+            return _heapMap.entrySet();
+        }
+        return new AbstractSet<Entry<K, V>>() {
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                final OffHeapHashStore.Cursor cursor = _store.cursor();
+                return new Iterator<Entry<K, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return cursor.hasNext();
+                    }
+
+                    @Override
+                    public Entry<K, V> next() {
+                        cursor.next();
+                        final K key = _keySerializer.fromBytes(cursor.getKey());
+                        final V value = _valueSerializer.fromBytes(cursor.getValue());
+                        return new SimpleImmutableEntry<K, V>(key, value);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("Off-heap map iterators do not support removal");
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return SpillingMap.this.size();
+            }
+        };
+    }
+
+    @Override
+    protected void finalize() throws Throwable {
+        super.finalize();
+        if (_store != null) {
+            _store.close();
+        }
+    }
+}
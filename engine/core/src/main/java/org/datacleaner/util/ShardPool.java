@@ -0,0 +1,123 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of shards of mutable state, eg. counters or non-thread-safe
+ * component instances, which are borrowed by a task for the duration of a
+ * single call and released again afterwards.
+ * 
+ * The number of shards is bounded by the number of calls that run at the same
+ * time, not by the number of threads that have ever made a call. This makes
+ * the pool safe to use with task runners that start a new thread for every
+ * task, such as virtual threads, where state that is keyed by {@link Thread}
+ * would grow with every task.
+ * 
+ * A shard is only used by the task that borrowed it, so it can be updated
+ * without any locking. Releasing a shard publishes the updates, so they are
+ * visible to the task that borrows it next and to {@link #drain()}.
+ * 
+ * @param <S>
+ *            the type of shard
+ */
+public abstract class ShardPool<S> {
+
+    private final Queue<S> _idleShards;
+    private final AtomicInteger _shardCount;
+
+    public ShardPool() {
+        _idleShards = new ConcurrentLinkedQueue<S>();
+        _shardCount = new AtomicInteger();
+    }
+
+    /**
+     * Creates a new shard, when all existing shards are borrowed.
+     * 
+     * @return
+     */
+    protected abstract S createShard();
+
+    /**
+     * Borrows a shard from the pool. The shard must be given back using
+     * {@link #release(Object)} when the call has finished, typically in a
+     * finally block.
+     * 
+     * @return
+     */
+    public S borrow() {
+        final S shard = _idleShards.poll();
+        if (shard != null) {
+            return shard;
+        }
+        _shardCount.incrementAndGet();
+        return createShard();
+    }
+
+    /**
+     * Releases a shard that was previously borrowed from this pool.
+     * 
+     * @param shard
+     */
+    public void release(S shard) {
+        _idleShards.offer(shard);
+    }
+
+    /**
+     * Removes all shards from the pool, eg. in order to combine them into a
+     * result. Must only be called while no shards are borrowed.
+     * 
+     * @return the shards that were in the pool
+     * 
+     * @throws IllegalStateException
+     *             if a shard is still borrowed
+     */
+    public List<S> drain() throws IllegalStateException {
+        final List<S> shards = new ArrayList<S>();
+        S shard = _idleShards.poll();
+        while (shard != null) {
+            shards.add(shard);
+            shard = _idleShards.poll();
+        }
+        final int borrowed = _shardCount.addAndGet(-shards.size());
+        if (borrowed != 0) {
+            // put the shards back, the pool is still in use
+            _shardCount.addAndGet(shards.size());
+            _idleShards.addAll(shards);
+            throw new IllegalStateException("Cannot drain pool while " + borrowed + " shard(s) are borrowed");
+        }
+        return shards;
+    }
+
+    /**
+     * Gets the number of shards that this pool has created and not yet
+     * drained.
+     * 
+     * @return
+     */
+    public int getShardCount() {
+        return _shardCount.get();
+    }
+}
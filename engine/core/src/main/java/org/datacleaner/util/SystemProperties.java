@@ -123,6 +123,17 @@ public class SystemProperties {
      */
     public static final String MONITOR_LOG_ROWCOUNT = "datacleaner.userlog.rowcount";
 
+    /**
+     * Determines if the monitor saves job results in the sectioned format of
+     * {@link org.datacleaner.result.save.SectionedAnalysisResultWriter}, which
+     * allows reading the result of a single component, instead of as a
+     * single java serialized object. Results in the sectioned format cannot
+     * be read by DataCleaner versions that predate it, so only enable this
+     * when no such versions read the results. Set to "true" to enable.
+     * Existing results keep their format when they are updated.
+     */
+    public static final String RESULT_SECTIONED_FORMAT = "datacleaner.result.sectioned";
+
     /**
      * Determines if the select clause of queries in DataCleaner should be
      * optimized. If set to "true", DataCleaner may disregard columns set in a
@@ -130,6 +141,105 @@ public class SystemProperties {
      */
     public static final String QUERY_SELECTCLAUSE_OPTIMIZE = "datacleaner.query.selectclause.optimize";
 
+    /**
+     * Determines if source queries may be grouped by all their columns when a
+     * job only consists of analyzers that consume physical columns and do not
+     * annotate rows. The analyzers then receive each distinct combination of
+     * values once, with the number of records as the distinct count. Only
+     * enable this if all analyzers of the job respect the distinct count. Set
+     * to "true" to enable.
+     */
+    public static final String QUERY_GROUPBY_OPTIMIZE = "datacleaner.query.groupby.optimize";
+
+    /**
+     * Determines the number of source records that are dispatched together in
+     * a single task when processing rows. The default value of 1 means that
+     * every record is dispatched as a separate task. Higher values reduce the
+     * overhead of task creation and queueing for large tables.
+     */
+    public static final String ROW_PROCESSING_BATCH_SIZE = "datacleaner.rowprocessing.batchsize";
+
+    /**
+     * Determines if source records should be represented as
+     * {@link org.datacleaner.data.ColumnarInputRow}s, which hold the values of all transformed
+     * columns in pre-sized arrays instead of a chain of row objects. Set to
+     * "true" to enable.
+     */
+    public static final String ROW_PROCESSING_COLUMNAR = "datacleaner.rowprocessing.columnar";
+
+    /**
+     * Determines if analyzers which are not concurrent, but which have an
+     * {@link org.datacleaner.api.AnalyzerResultReducer}, should be run with a
+     * pool of instances instead of synchronizing on a single instance. The
+     * results of the instances are reduced when the job finishes. Set to
+     * "true" to enable.
+     * 
+     * Non-concurrent transformers and filters are always synchronized on a
+     * single instance. Unlike analyzer results, their state cannot be merged,
+     * and a component that keeps state between rows (eg. a script transformer
+     * that numbers its records) would produce different values if its rows
+     * were spread over several instances.
+     */
+    public static final String ROW_PROCESSING_THREAD_INSTANCES = "datacleaner.rowprocessing.threadinstances";
+
+    /**
+     * Determines the directory in which compiled indexes of text file based
+     * dictionaries and synonym catalogs are kept. The indexes are memory-mapped
+     * and shared by all jobs of the JVM, and are only rebuilt when the source
+     * file changes. Defaults to ".datacleaner/reference_index" in the home
+     * directory of the user. Since existing indexes are trusted, the directory
+     * should not be writable by other users. Set to "false" to disable the
+     * indexes and load the reference data into memory instead.
+     */
+    public static final String REFERENCE_DATA_INDEX_DIRECTORY = "datacleaner.referencedata.index.dir";
+
+    /**
+     * Determines the maximum number of records that a datastore based
+     * dictionary or synonym catalog (which is not loaded into memory) may have
+     * in order to be preloaded when a connection to it is opened. Larger
+     * reference tables are queried on demand. Defaults to 100000.
+     */
+    public static final String REFERENCE_DATA_PRELOAD_THRESHOLD = "datacleaner.referencedata.preload.threshold";
+
+    /**
+     * Determines the number of lookups that a connection to a datastore based
+     * dictionary or synonym catalog caches, when it is not preloaded. Defaults
+     * to 10000.
+     */
+    public static final String REFERENCE_DATA_CACHE_SIZE = "datacleaner.referencedata.cache.size";
+
+    /**
+     * Determines the maximum number of values that are looked up in a single
+     * query to a datastore based dictionary or synonym catalog, when it is not
+     * preloaded. Defaults to 100.
+     */
+    public static final String REFERENCE_DATA_BATCH_SIZE = "datacleaner.referencedata.batch.size";
+
+    /**
+     * Determines the maximum number of rows that a remote transformer sends to
+     * the server in a single request. The actual batch size is adapted to the
+     * observed latency and payload size. Defaults to 1000.
+     */
+    public static final String REMOTE_COMPONENTS_MAX_BATCH_SIZE = "datacleaner.remote.components.batch.max.size";
+
+    /**
+     * Determines the number of requests that a remote transformer may have in
+     * flight at the same time. Defaults to 4.
+     */
+    public static final String REMOTE_COMPONENTS_MAX_REQUESTS_IN_FLIGHT = "datacleaner.remote.components.requests.max";
+
+    /**
+     * Determines the time (in milliseconds) that a single remote transformer
+     * request should take, which batches are sized to meet. Defaults to 1000.
+     */
+    public static final String REMOTE_COMPONENTS_TARGET_LATENCY = "datacleaner.remote.components.latency.target";
+
+    /**
+     * Determines the maximum size (in characters of JSON) of a single remote
+     * transformer request. Defaults to 4194304 (4 MB).
+     */
+    public static final String REMOTE_COMPONENTS_MAX_PAYLOAD = "datacleaner.remote.components.payload.max";
+
     /**
      * Gets a system property string, or a replacement value if the property is
      * null or blank.
@@ -0,0 +1,141 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.batch;
+
+/**
+ * Determines the size of batches from the observed latency and payload size of
+ * previous batches.
+ * 
+ * The sizer keeps moving averages of the time and the payload per row, and
+ * aims for batches that take the target latency to process (the fixed
+ * overhead of a batch is part of the time per row of small batches, so batches
+ * grow until the overhead is amortized) without exceeding the max payload
+ * size. The batch size grows at most by a factor of two per observation, but
+ * shrinks immediately.
+ * 
+ * This class is thread-safe.
+ */
+public final class AdaptiveBatchSizer {
+
+    private static final double SMOOTHING_FACTOR = 0.3;
+
+    private final int _minBatchSize;
+    private final int _maxBatchSize;
+    private final long _targetLatencyMillis;
+    private final long _maxPayloadBytes;
+
+    private int _batchSize;
+    private double _millisPerRow;
+    private double _bytesPerRow;
+
+    /**
+     * 
+     * @param minBatchSize
+     *            the minimum (and initial) batch size
+     * @param maxBatchSize
+     *            the maximum batch size
+     * @param targetLatencyMillis
+     *            the desired processing time of a batch
+     * @param maxPayloadBytes
+     *            the maximum payload size of a batch, or 0 if payload size
+     *            should not limit the batch size
+     */
+    public AdaptiveBatchSizer(int minBatchSize, int maxBatchSize, long targetLatencyMillis, long maxPayloadBytes) {
+        if (minBatchSize < 1) {
+            throw new IllegalArgumentException("Min batch size must be positive");
+        }
+        if (maxBatchSize < minBatchSize) {
+            throw new IllegalArgumentException("Max batch size cannot be less than min batch size");
+        }
+        _minBatchSize = minBatchSize;
+        _maxBatchSize = maxBatchSize;
+        _targetLatencyMillis = Math.max(1, targetLatencyMillis);
+        _maxPayloadBytes = Math.max(0, maxPayloadBytes);
+        _batchSize = minBatchSize;
+        _millisPerRow = -1;
+        _bytesPerRow = -1;
+    }
+
+    public int getMinBatchSize() {
+        return _minBatchSize;
+    }
+
+    public int getMaxBatchSize() {
+        return _maxBatchSize;
+    }
+
+    public synchronized int getBatchSize() {
+        return _batchSize;
+    }
+
+    /**
+     * Records the time it took to process a batch.
+     * 
+     * @param batchSize
+     * @param latencyMillis
+     */
+    public synchronized void recordLatency(int batchSize, long latencyMillis) {
+        if (batchSize <= 0) {
+            return;
+        }
+        _millisPerRow = smooth(_millisPerRow, Math.max(latencyMillis, 0) / (double) batchSize);
+        resize();
+    }
+
+    /**
+     * Records the payload size of a batch, eg. the number of bytes sent to a
+     * remote server.
+     * 
+     * @param batchSize
+     * @param payloadBytes
+     */
+    public synchronized void recordPayload(int batchSize, long payloadBytes) {
+        if (batchSize <= 0) {
+            return;
+        }
+        _bytesPerRow = smooth(_bytesPerRow, Math.max(payloadBytes, 0) / (double) batchSize);
+        resize();
+    }
+
+    private static double smooth(double average, double value) {
+        if (average < 0) {
+            return value;
+        }
+        return average + SMOOTHING_FACTOR * (value - average);
+    }
+
+    private void resize() {
+        double limit = _maxBatchSize;
+        if (_millisPerRow > 0) {
+            limit = Math.min(limit, _targetLatencyMillis / _millisPerRow);
+        }
+        if (_maxPayloadBytes > 0 && _bytesPerRow > 0) {
+            limit = Math.min(limit, _maxPayloadBytes / _bytesPerRow);
+        }
+        limit = Math.min(limit, _batchSize * 2.0);
+        _batchSize = (int) Math.max(_minBatchSize, Math.min(_maxBatchSize, limit));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "AdaptiveBatchSizer[batchSize=" + _batchSize + ",millisPerRow=" + _millisPerRow + ",bytesPerRow="
+                + _bytesPerRow + "]";
+    }
+}
@@ -46,6 +46,10 @@ final class BatchEntry<I, O> {
         _countDownLatch.countDown();
     }
 
+    public boolean isFinished() {
+        return _countDownLatch.getCount() == 0;
+    }
+
     public boolean await(long waitMillis) throws InterruptedException {
         return _countDownLatch.await(waitMillis, TimeUnit.MILLISECONDS);
     }
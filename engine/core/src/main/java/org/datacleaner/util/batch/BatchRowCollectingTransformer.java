@@ -39,11 +39,38 @@ public abstract class BatchRowCollectingTransformer implements Transformer, Batc
     @Inject
     OutputRowCollector outputRowCollector;
 
-    private final BatchTransformationBuffer<InputRow, Collection<Object[]>> _batchTransformationBuffer;
+    private final TransformationBuffer<InputRow, Collection<Object[]>> _batchTransformationBuffer;
+    private final AdaptiveBatchSizer _batchSizer;
 
     public BatchRowCollectingTransformer() {
         _batchTransformationBuffer = new BatchTransformationBuffer<InputRow, Collection<Object[]>>(this, getMaxBatchSize(),
                 getFlushIntervalMillis());
+        _batchSizer = null;
+    }
+
+    /**
+     * Creates a transformer which keeps several batches in flight at the same
+     * time, and sizes them adaptively.
+     *
+     * @param batchSizer
+     * @param maxBatchesInFlight
+     *
+     * @see PipelinedBatchTransformationBuffer
+     */
+    protected BatchRowCollectingTransformer(AdaptiveBatchSizer batchSizer, int maxBatchesInFlight) {
+        _batchTransformationBuffer = new PipelinedBatchTransformationBuffer<InputRow, Collection<Object[]>>(this,
+                batchSizer, maxBatchesInFlight, PipelinedBatchTransformationBuffer.DEFAULT_FLUSH_INTERVAL);
+        _batchSizer = batchSizer;
+    }
+
+    /**
+     * Gets the batch sizer of a pipelined transformer, eg. in order to record
+     * the payload size of batches.
+     *
+     * @return the batch sizer, or null if batches are not sized adaptively
+     */
+    protected AdaptiveBatchSizer getBatchSizer() {
+        return _batchSizer;
     }
 
     /**
@@ -43,7 +43,7 @@ import org.slf4j.LoggerFactory;
  * @param <O>
  *            the output type
  */
-public class BatchTransformationBuffer<I, O> {
+public class BatchTransformationBuffer<I, O> implements TransformationBuffer<I, O> {
 
     private static final Logger logger = LoggerFactory.getLogger(BatchTransformationBuffer.class);
 
@@ -77,6 +77,7 @@ public class BatchTransformationBuffer<I, O> {
         _threadPool = Executors.newScheduledThreadPool(1);
     }
 
+    @Override
     public void start() {
         logger.info("start()");
         _threadPool.scheduleAtFixedRate(createFlushCommand(), _flushInterval, _flushInterval, TimeUnit.MILLISECONDS);
@@ -147,11 +148,13 @@ public class BatchTransformationBuffer<I, O> {
         logger.info("Batch #{} - Finished", batchNumber, batchSize);
     }
 
+    @Override
     public void shutdown() {
         logger.info("shutdown()");
         _threadPool.shutdown();
     }
 
+    @Override
     public O transform(I input) {
         final BatchEntry<I, O> entry = new BatchEntry<I, O>(input);
 
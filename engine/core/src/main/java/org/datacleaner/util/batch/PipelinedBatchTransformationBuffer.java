@@ -0,0 +1,254 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
+import org.datacleaner.job.concurrent.PreviousErrorsExistException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A batch transformation buffer which, unlike
+ * {@link BatchTransformationBuffer}, keeps several batches in flight at the
+ * same time and sizes the batches using an {@link AdaptiveBatchSizer}.
+ * 
+ * A batch is dispatched when enough entries have been queued to fill it, when
+ * no other batch is in flight (so a lightly loaded buffer does not wait for
+ * the flush interval), or when the flush interval elapses. Batches are
+ * processed by a pool of threads of the same size as the max number of batches
+ * in flight, so the transforming threads only wait for their own entry.
+ * 
+ * @param <I>
+ *            the input type
+ * @param <O>
+ *            the output type
+ */
+public class PipelinedBatchTransformationBuffer<I, O> implements TransformationBuffer<I, O> {
+
+    private static final Logger logger = LoggerFactory.getLogger(PipelinedBatchTransformationBuffer.class);
+
+    // default 100 ms interval of flushing partial batches
+    public static final int DEFAULT_FLUSH_INTERVAL = 100;
+
+    // default max 4 batches processed at the same time
+    public static final int DEFAULT_MAX_BATCHES_IN_FLIGHT = 4;
+
+    private static final long[] AWAIT_TIMES = { 20, 50, 100, 100, 200 };
+
+    private final BatchTransformation<I, O> _transformation;
+    private final AdaptiveBatchSizer _batchSizer;
+    private final int _maxBatchesInFlight;
+    private final int _flushInterval;
+    private final BlockingQueue<BatchEntry<I, O>> _queue;
+    private final Semaphore _batchPermits;
+    private final AtomicInteger _batchNo;
+    private final ScheduledExecutorService _flushScheduler;
+    private final ExecutorService _batchExecutor;
+
+    private volatile Throwable _exception;
+    private volatile boolean _shutdown;
+
+    public PipelinedBatchTransformationBuffer(BatchTransformation<I, O> transformation, AdaptiveBatchSizer batchSizer) {
+        this(transformation, batchSizer, DEFAULT_MAX_BATCHES_IN_FLIGHT, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    public PipelinedBatchTransformationBuffer(BatchTransformation<I, O> transformation, AdaptiveBatchSizer batchSizer,
+            int maxBatchesInFlight, int flushIntervalMillis) {
+        if (maxBatchesInFlight < 1) {
+            throw new IllegalArgumentException("Max batches in flight must be positive");
+        }
+        _transformation = transformation;
+        _batchSizer = batchSizer;
+        _maxBatchesInFlight = maxBatchesInFlight;
+        _flushInterval = flushIntervalMillis;
+        _queue = new LinkedBlockingQueue<BatchEntry<I, O>>(batchSizer.getMaxBatchSize() * (maxBatchesInFlight + 1));
+        _batchPermits = new Semaphore(maxBatchesInFlight);
+        _batchNo = new AtomicInteger();
+        _flushScheduler = Executors.newScheduledThreadPool(1, new DaemonThreadFactory());
+        _batchExecutor = Executors.newFixedThreadPool(maxBatchesInFlight, new DaemonThreadFactory());
+    }
+
+    @Override
+    public void start() {
+        logger.info("start()");
+        _flushScheduler.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                dispatch(true);
+            }
+        }, _flushInterval, _flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown()");
+        _shutdown = true;
+        _flushScheduler.shutdown();
+        _batchExecutor.shutdown();
+    }
+
+    public int getBatchCount() {
+        return _batchNo.get();
+    }
+
+    public AdaptiveBatchSizer getBatchSizer() {
+        return _batchSizer;
+    }
+
+    public int getMaxBatchesInFlight() {
+        return _maxBatchesInFlight;
+    }
+
+    /**
+     * Dispatches the queued entries, even if they do not fill a batch.
+     */
+    public void flushBuffer() {
+        dispatch(true);
+    }
+
+    private void dispatch(boolean flush) {
+        while (!_shutdown && _exception == null) {
+            final int queued = _queue.size();
+            if (queued == 0) {
+                return;
+            }
+            final int batchSize = _batchSizer.getBatchSize();
+            if (queued < batchSize && !flush && _batchPermits.availablePermits() < _maxBatchesInFlight) {
+                // wait for more entries, or for a batch to complete
+                return;
+            }
+            if (!_batchPermits.tryAcquire()) {
+                return;
+            }
+
+            final List<BatchEntry<?, O>> entries = new ArrayList<BatchEntry<?, O>>(Math.min(queued, batchSize));
+            _queue.drainTo(entries, batchSize);
+            if (entries.isEmpty()) {
+                // another thread drained the queue in the meantime
+                _batchPermits.release();
+                return;
+            }
+
+            final int batchNumber = _batchNo.incrementAndGet();
+            try {
+                _batchExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        runBatch(batchNumber, entries);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // shut down while dispatching, the waiting threads will notice
+                _batchPermits.release();
+                return;
+            }
+            flush = false;
+        }
+    }
+
+    private void runBatch(int batchNumber, List<BatchEntry<?, O>> entries) {
+        final int batchSize = entries.size();
+        try {
+            logger.debug("Batch #{} - Preparing {} entries", batchNumber, batchSize);
+
+            final Object[] input = new Object[batchSize];
+            for (int i = 0; i < batchSize; i++) {
+                input[i] = entries.get(i).getInput();
+            }
+
+            final BatchSource<I> source = new ArrayBatchSource<I>(input);
+            final BatchEntryBatchSink<O> sink = new BatchEntryBatchSink<O>(entries);
+
+            final long startTime = System.currentTimeMillis();
+            _transformation.map(source, sink);
+            _batchSizer.recordLatency(batchSize, System.currentTimeMillis() - startTime);
+
+            for (int i = 0; i < batchSize; i++) {
+                if (!entries.get(i).isFinished()) {
+                    throw new IllegalStateException("Batch #" + batchNumber + " - No output for entry no. " + i
+                            + " of " + batchSize);
+                }
+            }
+
+            logger.debug("Batch #{} - Finished, {}", batchNumber, _batchSizer);
+        } catch (Throwable t) {
+            logger.warn("Batch #" + batchNumber + " failed", t);
+            if (_exception == null) {
+                _exception = t;
+            }
+        } finally {
+            _batchPermits.release();
+        }
+        dispatch(false);
+    }
+
+    @Override
+    public O transform(I input) {
+        final BatchEntry<I, O> entry = new BatchEntry<I, O>(input);
+
+        try {
+            while (!_queue.offer(entry, AWAIT_TIMES[0], TimeUnit.MILLISECONDS)) {
+                checkState();
+                dispatch(false);
+            }
+            dispatch(false);
+
+            int attemptIndex = 0;
+            while (true) {
+                final long waitTime = (attemptIndex < AWAIT_TIMES.length ? AWAIT_TIMES[attemptIndex]
+                        : AWAIT_TIMES[AWAIT_TIMES.length - 1]);
+                if (entry.await(waitTime)) {
+                    return entry.getOuput();
+                }
+                checkState();
+                dispatch(false);
+                attemptIndex++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void checkState() {
+        final Throwable exception = _exception;
+        if (exception != null) {
+            if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            }
+            throw new RuntimeException(exception);
+        }
+        if (_shutdown) {
+            throw new PreviousErrorsExistException("Transformer closed");
+        }
+    }
+}
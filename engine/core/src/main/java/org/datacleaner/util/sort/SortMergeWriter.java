@@ -20,27 +20,28 @@
 package org.datacleaner.util.sort;
 
 import java.io.Closeable;
-import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.TreeMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
-import org.datacleaner.util.ImmutableEntry;
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.FileResource;
 import org.apache.metamodel.util.Resource;
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,6 +49,15 @@ import org.slf4j.LoggerFactory;
  * Sorter, deduplicator and writer that uses temporary files as storage to
  * support high volume sorted data.
  * 
+ * Appended rows are buffered in memory. When the buffer is full, it is sorted
+ * and equal rows are merged. If at least half of the buffered rows are
+ * distinct, they are written to a temporary file (a "run") on a worker thread,
+ * while appending continues. Otherwise appending continues with the merged
+ * rows, so that data with many duplicates is not spilled to disk
+ * unnecessarily. When writing, the runs are merged using a heap,
+ * in several passes if there are more runs than the number of files that may
+ * be open at a time.
+ * 
  * @param <R>
  *            the row type, HAS to be serializable
  * @param <W>
@@ -58,37 +68,88 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
 
     private static final Logger logger = LoggerFactory.getLogger(SortMergeWriter.class);
 
+    public static final int DEFAULT_BUFFER_SIZE = 50000;
+    public static final int DEFAULT_MAX_OPEN_FILES = 64;
+
     /**
      * Size of the "records in memory" buffer
      */
     private final int _bufferSize;
 
+    /**
+     * Maximum number of runs to merge at a time
+     */
+    private final int _maxOpenFiles;
+
     /**
      * Comparator for row sorting
      */
     private final Comparator<? super R> _comparator;
 
     /**
-     * List of temporary files containing values
+     * List of temporary files containing sorted runs, in the order that they
+     * where created in. Entries are null while the run is being written.
      */
     private final List<File> _tempFiles;
 
     /**
-     * Buffer containing sorted rows in memory
+     * Buffer containing unsorted rows in memory
      */
-    private final Map<R, Integer> _buffer;
-    private AtomicInteger _nullCount;
+    private List<SortEntry<R>> _buffer;
+    private final AtomicInteger _nullCount;
+
+    private final List<Future<?>> _runFutures;
+    private final Semaphore _runPermits;
+    private ExecutorService _executorService;
 
     public SortMergeWriter(Comparator<? super R> comparator) {
-        this(50000, comparator);
+        this(DEFAULT_BUFFER_SIZE, comparator);
     }
 
     public SortMergeWriter(int bufferSize, Comparator<? super R> comparator) {
+        this(bufferSize, DEFAULT_MAX_OPEN_FILES, comparator);
+    }
+
+    /**
+     * 
+     * @param bufferSize
+     *            the number of rows to buffer in memory before writing them to
+     *            a temporary file
+     * @param maxOpenFiles
+     *            the maximum number of temporary files to merge at a time
+     * @param comparator
+     *            the comparator to sort (and deduplicate) rows by
+     */
+    public SortMergeWriter(int bufferSize, int maxOpenFiles, Comparator<? super R> comparator) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Buffer size must be at least 1");
+        }
+        if (maxOpenFiles < 2) {
+            throw new IllegalArgumentException("Max open files must be at least 2");
+        }
         _bufferSize = bufferSize;
-        _tempFiles = new ArrayList<File>();
-        _buffer = new TreeMap<R, Integer>(comparator);
+        _maxOpenFiles = maxOpenFiles;
         _comparator = comparator;
+        _tempFiles = new ArrayList<File>();
+        _buffer = createBuffer();
         _nullCount = new AtomicInteger();
+        _runFutures = new ArrayList<Future<?>>();
+        _runPermits = new Semaphore(getParallelism());
+    }
+
+    private List<SortEntry<R>> createBuffer() {
+        return new ArrayList<SortEntry<R>>(Math.min(_bufferSize, 1024));
+    }
+
+    /**
+     * Gets the number of worker threads used to sort and write runs. This is
+     * also the maximum number of full buffers to hold in memory (besides the
+     * one being appended to).
+     * 
+     * @return
+     */
+    protected int getParallelism() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
     }
 
     public void append(R line) {
@@ -99,46 +160,125 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
         if (line == null) {
             // special handling of null
             _nullCount.addAndGet(frequency);
-        } else {
-            synchronized (this) {
-                Integer count = _buffer.get(line);
-                if (count == null) {
-                    if (_buffer.size() == _bufferSize) {
-                        flushBuffer();
-                    }
-                    count = 0;
-                }
-                count += frequency;
-                _buffer.put(line, count);
+            return;
+        }
+
+        final List<SortEntry<R>> fullBuffer;
+        final int runIndex;
+        synchronized (this) {
+            _buffer.add(new SortEntry<R>(line, frequency));
+            if (_buffer.size() < _bufferSize) {
+                return;
             }
+            final List<SortEntry<R>> deduplicatedBuffer = sortAndDeduplicate(_buffer);
+            if (deduplicatedBuffer.size() <= _bufferSize / 2) {
+                _buffer = deduplicatedBuffer;
+                return;
+            }
+            fullBuffer = deduplicatedBuffer;
+            _buffer = createBuffer();
+            runIndex = _tempFiles.size();
+            _tempFiles.add(null);
         }
+
+        writeRunAsync(fullBuffer, runIndex);
     }
 
-    private void flushBuffer() {
-        logger.debug("flushBuffer()");
-        ObjectOutputStream oos = null;
+    /**
+     * Writes a run of sorted and deduplicated entries on a worker thread.
+     * 
+     * @param entries
+     * @param runIndex
+     */
+    private void writeRunAsync(final List<SortEntry<R>> entries, final int runIndex) {
+        // wait for a worker, so that the amount of buffered rows is bounded
         try {
-            File file = createTempFile();
-            logger.info("Writing {} rows to temporary file: {}", _bufferSize, file);
+            _runPermits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
 
-            oos = new ObjectOutputStream(new FileOutputStream(file));
+        final Future<?> future;
+        try {
+            future = getExecutorService().submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final File file = writeRun(entries);
+                        synchronized (SortMergeWriter.this) {
+                            _tempFiles.set(runIndex, file);
+                        }
+                    } finally {
+                        _runPermits.release();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            _runPermits.release();
+            throw e;
+        }
 
-            final List<Entry<R, Integer>> copyOfEntries;
-            synchronized (this) {
-                final Set<Entry<R, Integer>> entries = _buffer.entrySet();
-                copyOfEntries = new ArrayList<>(entries);
-                _buffer.clear();
-                _tempFiles.add(file);
+        synchronized (_runFutures) {
+            _runFutures.add(future);
+        }
+    }
+
+    private synchronized ExecutorService getExecutorService() {
+        if (_executorService == null) {
+            final int parallelism = getParallelism();
+            final ThreadPoolExecutor executorService = new ThreadPoolExecutor(parallelism, parallelism, 10,
+                    TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new DaemonThreadFactory());
+            executorService.allowCoreThreadTimeOut(true);
+            _executorService = executorService;
+        }
+        return _executorService;
+    }
+
+    /**
+     * Sorts a buffer and merges the counts of equal rows, keeping the first of
+     * the equal rows.
+     * 
+     * @param entries
+     * @return
+     */
+    private List<SortEntry<R>> sortAndDeduplicate(List<SortEntry<R>> entries) {
+        @SuppressWarnings("unchecked")
+        final SortEntry<R>[] array = entries.toArray(new SortEntry[entries.size()]);
+
+        // a stable sort, so that the first of the equal rows is kept
+        Arrays.sort(array, new Comparator<SortEntry<R>>() {
+            @Override
+            public int compare(SortEntry<R> o1, SortEntry<R> o2) {
+                return _comparator.compare(o1.row, o2.row);
+            }
+        });
+
+        final List<SortEntry<R>> result = new ArrayList<SortEntry<R>>(array.length);
+        SortEntry<R> previous = null;
+        for (SortEntry<R> entry : array) {
+            if (previous != null && _comparator.compare(previous.row, entry.row) == 0) {
+                previous.count += entry.count;
+            } else {
+                result.add(entry);
+                previous = entry;
             }
+        }
+        return result;
+    }
 
-            for (Entry<R, Integer> entry : copyOfEntries) {
-                oos.writeObject(entry.getKey());
-                oos.writeInt(entry.getValue());
+    private File writeRun(List<SortEntry<R>> entries) {
+        try {
+            final File file = createTempFile();
+            logger.info("Writing {} rows to temporary file: {}", entries.size(), file);
+            try (SortRunWriter runWriter = new SortRunWriter(file)) {
+                for (SortEntry<R> entry : entries) {
+                    runWriter.write(entry.row, entry.count);
+                }
             }
+            return file;
         } catch (IOException e) {
             throw new IllegalStateException(e);
-        } finally {
-            FileHelper.safeClose(oos);
         }
     }
 
@@ -190,8 +330,29 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
      */
     public int write(Resource resource) {
         W writer = null;
-        ObjectInputStream[] tempFileObjectInputStreams = null;
+        final List<SortRunSource<R>> sources = new ArrayList<SortRunSource<R>>();
         try {
+            awaitRuns();
+
+            final List<SortEntry<R>> bufferedEntries;
+            synchronized (this) {
+                bufferedEntries = sortAndDeduplicate(_buffer);
+                _buffer = createBuffer();
+                _buffer.addAll(bufferedEntries);
+            }
+
+            if (_tempFiles.isEmpty()) {
+                logger.info("No temp files created yet, flushing buffer directly to target: {}", resource);
+            } else {
+                mergeRunsUntil(_maxOpenFiles);
+                for (File tempFile : _tempFiles) {
+                    sources.add(new SortRunReader<R>(tempFile));
+                }
+            }
+            if (!bufferedEntries.isEmpty()) {
+                sources.add(new BufferSource<R>(bufferedEntries));
+            }
+
             writer = createWriter(resource);
             writeHeader(writer);
 
@@ -205,124 +366,253 @@ public abstract class SortMergeWriter<R extends Serializable, W extends Closeabl
                 rowCount++;
             }
 
-            if (_tempFiles.isEmpty()) {
-                logger.info("No temp files created yet, flushing buffer directly to target: {}", resource);
-                Set<Entry<R, Integer>> entries = _buffer.entrySet();
-                for (Entry<R, Integer> entry : entries) {
-                    writeRow(writer, entry.getKey(), entry.getValue());
-                    rowCount++;
+            final W finalWriter = writer;
+            rowCount += merge(sources, new RowHandler<R>() {
+                @Override
+                public void handle(R row, int count) throws IOException {
+                    writeRow(finalWriter, row, count);
                 }
-                _buffer.clear();
+            });
 
-                if (nullCount > 0 && !writeNullsFirst) {
-                    writeNull(writer, nullCount);
-                    rowCount++;
-                }
-
-                return rowCount;
+            if (nullCount > 0 && !writeNullsFirst) {
+                writeNull(writer, nullCount);
+                rowCount++;
             }
 
-            if (!_buffer.isEmpty()) {
-                flushBuffer();
+            return rowCount;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            FileHelper.safeClose(writer);
+            for (SortRunSource<R> source : sources) {
+                FileHelper.safeClose(source);
             }
+            shutdownExecutorService();
+        }
+    }
 
-            tempFileObjectInputStreams = createTempFileObjectInputStreams();
-
-            final List<Entry<R, Integer>> rowCandidates = new ArrayList<Entry<R, Integer>>(_tempFiles.size());
-            for (int i = 0; i < _tempFiles.size(); i++) {
-                rowCandidates.add(null);
+    /**
+     * Waits for all runs that are being written.
+     * 
+     * @throws Exception
+     */
+    private void awaitRuns() throws Exception {
+        final List<Future<?>> futures;
+        synchronized (_runFutures) {
+            futures = new ArrayList<Future<?>>(_runFutures);
+            _runFutures.clear();
+        }
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
             }
+        }
+    }
 
-            while (true) {
-                readNextRows(rowCandidates, tempFileObjectInputStreams);
+    /**
+     * Merges consecutive runs (in parallel) until there are no more than the
+     * given number of runs.
+     * 
+     * @param maxRuns
+     * @throws Exception
+     */
+    private void mergeRunsUntil(int maxRuns) throws Exception {
+        while (_tempFiles.size() > maxRuns) {
+            final List<File> runs = new ArrayList<File>(_tempFiles);
+            final List<Future<File>> futures = new ArrayList<Future<File>>();
+            for (int i = 0; i < runs.size(); i += _maxOpenFiles) {
+                final List<File> group = runs.subList(i, Math.min(i + _maxOpenFiles, runs.size()));
+                futures.add(getExecutorService().submit(new Callable<File>() {
+                    @Override
+                    public File call() throws Exception {
+                        return mergeRuns(group);
+                    }
+                }));
+            }
 
-                Entry<R, Integer> currentRow = null;
+            logger.info("Merging {} temporary files into {}", runs.size(), futures.size());
 
-                // find the next row to write
-                for (Entry<R, Integer> rowCandidate : rowCandidates) {
-                    if (rowCandidate != null) {
-                        if (currentRow == null) {
-                            currentRow = rowCandidate;
-                        } else {
-                            if (_comparator.compare(rowCandidate.getKey(), currentRow.getKey()) < 0) {
-                                currentRow = rowCandidate;
-                            }
-                        }
+            final List<File> mergedRuns = new ArrayList<File>(futures.size());
+            for (Future<File> future : futures) {
+                try {
+                    mergedRuns.add(future.get());
+                } catch (ExecutionException e) {
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
                     }
+                    throw e;
                 }
+            }
 
-                if (currentRow == null) {
-                    // the writing is done!
-                    break;
+            synchronized (this) {
+                _tempFiles.clear();
+                _tempFiles.addAll(mergedRuns);
+            }
+            for (File run : runs) {
+                if (!mergedRuns.contains(run)) {
+                    run.delete();
                 }
+            }
+        }
+    }
+
+    private File mergeRuns(List<File> runs) throws IOException {
+        if (runs.size() == 1) {
+            return runs.get(0);
+        }
+        final List<SortRunSource<R>> sources = new ArrayList<SortRunSource<R>>(runs.size());
+        try {
+            for (File run : runs) {
+                sources.add(new SortRunReader<R>(run));
+            }
+            final File file = createTempFile();
+            try (final SortRunWriter runWriter = new SortRunWriter(file)) {
+                merge(sources, new RowHandler<R>() {
+                    @Override
+                    public void handle(R row, int count) throws IOException {
+                        runWriter.write(row, count);
+                    }
+                });
+            }
+            return file;
+        } finally {
+            for (SortRunSource<R> source : sources) {
+                FileHelper.safeClose(source);
+            }
+        }
+    }
 
-                // set count to 0 (the next loop will increment it)
-                currentRow = new ImmutableEntry<R, Integer>(currentRow.getKey(), 0);
-
-                for (int i = 0; i < rowCandidates.size(); i++) {
-                    Entry<R, Integer> rowCandidate = rowCandidates.get(i);
-                    if (rowCandidate != null) {
-                        if (_comparator.compare(rowCandidate.getKey(), currentRow.getKey()) == 0) {
-                            // sum up a new count
-                            final int newCount = currentRow.getValue().intValue() + rowCandidate.getValue().intValue();
-                            currentRow = new ImmutableEntry<R, Integer>(currentRow.getKey(), newCount);
-                            rowCandidates.set(i, null);
+    /**
+     * Merges sorted runs using a heap. Equal rows of different runs are
+     * combined, keeping the row of the earliest run.
+     * 
+     * @param sources
+     * @param handler
+     * @return the number of (distinct) rows handled
+     * @throws IOException
+     */
+    private int merge(final List<SortRunSource<R>> sources, RowHandler<R> handler) throws IOException {
+        final PriorityQueue<HeapEntry<R>> heap = new PriorityQueue<HeapEntry<R>>(Math.max(1, sources.size()),
+                new Comparator<HeapEntry<R>>() {
+                    @Override
+                    public int compare(HeapEntry<R> o1, HeapEntry<R> o2) {
+                        final int result = _comparator.compare(o1.source.getRow(), o2.source.getRow());
+                        if (result == 0) {
+                            return Integer.compare(o1.index, o2.index);
                         }
+                        return result;
                     }
-                }
+                });
 
-                writeRow(writer, currentRow.getKey(), currentRow.getValue());
-                rowCount++;
+        for (int i = 0; i < sources.size(); i++) {
+            final SortRunSource<R> source = sources.get(i);
+            if (source.next()) {
+                heap.add(new HeapEntry<R>(source, i));
             }
+        }
 
-            if (nullCount > 0 && !writeNullsFirst) {
-                writeNull(writer, nullCount);
-                rowCount++;
+        int rowCount = 0;
+        while (!heap.isEmpty()) {
+            final HeapEntry<R> first = heap.poll();
+            final R row = first.source.getRow();
+            int count = first.source.getCount();
+            if (first.source.next()) {
+                heap.add(first);
             }
 
-            return rowCount;
-        } catch (Exception e) {
-            throw new IllegalStateException(e);
-        } finally {
-            FileHelper.safeClose(writer);
-            if (tempFileObjectInputStreams != null) {
-                for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-                    FileHelper.safeClose(tempFileObjectInputStreams[i]);
+            while (!heap.isEmpty() && _comparator.compare(heap.peek().source.getRow(), row) == 0) {
+                final HeapEntry<R> next = heap.poll();
+                count += next.source.getCount();
+                if (next.source.next()) {
+                    heap.add(next);
                 }
             }
+
+            handler.handle(row, count);
+            rowCount++;
+        }
+        return rowCount;
+    }
+
+    private synchronized void shutdownExecutorService() {
+        if (_executorService != null) {
+            _executorService.shutdown();
+            _executorService = null;
         }
     }
 
-    private void readNextRows(List<Entry<R, Integer>> nextRows, ObjectInputStream[] tempFileObjectInputStreams)
-            throws Exception {
-        for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-            if (tempFileObjectInputStreams[i] != null) {
-                if (nextRows.get(i) == null) {
+    /**
+     * Callback for the rows produced by a merge
+     */
+    private static interface RowHandler<R> {
+        public void handle(R row, int count) throws IOException;
+    }
 
-                    try {
-                        @SuppressWarnings("unchecked")
-                        final R row = (R) tempFileObjectInputStreams[i].readObject();
-                        final int count = tempFileObjectInputStreams[i].readInt();
-
-                        final Entry<R, Integer> entry = new ImmutableEntry<R, Integer>(row, count);
-                        nextRows.set(i, entry);
-                    } catch (EOFException e) {
-                        FileHelper.safeClose(tempFileObjectInputStreams[i]);
-                        tempFileObjectInputStreams[i] = null;
-                    }
-                }
-            }
+    /**
+     * A row and it's count
+     */
+    private static final class SortEntry<R> {
+        final R row;
+        int count;
+
+        public SortEntry(R row, int count) {
+            this.row = row;
+            this.count = count;
+        }
+    }
+
+    /**
+     * A source of a merge, and it's position in the list of sources (used to
+     * make the merge stable)
+     */
+    private static final class HeapEntry<R> {
+        final SortRunSource<R> source;
+        final int index;
+
+        public HeapEntry(SortRunSource<R> source, int index) {
+            this.source = source;
+            this.index = index;
         }
     }
 
-    @SuppressWarnings("resource")
-    private ObjectInputStream[] createTempFileObjectInputStreams() throws IOException {
-        final ObjectInputStream[] tempFileObjectInputStreams = new ObjectInputStream[_tempFiles.size()];
-        for (int i = 0; i < tempFileObjectInputStreams.length; i++) {
-            final File tempFile = _tempFiles.get(i);
-            final ObjectInputStream ois = new ObjectInputStream(new FileInputStream(tempFile));
-            tempFileObjectInputStreams[i] = ois;
+    /**
+     * Source of a merge which holds an already sorted buffer in memory
+     */
+    private static final class BufferSource<R> implements SortRunSource<R> {
+
+        private final List<SortEntry<R>> _entries;
+        private int _index;
+
+        public BufferSource(List<SortEntry<R>> entries) {
+            _entries = entries;
+            _index = -1;
+        }
+
+        @Override
+        public boolean next() {
+            _index++;
+            return _index < _entries.size();
+        }
+
+        @Override
+        public R getRow() {
+            return _entries.get(_index).row;
+        }
+
+        @Override
+        public int getCount() {
+            return _entries.get(_index).count;
+        }
+
+        @Override
+        public void close() {
         }
-        return tempFileObjectInputStreams;
     }
 }
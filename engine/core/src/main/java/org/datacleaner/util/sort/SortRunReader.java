@@ -0,0 +1,234 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.SelectItem;
+import org.datacleaner.util.ChangeAwareObjectInputStream;
+
+/**
+ * Reads a sorted run of rows, as written by {@link SortRunWriter}, using a
+ * buffered {@link FileChannel}.
+ * 
+ * @param <R>
+ *            the row type
+ */
+final class SortRunReader<R> implements SortRunSource<R> {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final File _file;
+    private final FileChannel _channel;
+    private ByteBuffer _buffer;
+    private boolean _endOfFile;
+    private DataSetHeader _header;
+    private R _row;
+    private int _count;
+
+    public SortRunReader(File file) throws IOException {
+        _file = file;
+        _channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        _buffer.flip();
+        _endOfFile = false;
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (!fill(1)) {
+            _row = null;
+            return false;
+        }
+        final int length = readVarInt();
+        if (!fill(length)) {
+            throw new EOFException("Unexpected end of sort run: " + _file);
+        }
+        _row = fromBytes(_buffer.array(), _buffer.arrayOffset() + _buffer.position(), length);
+        _buffer.position(_buffer.position() + length);
+        _count = readVarInt();
+        return true;
+    }
+
+    @Override
+    public R getRow() {
+        return _row;
+    }
+
+    @Override
+    public int getCount() {
+        return _count;
+    }
+
+    /**
+     * Ensures that a number of bytes are available in the buffer, unless the
+     * end of the file is reached.
+     * 
+     * @param bytes
+     * @return true if the bytes are available
+     * @throws IOException
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (_buffer.remaining() >= bytes) {
+            return true;
+        }
+        if (_endOfFile) {
+            return false;
+        }
+        if (bytes > _buffer.capacity()) {
+            final ByteBuffer buffer = ByteBuffer.allocate(bytes);
+            buffer.put(_buffer);
+            _buffer = buffer;
+        } else {
+            _buffer.compact();
+        }
+        while (_buffer.position() < bytes) {
+            if (_channel.read(_buffer) == -1) {
+                _endOfFile = true;
+                break;
+            }
+        }
+        _buffer.flip();
+        return _buffer.remaining() >= bytes;
+    }
+
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (!fill(1)) {
+                throw new EOFException("Unexpected end of sort run: " + _file);
+            }
+            final byte b = _buffer.get();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed record length in sort run: " + _file);
+    }
+
+    @SuppressWarnings("unchecked")
+    private R fromBytes(byte[] bytes, int offset, int length) throws IOException {
+        final byte type = bytes[offset];
+        if (type == SortRunWriter.TYPE_STRING) {
+            return (R) new String(bytes, offset + 1, length - 1, StandardCharsets.UTF_8);
+        }
+
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, offset + 1, length - 1));
+        switch (type) {
+        case SortRunWriter.TYPE_SERIALIZED:
+            try (ObjectInputStream objectIn = new ChangeAwareObjectInputStream(in)) {
+                return (R) objectIn.readObject();
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Could not deserialize row in sort run: " + _file, e);
+            }
+        case SortRunWriter.TYPE_STRING_ARRAY:
+            final Object[] values = readValues(in);
+            return (R) Arrays.copyOf(values, values.length, String[].class);
+        case SortRunWriter.TYPE_OBJECT_ARRAY:
+            return (R) readValues(in);
+        case SortRunWriter.TYPE_ROW:
+            if (in.readBoolean()) {
+                final SelectItem[] selectItems = (SelectItem[]) readSerialized(in);
+                _header = new SimpleDataSetHeader(Arrays.asList(selectItems));
+            } else if (_header == null) {
+                throw new IOException("Missing row header in sort run: " + _file);
+            }
+            return (R) new DefaultRow(_header, readValues(in));
+        default:
+            throw new IOException("Unknown row type in sort run: " + _file);
+        }
+    }
+
+    private Object[] readValues(DataInputStream in) throws IOException {
+        final Object[] values = new Object[readVarInt(in)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readValue(in);
+        }
+        return values;
+    }
+
+    private Object readValue(DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+        case SortRunWriter.VALUE_NULL:
+            return null;
+        case SortRunWriter.VALUE_STRING:
+            final byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        case SortRunWriter.VALUE_INTEGER:
+            return in.readInt();
+        case SortRunWriter.VALUE_LONG:
+            return in.readLong();
+        case SortRunWriter.VALUE_DOUBLE:
+            return in.readDouble();
+        case SortRunWriter.VALUE_BOOLEAN:
+            return in.readBoolean();
+        case SortRunWriter.VALUE_DATE:
+            return new Date(in.readLong());
+        case SortRunWriter.VALUE_SERIALIZED:
+            return readSerialized(in);
+        default:
+            throw new IOException("Unknown value type in sort run: " + _file);
+        }
+    }
+
+    private Object readSerialized(DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        try (ObjectInputStream objectIn = new ChangeAwareObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not deserialize value in sort run: " + _file, e);
+        }
+    }
+
+    private int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final byte b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed length in sort run: " + _file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        _channel.close();
+    }
+}
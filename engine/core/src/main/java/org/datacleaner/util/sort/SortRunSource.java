@@ -0,0 +1,45 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A sorted and deduplicated sequence of rows with their counts, which is one
+ * of the inputs of a merge in the {@link SortMergeWriter}.
+ * 
+ * @param <R>
+ *            the row type
+ */
+interface SortRunSource<R> extends Closeable {
+
+    /**
+     * Advances to the next row of the run.
+     * 
+     * @return false if there are no more rows
+     * @throws IOException
+     */
+    public boolean next() throws IOException;
+
+    public R getRow();
+
+    public int getCount();
+}
@@ -0,0 +1,244 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.SelectItem;
+
+/**
+ * Writes a sorted run of rows and their counts to a file. Each record of the
+ * file consists of the length of the serialized row (as a variable length
+ * integer), the serialized row and the count (also as a variable length
+ * integer).
+ * 
+ * The first byte of a serialized row determines it's representation: Strings
+ * are written as UTF-8, arrays and {@link Row}s are written value by value
+ * with a type tag in front of each value, and other rows use java
+ * serialization. The select items of {@link Row}s are only written when they
+ * differ from those of the previous row in the run, so a run of rows from the
+ * same data set carries its header once.
+ * 
+ * @see SortRunReader
+ */
+final class SortRunWriter implements Closeable {
+
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_SERIALIZED = 2;
+    static final byte TYPE_STRING_ARRAY = 3;
+    static final byte TYPE_OBJECT_ARRAY = 4;
+    static final byte TYPE_ROW = 5;
+
+    static final byte VALUE_NULL = 0;
+    static final byte VALUE_STRING = 1;
+    static final byte VALUE_INTEGER = 2;
+    static final byte VALUE_LONG = 3;
+    static final byte VALUE_DOUBLE = 4;
+    static final byte VALUE_BOOLEAN = 5;
+    static final byte VALUE_DATE = 6;
+    static final byte VALUE_SERIALIZED = 7;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel _channel;
+    private final ByteBuffer _buffer;
+    private final ByteArrayOutputStream _recordBytes;
+    private final DataOutputStream _recordOut;
+    private SelectItem[] _selectItems;
+    private int _recordCount;
+
+    public SortRunWriter(File file) throws IOException {
+        _channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        _buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        _recordBytes = new ByteArrayOutputStream();
+        _recordOut = new DataOutputStream(_recordBytes);
+        _selectItems = null;
+        _recordCount = 0;
+    }
+
+    public void write(Object row, int count) throws IOException {
+        final byte[] bytes = toBytes(row);
+        putVarInt(bytes.length);
+        if (bytes.length > _buffer.remaining()) {
+            flush();
+        }
+        if (bytes.length > _buffer.remaining()) {
+            // larger than the buffer, write it directly
+            final ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+            while (byteBuffer.hasRemaining()) {
+                _channel.write(byteBuffer);
+            }
+        } else {
+            _buffer.put(bytes);
+        }
+        putVarInt(count);
+        _recordCount++;
+    }
+
+    public int getRecordCount() {
+        return _recordCount;
+    }
+
+    private void putVarInt(int value) throws IOException {
+        if (_buffer.remaining() < 5) {
+            flush();
+        }
+        while ((value & ~0x7F) != 0) {
+            _buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        _buffer.put((byte) value);
+    }
+
+    private void flush() throws IOException {
+        _buffer.flip();
+        while (_buffer.hasRemaining()) {
+            _channel.write(_buffer);
+        }
+        _buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            _channel.close();
+        }
+    }
+
+    private byte[] toBytes(Object row) throws IOException {
+        if (row instanceof String) {
+            final byte[] stringBytes = ((String) row).getBytes(StandardCharsets.UTF_8);
+            final byte[] bytes = new byte[stringBytes.length + 1];
+            bytes[0] = TYPE_STRING;
+            System.arraycopy(stringBytes, 0, bytes, 1, stringBytes.length);
+            return bytes;
+        }
+
+        _recordBytes.reset();
+        if (row instanceof String[]) {
+            _recordOut.writeByte(TYPE_STRING_ARRAY);
+            writeValues((String[]) row);
+        } else if (row != null && row.getClass() == Object[].class) {
+            _recordOut.writeByte(TYPE_OBJECT_ARRAY);
+            writeValues((Object[]) row);
+        } else if (row instanceof Row) {
+            final Row metaModelRow = (Row) row;
+            final SelectItem[] selectItems = metaModelRow.getSelectItems();
+            _recordOut.writeByte(TYPE_ROW);
+            if (isSameSelectItems(selectItems)) {
+                _recordOut.writeBoolean(false);
+            } else {
+                _recordOut.writeBoolean(true);
+                writeSerialized(selectItems);
+                _selectItems = selectItems;
+            }
+            writeValues(metaModelRow.getValues());
+        } else {
+            _recordOut.writeByte(TYPE_SERIALIZED);
+            try (ObjectOutputStream objectOut = new ObjectOutputStream(_recordBytes)) {
+                objectOut.writeObject(row);
+            }
+        }
+        _recordOut.flush();
+        return _recordBytes.toByteArray();
+    }
+
+    private boolean isSameSelectItems(SelectItem[] selectItems) {
+        if (_selectItems == null || _selectItems.length != selectItems.length) {
+            return false;
+        }
+        for (int i = 0; i < selectItems.length; i++) {
+            if (_selectItems[i] != selectItems[i]) {
+                // rows of the same data set usually share the select item
+                // instances, so only compare by value when they don't
+                return Arrays.equals(_selectItems, selectItems);
+            }
+        }
+        return true;
+    }
+
+    private void writeValues(Object[] values) throws IOException {
+        writeVarInt(values.length);
+        for (Object value : values) {
+            writeValue(value);
+        }
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            _recordOut.writeByte(VALUE_NULL);
+        } else if (value instanceof String) {
+            _recordOut.writeByte(VALUE_STRING);
+            final byte[] bytes = ((String) value).getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length);
+            _recordOut.write(bytes);
+        } else if (value instanceof Integer) {
+            _recordOut.writeByte(VALUE_INTEGER);
+            _recordOut.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            _recordOut.writeByte(VALUE_LONG);
+            _recordOut.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            _recordOut.writeByte(VALUE_DOUBLE);
+            _recordOut.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            _recordOut.writeByte(VALUE_BOOLEAN);
+            _recordOut.writeBoolean((Boolean) value);
+        } else if (value.getClass() == Date.class) {
+            _recordOut.writeByte(VALUE_DATE);
+            _recordOut.writeLong(((Date) value).getTime());
+        } else {
+            _recordOut.writeByte(VALUE_SERIALIZED);
+            writeSerialized(value);
+        }
+    }
+
+    private void writeSerialized(Object value) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(value);
+        }
+        writeVarInt(out.size());
+        out.writeTo(_recordOut);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            _recordOut.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        _recordOut.writeByte(value);
+    }
+}
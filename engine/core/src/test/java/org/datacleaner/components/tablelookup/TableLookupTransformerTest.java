@@ -19,9 +19,13 @@
  */
 package org.datacleaner.components.tablelookup;
 
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import junit.framework.TestCase;
 
@@ -29,6 +33,7 @@ import org.datacleaner.api.InputColumn;
 import org.datacleaner.api.OutputColumns;
 import org.datacleaner.components.tablelookup.TableLookupTransformer.JoinSemantic;
 import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.JdbcDatastore;
 import org.datacleaner.data.MockInputColumn;
 import org.datacleaner.data.MockInputRow;
 import org.datacleaner.descriptors.Descriptors;
@@ -63,6 +68,131 @@ public class TableLookupTransformerTest extends TestCase {
         trans.close();
     }
 
+    public void testPreloadedLookups() throws Exception {
+        TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        trans.preloadThreshold = 100;
+        InputColumn<String> col1 = new MockInputColumn<String>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        assertEquals("[Jane Doe]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"))));
+        assertEquals("[null]", Arrays.toString(trans.transform(new MockInputRow().put(col1, "foo bar"))));
+
+        assertEquals("{Cache hits=2, Cache misses=0, Lookup queries=0, Preloaded records=7}", trans
+                .getRuntimeMetrics().toString());
+
+        trans.close();
+    }
+
+    public void testPreloadThresholdExceeded() throws Exception {
+        TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        trans.preloadThreshold = 5;
+        InputColumn<String> col1 = new MockInputColumn<String>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        assertEquals("[Jane Doe]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"))));
+        assertEquals("[Jane Doe]",
+                Arrays.toString(trans.transform(new MockInputRow().put(col1, "jane.doe@company.com"))));
+
+        assertEquals("{Cache hits=1, Cache misses=1, Lookup queries=1, Preloaded records=0}", trans
+                .getRuntimeMetrics().toString());
+
+        trans.close();
+    }
+
+    public void testLookupBatch() throws Exception {
+        TableLookupTransformer trans = createTransformer();
+        trans.datastore = new CsvDatastore("my ds", "src/test/resources/employees.csv");
+        trans.outputColumns = new String[] { "name" };
+        trans.conditionColumns = new String[] { "email" };
+        InputColumn<String> col1 = new MockInputColumn<String>("my email col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        final List<List<Object>> queryInputs = new ArrayList<>();
+        queryInputs.add(Arrays.<Object> asList("jane.doe@company.com"));
+        queryInputs.add(Arrays.<Object> asList("foo bar"));
+        queryInputs.add(Arrays.<Object> asList("john.doe@company.com"));
+        queryInputs.add(Arrays.<Object> asList("jane.doe@company.com"));
+
+        Map<List<Object>, Object[]> results = trans.lookupBatch(queryInputs);
+        assertEquals(3, results.size());
+        assertEquals("[Jane Doe]", Arrays.toString(results.get(queryInputs.get(0))));
+        assertEquals("[null]", Arrays.toString(results.get(queryInputs.get(1))));
+        assertEquals("[John Doe]", Arrays.toString(results.get(queryInputs.get(2))));
+
+        assertEquals("{Cache hits=0, Cache misses=3, Lookup queries=1, Preloaded records=0}", trans
+                .getRuntimeMetrics().toString());
+
+        // second time around everything is cached
+        results = trans.lookupBatch(queryInputs.subList(0, 2));
+        assertEquals("[Jane Doe]", Arrays.toString(results.get(queryInputs.get(0))));
+        assertEquals("[null]", Arrays.toString(results.get(queryInputs.get(1))));
+
+        assertEquals("{Cache hits=2, Cache misses=3, Lookup queries=1, Preloaded records=0}", trans
+                .getRuntimeMetrics().toString());
+
+        trans.close();
+    }
+
+    public void testLookupBatchOfCaseInsensitiveColumn() throws Exception {
+        final String url = "jdbc:hsqldb:mem:TableLookupTransformerTest";
+        Class.forName("org.hsqldb.jdbcDriver");
+        try (Connection connection = DriverManager.getConnection(url, "SA", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE codes IF EXISTS");
+            statement.execute("CREATE TABLE codes (code VARCHAR_IGNORECASE(10), description VARCHAR(50))");
+            statement.execute("INSERT INTO codes VALUES ('Foo', 'the foo')");
+            statement.execute("INSERT INTO codes VALUES ('bar', 'the bar')");
+        }
+
+        TableLookupTransformer trans = createTransformer();
+        trans.datastore = new JdbcDatastore("codes", url, "org.hsqldb.jdbcDriver", "SA", "", true);
+        trans.schemaName = "PUBLIC";
+        trans.tableName = "CODES";
+        trans.outputColumns = new String[] { "DESCRIPTION" };
+        trans.conditionColumns = new String[] { "CODE" };
+        InputColumn<String> col1 = new MockInputColumn<String>("my code col", String.class);
+        trans.conditionValues = new InputColumn[] { col1 };
+
+        trans.validate();
+        trans.init();
+
+        final List<List<Object>> queryInputs = new ArrayList<>();
+        queryInputs.add(Arrays.<Object> asList("Foo"));
+        queryInputs.add(Arrays.<Object> asList("foo"));
+        queryInputs.add(Arrays.<Object> asList("BAR"));
+        queryInputs.add(Arrays.<Object> asList("baz"));
+
+        // all values are mapped back from the records of a single query, even
+        // if the database returned only one record for "Foo" and "foo"
+        final Map<List<Object>, Object[]> results = trans.lookupBatch(queryInputs);
+        assertEquals("[the foo]", Arrays.toString(results.get(queryInputs.get(0))));
+        assertEquals("[the foo]", Arrays.toString(results.get(queryInputs.get(1))));
+        assertEquals("[the bar]", Arrays.toString(results.get(queryInputs.get(2))));
+        assertEquals("[null]", Arrays.toString(results.get(queryInputs.get(3))));
+
+        assertEquals("{Cache hits=0, Cache misses=4, Lookup queries=1, Preloaded records=0}", trans
+                .getRuntimeMetrics().toString());
+
+        trans.close();
+    }
+
     private TableLookupTransformer createTransformer() {
         TableLookupTransformer t = new TableLookupTransformer();
         t._annotationFactory = annotationFactory;
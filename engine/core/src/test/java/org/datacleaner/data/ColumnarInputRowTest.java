@@ -0,0 +1,230 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.pojo.ArrayTableDataProvider;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.MutableColumn;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.components.convert.ConvertToNumberTransformer;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.connection.PojoDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.TransformerComponentBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.util.SystemProperties;
+
+public class ColumnarInputRowTest extends TestCase {
+
+    private final MutableColumn fooColumn = new MutableColumn("foo");
+    private final MutableColumn barColumn = new MutableColumn("bar");
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ROW_PROCESSING_COLUMNAR);
+    }
+
+    public void testPhysicalAndTransformedValues() throws Exception {
+        final TransformedInputColumn<Object> longColumn = createColumn("long", Long.class);
+        final TransformedInputColumn<Object> doubleColumn = createColumn("double", Double.class);
+        final TransformedInputColumn<Object> booleanColumn = createColumn("boolean", Boolean.class);
+        final TransformedInputColumn<Object> stringColumn = createColumn("string", String.class);
+        final InputColumn<?>[] transformedColumns = { longColumn, doubleColumn, booleanColumn, stringColumn };
+
+        final SelectItem[] items = { new SelectItem(fooColumn), new SelectItem(barColumn) };
+        final ColumnarRowLayout layout = new ColumnarRowLayout(items, Arrays.asList(transformedColumns));
+        assertEquals(6, layout.getSlotCount());
+        assertEquals(2, layout.getPhysicalSlotCount());
+
+        final ColumnarInputRow row = new ColumnarInputRow(layout, 42, new DefaultRow(new SimpleDataSetHeader(items),
+                new Object[] { "baz", null }));
+        assertEquals(42, row.getId());
+        assertEquals("baz", row.getValue(new MetaModelInputColumn(fooColumn)));
+        assertNull(row.getValue(new MetaModelInputColumn(barColumn)));
+        assertTrue(row.containsInputColumn(new MetaModelInputColumn(barColumn)));
+        assertFalse(row.containsInputColumn(new MetaModelInputColumn(new MutableColumn("baz"))));
+        assertFalse(row.containsInputColumn(longColumn));
+        assertEquals(2, row.getInputColumns().size());
+
+        final int[] slots = layout.getSlots(transformedColumns);
+        assertEquals("[2, 3, 4, 5]", Arrays.toString(slots));
+        row.setValues(slots, new Object[] { 123456789L, 1.5d, true, "hello" });
+
+        assertEquals(123456789L, row.getValue(longColumn));
+        assertEquals(1.5d, row.getValue(doubleColumn));
+        assertEquals(Boolean.TRUE, row.getValue(booleanColumn));
+        assertEquals("hello", row.getValue(stringColumn));
+        assertEquals(6, row.getInputColumns().size());
+
+        // values that do not match the declared type are kept as is
+        row.setValues(slots, new Object[] { "not a long", null, null, null });
+        assertEquals("not a long", row.getValue(longColumn));
+        assertNull(row.getValue(doubleColumn));
+        assertTrue(row.containsInputColumn(doubleColumn));
+
+        // columns which are not in the layout
+        assertNull(layout.getSlots(new InputColumn<?>[] { createColumn("other", String.class) }));
+        assertNull(row.getValue(createColumn("other", String.class)));
+    }
+
+    public void testPrimitiveAccessors() throws Exception {
+        final TransformedInputColumn<Object> longColumn = createColumn("long", Long.class);
+        final TransformedInputColumn<Object> integerColumn = createColumn("integer", Integer.class);
+        final TransformedInputColumn<Object> doubleColumn = createColumn("double", Double.class);
+        final TransformedInputColumn<Object> objectColumn = createColumn("object", Number.class);
+        final InputColumn<?>[] transformedColumns = { longColumn, integerColumn, doubleColumn, objectColumn };
+
+        final SelectItem[] items = { new SelectItem(fooColumn) };
+        final ColumnarRowLayout layout = new ColumnarRowLayout(items, Arrays.asList(transformedColumns));
+        final ColumnarInputRow row = new ColumnarInputRow(layout, 1, new DefaultRow(new SimpleDataSetHeader(items),
+                new Object[] { "baz" }));
+        final int[] slots = layout.getSlots(transformedColumns);
+        row.setValues(slots, new Object[] { 123456789L, 42, 1.5d, 7.25f });
+
+        assertEquals(123456789L, row.getLong(slots[0]));
+        assertEquals(123456789d, row.getDouble(slots[0]));
+        assertEquals(42L, row.getLong(slots[1]));
+        assertEquals(1L, row.getLong(slots[2]));
+        assertEquals(1.5d, row.getDouble(slots[2]));
+        assertEquals(7L, row.getLong(slots[3]));
+        assertEquals(7.25d, row.getDouble(slots[3]));
+        assertFalse(row.isNull(slots[0]));
+
+        // primitives are boxed once, when first read as objects
+        final Object boxed = row.getValue(longColumn);
+        assertEquals(123456789L, boxed);
+        assertSame(boxed, row.getValue(longColumn));
+
+        // setting a new value discards the boxed value
+        row.setValues(slots, new Object[] { 987654321L, null, 2.5d, null });
+        assertEquals(987654321L, row.getValue(longColumn));
+        assertEquals(987654321L, row.getLong(slots[0]));
+        assertTrue(row.isNull(slots[1]));
+        assertTrue(row.isNull(slots[3]));
+        assertFalse(row.isNull(0));
+
+        try {
+            row.getLong(slots[1]);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Slot 2 does not hold a number: null", e.getMessage());
+        }
+    }
+
+    public void testCopy() throws Exception {
+        final TransformedInputColumn<Object> column1 = createColumn("col1", Integer.class);
+        final TransformedInputColumn<Object> column2 = createColumn("col2", Integer.class);
+        final InputColumn<?>[] transformedColumns = { column1, column2 };
+
+        final SelectItem[] items = { new SelectItem(fooColumn) };
+        final ColumnarRowLayout layout = new ColumnarRowLayout(items, Arrays.asList(transformedColumns));
+        final ColumnarInputRow row = new ColumnarInputRow(layout, 1, new DefaultRow(new SimpleDataSetHeader(items),
+                new Object[] { "baz" }));
+        row.setValues(layout.getSlots(transformedColumns), new Object[] { 1, 2 });
+
+        final ColumnarInputRow copy = row.copy(2, layout.getSlot(column2));
+        assertEquals(2, copy.getId());
+        assertEquals("baz", copy.getValue(new MetaModelInputColumn(fooColumn)));
+        assertEquals(1, copy.getValue(column1));
+        assertFalse(copy.containsInputColumn(column2));
+        assertNull(copy.getValue(column2));
+
+        // the original row is unaffected by changes to the copy
+        copy.setValues(layout.getSlots(new InputColumn<?>[] { column1 }), new Object[] { 3 });
+        assertEquals(1, row.getValue(column1));
+        assertEquals(2, row.getValue(column2));
+    }
+
+    @SuppressWarnings("unchecked")
+    public void testJobResultsEquivalentToTransformedRows() throws Throwable {
+        final List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            rows.add(new Object[] { (i % 10 == 0 ? "x" : "" + i), "name" + i });
+        }
+        final PojoDatastore datastore = new PojoDatastore("foo", new ArrayTableDataProvider(new SimpleTableDef(
+                "table", new String[] { "id", "name" }), rows));
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withDatastoreCatalog(new DatastoreCatalogImpl(datastore));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("id", "name");
+
+            final TransformerComponentBuilder<ConvertToNumberTransformer> convertTransformer = builder
+                    .addTransformer(ConvertToNumberTransformer.class).addInputColumn(
+                            builder.getSourceColumnByName("id"));
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(convertTransformer.getOutputColumns())
+                    .addInputColumns(builder.getSourceColumnByName("name"));
+            job = builder.toAnalysisJob();
+        }
+
+        final List<List<Object>> expected = new ArrayList<>();
+        final List<List<Object>> actual = new ArrayList<>();
+        for (List<List<Object>> values : Arrays.asList(expected, actual)) {
+            if (values == actual) {
+                System.setProperty(SystemProperties.ROW_PROCESSING_COLUMNAR, "true");
+            }
+            final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+            resultFuture.await();
+            if (resultFuture.isErrornous()) {
+                throw resultFuture.getErrors().get(0);
+            }
+            final ListResult<InputRow> result = (ListResult<InputRow>) resultFuture.getResults().get(0);
+            for (InputRow row : result.getValues()) {
+                if (values == actual) {
+                    assertTrue(row instanceof ColumnarInputRow);
+                } else {
+                    assertFalse(row instanceof ColumnarInputRow);
+                }
+                final List<Object> rowValues = new ArrayList<>(row.getValues(job.getSourceColumns()));
+                rowValues.addAll(row.getValues(job.getTransformerJobs().get(0).getOutput()));
+                values.add(rowValues);
+            }
+        }
+
+        assertEquals(500, actual.size());
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual));
+    }
+
+    private TransformedInputColumn<Object> createColumn(String name, Class<?> dataType) {
+        final TransformedInputColumn<Object> column = new TransformedInputColumn<Object>(name, name + "_id");
+        column.setDataType(dataType);
+        return column;
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.concurrent;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.datacleaner.job.tasks.Task;
+
+public class ForkJoinTaskRunnerTest extends TestCase {
+
+    public void testRunManyTasks() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(4, 50, false);
+        try {
+            assertEquals(4, taskRunner.getParallelism());
+            assertEquals(50, taskRunner.getMaxQueuedTasks());
+            assertFalse(taskRunner.isVirtualThreads());
+
+            final int numTasks = 10000;
+            final AtomicInteger executed = new AtomicInteger();
+            final CountDownLatch latch = new CountDownLatch(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                taskRunner.run(new Task() {
+                    @Override
+                    public void execute() throws Exception {
+                        executed.incrementAndGet();
+                    }
+                }, new CountDownTaskListener(latch));
+            }
+
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertEquals(numTasks, executed.get());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testBackPressure() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(2, 3, false);
+        try {
+            final CountDownLatch blocker = new CountDownLatch(1);
+            final CountDownLatch permittedSubmissions = new CountDownLatch(3);
+            final CountDownLatch allSubmissions = new CountDownLatch(1);
+            final AtomicInteger submitted = new AtomicInteger();
+
+            final Thread producer = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10; i++) {
+                        taskRunner.run(new Task() {
+                            @Override
+                            public void execute() throws Exception {
+                                blocker.await();
+                            }
+                        }, null);
+                        submitted.incrementAndGet();
+                        permittedSubmissions.countDown();
+                    }
+                    allSubmissions.countDown();
+                }
+            };
+            producer.start();
+
+            assertTrue(permittedSubmissions.await(30, TimeUnit.SECONDS));
+            awaitState(producer, Thread.State.WAITING);
+            assertEquals(3, submitted.get());
+            assertEquals(1, allSubmissions.getCount());
+
+            blocker.countDown();
+            assertTrue(allSubmissions.await(30, TimeUnit.SECONDS));
+            assertEquals(10, submitted.get());
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private void awaitState(Thread thread, Thread.State state) {
+        final long deadline = System.currentTimeMillis() + 30000;
+        while (thread.getState() != state) {
+            assertTrue("Thread did not reach state " + state + ", was " + thread.getState(),
+                    System.currentTimeMillis() < deadline);
+            Thread.yield();
+        }
+    }
+
+    public void testNestedSubmissionDoesNotDeadlock() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(2, 2, false);
+        try {
+            runNestedSubmissionScenario(taskRunner);
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testVirtualThreadsOrFallback() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(2, 2, true);
+        try {
+            assertEquals(2, taskRunner.getParallelism());
+            runNestedSubmissionScenario(taskRunner);
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testTasksRunOnBoundedSetOfThreads() throws Exception {
+        final ForkJoinTaskRunner taskRunner = new ForkJoinTaskRunner(3, 10, true);
+        try {
+            final int numTasks = 1000;
+            final Set<Thread> threads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+            final CountDownLatch latch = new CountDownLatch(numTasks);
+            for (int i = 0; i < numTasks; i++) {
+                taskRunner.run(new Task() {
+                    @Override
+                    public void execute() throws Exception {
+                        threads.add(Thread.currentThread());
+                    }
+                }, new CountDownTaskListener(latch));
+            }
+
+            assertTrue(latch.await(30, TimeUnit.SECONDS));
+            assertTrue("Tasks ran on " + threads.size() + " threads", threads.size() <= 3);
+        } finally {
+            taskRunner.shutdown();
+        }
+    }
+
+    private void runNestedSubmissionScenario(final TaskRunner taskRunner) throws Exception {
+        final int numOuterTasks = 20;
+        final int numInnerTasks = 20;
+        final CountDownLatch latch = new CountDownLatch(numOuterTasks * numInnerTasks);
+
+        for (int i = 0; i < numOuterTasks; i++) {
+            taskRunner.run(new Task() {
+                @Override
+                public void execute() throws Exception {
+                    for (int j = 0; j < numInnerTasks; j++) {
+                        taskRunner.run(null, new CountDownTaskListener(latch));
+                    }
+                }
+            }, null);
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+    }
+
+    private static class CountDownTaskListener implements TaskListener {
+
+        private final CountDownLatch _latch;
+
+        public CountDownTaskListener(CountDownLatch latch) {
+            _latch = latch;
+        }
+
+        @Override
+        public void onBegin(Task task) {
+        }
+
+        @Override
+        public void onComplete(Task task) {
+            _latch.countDown();
+        }
+
+        @Override
+        public void onError(Task task, Throwable throwable) {
+            _latch.countDown();
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.runner;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Named;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.pojo.ArrayTableDataProvider;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.datacleaner.api.Analyzer;
+import org.datacleaner.api.AnalyzerResultReducer;
+import org.datacleaner.api.Close;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.Distributed;
+import org.datacleaner.api.Initialize;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.connection.PojoDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskListener;
+import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.tasks.Task;
+import org.datacleaner.result.NumberResult;
+import org.datacleaner.util.SystemProperties;
+
+public class AnalyzerConsumerThreadInstancesTest extends TestCase {
+
+    private static final AtomicInteger initializedCount = new AtomicInteger();
+    private static final AtomicInteger closedCount = new AtomicInteger();
+
+    @Named("Row counting analyzer")
+    @Distributed(reducer = RowCountReducer.class)
+    public static class RowCountAnalyzer implements Analyzer<NumberResult> {
+
+        @Configured
+        InputColumn<?> column;
+
+        // deliberately not thread-safe
+        private int _count;
+
+        @Initialize
+        public void init() {
+            initializedCount.incrementAndGet();
+        }
+
+        @Override
+        public void run(InputRow row, int distinctCount) {
+            _count += distinctCount;
+        }
+
+        @Override
+        public NumberResult getResult() {
+            return new NumberResult(_count);
+        }
+
+        @Close
+        public void close() {
+            closedCount.incrementAndGet();
+        }
+    }
+
+    public static class RowCountReducer implements AnalyzerResultReducer<NumberResult> {
+        @Override
+        public NumberResult reduce(Collection<? extends NumberResult> results) {
+            int sum = 0;
+            for (NumberResult result : results) {
+                sum += result.getNumber().intValue();
+            }
+            return new NumberResult(sum);
+        }
+    }
+
+    /**
+     * A task runner which runs every task on a new thread, one at a time, like
+     * a runner that uses a virtual thread per task.
+     */
+    private static class ThreadPerTaskRunner implements TaskRunner {
+
+        @Override
+        public void run(Task task, TaskListener listener) {
+            run(new TaskRunnable(task, listener));
+        }
+
+        @Override
+        public void run(TaskRunnable taskRunnable) {
+            final Thread thread = new Thread(taskRunnable);
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public void assistExecution() {
+        }
+    }
+
+    private DataCleanerConfiguration configuration;
+    private PojoDatastore datastore;
+    private MultiThreadedTaskRunner taskRunner;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        initializedCount.set(0);
+        closedCount.set(0);
+
+        final List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            rows.add(new Object[] { "" + i });
+        }
+        datastore = new PojoDatastore("foo", new ArrayTableDataProvider(new SimpleTableDef("table",
+                new String[] { "id" }), rows));
+        taskRunner = new MultiThreadedTaskRunner(4);
+        configuration = new DataCleanerConfigurationImpl().withDatastoreCatalog(new DatastoreCatalogImpl(datastore))
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(taskRunner));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ROW_PROCESSING_THREAD_INSTANCES);
+        taskRunner.shutdown();
+    }
+
+    public void testSingleSynchronizedInstanceByDefault() throws Throwable {
+        assertEquals(20000, runJob());
+        assertEquals(1, initializedCount.get());
+        assertEquals(1, closedCount.get());
+    }
+
+    public void testThreadInstancesReduced() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_THREAD_INSTANCES, "true");
+
+        assertEquals(20000, runJob());
+        assertTrue(initializedCount.get() >= 1);
+        assertTrue(initializedCount.get() <= 4);
+        assertEquals(initializedCount.get(), closedCount.get());
+    }
+
+    public void testInstancesBoundedByConcurrentRowsNotByThreads() throws Throwable {
+        System.setProperty(SystemProperties.ROW_PROCESSING_THREAD_INSTANCES, "true");
+        configuration = new DataCleanerConfigurationImpl().withDatastoreCatalog(new DatastoreCatalogImpl(datastore))
+                .withEnvironment(new DataCleanerEnvironmentImpl().withTaskRunner(new ThreadPerTaskRunner()));
+
+        assertEquals(20000, runJob());
+        assertEquals(1, initializedCount.get());
+        assertEquals(1, closedCount.get());
+    }
+
+    private int runJob() throws Throwable {
+        final AnalysisJob job;
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("id");
+            builder.addAnalyzer(RowCountAnalyzer.class).addInputColumn(builder.getSourceColumnByName("id"));
+            job = builder.toAnalysisJob();
+        }
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+        final NumberResult result = (NumberResult) resultFuture.getResults().get(0);
+        return result.getNumber().intValue();
+    }
+}
@@ -164,4 +164,57 @@ public class ConsumeRowHandlerTest extends TestCase {
         List<InputColumn<?>> outputColumns = outputRow.getInputColumns();
         assertEquals(6, outputColumns.size());
     }
+
+    public void testNestedMultiRecordOutputOrderAndResultlessConsumption() throws Exception {
+        final TransformerComponentBuilder<MockMultiRowTransformer> tr1 = ajb.addTransformer(MockMultiRowTransformer.class);
+        tr1.setConfiguredProperty("Count to what?", ajb.getSourceColumnByName("age"));
+
+        final TransformerComponentBuilder<MockMultiRowTransformer> tr2 = ajb.addTransformer(MockMultiRowTransformer.class);
+        tr2.setConfiguredProperty("Count to what?", tr1.getOutputColumns().get(0));
+
+        final AnalyzerComponentBuilder<MockAnalyzer> analyzer = ajb.addAnalyzer(MockAnalyzer.class);
+        analyzer.addInputColumns(tr2.getOutputColumns());
+
+        final AnalysisJob job = ajb.toAnalysisJob(true);
+
+        final Configuration configuration = new Configuration();
+        configuration.includeAnalyzers = true;
+
+        final ConsumeRowHandler handler = new ConsumeRowHandler(job, _configuration, configuration);
+        MockAnalyzer mockAnalyzer = null;
+        for (RowProcessingConsumer consumer : handler.getConsumers()) {
+            if (consumer.getComponent() instanceof MockAnalyzer) {
+                mockAnalyzer = (MockAnalyzer) consumer.getComponent();
+            }
+        }
+        assertNotNull(mockAnalyzer);
+
+        final InputColumn<?> outputColumn = tr2.getOutputColumns().get(0);
+        final MockInputRow inputRow = new MockInputRow(100).put(nameColumn, "Vera").put(ageColumn, 3)
+                .put(countryColumn, "DK");
+
+        // rows are produced depth first, in the order they are collected
+        final List<InputRow> result = handler.consumeRow(inputRow).getRows();
+        assertEquals("[1, 1, 2, 1, 2, 3]", getValues(result, outputColumn).toString());
+        assertEquals(result, mockAnalyzer.getResult().getValues());
+
+        // consuming without a result should reach the analyzer the same way,
+        // also when the handler is reused for several rows
+        for (int i = 0; i < 3; i++) {
+            handler.consumeRowWithoutResult(inputRow);
+            assertEquals("[1, 1, 2, 1, 2, 3]", getValues(mockAnalyzer.getResult().getValues(), outputColumn)
+                    .toString());
+        }
+
+        handler.consumeRowWithoutResult(new MockInputRow(101).put(ageColumn, 0));
+        assertEquals(0, mockAnalyzer.getResult().getValues().size());
+    }
+
+    private List<Object> getValues(List<InputRow> rows, InputColumn<?> column) {
+        final List<Object> values = new ArrayList<Object>();
+        for (InputRow row : rows) {
+            values.add(row.getValue(column));
+        }
+        return values;
+    }
 }
@@ -0,0 +1,146 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.job.tasks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.pojo.ArrayTableDataProvider;
+import org.apache.metamodel.pojo.TableDataProvider;
+import org.apache.metamodel.util.SimpleTableDef;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.components.convert.ConvertToNumberTransformer;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.connection.PojoDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.TransformerComponentBuilder;
+import org.datacleaner.job.runner.AnalysisListener;
+import org.datacleaner.job.runner.AnalysisListenerAdaptor;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.job.runner.AnalysisRunnerImpl;
+import org.datacleaner.job.runner.RowProcessingMetrics;
+import org.datacleaner.result.ListResult;
+import org.datacleaner.test.MockAnalyzer;
+import org.datacleaner.util.SystemProperties;
+
+public class ConsumeRowBatchTaskTest extends TestCase {
+
+    private DataCleanerConfiguration configuration;
+    private PojoDatastore datastore;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        final List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < 1003; i++) {
+            rows.add(new Object[] { "" + i, "name" + i });
+        }
+        final TableDataProvider<?> tableDataProvider = new ArrayTableDataProvider(new SimpleTableDef("table",
+                new String[] { "id", "name" }), rows);
+        datastore = new PojoDatastore("foo", tableDataProvider);
+        configuration = new DataCleanerConfigurationImpl().withDatastoreCatalog(new DatastoreCatalogImpl(datastore));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE);
+    }
+
+    public void testBatchedProcessingEquivalentToUnbatched() throws Throwable {
+        final AnalysisJob job = createJob();
+
+        final Set<Integer> unbatchedRowNumbers = runJobAndCollectRowNumbers(job, null);
+        final Set<Integer> batchedRowNumbers = runJobAndCollectRowNumbers(job, "64");
+
+        assertEquals(1003, unbatchedRowNumbers.size());
+        assertEquals(unbatchedRowNumbers, batchedRowNumbers);
+        for (int i = 1; i <= 1003; i++) {
+            assertTrue("Missing progress for row number " + i, batchedRowNumbers.contains(i));
+        }
+    }
+
+    public void testBatchSizeLargerThanTable() throws Throwable {
+        final AnalysisJob job = createJob();
+
+        final Set<Integer> rowNumbers = runJobAndCollectRowNumbers(job, "5000");
+        assertEquals(1003, rowNumbers.size());
+    }
+
+    public void testInvalidBatchSizeFallsBackToUnbatched() throws Throwable {
+        final AnalysisJob job = createJob();
+
+        final Set<Integer> rowNumbers = runJobAndCollectRowNumbers(job, "-1");
+        assertEquals(1003, rowNumbers.size());
+    }
+
+    private AnalysisJob createJob() {
+        try (AnalysisJobBuilder builder = new AnalysisJobBuilder(configuration)) {
+            builder.setDatastore(datastore);
+            builder.addSourceColumns("id", "name");
+
+            final TransformerComponentBuilder<ConvertToNumberTransformer> convertTransformer = builder.addTransformer(
+                    ConvertToNumberTransformer.class).addInputColumn(builder.getSourceColumnByName("id"));
+            builder.addAnalyzer(MockAnalyzer.class).addInputColumns(convertTransformer.getOutputColumns())
+                    .addInputColumns(builder.getSourceColumnByName("name"));
+            return builder.toAnalysisJob();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Integer> runJobAndCollectRowNumbers(AnalysisJob job, String batchSize) throws Throwable {
+        if (batchSize == null) {
+            System.clearProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE);
+        } else {
+            System.setProperty(SystemProperties.ROW_PROCESSING_BATCH_SIZE, batchSize);
+        }
+
+        final Set<Integer> rowNumbers = ConcurrentHashMap.newKeySet();
+        final AtomicInteger progressCount = new AtomicInteger();
+        final AnalysisListener listener = new AnalysisListenerAdaptor() {
+            @Override
+            public void rowProcessingProgress(AnalysisJob job, RowProcessingMetrics metrics, InputRow row,
+                    int currentRow) {
+                progressCount.incrementAndGet();
+                rowNumbers.add(currentRow);
+            }
+        };
+
+        final AnalysisResultFuture resultFuture = new AnalysisRunnerImpl(configuration, listener).run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final ListResult<InputRow> result = (ListResult<InputRow>) resultFuture.getResults().get(0);
+        assertEquals(1003, result.getValues().size());
+        assertEquals(1003, progressCount.get());
+
+        return rowNumbers;
+    }
+}
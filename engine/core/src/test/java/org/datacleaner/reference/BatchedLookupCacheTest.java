@@ -0,0 +1,137 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+public class BatchedLookupCacheTest extends TestCase {
+
+    private final List<List<String>> _batches = Collections.synchronizedList(new ArrayList<List<String>>());
+
+    private final BatchedLookupCache.BatchLookup _upperCaseLookup = new BatchedLookupCache.BatchLookup() {
+        @Override
+        public Map<String, String> lookup(List<String> keys) {
+            _batches.add(new ArrayList<>(keys));
+            final Map<String, String> result = new HashMap<>();
+            for (String key : keys) {
+                if (!key.startsWith("missing")) {
+                    result.put(key, key.toUpperCase());
+                }
+            }
+            return result;
+        }
+    };
+
+    public void testCacheHitsAndEviction() throws Exception {
+        final ReferenceDataLookupMetrics metrics = new ReferenceDataLookupMetrics();
+        final BatchedLookupCache cache = new BatchedLookupCache(_upperCaseLookup, 2, 10, metrics);
+
+        assertEquals("FOO", cache.get("foo"));
+        assertEquals("FOO", cache.get("foo"));
+        assertNull(cache.get("missing1"));
+        assertNull(cache.get("missing1"));
+        assertEquals(2, _batches.size());
+
+        // evicts "foo", which was least recently used
+        assertEquals("BAR", cache.get("bar"));
+        assertNull(cache.get("missing1"));
+        assertEquals("FOO", cache.get("foo"));
+        assertEquals(4, _batches.size());
+        assertEquals("[[foo], [missing1], [bar], [foo]]", _batches.toString());
+
+        assertEquals(3, metrics.getHitCount());
+        assertEquals(4, metrics.getMissCount());
+        assertEquals(4, metrics.getQueryCount());
+        assertEquals(3.0 / 7, metrics.getHitRate(), 0.0001);
+    }
+
+    public void testConcurrentMissesAreBatched() throws Exception {
+        final CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        final CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        final BatchedLookupCache.BatchLookup blockingLookup = new BatchedLookupCache.BatchLookup() {
+            @Override
+            public Map<String, String> lookup(List<String> keys) {
+                if (keys.contains("first")) {
+                    firstBatchStarted.countDown();
+                    try {
+                        releaseFirstBatch.await();
+                    } catch (InterruptedException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                return _upperCaseLookup.lookup(keys);
+            }
+        };
+        final BatchedLookupCache cache = new BatchedLookupCache(blockingLookup, 100, 10,
+                new ReferenceDataLookupMetrics());
+
+        final ExecutorService threadPool = Executors.newFixedThreadPool(6);
+        try {
+            final Future<String> first = threadPool.submit(() -> cache.get("first"));
+            firstBatchStarted.await();
+
+            final List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                final String key = "key" + i;
+                futures.add(threadPool.submit(() -> cache.get(key)));
+            }
+            // give the lookups time to be queued behind the first batch
+            Thread.sleep(200);
+            releaseFirstBatch.countDown();
+
+            assertEquals("FIRST", first.get());
+            for (int i = 0; i < 5; i++) {
+                assertEquals("KEY" + i, futures.get(i).get());
+            }
+        } finally {
+            threadPool.shutdown();
+        }
+
+        assertEquals(2, _batches.size());
+        assertEquals("[first]", _batches.get(0).toString());
+        assertEquals(5, _batches.get(1).size());
+    }
+
+    public void testErrorsArePropagated() throws Exception {
+        final BatchedLookupCache cache = new BatchedLookupCache(new BatchedLookupCache.BatchLookup() {
+            @Override
+            public Map<String, String> lookup(List<String> keys) {
+                throw new IllegalStateException("Lookup failed: " + keys);
+            }
+        }, 100, 10, new ReferenceDataLookupMetrics());
+
+        try {
+            cache.get("foo");
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Lookup failed: [foo]", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.function.BiConsumer;
+
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.FileResource;
+import org.datacleaner.util.SystemProperties;
+
+import junit.framework.TestCase;
+
+public class CompiledReferenceIndexTest extends TestCase {
+
+    private final File _directory = new File("target/test_reference_index");
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        System.setProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY, _directory.getPath());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.REFERENCE_DATA_INDEX_DIRECTORY);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _directory.mkdirs();
+    }
+
+    public void testLookupAndIteration() throws Exception {
+        final Map<String, String> entries = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            entries.put("value" + i, "master" + (i % 7));
+        }
+        entries.put("", "empty");
+        entries.put("æøå", "non-ascii");
+        entries.put("new york", "NY");
+
+        final File file = new File(_directory, "lookup.idx");
+        CompiledReferenceIndex.write(file, entries, 42, 1234, 5678);
+        final CompiledReferenceIndex index = CompiledReferenceIndex.open(file);
+
+        assertEquals(42, index.getSourceSize());
+        assertEquals(1234, index.getSourceLastModified());
+        assertEquals(5678, index.getSourceChecksum());
+        assertEquals(1003, index.getEntryCount());
+
+        for (Entry<String, String> entry : entries.entrySet()) {
+            assertEquals(entry.getValue(), index.get(entry.getKey()));
+        }
+        assertNull(index.get("value"));
+        assertNull(index.get("value1000"));
+        assertNull(index.get("zzz"));
+        assertFalse(index.containsKey(null));
+
+        final List<String> expectedKeys = new ArrayList<>(entries.keySet());
+        Collections.sort(expectedKeys, CompiledReferenceIndex.CODE_POINT_ORDER);
+        final List<String> keys = new ArrayList<>();
+        final Iterator<String> it = index.keyIterator();
+        while (it.hasNext()) {
+            keys.add(it.next());
+        }
+        assertEquals(expectedKeys, keys);
+
+        assertEquals("{new york=NY}", index.getMultiWordEntries().toString());
+    }
+
+    public void testKeysOnly() throws Exception {
+        final Map<String, String> entries = new HashMap<>();
+        entries.put("foo", null);
+        entries.put("bar", null);
+
+        final File file = new File(_directory, "keys.idx");
+        CompiledReferenceIndex.write(file, entries, 0, 0, 0);
+        final CompiledReferenceIndex index = CompiledReferenceIndex.open(file);
+
+        assertTrue(index.containsKey("foo"));
+        assertTrue(index.containsKey("bar"));
+        assertFalse(index.containsKey("baz"));
+        assertNull(index.get("foo"));
+    }
+
+    public void testBuildFromUnsortedEntries() throws Exception {
+        _directory.mkdirs();
+
+        // a small buffer makes the builder spill the entries to several runs
+        final CompiledReferenceIndexBuilder builder = new CompiledReferenceIndexBuilder(_directory, 10);
+        for (int i = 0; i < 100; i++) {
+            builder.accept("key" + (i * 37 % 100), "first" + i);
+        }
+        for (int i = 0; i < 100; i += 2) {
+            builder.accept("key" + i, "second" + i);
+        }
+
+        final File file = new File(_directory, "built.idx");
+        assertEquals(100, builder.write(file, 1, 2, 3));
+        final CompiledReferenceIndex index = CompiledReferenceIndex.open(file);
+        assertEquals(3, index.getSourceChecksum());
+
+        assertEquals("second0", index.get("key0"));
+        assertEquals("first91", index.get("key67"));
+        assertNull(index.get("key100"));
+
+        final Iterator<Entry<String, String>> it = index.entryIterator();
+        String previousKey = null;
+        int count = 0;
+        while (it.hasNext()) {
+            final String key = it.next().getKey();
+            if (previousKey != null) {
+                assertTrue(CompiledReferenceIndex.CODE_POINT_ORDER.compare(previousKey, key) < 0);
+            }
+            previousKey = key;
+            count++;
+        }
+        assertEquals(100, count);
+
+        // the temporary files of the sorted runs are deleted
+        assertEquals(0, _directory.listFiles((dir, name) -> name.endsWith(".tmp")).length);
+    }
+
+    public void testRebuildWhenSourceChangesWithSameSize() throws Exception {
+        final File file = new File("target/CompiledReferenceIndexTest-modification.txt");
+        final CompiledReferenceIndexCache.EntryLoader loader = new CompiledReferenceIndexCache.EntryLoader() {
+            @Override
+            public void load(InputStream in, BiConsumer<String, String> entries) {
+                for (String line : FileHelper.readInputStreamAsString(in, "UTF-8").split("\n")) {
+                    entries.accept(line, null);
+                }
+            }
+        };
+
+        FileHelper.writeStringAsFile(file, "foo\nbar", "UTF-8");
+        final CompiledReferenceIndex index1 = CompiledReferenceIndexCache.getIndex(new FileResource(file), "test",
+                loader);
+        assertTrue(index1.containsKey("bar"));
+        assertSame(index1, CompiledReferenceIndexCache.getIndex(new FileResource(file), "test", loader));
+
+        // derived objects are shared for as long as the index is current
+        final Object derivedObject1 = CompiledReferenceIndexCache.getDerivedObject(index1, i -> new Object());
+        assertSame(derivedObject1, CompiledReferenceIndexCache.getDerivedObject(index1, i -> new Object()));
+
+        FileHelper.writeStringAsFile(file, "foo\nbaz", "UTF-8");
+        final CompiledReferenceIndex index2 = CompiledReferenceIndexCache.getIndex(new FileResource(file), "test",
+                loader);
+        assertNotSame(index1, index2);
+        assertFalse(index2.containsKey("bar"));
+        assertTrue(index2.containsKey("baz"));
+
+        final Object derivedObject2 = CompiledReferenceIndexCache.getDerivedObject(index2, i -> new Object());
+        assertNotSame(derivedObject1, derivedObject2);
+        assertNotSame(derivedObject1, CompiledReferenceIndexCache.getDerivedObject(index1, i -> new Object()));
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.util.SystemProperties;
+
+public class DatastoreDictionaryTest extends TestCase {
+
+    private static final String URL = "jdbc:hsqldb:mem:DatastoreDictionaryTest";
+
+    private JdbcDatastore _datastore;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Class.forName("org.hsqldb.jdbcDriver");
+        try (Connection connection = DriverManager.getConnection(URL, "SA", "");
+                Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE words IF EXISTS");
+            statement.execute("CREATE TABLE words (exact_word VARCHAR(50), any_case_word VARCHAR_IGNORECASE(50))");
+            statement.execute("INSERT INTO words VALUES ('Foo', 'Foo')");
+            statement.execute("INSERT INTO words VALUES ('bar', 'bar')");
+            statement.execute("INSERT INTO words VALUES ('BAZ', 'BAZ')");
+        }
+        _datastore = new JdbcDatastore("words", URL, "org.hsqldb.jdbcDriver", "SA", "", true);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        System.clearProperty(SystemProperties.REFERENCE_DATA_PRELOAD_THRESHOLD);
+    }
+
+    public void testKeyMatcherOfCaseSensitiveColumn() throws Exception {
+        try (DatastoreConnection connection = _datastore.openConnection()) {
+            final Column column = connection.getSchemaNavigator().convertToColumn("PUBLIC.WORDS.EXACT_WORD");
+            final DatastoreCollation collation = new DatastoreCollation(connection.getDataContext(), column);
+
+            final DatastoreCollation.KeyMatcher keyMatcher = collation.getKeyMatcher(Arrays.asList("foo", "Foo",
+                    "FOO", "qux"));
+            assertEquals(Collections.singletonList("Foo"), keyMatcher.getMatchingKeys("Foo"));
+            assertTrue(keyMatcher.getMatchingKeys("bar").isEmpty());
+        }
+    }
+
+    public void testKeyMatcherOfCaseInsensitiveColumn() throws Exception {
+        try (DatastoreConnection connection = _datastore.openConnection()) {
+            final Column column = connection.getSchemaNavigator().convertToColumn("PUBLIC.WORDS.ANY_CASE_WORD");
+            final DatastoreCollation collation = new DatastoreCollation(connection.getDataContext(), column);
+
+            final DatastoreCollation.KeyMatcher keyMatcher = collation.getKeyMatcher(Arrays.asList("foo", "Foo",
+                    "FOO", "qux"));
+            assertEquals(new HashSet<>(Arrays.asList("foo", "Foo", "FOO")), new HashSet<>(keyMatcher
+                    .getMatchingKeys("Foo")));
+            assertTrue(keyMatcher.getMatchingKeys("bar").isEmpty());
+        }
+    }
+
+    public void testBatchedLookupsOfCaseInsensitiveColumn() throws Exception {
+        // make sure that lookups are not served from memory
+        System.setProperty(SystemProperties.REFERENCE_DATA_PRELOAD_THRESHOLD, "1");
+
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withDatastoreCatalog(new DatastoreCatalogImpl(_datastore));
+        final DatastoreDictionary dictionary = new DatastoreDictionary("dict", "words", "PUBLIC.WORDS.ANY_CASE_WORD",
+                false);
+        final DictionaryConnection connection = dictionary.openConnection(configuration);
+        try {
+            assertTrue(connection.containsValue("Foo"));
+            assertTrue(connection.containsValue("foo"));
+            assertTrue(connection.containsValue("BAR"));
+            assertTrue(connection.containsValue("baz"));
+            assertFalse(connection.containsValue("qux"));
+        } finally {
+            connection.close();
+        }
+        assertEquals(0, dictionary.getLookupMetrics().getPreloadCount());
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.reference;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class TermMatcherTest extends TestCase {
+
+    public void testLeftmostLongestMatches() throws Exception {
+        final TermMatcher matcher = new TermMatcher(Arrays.asList("new york", "new york city", "york", "she", "hers"),
+                true);
+        assertEquals(5, matcher.getTermCount());
+
+        final List<TermMatcher.Match> matches = matcher.find("new york city and york, she said; hers");
+        assertEquals("[Match[0-13,new york city], Match[18-22,york], Match[24-27,she], Match[34-38,hers]]",
+                matches.toString());
+        assertEquals(1, matches.get(0).getTermIndex());
+        assertEquals("new york city", matcher.getTerm(matches.get(0).getTermIndex()));
+    }
+
+    public void testWordBoundaries() throws Exception {
+        final TermMatcher matcher = new TermMatcher(Arrays.asList("he", "new york"), true);
+
+        assertEquals("[]", matcher.find("ushers the new yorker").toString());
+        assertEquals("[Match[0-2,he], Match[16-24,new york]]", matcher.find("he is new york_ new york").toString());
+        assertEquals("[Match[1-9,new york]]", matcher.find("(new york)").toString());
+        assertFalse(matcher.containsAny("anew york"));
+    }
+
+    public void testCaseInsensitive() throws Exception {
+        final TermMatcher matcher = new TermMatcher(Arrays.asList("United Kingdom", "great britain"), false);
+
+        final List<TermMatcher.Match> matches = matcher.find("UNITED KINGDOM or Great Britain");
+        assertEquals(2, matches.size());
+        assertEquals("United Kingdom", matches.get(0).getTerm());
+        assertEquals("great britain", matches.get(1).getTerm());
+
+        assertTrue(new TermMatcher(Arrays.asList("United Kingdom"), true).find("UNITED KINGDOM").isEmpty());
+    }
+
+    public void testEmpty() throws Exception {
+        final TermMatcher matcher = new TermMatcher(Arrays.asList("", null), true);
+        assertEquals(0, matcher.getTermCount());
+        assertTrue(matcher.find("foo").isEmpty());
+        assertTrue(new TermMatcher(Arrays.asList("foo bar"), true).find(null).isEmpty());
+    }
+}
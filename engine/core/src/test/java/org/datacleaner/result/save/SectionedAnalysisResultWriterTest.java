@@ -0,0 +1,211 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.result.save;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.lang.SerializationUtils;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.FileResource;
+import org.apache.metamodel.util.Ref;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.components.mock.AnalyzerMock;
+import org.datacleaner.configuration.ConfiguredPropertyDescriptor;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.descriptors.Descriptors;
+import org.datacleaner.job.ComponentJob;
+import org.datacleaner.job.ImmutableAnalyzerJob;
+import org.datacleaner.job.ImmutableComponentConfiguration;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.AnnotatedRowsResult;
+import org.datacleaner.result.NumberResult;
+import org.datacleaner.result.SimpleAnalysisResult;
+import org.datacleaner.storage.InMemoryRowAnnotationFactory2;
+import org.datacleaner.storage.RowAnnotation;
+import org.datacleaner.storage.RowAnnotationFactory;
+
+import junit.framework.TestCase;
+
+public class SectionedAnalysisResultWriterTest extends TestCase {
+
+    private final File _directory = new File("target/test_sectioned_results");
+
+    private ComponentJob createComponentJob(String name) {
+        return new ImmutableAnalyzerJob(name, Descriptors.ofAnalyzer(AnalyzerMock.class),
+                new ImmutableComponentConfiguration(new LinkedHashMap<ConfiguredPropertyDescriptor, Object>()), null,
+                Collections.<String, String> emptyMap());
+    }
+
+    private FileResource write(String filename, AnalysisResult analysisResult) throws Exception {
+        _directory.mkdirs();
+        final FileResource resource = new FileResource(new File(_directory, filename));
+        final OutputStream out = resource.write();
+        try {
+            new SectionedAnalysisResultWriter().write(analysisResult, out);
+        } finally {
+            FileHelper.safeClose(out);
+        }
+        return resource;
+    }
+
+    public void testWriteAndReadLazily() throws Exception {
+        final ComponentJob job1 = createComponentJob("job1");
+        final ComponentJob job2 = createComponentJob("job2");
+        final Map<ComponentJob, AnalyzerResult> results = new LinkedHashMap<>();
+        results.put(job1, new NumberResult(42));
+        results.put(job2, new NumberResult(1337));
+        final Date creationDate = new Date(1234567890000l);
+
+        final FileResource resource = write("lazy.analysis.result.dat", new SimpleAnalysisResult(results,
+                creationDate));
+        assertTrue(SectionedAnalysisResultReader.isSectioned(resource));
+
+        final SectionedAnalysisResultReader reader = new SectionedAnalysisResultReader(resource);
+        assertEquals(creationDate, reader.getCreationDate());
+
+        final LazyAnalysisResult analysisResult = reader.getAnalysisResult();
+        assertEquals(creationDate, analysisResult.getCreationDate());
+        assertEquals(2, analysisResult.getResultMap().size());
+        assertTrue(analysisResult.getResultMap().containsKey(job2));
+        assertFalse(analysisResult.isLoaded(job1));
+        assertFalse(analysisResult.isLoaded(job2));
+
+        // metric values are available without reading the results
+        assertEquals(1337, analysisResult.getMetricValues(job2).get("Number").intValue());
+        assertFalse(analysisResult.isLoaded(job2));
+
+        assertEquals(1337, ((NumberResult) analysisResult.getResult(job2)).getNumber().intValue());
+        assertTrue(analysisResult.isLoaded(job2));
+        assertFalse(analysisResult.isLoaded(job1));
+
+        assertEquals(42, ((NumberResult) analysisResult.getResult(job1)).getNumber().intValue());
+        assertNull(analysisResult.getResult(createComponentJob("job3")));
+
+        // serialized lazy results become simple results
+        final Object copy = SerializationUtils.clone(analysisResult);
+        assertEquals(SimpleAnalysisResult.class, copy.getClass());
+        assertEquals(2, ((AnalysisResult) copy).getResults().size());
+    }
+
+    public void testSharedAnnotationFactoryWrittenOnce() throws Exception {
+        final InputColumn<String> column = new MockInputColumn<String>("name", String.class);
+        final RowAnnotationFactory annotationFactory = new InMemoryRowAnnotationFactory2(10, 500);
+        final RowAnnotation annotation1 = annotationFactory.createAnnotation();
+        final RowAnnotation annotation2 = annotationFactory.createAnnotation();
+        for (int i = 0; i < 400; i++) {
+            annotationFactory.annotate(new MockInputRow(i).put(column, "value" + (i * 7919)), annotation1);
+            annotationFactory.annotate(new MockInputRow(400 + i).put(column, "other" + (i * 104729)), annotation2);
+        }
+
+        final ComponentJob job1 = createComponentJob("job1");
+        final ComponentJob job2 = createComponentJob("job2");
+        final Map<ComponentJob, AnalyzerResult> singleResult = new LinkedHashMap<>();
+        singleResult.put(job1, new AnnotatedRowsResult(annotation1, annotationFactory, column));
+        final Map<ComponentJob, AnalyzerResult> results = new LinkedHashMap<>(singleResult);
+        results.put(job2, new AnnotatedRowsResult(annotation2, annotationFactory, column));
+
+        final FileResource singleResource = write("single_factory.analysis.result.dat", new SimpleAnalysisResult(
+                singleResult));
+        final FileResource resource = write("shared_factory.analysis.result.dat", new SimpleAnalysisResult(results));
+
+        // the factory holds the sample rows of both results, and is only
+        // written once
+        final long singleSize = singleResource.getFile().length();
+        final long size = resource.getFile().length();
+        assertTrue("Unexpected sizes: " + singleSize + " and " + size, size < singleSize * 1.2);
+
+        final LazyAnalysisResult analysisResult = new SectionedAnalysisResultReader(resource).getAnalysisResult();
+        final AnnotatedRowsResult result1 = (AnnotatedRowsResult) analysisResult.getResult(job1);
+        final AnnotatedRowsResult result2 = (AnnotatedRowsResult) analysisResult.getResult(job2);
+
+        assertSame(getAnnotationFactory(result1), getAnnotationFactory(result2));
+        assertSame(result1.getHighlightedColumns()[0], result2.getHighlightedColumns()[0]);
+        assertEquals(400, result1.getSampleRows().size());
+        assertEquals(400, result2.getSampleRows().size());
+        assertEquals("value0", result1.getSampleRows().get(0).getValue(result1.getHighlightedColumns()[0]));
+        assertEquals("other104729", result2.getSampleRows().get(1).getValue(result2.getHighlightedColumns()[0]));
+    }
+
+    private RowAnnotationFactory getAnnotationFactory(AnnotatedRowsResult result) throws Exception {
+        final Field field = AnnotatedRowsResult.class.getDeclaredField("_annotationFactoryRef");
+        field.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        final Ref<RowAnnotationFactory> ref = (Ref<RowAnnotationFactory>) field.get(result);
+        return ref.get();
+    }
+
+    public void testRewriteCreationDate() throws Exception {
+        final ComponentJob job = createComponentJob("job");
+        final AnalysisResult original = new SimpleAnalysisResult(Collections.<ComponentJob, AnalyzerResult> singletonMap(
+                job, new NumberResult(42)), new Date(1000));
+        final FileResource resource = write("original.analysis.result.dat", original);
+
+        final FileResource rewritten = new FileResource(new File(_directory, "rewritten.analysis.result.dat"));
+        final OutputStream out = rewritten.write();
+        try {
+            new SectionedAnalysisResultWriter().write(new SectionedAnalysisResultReader(resource), new Date(2000),
+                    out);
+        } finally {
+            FileHelper.safeClose(out);
+        }
+
+        final LazyAnalysisResult analysisResult = new SectionedAnalysisResultReader(rewritten).getAnalysisResult();
+        assertEquals(new Date(2000), analysisResult.getCreationDate());
+        assertEquals(42, ((NumberResult) analysisResult.getResult(job)).getNumber().intValue());
+    }
+
+    public void testReadInMemoryAfterFileIsDeleted() throws Exception {
+        final ComponentJob job = createComponentJob("job");
+        final AnalysisResult original = new SimpleAnalysisResult(Collections.<ComponentJob, AnalyzerResult> singletonMap(
+                job, new NumberResult(42)), new Date(1000));
+        final FileResource resource = write("moved.analysis.result.dat", original);
+
+        final LazyAnalysisResult analysisResult = SectionedAnalysisResultReader.inMemory(resource)
+                .getAnalysisResult();
+        assertTrue(resource.getFile().delete());
+
+        assertFalse(analysisResult.isLoaded(job));
+        assertEquals(42, ((NumberResult) analysisResult.getResult(job)).getNumber().intValue());
+    }
+
+    public void testLegacyFormatIsNotSectioned() throws Exception {
+        _directory.mkdirs();
+        final FileResource resource = new FileResource(new File(_directory, "legacy.analysis.result.dat"));
+        final AnalysisResultSaveHandler saveHandler = new AnalysisResultSaveHandler(new SimpleAnalysisResult(
+                Collections.<ComponentJob, AnalyzerResult> emptyMap()), resource);
+        saveHandler.saveOrThrow();
+
+        assertFalse(SectionedAnalysisResultReader.isSectioned(resource));
+        try {
+            new SectionedAnalysisResultReader(resource);
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertTrue(e.getMessage().startsWith("Not a sectioned analysis result"));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class OffHeapHashStoreTest extends TestCase {
+
+    private final File _directory = new File("target/test_offheap_hashstore");
+
+    private OffHeapHashStore _store;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        _directory.mkdirs();
+        _store = new OffHeapHashStore(_directory);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        _store.close();
+    }
+
+    private static byte[] key(int i) {
+        return ("key" + i).getBytes();
+    }
+
+    private static byte[] value(int length, int fill) {
+        final byte[] value = new byte[length];
+        Arrays.fill(value, (byte) fill);
+        return value;
+    }
+
+    public void testUpdateInPlace() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            assertNull(_store.put(key(i), value(8, 0)));
+        }
+        final long recordsSize = _store.getRecordsSize();
+
+        for (int round = 1; round <= 100; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(round - 1, _store.put(key(i), value(8, round))[0]);
+            }
+        }
+        assertEquals(recordsSize, _store.getRecordsSize());
+        assertEquals(0, _store.getGarbageBytes());
+
+        // smaller values are also written in place
+        _store.put(key(42), value(4, 1));
+        assertEquals(recordsSize, _store.getRecordsSize());
+        assertEquals(4, _store.getGarbageBytes());
+        assertTrue(Arrays.equals(value(4, 1), _store.get(key(42))));
+        assertTrue(Arrays.equals(value(8, 100), _store.get(key(43))));
+    }
+
+    public void testCompaction() throws Exception {
+        final int keys = 1000;
+        final int rounds = 20;
+        for (int round = 1; round <= rounds; round++) {
+            for (int i = 0; i < keys; i++) {
+                _store.put(key(i), value(round * 100, round));
+            }
+        }
+        assertEquals(keys, _store.size());
+
+        long liveBytes = 0;
+        for (int i = 0; i < keys; i++) {
+            liveBytes += 8 + key(i).length + rounds * 100;
+            assertTrue(Arrays.equals(value(rounds * 100, rounds), _store.get(key(i))));
+        }
+        // without compaction the log would hold all 20 versions of each value
+        assertTrue(_store.getGarbageBytes() * 2 <= _store.getRecordsSize());
+        assertTrue(_store.getRecordsSize() <= 2 * liveBytes + 8);
+
+        for (int i = 0; i < keys; i += 2) {
+            assertNotNull(_store.remove(key(i)));
+        }
+        assertEquals(keys / 2, _store.size());
+        for (int i = 0; i < keys; i++) {
+            assertEquals(i % 2 == 1, _store.containsKey(key(i)));
+        }
+        assertTrue(_store.getGarbageBytes() * 2 <= _store.getRecordsSize());
+
+        int count = 0;
+        final OffHeapHashStore.Cursor cursor = _store.cursor();
+        while (cursor.hasNext()) {
+            cursor.next();
+            assertTrue(Arrays.equals(value(rounds * 100, rounds), cursor.getValue()));
+            count++;
+        }
+        assertEquals(keys / 2, count);
+    }
+}
@@ -0,0 +1,152 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.datacleaner.api.InputRow;
+import org.datacleaner.data.MockInputRow;
+
+import junit.framework.TestCase;
+
+public class OffHeapStorageProviderTest extends TestCase {
+
+    private final File _directory = new File("target/test_offheap_storage");
+
+    private OffHeapStorageProvider createStorageProvider(int inMemoryThreshold) {
+        return new OffHeapStorageProvider(_directory, inMemoryThreshold, 1.0, 10, 5);
+    }
+
+    public void testMapSpilling() throws Exception {
+        final Map<String, Long> map = createStorageProvider(100).createMap(String.class, Long.class);
+        final Map<String, Long> expected = new HashMap<>();
+
+        for (int i = 0; i < 100000; i++) {
+            final String key = "key" + (i % 50000);
+            assertEquals(expected.put(key, (long) i), map.put(key, (long) i));
+        }
+        assertTrue(((SpillingMap<?, ?>) map).isSpilled());
+        assertEquals(expected.size(), map.size());
+        assertEquals(expected, map);
+
+        assertEquals(99999l, map.get("key49999").longValue());
+        assertNull(map.get("foo"));
+        assertFalse(map.containsKey("foo"));
+
+        for (int i = 0; i < 50000; i += 2) {
+            final String key = "key" + i;
+            assertEquals(expected.remove(key), map.remove(key));
+        }
+        assertEquals(25000, map.size());
+        assertEquals(expected, map);
+
+        map.put(null, null);
+        assertTrue(map.containsKey(null));
+        assertNull(map.get(null));
+    }
+
+    public void testSetSpilling() throws Exception {
+        final Set<Date> set = createStorageProvider(10).createSet(Date.class);
+
+        for (int i = 0; i < 1000; i++) {
+            set.add(new Date(i % 100));
+        }
+        assertEquals(100, set.size());
+        assertTrue(set.contains(new Date(42)));
+        assertFalse(set.contains(new Date(142)));
+
+        int count = 0;
+        for (Date date : set) {
+            assertTrue(date.getTime() < 100);
+            count++;
+        }
+        assertEquals(100, count);
+    }
+
+    public void testListSpilling() throws Exception {
+        final List<String> list = createStorageProvider(100).createList(String.class);
+
+        for (int i = 0; i < 1000; i++) {
+            list.add("element" + i);
+        }
+        assertTrue(((SpillingList<?>) list).isSpilled());
+        assertEquals(1000, list.size());
+        assertEquals("element0", list.get(0));
+        assertEquals("element999", list.get(999));
+
+        list.add(0, null);
+        assertNull(list.get(0));
+        assertEquals("element0", list.remove(1));
+        assertEquals("element1", list.set(1, "foo"));
+        assertEquals("foo", list.get(1));
+        assertEquals(1000, list.size());
+
+        list.clear();
+        assertTrue(list.isEmpty());
+        list.add("bar");
+        assertEquals("bar", list.get(0));
+    }
+
+    public void testRowAnnotationFactory() throws Exception {
+        final RowAnnotationFactory f = createStorageProvider(100).createRowAnnotationFactory();
+        assertEquals(OffHeapRowAnnotationFactory.class, f.getClass());
+
+        final RowAnnotation a1 = f.createAnnotation();
+        final RowAnnotation a2 = f.createAnnotation();
+        for (int i = 0; i < 8; i++) {
+            f.annotate(new MockInputRow(i), a1);
+        }
+        assertEquals(8, a1.getRowCount());
+        assertEquals(5, f.getSampleRows(a1).size());
+        assertEquals(3, f.getSampleRows(a1).get(3).getId());
+        assertFalse(f.hasSampleRows(a2));
+
+        f.transferAnnotations(a1, a2);
+        assertEquals(0, a1.getRowCount());
+        assertFalse(f.hasSampleRows(a1));
+        assertEquals(8, a2.getRowCount());
+        assertEquals(5, f.getSampleRows(a2).size());
+
+        // serialized factories become in-memory factories
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream objectOut = new ObjectOutputStream(out)) {
+            objectOut.writeObject(f);
+            objectOut.writeObject(a2);
+        }
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            final RowAnnotationFactory deserialized = (RowAnnotationFactory) objectIn.readObject();
+            final RowAnnotation deserializedAnnotation = (RowAnnotation) objectIn.readObject();
+            assertEquals(InMemoryRowAnnotationFactory2.class, deserialized.getClass());
+
+            final List<InputRow> rows = deserialized.getSampleRows(deserializedAnnotation);
+            assertEquals(5, rows.size());
+            assertEquals(0, rows.get(0).getId());
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util;
+
+import java.util.List;
+
+import junit.framework.TestCase;
+
+public class ShardPoolTest extends TestCase {
+
+    private static class CounterPool extends ShardPool<long[]> {
+        @Override
+        protected long[] createShard() {
+            return new long[1];
+        }
+    }
+
+    public void testReuseReleasedShard() throws Exception {
+        final CounterPool pool = new CounterPool();
+
+        final long[] shard1 = pool.borrow();
+        shard1[0]++;
+        pool.release(shard1);
+
+        final long[] shard2 = pool.borrow();
+        assertSame(shard1, shard2);
+        shard2[0]++;
+
+        final long[] shard3 = pool.borrow();
+        assertNotSame(shard2, shard3);
+        shard3[0]++;
+
+        pool.release(shard3);
+        pool.release(shard2);
+        assertEquals(2, pool.getShardCount());
+
+        final List<long[]> shards = pool.drain();
+        assertEquals(2, shards.size());
+        assertEquals(3, shards.get(0)[0] + shards.get(1)[0]);
+        assertEquals(0, pool.getShardCount());
+    }
+
+    public void testDrainWhileBorrowed() throws Exception {
+        final CounterPool pool = new CounterPool();
+        final long[] shard1 = pool.borrow();
+        final long[] shard2 = pool.borrow();
+        pool.release(shard1);
+
+        try {
+            pool.drain();
+            fail("Exception expected");
+        } catch (IllegalStateException e) {
+            assertEquals("Cannot drain pool while 1 shard(s) are borrowed", e.getMessage());
+        }
+
+        pool.release(shard2);
+        assertEquals(2, pool.drain().size());
+    }
+
+    public void testShardsBoundedByConcurrentCalls() throws Exception {
+        final CounterPool pool = new CounterPool();
+        for (int i = 0; i < 1000; i++) {
+            final Thread thread = new Thread(() -> {
+                final long[] shard = pool.borrow();
+                try {
+                    shard[0]++;
+                } finally {
+                    pool.release(shard);
+                }
+            });
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(1, pool.getShardCount());
+        assertEquals(1000, pool.drain().get(0)[0]);
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.batch;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+public class PipelinedBatchTransformationBufferTest extends TestCase {
+
+    /**
+     * Stand-in for a remote server: Each batch takes a fixed overhead plus a
+     * small amount of time per row.
+     */
+    private static class StandInServer implements BatchTransformation<Integer, String> {
+
+        private final AtomicInteger _inFlight = new AtomicInteger();
+        private final AtomicInteger _maxInFlight = new AtomicInteger();
+        private final AtomicInteger _maxBatchSize = new AtomicInteger();
+        private final AtomicInteger _rows = new AtomicInteger();
+        private volatile int _failAtRow = -1;
+
+        @Override
+        public void map(BatchSource<Integer> source, BatchSink<String> sink) {
+            final int inFlight = _inFlight.incrementAndGet();
+            try {
+                updateMax(_maxInFlight, inFlight);
+                updateMax(_maxBatchSize, source.size());
+                _rows.addAndGet(source.size());
+                Thread.sleep(20 + source.size() / 10);
+                // reply in reverse order, the buffer must map it back
+                for (int i = source.size() - 1; i >= 0; i--) {
+                    final Integer input = source.getInput(i);
+                    if (input.intValue() == _failAtRow) {
+                        throw new IllegalStateException("Server failure at row " + input);
+                    }
+                    sink.setOutput(i, input + "bar");
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                _inFlight.decrementAndGet();
+            }
+        }
+
+        private static void updateMax(AtomicInteger max, int value) {
+            int current;
+            while ((current = max.get()) < value) {
+                if (max.compareAndSet(current, value)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    public void testBatchSizerGrowsUntilTargetLatency() throws Exception {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1, 1000, 100, 0);
+        assertEquals(1, sizer.getBatchSize());
+
+        // 20 ms overhead per batch and 1 ms per row converges at 80 rows
+        for (int i = 0; i < 50; i++) {
+            final int batchSize = sizer.getBatchSize();
+            sizer.recordLatency(batchSize, 20 + batchSize);
+            assertTrue(sizer.getBatchSize() <= batchSize * 2);
+        }
+        assertTrue(sizer.toString(), sizer.getBatchSize() >= 70 && sizer.getBatchSize() <= 90);
+    }
+
+    public void testBatchSizerLimitedByPayload() throws Exception {
+        final AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(1, 1000, 10000, 5000);
+        for (int i = 0; i < 20; i++) {
+            final int batchSize = sizer.getBatchSize();
+            sizer.recordLatency(batchSize, 1);
+            sizer.recordPayload(batchSize, batchSize * 100);
+        }
+        assertEquals(50, sizer.getBatchSize());
+
+        // a slow batch shrinks the batch size immediately
+        sizer.recordLatency(50, 100000);
+        assertTrue(sizer.toString(), sizer.getBatchSize() < 25);
+
+        try {
+            new AdaptiveBatchSizer(10, 5, 100, 0);
+            fail("Exception expected");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Max batch size cannot be less than min batch size", e.getMessage());
+        }
+    }
+
+    public void testSingleThreadedScenario() throws Exception {
+        final StandInServer server = new StandInServer();
+        final PipelinedBatchTransformationBuffer<Integer, String> buffer = new PipelinedBatchTransformationBuffer<Integer, String>(
+                server, new AdaptiveBatchSizer(1, 100, 1000, 0));
+        buffer.start();
+        try {
+            for (int i = 0; i < 5; i++) {
+                assertEquals(i + "bar", buffer.transform(i));
+            }
+            // idle buffers don't wait for the flush interval
+            assertEquals(5, buffer.getBatchCount());
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    public void testPipelinedScenario() throws Exception {
+        final StandInServer server = new StandInServer();
+        final PipelinedBatchTransformationBuffer<Integer, String> buffer = new PipelinedBatchTransformationBuffer<Integer, String>(
+                server, new AdaptiveBatchSizer(1, 500, 200, 0), 4, 50);
+        buffer.start();
+        try {
+            final int numThreads = 200;
+            final int rowsPerThread = 20;
+            final String[] results = new String[numThreads * rowsPerThread];
+            final Thread[] threads = new Thread[numThreads];
+            for (int i = 0; i < threads.length; i++) {
+                final int threadIndex = i;
+                threads[i] = new Thread() {
+                    @Override
+                    public void run() {
+                        for (int j = 0; j < rowsPerThread; j++) {
+                            final int row = threadIndex * rowsPerThread + j;
+                            results[row] = buffer.transform(row);
+                        }
+                    }
+                };
+                threads[i].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            for (int i = 0; i < results.length; i++) {
+                assertEquals(i + "bar", results[i]);
+            }
+            assertEquals(results.length, server._rows.get());
+            assertTrue("Max in flight: " + server._maxInFlight, server._maxInFlight.get() > 1);
+            assertTrue(server._maxInFlight.get() <= 4);
+            assertTrue("Max batch size: " + server._maxBatchSize, server._maxBatchSize.get() > 20);
+            assertTrue(buffer.getBatchCount() < results.length / 10);
+        } finally {
+            buffer.shutdown();
+        }
+    }
+
+    public void testServerFailure() throws Exception {
+        final StandInServer server = new StandInServer();
+        server._failAtRow = 3;
+        final PipelinedBatchTransformationBuffer<Integer, String> buffer = new PipelinedBatchTransformationBuffer<Integer, String>(
+                server, new AdaptiveBatchSizer(1, 100, 1000, 0));
+        buffer.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                assertEquals(i + "bar", buffer.transform(i));
+            }
+            try {
+                buffer.transform(3);
+                fail("Exception expected");
+            } catch (IllegalStateException e) {
+                assertEquals("Server failure at row 3", e.getMessage());
+            }
+            try {
+                buffer.transform(4);
+                fail("Exception expected");
+            } catch (IllegalStateException e) {
+                assertEquals("Server failure at row 3", e.getMessage());
+            }
+        } finally {
+            buffer.shutdown();
+        }
+    }
+}
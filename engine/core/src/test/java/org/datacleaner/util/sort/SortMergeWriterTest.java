@@ -24,6 +24,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
 import java.util.Comparator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
@@ -241,6 +245,106 @@ public class SortMergeWriterTest extends TestCase {
         }
     }
 
+    public void testDuplicatesDoNotFillBuffer() throws Exception {
+        SortMergeWriter<String, Writer> sorter = new SortMergeWriter<String, Writer>(10,
+                ToStringComparator.getComparator()) {
+
+            @Override
+            protected Writer createWriter(Resource file) {
+                return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
+            }
+
+            @Override
+            protected void writeRow(Writer writer, String row, int count) throws IOException {
+                writer.write(row + "," + count + "\n");
+            }
+
+            protected void writeHeader(Writer writer) throws IOException {
+                writer.write("text,count\n");
+            };
+
+            @Override
+            protected File createTempFile() throws IOException {
+                throw new IllegalStateException("This test is not supposed to require temp files!");
+            }
+        };
+
+        // many more rows than the buffer size, but only 3 distinct ones
+        for (int i = 0; i < 1000; i++) {
+            sorter.append("value" + (i % 3));
+        }
+
+        File file = sorter.write("target/sort_merge_duplicates.txt");
+
+        try (BufferedReader br = FileHelper.getBufferedReader(file)) {
+            assertEquals("text,count", br.readLine());
+            assertEquals("value0,334", br.readLine());
+            assertEquals("value1,333", br.readLine());
+            assertEquals("value2,333", br.readLine());
+            assertNull(br.readLine());
+        }
+    }
+
+    public void testMultiPassMergeOfConcurrentAppends() throws Exception {
+        final AtomicInteger tempFileCount = new AtomicInteger();
+        final SortMergeWriter<String, Writer> sorter = new SortMergeWriter<String, Writer>(7, 3,
+                ToStringComparator.getComparator()) {
+
+            @Override
+            protected Writer createWriter(Resource file) {
+                return FileHelper.getWriter(file.write(), FileHelper.DEFAULT_ENCODING);
+            }
+
+            @Override
+            protected void writeRow(Writer writer, String row, int count) throws IOException {
+                writer.write(row + "," + count + "\n");
+            }
+
+            @Override
+            protected void writeHeader(Writer writer) throws IOException {
+                // do nothing
+            }
+
+            @Override
+            protected File createTempFile() throws IOException {
+                tempFileCount.incrementAndGet();
+                return super.createTempFile();
+            }
+        };
+
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; j++) {
+                        sorter.append("value" + (j % 250), 2);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        final File file = new File("target/sort_merge_multi_pass.txt");
+        assertEquals(250, sorter.write(file));
+
+        // more runs than the initial ones means that several passes were made
+        assertTrue(tempFileCount.get() > 4000 / 7);
+
+        final Map<String, Integer> expected = new TreeMap<String, Integer>();
+        for (int j = 0; j < 250; j++) {
+            expected.put("value" + j, 32);
+        }
+        final StringBuilder expectedString = new StringBuilder();
+        for (Entry<String, Integer> entry : expected.entrySet()) {
+            expectedString.append(entry.getKey() + "," + entry.getValue() + "\n");
+        }
+        assertEquals(expectedString.toString().trim(), FileHelper.readFileAsString(file));
+    }
+
     private void doSortTests(int threshold) throws Exception {
         SortMergeWriter<String, Writer> sorter = new SortMergeWriter<String, Writer>(threshold,
                 ToStringComparator.getComparator()) {
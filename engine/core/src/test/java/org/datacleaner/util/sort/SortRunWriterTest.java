@@ -0,0 +1,109 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.util.sort;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.data.DataSetHeader;
+import org.apache.metamodel.data.DefaultRow;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.data.SimpleDataSetHeader;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.MutableColumn;
+
+public class SortRunWriterTest extends TestCase {
+
+    public void testRoundTripOfArrays() throws Exception {
+        final File file = File.createTempFile("sort_run", ".dat");
+        file.deleteOnExit();
+
+        final Date date = new Date(1234567890L);
+        try (SortRunWriter writer = new SortRunWriter(file)) {
+            writer.write("foo", 1);
+            writer.write(new String[] { "foo", null, "b\u00e6r" }, 2);
+            writer.write(new Object[] { 1, 2L, 3.5d, true, date, null, new StringBuilder("sb") }, 3);
+        }
+
+        try (SortRunReader<Object> reader = new SortRunReader<Object>(file)) {
+            assertTrue(reader.next());
+            assertEquals("foo", reader.getRow());
+            assertEquals(1, reader.getCount());
+
+            assertTrue(reader.next());
+            assertEquals(String[].class, reader.getRow().getClass());
+            assertEquals("[foo, null, b\u00e6r]", Arrays.toString((String[]) reader.getRow()));
+            assertEquals(2, reader.getCount());
+
+            assertTrue(reader.next());
+            final Object[] values = (Object[]) reader.getRow();
+            assertEquals(Integer.valueOf(1), values[0]);
+            assertEquals(Long.valueOf(2), values[1]);
+            assertEquals(Double.valueOf(3.5), values[2]);
+            assertEquals(Boolean.TRUE, values[3]);
+            assertEquals(date, values[4]);
+            assertNull(values[5]);
+            assertEquals("sb", values[6].toString());
+            assertEquals(3, reader.getCount());
+
+            assertFalse(reader.next());
+        }
+    }
+
+    public void testRowHeaderWrittenOncePerRun() throws Exception {
+        final File file = File.createTempFile("sort_run", ".dat");
+        file.deleteOnExit();
+
+        final SelectItem[] selectItems = new SelectItem[] { new SelectItem(new MutableColumn("name")),
+                new SelectItem(new MutableColumn("age")) };
+        final DataSetHeader header = new SimpleDataSetHeader(Arrays.asList(selectItems));
+
+        final int rowCount = 1000;
+        try (SortRunWriter writer = new SortRunWriter(file)) {
+            for (int i = 0; i < rowCount; i++) {
+                writer.write(new DefaultRow(header, new Object[] { "name" + i, i }), 1);
+            }
+        }
+
+        // each record is the name, the age and a few bytes of tags and lengths,
+        // the select items are only serialized with the first one
+        assertTrue("Unexpected run size: " + file.length(), file.length() < 20 * rowCount + 2000);
+
+        try (SortRunReader<Row> reader = new SortRunReader<Row>(file)) {
+            Row previousRow = null;
+            for (int i = 0; i < rowCount; i++) {
+                assertTrue(reader.next());
+                final Row row = reader.getRow();
+                assertEquals("name" + i, row.getValue(0));
+                assertEquals(Integer.valueOf(i), row.getValue(1));
+                assertEquals(2, row.getSelectItems().length);
+                assertEquals("name", row.getSelectItems()[0].getColumn().getName());
+                if (previousRow != null) {
+                    assertSame(previousRow.getSelectItems()[1], row.getSelectItems()[1]);
+                }
+                previousRow = row;
+            }
+            assertFalse(reader.next());
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import java.util.Map;
+
+import org.apache.metamodel.fixedwidth.EbcdicConfiguration;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.FixedWidthDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.ImmutableAnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+
+/**
+ * {@link JobDivision} which restricts a slave job to a line aligned byte range
+ * of a CSV or fixed width file.
+ * 
+ * The byte range is passed on to the slave node as job metadata properties,
+ * and applied by the slave (see {@link #resolveSlaveJob(AnalysisJob)}) by
+ * replacing the datastore of the job with one that reads only the byte range
+ * (plus the header lines) of the file.
+ */
+final class ByteRangeJobDivision implements JobDivision {
+
+    public static final String PROPERTY_HEADER_END = "datacleaner.cluster.byterange.header.end";
+    public static final String PROPERTY_START = "datacleaner.cluster.byterange.start";
+    public static final String PROPERTY_END = "datacleaner.cluster.byterange.end";
+
+    private final long _headerEnd;
+    private final long _start;
+    private final long _end;
+
+    /**
+     * 
+     * @param headerEnd
+     *            the end (exclusive) of the header lines of the file
+     * @param start
+     *            the start (inclusive) of the byte range
+     * @param end
+     *            the end (exclusive) of the byte range
+     */
+    public ByteRangeJobDivision(long headerEnd, long start, long end) {
+        _headerEnd = headerEnd;
+        _start = start;
+        _end = end;
+    }
+
+    public long getStart() {
+        return _start;
+    }
+
+    public long getEnd() {
+        return _end;
+    }
+
+    @Override
+    public void applyTo(AnalysisJobBuilder slaveJobBuilder) {
+        final Map<String, String> properties = slaveJobBuilder.getAnalysisJobMetadata().getProperties();
+        properties.put(PROPERTY_HEADER_END, Long.toString(_headerEnd));
+        properties.put(PROPERTY_START, Long.toString(_start));
+        properties.put(PROPERTY_END, Long.toString(_end));
+    }
+
+    @Override
+    public String toString() {
+        return "ByteRangeJobDivision[" + _start + "," + _end + "]";
+    }
+
+    /**
+     * Determines if byte range divisions can be applied to a datastore.
+     * 
+     * @param datastore
+     * @return
+     */
+    public static boolean isSupported(Datastore datastore) {
+        if (datastore instanceof CsvDatastore) {
+            // multiline values would make line aligned ranges unreliable
+            return !((CsvDatastore) datastore).isMultilineValues();
+        }
+        if (datastore instanceof FixedWidthDatastore) {
+            final FixedWidthDatastore fixedWidthDatastore = (FixedWidthDatastore) datastore;
+            return fixedWidthDatastore.isEolPresent()
+                    && !(fixedWidthDatastore.getConfiguration() instanceof EbcdicConfiguration);
+        }
+        return false;
+    }
+
+    /**
+     * Resolves the job to run on a slave node. If the job has been divided by
+     * byte ranges, a copy of the job is returned which reads from a byte range
+     * of the datastore's file. Otherwise the job is returned as-is.
+     * 
+     * @param job
+     * @return
+     */
+    public static AnalysisJob resolveSlaveJob(AnalysisJob job) {
+        final Map<String, String> properties = job.getMetadata().getProperties();
+        if (properties == null || !properties.containsKey(PROPERTY_START)) {
+            return job;
+        }
+
+        final long headerEnd = Long.parseLong(properties.get(PROPERTY_HEADER_END));
+        final long start = Long.parseLong(properties.get(PROPERTY_START));
+        final long end = Long.parseLong(properties.get(PROPERTY_END));
+
+        final Datastore datastore = job.getDatastore();
+        if (!isSupported(datastore)) {
+            throw new UnsupportedOperationException("Byte range divisions are not supported for datastore: "
+                    + datastore);
+        }
+
+        final Datastore rangeDatastore = createByteRangeDatastore(datastore, headerEnd, start, end);
+        return new ImmutableAnalysisJob(job.getMetadata(), rangeDatastore, job.getSourceColumns(),
+                job.getFilterJobs(), job.getTransformerJobs(), job.getAnalyzerJobs());
+    }
+
+    private static Datastore createByteRangeDatastore(Datastore datastore, long headerEnd, long start, long end) {
+        if (datastore instanceof CsvDatastore) {
+            final CsvDatastore csvDatastore = (CsvDatastore) datastore;
+            final Resource resource = new ByteRangeResource(csvDatastore.getResource(), headerEnd, start, end);
+            return new CsvDatastore(csvDatastore.getName(), resource, csvDatastore.getFilename(),
+                    csvDatastore.getQuoteChar(), csvDatastore.getSeparatorChar(), csvDatastore.getEscapeChar(),
+                    csvDatastore.getEncoding(), csvDatastore.isFailOnInconsistencies(), false,
+                    csvDatastore.getHeaderLineNumber(), csvDatastore.getCustomColumnNames());
+        }
+
+        final FixedWidthDatastore fixedWidthDatastore = (FixedWidthDatastore) datastore;
+        final Resource resource = new ByteRangeResource(fixedWidthDatastore.getResource(), headerEnd, start, end);
+        if (fixedWidthDatastore.getFixedValueWidth() == -1) {
+            return new FixedWidthDatastore(fixedWidthDatastore.getName(), resource,
+                    fixedWidthDatastore.getFilename(), fixedWidthDatastore.getEncoding(),
+                    fixedWidthDatastore.getValueWidths(), fixedWidthDatastore.isFailOnInconsistencies(),
+                    fixedWidthDatastore.isSkipEbcdicHeader(), fixedWidthDatastore.isEolPresent(),
+                    fixedWidthDatastore.getHeaderLineNumber(), fixedWidthDatastore.getCustomColumnNames());
+        }
+        return new FixedWidthDatastore(fixedWidthDatastore.getName(), resource, fixedWidthDatastore.getFilename(),
+                fixedWidthDatastore.getEncoding(), fixedWidthDatastore.getFixedValueWidth(),
+                fixedWidthDatastore.isFailOnInconsistencies(), fixedWidthDatastore.isSkipEbcdicHeader(),
+                fixedWidthDatastore.isEolPresent(), fixedWidthDatastore.getHeaderLineNumber());
+    }
+}
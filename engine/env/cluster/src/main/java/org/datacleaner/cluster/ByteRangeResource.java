@@ -0,0 +1,133 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+
+import org.apache.metamodel.util.AbstractResource;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.Resource;
+import org.apache.metamodel.util.ResourceException;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * Read-only {@link Resource} which exposes a byte range of another resource,
+ * prefixed with the header bytes of that resource. Used to let a slave job
+ * read only it's own slice of a text file.
+ */
+final class ByteRangeResource extends AbstractResource {
+
+    private final Resource _resource;
+    private final long _headerEnd;
+    private final long _start;
+    private final long _end;
+
+    /**
+     * 
+     * @param resource
+     *            the resource to read a range of
+     * @param headerEnd
+     *            the end (exclusive) of the header bytes, which are always
+     *            included
+     * @param start
+     *            the start (inclusive) of the byte range
+     * @param end
+     *            the end (exclusive) of the byte range
+     */
+    public ByteRangeResource(Resource resource, long headerEnd, long start, long end) {
+        if (headerEnd > start || start > end) {
+            throw new IllegalArgumentException("Illegal byte range: " + headerEnd + "," + start + "," + end);
+        }
+        _resource = resource;
+        _headerEnd = headerEnd;
+        _start = start;
+        _end = end;
+    }
+
+    @Override
+    public String toString() {
+        return "ByteRangeResource[" + _resource + "," + _start + "," + _end + "]";
+    }
+
+    @Override
+    public String getName() {
+        // use the same name as the whole resource, since it determines the
+        // schema name of file based datastores
+        return _resource.getName();
+    }
+
+    @Override
+    public String getQualifiedPath() {
+        return _resource.getQualifiedPath();
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    @Override
+    public boolean isExists() {
+        return _resource.isExists();
+    }
+
+    @Override
+    public long getSize() {
+        final long end = Math.min(_end, _resource.getSize());
+        return _headerEnd + Math.max(0, end - _start);
+    }
+
+    @Override
+    public long getLastModified() {
+        return _resource.getLastModified();
+    }
+
+    @Override
+    public InputStream read() throws ResourceException {
+        final InputStream body = _resource.read();
+        try {
+            ByteStreams.skipFully(body, _start);
+        } catch (IOException e) {
+            FileHelper.safeClose(body);
+            throw new ResourceException(this, e);
+        }
+        final InputStream limitedBody = ByteStreams.limit(body, _end - _start);
+        if (_headerEnd == 0) {
+            return limitedBody;
+        }
+
+        final InputStream header = ByteStreams.limit(_resource.read(), _headerEnd);
+        return new SequenceInputStream(header, limitedBody);
+    }
+
+    @Override
+    public OutputStream write() throws ResourceException {
+        throw new UnsupportedOperationException("Cannot write to a byte range of a resource");
+    }
+
+    @Override
+    public OutputStream append() throws ResourceException {
+        throw new UnsupportedOperationException("Cannot append to a byte range of a resource");
+    }
+}
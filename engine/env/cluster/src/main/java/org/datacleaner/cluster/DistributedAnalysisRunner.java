@@ -157,13 +157,24 @@ public final class DistributedAnalysisRunner implements AnalysisRunner {
             } else {
                 final JobDivisionManager jobDivisionManager = _clusterManager.getJobDivisionManager();
                 final int chunks = jobDivisionManager.calculateDivisionCount(job, expectedRows);
-                final int rowsPerChunk = (expectedRows + 1) / chunks;
+                final List<JobDivision> divisions = jobDivisionManager.createDivisions(job, chunks);
 
-                logger.info(
-                        "Expected rows was {}. A total number of {} slave jobs will be built, each of approx. {} rows.",
-                        expectedRows, chunks, rowsPerChunk);
+                final List<AnalysisResultFuture> results;
+                if (divisions == null || divisions.isEmpty()) {
+                    final int rowsPerChunk = (expectedRows + 1) / chunks;
 
-                final List<AnalysisResultFuture> results = dispatchJobs(job, chunks, rowsPerChunk, publisher);
+                    logger.info(
+                            "Expected rows was {}. A total number of {} slave jobs will be built, each of approx. {} rows.",
+                            expectedRows, chunks, rowsPerChunk);
+
+                    results = dispatchJobs(job, chunks, rowsPerChunk, publisher);
+                } else {
+                    logger.info(
+                            "Expected rows was {}. A total number of {} slave jobs will be built, divided on physical boundaries of the source.",
+                            expectedRows, divisions.size());
+
+                    results = dispatchJobs(job, divisions);
+                }
                 final DistributedAnalysisResultReducer reducer = new DistributedAnalysisResultReducer(job,
                         lifeCycleHelper, publisher, _analysisListener);
                 resultFuture = new DistributedAnalysisResultFuture(results, reducer);
@@ -215,24 +226,75 @@ public final class DistributedAnalysisRunner implements AnalysisRunner {
             }
 
             final AnalysisJob slaveJob = buildSlaveJob(job, i, firstRow, maxRows);
-            final DistributedJobContext context = new DistributedJobContextImpl(_configuration, job, i, chunks);
-
-            try {
-                logger.info("Dispatching slave job {} of {}", i + 1, chunks);
-                final AnalysisResultFuture slaveResultFuture = _clusterManager.dispatchJob(slaveJob, context);
-                results.add(slaveResultFuture);
-            } catch (Exception e) {
-                _analysisListener.errorUnknown(job, e);
-                // exceptions due to dispatching jobs are added as the first of
-                // the job's errors, and the rest of the execution is aborted.
-                AnalysisResultFuture errorResult = new FailedAnalysisResultFuture(e);
-                results.add(0, errorResult);
+            if (!dispatchJob(job, slaveJob, i, chunks, results)) {
+                break;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Dispatches slave jobs based on a list of {@link JobDivision}s, each
+     * representing a physical slice of the source data.
+     * 
+     * @param job
+     * @param divisions
+     * @return
+     */
+    public List<AnalysisResultFuture> dispatchJobs(final AnalysisJob job, final List<JobDivision> divisions) {
+        final List<AnalysisResultFuture> results = new ArrayList<AnalysisResultFuture>();
+        final int chunks = divisions.size();
+        for (int i = 0; i < chunks; i++) {
+            final AnalysisJob slaveJob = buildSlaveJob(job, i, divisions.get(i));
+            if (!dispatchJob(job, slaveJob, i, chunks, results)) {
                 break;
             }
         }
         return results;
     }
 
+    private boolean dispatchJob(final AnalysisJob job, final AnalysisJob slaveJob, final int slaveJobIndex,
+            final int chunks, final List<AnalysisResultFuture> results) {
+        final DistributedJobContext context = new DistributedJobContextImpl(_configuration, job, slaveJobIndex,
+                chunks);
+
+        try {
+            logger.info("Dispatching slave job {} of {}", slaveJobIndex + 1, chunks);
+            final AnalysisResultFuture slaveResultFuture = _clusterManager.dispatchJob(slaveJob, context);
+            results.add(slaveResultFuture);
+            return true;
+        } catch (Exception e) {
+            _analysisListener.errorUnknown(job, e);
+            // exceptions due to dispatching jobs are added as the first of
+            // the job's errors, and the rest of the execution is aborted.
+            AnalysisResultFuture errorResult = new FailedAnalysisResultFuture(e);
+            results.add(0, errorResult);
+            return false;
+        }
+    }
+
+    /**
+     * Creates a slave job by copying the original job and applying a
+     * {@link JobDivision} to it.
+     * 
+     * @param job
+     * @param slaveJobIndex
+     * @param division
+     * @return
+     */
+    private AnalysisJob buildSlaveJob(AnalysisJob job, int slaveJobIndex, JobDivision division) {
+        logger.info("Building slave job {} with division {}", slaveJobIndex + 1, division);
+
+        try (final AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(_configuration, job)) {
+            division.applyTo(jobBuilder);
+
+            // in assertion/test mode do an early validation
+            assert jobBuilder.isConfigured(true);
+
+            return jobBuilder.toAnalysisJob();
+        }
+    }
+
     /**
      * Creates a slave job by copying the original job and adding a
      * {@link MaxRowsFilter} as a default requirement.
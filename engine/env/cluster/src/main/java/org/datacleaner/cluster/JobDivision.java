@@ -0,0 +1,40 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+
+/**
+ * Represents a division of a master job, ie. the slice of source data that a
+ * single slave job should process.
+ * 
+ * @see JobDivisionManager#createDivisions(org.datacleaner.job.AnalysisJob, int)
+ */
+public interface JobDivision {
+
+    /**
+     * Applies this division to a slave job, which is initially a copy of the
+     * master job.
+     * 
+     * @param slaveJobBuilder
+     */
+    public void applyTo(AnalysisJobBuilder slaveJobBuilder);
+
+}
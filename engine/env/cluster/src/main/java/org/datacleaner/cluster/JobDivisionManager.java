@@ -19,6 +19,9 @@
  */
 package org.datacleaner.cluster;
 
+import java.util.Collections;
+import java.util.List;
+
 import org.datacleaner.job.AnalysisJob;
 
 /**
@@ -35,4 +38,22 @@ public interface JobDivisionManager {
 
     public int calculateDivisionCount(AnalysisJob masterJob, int expectedRows);
 
+    /**
+     * Creates the divisions of a master job, each representing the slice of
+     * source data that a single slave job should process.
+     * 
+     * If no divisions are returned, slave jobs will be built by paginating the
+     * source records into {@link #calculateDivisionCount(AnalysisJob, int)}
+     * chunks of rows.
+     * 
+     * @param masterJob
+     * @param divisionCount
+     *            the preferred number of divisions, as returned by
+     *            {@link #calculateDivisionCount(AnalysisJob, int)}
+     * @return
+     */
+    public default List<JobDivision> createDivisions(AnalysisJob masterJob, int divisionCount) {
+        return Collections.emptyList();
+    }
+
 }
@@ -0,0 +1,168 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import org.apache.metamodel.query.FilterItem;
+import org.apache.metamodel.query.OperatorType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.datacleaner.api.Categorized;
+import org.datacleaner.api.Configured;
+import org.datacleaner.api.Description;
+import org.datacleaner.api.Distributed;
+import org.datacleaner.api.HasLabelAdvice;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.InputRow;
+import org.datacleaner.api.QueryOptimizedFilter;
+import org.datacleaner.api.Validate;
+import org.datacleaner.components.categories.FilterCategory;
+
+/**
+ * Filter which is added to slave jobs in order to make them process only a
+ * range of (primary) key values. Since the filter is query optimized, each
+ * slave will only query it's own range of records.
+ * 
+ * The filter is not annotated with {@link javax.inject.Named}, since it is
+ * only meant to be added to slave jobs by the cluster, and should not be
+ * discovered as part of the component library.
+ */
+@Description("Filters records based on a range of numeric key values.")
+@Categorized(value = FilterCategory.class)
+@Distributed(false)
+public class KeyRangeFilter implements QueryOptimizedFilter<KeyRangeFilter.Category>, HasLabelAdvice {
+
+    public static enum Category {
+        VALID, INVALID
+    }
+
+    @Configured
+    @Description("The key column to filter on.")
+    InputColumn<?> keyColumn;
+
+    @Configured(required = false)
+    @Description("The lowest key value (inclusive) to process. If not set, there is no lower bound.")
+    Long fromKey;
+
+    @Configured(required = false)
+    @Description("The highest key value (exclusive) to process. If not set, there is no upper bound.")
+    Long toKey;
+
+    public KeyRangeFilter() {
+    }
+
+    public KeyRangeFilter(InputColumn<?> keyColumn, Long fromKey, Long toKey) {
+        this();
+        this.keyColumn = keyColumn;
+        this.fromKey = fromKey;
+        this.toKey = toKey;
+    }
+
+    @Override
+    public String getSuggestedLabel() {
+        return "Key range [" + (fromKey == null ? "" : fromKey) + ";" + (toKey == null ? "" : toKey) + "[";
+    }
+
+    public InputColumn<?> getKeyColumn() {
+        return keyColumn;
+    }
+
+    public void setKeyColumn(InputColumn<?> keyColumn) {
+        this.keyColumn = keyColumn;
+    }
+
+    public Long getFromKey() {
+        return fromKey;
+    }
+
+    public void setFromKey(Long fromKey) {
+        this.fromKey = fromKey;
+    }
+
+    public Long getToKey() {
+        return toKey;
+    }
+
+    public void setToKey(Long toKey) {
+        this.toKey = toKey;
+    }
+
+    @Validate
+    public void validate() {
+        if (fromKey != null && toKey != null && fromKey.longValue() >= toKey.longValue()) {
+            throw new IllegalStateException("From key must be lower than to key");
+        }
+    }
+
+    @Override
+    public Category categorize(InputRow inputRow) {
+        final Object value = inputRow.getValue(keyColumn);
+        if (value == null) {
+            return Category.INVALID;
+        }
+        final BigDecimal key = toBigDecimal(value);
+        if (fromKey != null && key.compareTo(BigDecimal.valueOf(fromKey.longValue())) < 0) {
+            return Category.INVALID;
+        }
+        if (toKey != null && key.compareTo(BigDecimal.valueOf(toKey.longValue())) >= 0) {
+            return Category.INVALID;
+        }
+        return Category.VALID;
+    }
+
+    private BigDecimal toBigDecimal(Object value) {
+        if (value instanceof BigDecimal) {
+            return (BigDecimal) value;
+        }
+        if (value instanceof BigInteger) {
+            return new BigDecimal((BigInteger) value);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return BigDecimal.valueOf(((Number) value).longValue());
+        }
+        return new BigDecimal(value.toString().trim());
+    }
+
+    @Override
+    public boolean isOptimizable(Category category) {
+        // can only optimize the valid records
+        return category == Category.VALID;
+    }
+
+    @Override
+    public Query optimizeQuery(Query q, Category category) {
+        if (category != Category.VALID) {
+            throw new IllegalStateException("Can only optimize the VALID key range category");
+        }
+
+        final SelectItem selectItem = new SelectItem(keyColumn.getPhysicalColumn());
+        if (fromKey != null) {
+            final FilterItem greaterThanFilter = new FilterItem(selectItem, OperatorType.GREATER_THAN, fromKey);
+            final FilterItem equalsFilter = new FilterItem(selectItem, OperatorType.EQUALS_TO, fromKey);
+            q.where(new FilterItem(greaterThanFilter, equalsFilter));
+        }
+        if (toKey != null) {
+            q.where(selectItem, OperatorType.LESS_THAN, toKey);
+        }
+        return q;
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.metamodel.data.DataSet;
+import org.apache.metamodel.data.Row;
+import org.apache.metamodel.query.FunctionType;
+import org.apache.metamodel.query.Query;
+import org.apache.metamodel.query.SelectItem;
+import org.apache.metamodel.schema.Column;
+import org.apache.metamodel.schema.ColumnType;
+import org.apache.metamodel.schema.Table;
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.Resource;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.Datastore;
+import org.datacleaner.connection.DatastoreConnection;
+import org.datacleaner.connection.FixedWidthDatastore;
+import org.datacleaner.connection.JdbcDatastore;
+import org.datacleaner.job.AnalysisJob;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.ByteStreams;
+
+/**
+ * A {@link JobDivisionManager} which divides jobs on physical boundaries of
+ * the source data, so that each slave only reads it's own slice of the data,
+ * instead of scanning and discarding all preceding records:
+ * 
+ * <ul>
+ * <li>CSV and fixed width files are divided into line aligned byte ranges.</li>
+ * <li>JDBC tables with a single numeric primary key are divided into ranges of
+ * key values.</li>
+ * </ul>
+ * 
+ * The number of divisions is determined by a delegate
+ * {@link JobDivisionManager}, which is also used as the fallback for sources
+ * that cannot be divided on physical boundaries.
+ * 
+ * Note that key ranges are of equal width, so tables with very unevenly
+ * distributed key values will give unevenly sized divisions.
+ */
+public class PhysicalBoundaryJobDivisionManager implements JobDivisionManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhysicalBoundaryJobDivisionManager.class);
+
+    private final JobDivisionManager _delegate;
+
+    public PhysicalBoundaryJobDivisionManager(JobDivisionManager delegate) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("Delegate JobDivisionManager cannot be null");
+        }
+        _delegate = delegate;
+    }
+
+    public JobDivisionManager getDelegate() {
+        return _delegate;
+    }
+
+    @Override
+    public int calculateDivisionCount(AnalysisJob masterJob, int expectedRows) {
+        return _delegate.calculateDivisionCount(masterJob, expectedRows);
+    }
+
+    @Override
+    public List<JobDivision> createDivisions(AnalysisJob masterJob, int divisionCount) {
+        if (divisionCount <= 1) {
+            // nothing to gain from physical boundaries
+            return Collections.emptyList();
+        }
+
+        final Datastore datastore = masterJob.getDatastore();
+        try {
+            if (ByteRangeJobDivision.isSupported(datastore)) {
+                if (datastore instanceof CsvDatastore) {
+                    final CsvDatastore csvDatastore = (CsvDatastore) datastore;
+                    return createByteRangeDivisions(csvDatastore.getResource(), csvDatastore.getEncoding(),
+                            csvDatastore.getHeaderLineNumber(), divisionCount);
+                } else {
+                    final FixedWidthDatastore fixedWidthDatastore = (FixedWidthDatastore) datastore;
+                    return createByteRangeDivisions(fixedWidthDatastore.getResource(),
+                            fixedWidthDatastore.getEncoding(), fixedWidthDatastore.getHeaderLineNumber(),
+                            divisionCount);
+                }
+            }
+            if (datastore instanceof JdbcDatastore) {
+                return createPrimaryKeyRangeDivisions(masterJob, datastore, divisionCount);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to divide job on physical boundaries, falling back to row ranges", e);
+        }
+        return Collections.emptyList();
+    }
+
+    private List<JobDivision> createByteRangeDivisions(Resource resource, String encoding, int headerLineNumber,
+            int divisionCount) {
+        if (resource == null || !resource.isExists() || !isSingleByteLineFeed(encoding)) {
+            return Collections.emptyList();
+        }
+
+        final long size = resource.getSize();
+        final long headerEnd = findLineStart(resource, 0, Math.max(0, headerLineNumber));
+        if (headerEnd >= size) {
+            return Collections.emptyList();
+        }
+
+        final List<JobDivision> divisions = new ArrayList<>(divisionCount);
+        long start = headerEnd;
+        for (int i = 1; i < divisionCount; i++) {
+            final long approximateEnd = headerEnd + (long) ((double) (size - headerEnd) * i / divisionCount);
+            if (approximateEnd <= start) {
+                continue;
+            }
+            final long end = findLineStart(resource, approximateEnd - 1, 1);
+            if (end >= size) {
+                break;
+            }
+            divisions.add(new ByteRangeJobDivision(headerEnd, start, end));
+            start = end;
+        }
+
+        // the last division reads until the end of the file
+        divisions.add(new ByteRangeJobDivision(headerEnd, start, Long.MAX_VALUE));
+
+        logger.info("Divided file {} into {} byte ranges", resource.getName(), divisions.size());
+        return divisions;
+    }
+
+    /**
+     * Determines if line feeds are encoded as a single (unambiguous) byte in
+     * an encoding, which is the case for ASCII compatible encodings such as
+     * UTF-8 and ISO-8859-1, but not for eg. UTF-16.
+     * 
+     * @param encoding
+     * @return
+     */
+    private boolean isSingleByteLineFeed(String encoding) {
+        final Charset charset = Charset.forName(encoding == null ? FileHelper.UTF_8_ENCODING : encoding);
+        final byte[] bytes = "\n".getBytes(charset);
+        return bytes.length == 1 && bytes[0] == '\n';
+    }
+
+    /**
+     * Finds the position after a number of line feeds, starting at a
+     * particular position.
+     * 
+     * @param resource
+     * @param position
+     * @param lines
+     * @return the position, or the size of the resource if there are not
+     *         enough lines
+     */
+    private long findLineStart(Resource resource, long position, int lines) {
+        if (lines == 0) {
+            return position;
+        }
+        final InputStream inputStream = new BufferedInputStream(resource.read());
+        try {
+            ByteStreams.skipFully(inputStream, position);
+            long currentPosition = position;
+            int remainingLines = lines;
+            int b;
+            while ((b = inputStream.read()) != -1) {
+                currentPosition++;
+                if (b == '\n') {
+                    remainingLines--;
+                    if (remainingLines == 0) {
+                        break;
+                    }
+                }
+            }
+            return currentPosition;
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read from resource: " + resource, e);
+        } finally {
+            FileHelper.safeClose(inputStream);
+        }
+    }
+
+    private List<JobDivision> createPrimaryKeyRangeDivisions(AnalysisJob masterJob, Datastore datastore,
+            int divisionCount) {
+        final List<InputColumn<?>> sourceColumns = masterJob.getSourceColumns();
+        if (sourceColumns.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        final Table table = sourceColumns.get(0).getPhysicalColumn().getTable();
+        final Column[] primaryKeys = table.getPrimaryKeys();
+        if (primaryKeys.length != 1) {
+            return Collections.emptyList();
+        }
+        final Column primaryKey = primaryKeys[0];
+        final ColumnType type = primaryKey.getType();
+        if (type == null || !type.isNumber()) {
+            return Collections.emptyList();
+        }
+
+        final Number minKey;
+        final Number maxKey;
+        try (final DatastoreConnection connection = datastore.openConnection()) {
+            final Query query = new Query().from(table).select(new SelectItem(FunctionType.MIN, primaryKey))
+                    .select(new SelectItem(FunctionType.MAX, primaryKey));
+            try (final DataSet dataSet = connection.getDataContext().executeQuery(query)) {
+                if (!dataSet.next()) {
+                    return Collections.emptyList();
+                }
+                final Row row = dataSet.getRow();
+                minKey = (Number) row.getValue(0);
+                maxKey = (Number) row.getValue(1);
+            }
+        }
+        if (minKey == null || maxKey == null) {
+            return Collections.emptyList();
+        }
+
+        final long min = (long) Math.floor(minKey.doubleValue());
+        final long max = (long) Math.floor(maxKey.doubleValue());
+        final double width = (double) max - min + 1;
+        final int count = (int) Math.min(divisionCount, width);
+
+        final List<JobDivision> divisions = new ArrayList<>(count);
+        Long fromKey = null;
+        for (int i = 1; i < count; i++) {
+            final long toKey = min + (long) (width * i / count);
+            if (fromKey != null && toKey <= fromKey.longValue()) {
+                continue;
+            }
+            divisions.add(new PrimaryKeyRangeJobDivision(primaryKey, fromKey, toKey));
+            fromKey = toKey;
+        }
+
+        // the first and last divisions are unbounded, to cover all records
+        divisions.add(new PrimaryKeyRangeJobDivision(primaryKey, fromKey, null));
+
+        logger.info("Divided table {} into {} ranges of primary key {}", table.getName(), divisions.size(),
+                primaryKey.getName());
+        return divisions;
+    }
+}
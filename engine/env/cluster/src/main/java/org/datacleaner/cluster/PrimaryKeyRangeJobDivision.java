@@ -0,0 +1,82 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import org.apache.metamodel.schema.Column;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.FilterComponentBuilder;
+
+/**
+ * {@link JobDivision} which restricts a slave job to a range of primary key
+ * values, using a {@link KeyRangeFilter}.
+ */
+final class PrimaryKeyRangeJobDivision implements JobDivision {
+
+    private final Column _primaryKey;
+    private final Long _fromKey;
+    private final Long _toKey;
+
+    /**
+     * 
+     * @param primaryKey
+     *            the primary key column
+     * @param fromKey
+     *            the lowest key (inclusive), or null if there is no lower bound
+     * @param toKey
+     *            the highest key (exclusive), or null if there is no upper
+     *            bound
+     */
+    public PrimaryKeyRangeJobDivision(Column primaryKey, Long fromKey, Long toKey) {
+        _primaryKey = primaryKey;
+        _fromKey = fromKey;
+        _toKey = toKey;
+    }
+
+    public Long getFromKey() {
+        return _fromKey;
+    }
+
+    public Long getToKey() {
+        return _toKey;
+    }
+
+    @Override
+    public void applyTo(AnalysisJobBuilder slaveJobBuilder) {
+        InputColumn<?> keyColumn = slaveJobBuilder.getSourceColumnByName(_primaryKey.getName());
+        if (keyColumn == null) {
+            slaveJobBuilder.addSourceColumn(_primaryKey);
+            keyColumn = slaveJobBuilder.getSourceColumnByName(_primaryKey.getName());
+        }
+
+        final FilterComponentBuilder<KeyRangeFilter, KeyRangeFilter.Category> keyRangeFilter = slaveJobBuilder
+                .addFilter(KeyRangeFilter.class);
+        keyRangeFilter.getComponentInstance().setKeyColumn(keyColumn);
+        keyRangeFilter.getComponentInstance().setFromKey(_fromKey);
+        keyRangeFilter.getComponentInstance().setToKey(_toKey);
+
+        slaveJobBuilder.setDefaultRequirement(keyRangeFilter, KeyRangeFilter.Category.VALID);
+    }
+
+    @Override
+    public String toString() {
+        return "PrimaryKeyRangeJobDivision[" + _primaryKey.getName() + "," + _fromKey + "," + _toKey + "]";
+    }
+}
@@ -50,7 +50,7 @@ public class SlaveAnalysisRunner extends AnalysisRunnerImpl {
     @Override
     public AnalysisResultFuture run(AnalysisJob job) {
         logger.info("Running slave job: {}", job);
-        return super.run(job);
+        return super.run(ByteRangeJobDivision.resolveSlaveJob(job));
     }
 
     @Override
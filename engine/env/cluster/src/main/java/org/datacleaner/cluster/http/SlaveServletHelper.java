@@ -34,9 +34,16 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang.SerializationUtils;
 import org.apache.metamodel.util.FileHelper;
+import org.datacleaner.cluster.KeyRangeFilter;
 import org.datacleaner.cluster.SlaveAnalysisRunner;
 import org.datacleaner.cluster.SlaveJobInterceptor;
 import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.configuration.DataCleanerEnvironment;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.descriptors.CompositeDescriptorProvider;
+import org.datacleaner.descriptors.Descriptors;
+import org.datacleaner.descriptors.SimpleDescriptorProvider;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.JaxbJobReader;
 import org.datacleaner.job.builder.AnalysisJobBuilder;
@@ -236,7 +243,7 @@ public class SlaveServletHelper {
     }
 
     public AnalysisJob readJob(HttpServletRequest request) throws IOException {
-        final JaxbJobReader reader = new JaxbJobReader(_configuration);
+        final JaxbJobReader reader = new JaxbJobReader(getJobReaderConfiguration());
         final String jobDefinition = request.getParameter(HttpClusterManager.HTTP_PARAM_JOB_DEF);
 
         final InputStream inputStream;
@@ -259,6 +266,28 @@ public class SlaveServletHelper {
         }
     }
 
+    /**
+     * Gets the configuration to read slave jobs with. Besides the slave's own
+     * descriptors, this includes the descriptors of the components that the
+     * master adds to slave jobs, which are not part of the component library.
+     * 
+     * @return
+     */
+    private DataCleanerConfiguration getJobReaderConfiguration() {
+        final SimpleDescriptorProvider clusterDescriptorProvider = new SimpleDescriptorProvider(false);
+        clusterDescriptorProvider.addFilterBeanDescriptor(Descriptors.ofFilter(KeyRangeFilter.class));
+
+        final DataCleanerEnvironment environment = _configuration.getEnvironment();
+        final CompositeDescriptorProvider descriptorProvider = new CompositeDescriptorProvider();
+        descriptorProvider.addDelegate(environment.getDescriptorProvider());
+        descriptorProvider.addDelegate(clusterDescriptorProvider);
+
+        return new DataCleanerConfigurationImpl(new DataCleanerEnvironmentImpl(environment)
+                .withDescriptorProvider(descriptorProvider), _configuration.getHomeFolder(),
+                _configuration.getDatastoreCatalog(), _configuration.getReferenceDataCatalog(),
+                _configuration.getServerInformationCatalog());
+    }
+
     /**
      * Runs a slave job
      * 
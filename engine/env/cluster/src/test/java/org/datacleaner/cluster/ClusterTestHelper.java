@@ -113,6 +113,7 @@ public class ClusterTestHelper {
         }
         final SimpleDescriptorProvider descriptorProvider = new SimpleDescriptorProvider(true);
         descriptorProvider.addFilterBeanDescriptor(Descriptors.ofFilter(MaxRowsFilter.class));
+        descriptorProvider.addFilterBeanDescriptor(Descriptors.ofFilter(KeyRangeFilter.class));
         descriptorProvider.addTransformerBeanDescriptor(Descriptors.ofTransformer(MockTransformerThatWillFail.class));
         descriptorProvider.addTransformerBeanDescriptor(Descriptors.ofTransformer(ConcatenatorTransformer.class));
         descriptorProvider.addAnalyzerBeanDescriptor(Descriptors.ofAnalyzer(InsertIntoTableAnalyzer.class));
@@ -0,0 +1,159 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.cluster;
+
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.metamodel.util.FileHelper;
+import org.apache.metamodel.util.FileResource;
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.beans.CompletenessAnalyzer;
+import org.datacleaner.beans.CompletenessAnalyzerResult;
+import org.datacleaner.cluster.virtual.VirtualClusterManager;
+import org.datacleaner.configuration.DataCleanerConfiguration;
+import org.datacleaner.configuration.DataCleanerConfigurationImpl;
+import org.datacleaner.connection.CsvDatastore;
+import org.datacleaner.connection.DatastoreCatalogImpl;
+import org.datacleaner.job.AnalysisJob;
+import org.datacleaner.job.builder.AnalysisJobBuilder;
+import org.datacleaner.job.builder.AnalyzerComponentBuilder;
+import org.datacleaner.job.runner.AnalysisResultFuture;
+
+import com.google.common.io.ByteStreams;
+
+public class PhysicalBoundaryJobDivisionManagerTest extends TestCase {
+
+    private static VirtualClusterManager createClusterManager(DataCleanerConfiguration configuration,
+            final int nodeCount) {
+        return new VirtualClusterManager(configuration, nodeCount) {
+            @Override
+            public JobDivisionManager getJobDivisionManager() {
+                return new PhysicalBoundaryJobDivisionManager(new FixedDivisionsCountJobDivisionManager(nodeCount));
+            }
+        };
+    }
+
+    private File createCsvFile(int rows) throws Exception {
+        final File file = new File("target/" + getName() + ".csv");
+        final StringBuilder sb = new StringBuilder("id,name\n");
+        for (int i = 0; i < rows; i++) {
+            sb.append(i).append(",name").append(i).append('\n');
+        }
+        FileHelper.writeStringAsFile(file, sb.toString());
+        return file;
+    }
+
+    public void testPrimaryKeyRanges() throws Throwable {
+        final DataCleanerConfiguration configuration = ClusterTestHelper.createConfiguration(getName(), true);
+
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore("orderdb");
+            jobBuilder.addSourceColumns("CUSTOMERS.CONTACTFIRSTNAME");
+            final AnalysisJob job = jobBuilder.toAnalysisJob(false);
+
+            final List<JobDivision> divisions = new PhysicalBoundaryJobDivisionManager(
+                    new FixedDivisionsCountJobDivisionManager(4)).createDivisions(job, 4);
+            assertEquals(4, divisions.size());
+
+            final PrimaryKeyRangeJobDivision first = (PrimaryKeyRangeJobDivision) divisions.get(0);
+            assertNull(first.getFromKey());
+            final PrimaryKeyRangeJobDivision last = (PrimaryKeyRangeJobDivision) divisions.get(3);
+            assertNull(last.getToKey());
+        }
+
+        // the assertions of the job verify that all records are processed
+        // exactly once
+        ClusterTestHelper.runCompletenessAndValueMatcherAnalyzerJob(configuration, createClusterManager(
+                configuration, 3));
+    }
+
+    public void testByteRangeResources() throws Exception {
+        final File file = createCsvFile(1000);
+        final FileResource resource = new FileResource(file);
+        final CsvDatastore datastore = new CsvDatastore("csv", resource);
+        final DataCleanerConfiguration configuration = new DataCleanerConfigurationImpl()
+                .withDatastoreCatalog(new DatastoreCatalogImpl(datastore));
+
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns("name");
+            final AnalysisJob job = jobBuilder.toAnalysisJob(false);
+
+            final List<JobDivision> divisions = new PhysicalBoundaryJobDivisionManager(
+                    new FixedDivisionsCountJobDivisionManager(3)).createDivisions(job, 3);
+            assertEquals(3, divisions.size());
+
+            int lineCount = 0;
+            for (JobDivision jobDivision : divisions) {
+                final ByteRangeJobDivision division = (ByteRangeJobDivision) jobDivision;
+                final String content;
+                try (InputStream in = new ByteRangeResource(resource, 8, division.getStart(), division.getEnd())
+                        .read()) {
+                    content = new String(ByteStreams.toByteArray(in), "UTF-8");
+                }
+                assertTrue(content, content.startsWith("id,name\n"));
+                assertTrue(content, content.endsWith("\n"));
+
+                final String[] lines = content.split("\n");
+                lineCount += lines.length - 1;
+                assertTrue(lines[1], lines[1].matches("\\d+,name\\d+"));
+            }
+            assertEquals(1000, lineCount);
+        }
+    }
+
+    public void testRunCsvJobInByteRanges() throws Throwable {
+        final File file = createCsvFile(5000);
+        final CsvDatastore datastore = new CsvDatastore("csv", new FileResource(file));
+        final DataCleanerConfiguration configuration = ((DataCleanerConfigurationImpl) ClusterTestHelper
+                .createConfiguration(getName(), true)).withDatastoreCatalog(new DatastoreCatalogImpl(datastore));
+
+        final AnalysisJob job;
+        try (AnalysisJobBuilder jobBuilder = new AnalysisJobBuilder(configuration)) {
+            jobBuilder.setDatastore(datastore);
+            jobBuilder.addSourceColumns("id", "name");
+            final AnalyzerComponentBuilder<CompletenessAnalyzer> completeness = jobBuilder
+                    .addAnalyzer(CompletenessAnalyzer.class);
+            completeness.addInputColumns(jobBuilder.getSourceColumns());
+            completeness.setConfiguredProperty("Conditions", new CompletenessAnalyzer.Condition[] {
+                    CompletenessAnalyzer.Condition.NOT_BLANK_OR_NULL,
+                    CompletenessAnalyzer.Condition.NOT_BLANK_OR_NULL });
+            job = jobBuilder.toAnalysisJob();
+        }
+
+        final DistributedAnalysisRunner runner = new DistributedAnalysisRunner(configuration, createClusterManager(
+                configuration, 4));
+        final AnalysisResultFuture resultFuture = runner.run(job);
+        resultFuture.await();
+        if (resultFuture.isErrornous()) {
+            throw resultFuture.getErrors().get(0);
+        }
+
+        final List<AnalyzerResult> results = resultFuture.getResults();
+        assertEquals(1, results.size());
+        final CompletenessAnalyzerResult result = (CompletenessAnalyzerResult) results.get(0);
+        assertEquals(5000, result.getTotalRowCount());
+        assertEquals(5000, result.getValidRowCount());
+    }
+}
@@ -71,14 +71,23 @@ public class Main {
             sparkJobContext.addSparkJobLifeCycleListener(listener);
         }
 
-        final SparkAnalysisRunner sparkAnalysisRunner = new SparkAnalysisRunner(sparkContext, sparkJobContext);
+        final Resource resultResource;
+        if (sparkJobContext.isResultEnabled()) {
+            resultResource = ResultFilePathUtils.getResultResource(sparkContext, sparkJobContext);
+        } else {
+            resultResource = null;
+        }
+
+        // intermediate results, if any, are written to the result resource
+        // and overwritten by the final result
+        final SparkAnalysisRunner sparkAnalysisRunner = new SparkAnalysisRunner(sparkContext, sparkJobContext, null,
+                resultResource);
         try {
             final AnalysisResultFuture result = sparkAnalysisRunner.run();
 
             result.await();
 
-            if (sparkJobContext.isResultEnabled()) {
-                final Resource resultResource = ResultFilePathUtils.getResultResource(sparkContext, sparkJobContext);
+            if (resultResource != null) {
                 logger.info("DataCleaner result will be written to: {}", resultResource);
                 saveResult(result, resultResource);
             } else {
@@ -19,15 +19,25 @@
  */
 package org.datacleaner.spark;
 
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.metamodel.csv.CsvConfiguration;
 import org.apache.metamodel.fixedwidth.FixedWidthConfiguration;
 import org.apache.metamodel.util.Resource;
+import org.apache.spark.api.java.JavaFutureAction;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.rdd.PartitionPruningRDD;
 import org.datacleaner.api.AnalyzerResult;
 import org.datacleaner.api.InputRow;
 import org.datacleaner.connection.CsvDatastore;
@@ -37,6 +47,7 @@ import org.datacleaner.connection.JsonDatastore;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.runner.AnalysisResultFuture;
 import org.datacleaner.job.runner.AnalysisRunner;
+import org.datacleaner.result.save.AnalysisResultSaveHandler;
 import org.datacleaner.spark.functions.AnalyzerResultReduceFunction;
 import org.datacleaner.spark.functions.CsvParserFunction;
 import org.datacleaner.spark.functions.ExtractAnalyzerResultFunction;
@@ -49,23 +60,48 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import scala.Tuple2;
+import scala.runtime.AbstractFunction1;
 
 public class SparkAnalysisRunner implements AnalysisRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(SparkAnalysisRunner.class);
 
+    /**
+     * The maximum number of increments of partitions that are processed at a
+     * time, when results are produced incrementally.
+     */
+    private static final int MAX_INCREMENTS_IN_FLIGHT = 2;
+
     private final SparkJobContext _sparkJobContext;
     private final JavaSparkContext _sparkContext;
 
     private final Integer _minPartitions;
+    private final Resource _partialResultResource;
 
     public SparkAnalysisRunner(JavaSparkContext sparkContext, SparkJobContext sparkJobContext) {
         this(sparkContext, sparkJobContext, null);
     }
 
     public SparkAnalysisRunner(JavaSparkContext sparkContext, SparkJobContext sparkJobContext, Integer minPartitions) {
+        this(sparkContext, sparkJobContext, minPartitions, null);
+    }
+
+    /**
+     * 
+     * @param sparkContext
+     * @param sparkJobContext
+     * @param minPartitions
+     * @param partialResultResource
+     *            a resource to write intermediate results to, if the job is
+     *            configured to produce results incrementally (see
+     *            {@link SparkJobContext#getIncrementalResultPartitions()}), or
+     *            null
+     */
+    public SparkAnalysisRunner(JavaSparkContext sparkContext, SparkJobContext sparkJobContext, Integer minPartitions,
+            Resource partialResultResource) {
         _sparkContext = sparkContext;
         _sparkJobContext = sparkJobContext;
+        _partialResultResource = partialResultResource;
         if (minPartitions != null) {
             if (minPartitions > 0) {
                 _minPartitions = minPartitions;
@@ -93,6 +129,7 @@ public class SparkAnalysisRunner implements AnalysisRunner {
         final JavaRDD<InputRow> inputRowsRDD = openSourceDatastore(datastore);
 
         final JavaPairRDD<String, NamedAnalyzerResult> namedAnalyzerResultsRDD;
+        List<Tuple2<String, AnalyzerResult>> incrementalResults = null;
         if (_sparkJobContext.getAnalysisJobBuilder().isDistributable()) {
             logger.info("Running the job in distributed mode");
 
@@ -103,7 +140,11 @@ public class SparkAnalysisRunner implements AnalysisRunner {
             final JavaRDD<Tuple2<String, NamedAnalyzerResult>> processedTuplesRdd = inputRowsRDD
                     .mapPartitionsWithIndex(new RowProcessingFunction(_sparkJobContext), preservePartitions);
             
-            if (_sparkJobContext.isResultEnabled()) {
+            if (_sparkJobContext.isResultEnabled() && _sparkJobContext.getIncrementalResultPartitions() > 0) {
+                incrementalResults = runIncrementally(processedTuplesRdd, _sparkJobContext
+                        .getIncrementalResultPartitions());
+                namedAnalyzerResultsRDD = null;
+            } else if (_sparkJobContext.isResultEnabled()) {
                 final JavaPairRDD<String, NamedAnalyzerResult> partialNamedAnalyzerResultsRDD = processedTuplesRdd
                         .mapPartitionsToPair(new TuplesToTuplesFunction<String, NamedAnalyzerResult>(), preservePartitions);
                 
@@ -131,12 +172,17 @@ public class SparkAnalysisRunner implements AnalysisRunner {
             return new SparkAnalysisResultFuture(results, _sparkJobContext);
         }
 
-        assert namedAnalyzerResultsRDD != null;
-        final JavaPairRDD<String, AnalyzerResult> finalAnalyzerResultsRDD = namedAnalyzerResultsRDD
-                .mapValues(new ExtractAnalyzerResultFunction());
+        final List<Tuple2<String, AnalyzerResult>> results;
+        if (incrementalResults != null) {
+            results = incrementalResults;
+        } else {
+            assert namedAnalyzerResultsRDD != null;
+            final JavaPairRDD<String, AnalyzerResult> finalAnalyzerResultsRDD = namedAnalyzerResultsRDD
+                    .mapValues(new ExtractAnalyzerResultFunction());
+            results = finalAnalyzerResultsRDD.collect();
+        }
 
         // log analyzer results
-        final List<Tuple2<String, AnalyzerResult>> results = finalAnalyzerResultsRDD.collect();
 
         logger.info("Finished! Number of AnalyzerResult objects: {}", results.size());
         for (Tuple2<String, AnalyzerResult> analyzerResultTuple : results) {
@@ -149,6 +195,114 @@ public class SparkAnalysisRunner implements AnalysisRunner {
         return new SparkAnalysisResultFuture(results, _sparkJobContext);
     }
 
+    /**
+     * Processes the partitions in increments of a number of partitions. The
+     * results of each increment are reduced on the executors, and only the
+     * reduced results (one per analyzer) are collected and reduced into the
+     * results of the previous increments on the driver. After each increment
+     * the intermediate results are written to the partial result resource, so
+     * that they can be inspected while the job is running and survive if the
+     * job is aborted.
+     * 
+     * Increments are submitted asynchronously, with up to
+     * {@link #MAX_INCREMENTS_IN_FLIGHT} increments running at a time. Thereby
+     * the executors do not idle while the last tasks of an increment finish
+     * and while the driver writes the partial results. The trade-off is that
+     * an aborted job has processed more partitions than its last partial
+     * results contain. Increments are reduced on the driver in their
+     * original order.
+     * 
+     * @param processedTuplesRdd
+     * @param partitionsPerIncrement
+     * @return the final results
+     */
+    private List<Tuple2<String, AnalyzerResult>> runIncrementally(
+            final JavaRDD<Tuple2<String, NamedAnalyzerResult>> processedTuplesRdd, final int partitionsPerIncrement) {
+        final int partitionCount = processedTuplesRdd.partitions().size();
+        logger.info("Running the job incrementally, {} of {} partitions at a time", partitionsPerIncrement,
+                partitionCount);
+
+        final AnalyzerResultReduceFunction reduceFunction = new AnalyzerResultReduceFunction(_sparkJobContext);
+        final Map<String, NamedAnalyzerResult> reducedResults = new LinkedHashMap<>();
+
+        final Deque<Increment> runningIncrements = new ArrayDeque<>();
+        int nextPartition = 0;
+        try {
+            while (nextPartition < partitionCount || !runningIncrements.isEmpty()) {
+                while (nextPartition < partitionCount && runningIncrements.size() < MAX_INCREMENTS_IN_FLIGHT) {
+                    final int to = Math.min(partitionCount, nextPartition + partitionsPerIncrement);
+                    runningIncrements.add(submitIncrement(processedTuplesRdd, nextPartition, to, reduceFunction));
+                    nextPartition = to;
+                }
+
+                final Increment increment = runningIncrements.poll();
+                for (Tuple2<String, NamedAnalyzerResult> tuple : increment.awaitResults()) {
+                    final NamedAnalyzerResult existingResult = reducedResults.get(tuple._1);
+                    if (existingResult == null) {
+                        reducedResults.put(tuple._1, tuple._2);
+                    } else {
+                        reducedResults.put(tuple._1, reduce(reduceFunction, existingResult, tuple._2));
+                    }
+                }
+
+                logger.info("Processed {} of {} partitions", increment.to, partitionCount);
+                if (increment.to < partitionCount) {
+                    savePartialResults(toResultTuples(reducedResults));
+                }
+            }
+        } finally {
+            // only non-empty if an increment failed
+            for (Increment increment : runningIncrements) {
+                increment.results.cancel(true);
+            }
+        }
+
+        return toResultTuples(reducedResults);
+    }
+
+    private Increment submitIncrement(final JavaRDD<Tuple2<String, NamedAnalyzerResult>> processedTuplesRdd,
+            final int from, final int to, final AnalyzerResultReduceFunction reduceFunction) {
+        final JavaRDD<Tuple2<String, NamedAnalyzerResult>> incrementRdd = new JavaRDD<>(PartitionPruningRDD.create(
+                processedTuplesRdd.rdd(), new PartitionRangeFilter(from, to)), processedTuplesRdd.classTag());
+        final JavaFutureAction<List<Tuple2<String, NamedAnalyzerResult>>> results = incrementRdd
+                .mapPartitionsToPair(new TuplesToTuplesFunction<String, NamedAnalyzerResult>(), true)
+                .reduceByKey(reduceFunction).collectAsync();
+        return new Increment(to, results);
+    }
+
+    private NamedAnalyzerResult reduce(AnalyzerResultReduceFunction reduceFunction, NamedAnalyzerResult result1,
+            NamedAnalyzerResult result2) {
+        try {
+            return reduceFunction.call(result1, result2);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to reduce results of " + result1.getName(), e);
+        }
+    }
+
+    private static List<Tuple2<String, AnalyzerResult>> toResultTuples(Map<String, NamedAnalyzerResult> results) {
+        final List<Tuple2<String, AnalyzerResult>> list = new ArrayList<>(results.size());
+        for (Entry<String, NamedAnalyzerResult> entry : results.entrySet()) {
+            list.add(new Tuple2<String, AnalyzerResult>(entry.getKey(), entry.getValue().getAnalyzerResult()));
+        }
+        return list;
+    }
+
+    private void savePartialResults(List<Tuple2<String, AnalyzerResult>> results) {
+        if (_partialResultResource == null) {
+            return;
+        }
+        final SparkAnalysisResultFuture partialResult = new SparkAnalysisResultFuture(results, _sparkJobContext);
+        try {
+            new AnalysisResultSaveHandler(partialResult, _partialResultResource).saveOrThrow();
+            logger.info("Partial results written to: {}", _partialResultResource);
+        } catch (RuntimeException e) {
+            // the job should not fail because of intermediate results
+            logger.warn("Failed to write partial results to: " + _partialResultResource, e);
+        }
+    }
+
     private JavaRDD<InputRow> openSourceDatastore(Datastore datastore) {
         if (datastore instanceof CsvDatastore) {
             final CsvDatastore csvDatastore = (CsvDatastore) datastore;
@@ -219,4 +373,57 @@ public class SparkAnalysisRunner implements AnalysisRunner {
 
         throw new UnsupportedOperationException("Unsupported datastore type or configuration: " + datastore);
     }
+
+    /**
+     * The (asynchronously computed) results of an increment of partitions.
+     */
+    private static final class Increment {
+
+        final int to;
+        final JavaFutureAction<List<Tuple2<String, NamedAnalyzerResult>>> results;
+
+        Increment(int to, JavaFutureAction<List<Tuple2<String, NamedAnalyzerResult>>> results) {
+            this.to = to;
+            this.results = results;
+        }
+
+        List<Tuple2<String, NamedAnalyzerResult>> awaitResults() {
+            try {
+                return results.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    /**
+     * Partition filter of {@link PartitionPruningRDD}, which keeps the
+     * partitions with an index in a range.
+     */
+    private static final class PartitionRangeFilter extends AbstractFunction1<Object, Object> implements
+            Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int _from;
+        private final int _to;
+
+        PartitionRangeFilter(int from, int to) {
+            _from = from;
+            _to = to;
+        }
+
+        @Override
+        public Object apply(Object partitionIndex) {
+            final int index = ((Integer) partitionIndex).intValue();
+            return index >= _from && index < _to;
+        }
+    }
 }
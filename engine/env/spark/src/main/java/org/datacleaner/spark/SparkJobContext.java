@@ -61,6 +61,7 @@ public class SparkJobContext implements Serializable {
     private static final Logger logger = LoggerFactory.getLogger(SparkJobContext.class);
     private static final String PROPERTY_RESULT_PATH = "datacleaner.result.hdfs.path";
     private static final String PROPERTY_RESULT_ENABLED = "datacleaner.result.hdfs.enabled";
+    private static final String PROPERTY_RESULT_INCREMENTAL_PARTITIONS = "datacleaner.result.incremental.partitions";
 
     private static final long serialVersionUID = 1L;
 
@@ -116,6 +117,7 @@ public class SparkJobContext implements Serializable {
         if (isResultEnabled()) {
             // ensure parsability of result path
             getResultPath();
+            getIncrementalResultPartitions();
         }
     }
 
@@ -244,6 +246,28 @@ public class SparkJobContext implements Serializable {
         return !"false".equalsIgnoreCase(enabledString);
     }
 
+    /**
+     * Gets the number of partitions to process between each write of
+     * intermediate (partially reduced) results, as defined in the job
+     * properties file with property
+     * 'datacleaner.result.incremental.partitions'.
+     *
+     * @return the number of partitions, or 0 if results should only be written
+     *         when the job has finished
+     */
+    public int getIncrementalResultPartitions() {
+        final String str = _customProperties.get(PROPERTY_RESULT_INCREMENTAL_PARTITIONS);
+        if (Strings.isNullOrEmpty(str)) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(str.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value of " + PROPERTY_RESULT_INCREMENTAL_PARTITIONS + ": "
+                    + str);
+        }
+    }
+
     /**
      * Gets the job name (removing the extension '.analysis.xml')
      *
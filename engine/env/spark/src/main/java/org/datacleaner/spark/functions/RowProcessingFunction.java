@@ -247,7 +247,7 @@ public final class RowProcessingFunction implements
         // fire row processing on each row
         while (inputRowIterator.hasNext()) {
             final InputRow inputRow = inputRowIterator.next();
-            consumeRowHandler.consumeRow(inputRow);
+            consumeRowHandler.consumeRowWithoutResult(inputRow);
             logger.debug("Consumed row no. {}", inputRow.getId());
         }
 
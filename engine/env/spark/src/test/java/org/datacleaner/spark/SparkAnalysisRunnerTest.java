@@ -43,6 +43,7 @@ import org.datacleaner.beans.valuematch.ValueMatchAnalyzerResult;
 import org.datacleaner.beans.writers.WriteDataResult;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.runner.AnalysisResultFuture;
+import org.datacleaner.spark.utils.ResultFilePathUtils;
 import org.datacleaner.result.ReducedSingleValueDistributionResult;
 import org.datacleaner.result.ValueCountingAnalyzerResult;
 import org.datacleaner.util.SystemProperties;
@@ -169,6 +170,38 @@ public class SparkAnalysisRunnerTest {
         assertEquals(7, writeDataResult.getWrittenRowCount());
     }
 
+    @Test
+    public void testIncrementalResultsScenario() throws Exception {
+        final File resultFile = new File("target/results/incremental-job.analysis.result.dat");
+        resultFile.getParentFile().mkdirs();
+        resultFile.delete();
+
+        final AnalysisResultFuture result;
+        final SparkConf sparkConf = new SparkConf().setMaster("local").setAppName("DCTest - " + getName());
+        try (JavaSparkContext sparkContext = new JavaSparkContext(sparkConf)) {
+            final SparkJobContext sparkJobContext = new SparkJobContext(URI.create("src/test/resources/conf_local.xml"),
+                    URI.create("src/test/resources/vanilla-job.analysis.xml"), URI.create(
+                            "src/test/resources/jobProperties/incrementalResult.properties"), sparkContext);
+            assertEquals(1, sparkJobContext.getIncrementalResultPartitions());
+
+            final SparkAnalysisRunner sparkAnalysisRunner = new SparkAnalysisRunner(sparkContext, sparkJobContext,
+                    MIN_PARTITIONS_MULTIPLE, ResultFilePathUtils.getResultResource(sparkContext, sparkJobContext));
+            result = sparkAnalysisRunner.run();
+        }
+
+        if (result.isErrornous()) {
+            throw (Exception) result.getErrors().get(0);
+        }
+
+        // the reduced result is the same as when running in one go
+        assertEquals(2, result.getResultMap().size());
+        final StringAnalyzerResult stringAnalyzerResult = result.getResults(StringAnalyzerResult.class).get(0);
+        assertEquals(7, stringAnalyzerResult.getRowCount(stringAnalyzerResult.getColumns()[0]));
+
+        // intermediate results have been written along the way
+        assertTrue(resultFile.exists());
+    }
+
     private AnalysisResultFuture runWriteDataScenario(boolean saveResult) throws Exception {
         final String outputPath = "target/write-job.csv";
         final File outputFile = new File(outputPath);
@@ -47,6 +47,8 @@ import org.datacleaner.restclient.ProcessStatelessInput;
 import org.datacleaner.restclient.ProcessStatelessOutput;
 import org.datacleaner.restclient.RESTClientException;
 import org.datacleaner.restclient.Serializator;
+import org.datacleaner.util.SystemProperties;
+import org.datacleaner.util.batch.AdaptiveBatchSizer;
 import org.datacleaner.util.batch.BatchRowCollectingTransformer;
 import org.datacleaner.util.batch.BatchSink;
 import org.datacleaner.util.batch.BatchSource;
@@ -72,10 +74,15 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
     private static final Logger logger = LoggerFactory.getLogger(RemoteTransformer.class);
     private static final ObjectMapper mapper = Serializator.getJacksonObjectMapper();
 
+    private static final int DEFAULT_MAX_BATCH_SIZE = 1000;
+    private static final int DEFAULT_MAX_REQUESTS_IN_FLIGHT = 4;
+    private static final long DEFAULT_TARGET_LATENCY_MILLIS = 1000;
+    private static final long DEFAULT_MAX_PAYLOAD = 4 * 1024 * 1024;
+
     private final RemoteServerData serverData;
     private String componentDisplayName;
 
-    private ComponentRESTClient client;
+    private volatile ComponentRESTClient client;
     private Map<String, Object> configuredProperties = new TreeMap<>();
 
     private final AtomicBoolean failed = new AtomicBoolean(false);
@@ -87,6 +94,8 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
     };
 
     public RemoteTransformer(RemoteServerData serverData, String componentDisplayName) {
+        super(createBatchSizer(), Math.max(1, SystemProperties.getInt(
+                SystemProperties.REMOTE_COMPONENTS_MAX_REQUESTS_IN_FLIGHT, DEFAULT_MAX_REQUESTS_IN_FLIGHT)));
         this.serverData = serverData;
         this.componentDisplayName = componentDisplayName;
     }
@@ -95,14 +104,35 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
     public void initClient() throws RemoteComponentException {
         try {
             logger.debug("Initializing '{}' @{}", componentDisplayName, this.hashCode());
-            client = new ComponentRESTClient(serverData.getUrl(), serverData.getUsername(), serverData.getPassword(),
-                    Version.getVersion());
+            client = createClient(serverData);
         } catch (Exception e) {
             throw new RemoteComponentException(
                     "Remote component '" + componentDisplayName + "' is temporarily unavailable. \n" + e.getMessage());
         }
     }
 
+    /**
+     * Creates the client for the remote server. Overrideable eg. in order to
+     * test against a stand-in server.
+     *
+     * @param serverData
+     * @return
+     */
+    protected ComponentRESTClient createClient(RemoteServerData serverData) {
+        return new ComponentRESTClient(serverData.getUrl(), serverData.getUsername(), serverData.getPassword(),
+                Version.getVersion());
+    }
+
+    private static AdaptiveBatchSizer createBatchSizer() {
+        final int maxBatchSize = Math.max(1, SystemProperties.getInt(SystemProperties.REMOTE_COMPONENTS_MAX_BATCH_SIZE,
+                DEFAULT_MAX_BATCH_SIZE));
+        final long targetLatency = SystemProperties.getLong(SystemProperties.REMOTE_COMPONENTS_TARGET_LATENCY,
+                DEFAULT_TARGET_LATENCY_MILLIS);
+        final long maxPayload = SystemProperties.getLong(SystemProperties.REMOTE_COMPONENTS_MAX_PAYLOAD,
+                DEFAULT_MAX_PAYLOAD);
+        return new AdaptiveBatchSizer(1, maxBatchSize, targetLatency, maxPayload);
+    }
+
     @Close
     public void closeClient() {
         logger.debug("closing '{}' @{}", componentDisplayName, this.hashCode());
@@ -280,9 +310,12 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
         ProcessStatelessInput input = new ProcessStatelessInput();
         input.configuration = getConfiguration(cols);
         input.data = mapper.valueToTree(rows);
+        final String payload = Serializator.stringProcessStatelessInput(input);
+        getBatchSizer().recordPayload(size, payload.length());
 
         logger.debug("Processing remotely {} rows", size);
 
+        final ComponentRESTClient client = this.client;
         if (client == null) {
             if (failed.get()) {
                 throw new PreviousErrorsExistException();
@@ -291,7 +324,7 @@ public class RemoteTransformer extends BatchRowCollectingTransformer {
         }
         ProcessStatelessOutput out;
         try {
-            out = client.processStateless(componentDisplayName, input);
+            out = client.processStateless(componentDisplayName, payload);
         } catch (RuntimeException e) {
             boolean alreadyFailed = failed.getAndSet(true);
             if (!alreadyFailed) {
@@ -0,0 +1,313 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.components.remote;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.metamodel.data.Row;
+import org.datacleaner.api.InputColumn;
+import org.datacleaner.api.OutputRowCollector;
+import org.datacleaner.configuration.RemoteServerData;
+import org.datacleaner.configuration.RemoteServerDataImpl;
+import org.datacleaner.data.MockInputColumn;
+import org.datacleaner.data.MockInputRow;
+import org.datacleaner.restclient.ComponentRESTClient;
+import org.datacleaner.restclient.CreateInput;
+import org.datacleaner.restclient.OutputColumns;
+import org.datacleaner.restclient.ProcessStatelessInput;
+import org.datacleaner.restclient.ProcessStatelessOutput;
+import org.datacleaner.restclient.Serializator;
+import org.datacleaner.util.SystemProperties;
+import org.datacleaner.util.batch.AdaptiveBatchSizer;
+import org.datacleaner.util.batch.ArrayBatchSource;
+import org.datacleaner.util.batch.BatchRowCollectingTransformer;
+import org.datacleaner.util.batch.BatchSink;
+import org.junit.After;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+
+public class RemoteTransformerTest {
+
+    private static final ObjectMapper mapper = Serializator.getJacksonObjectMapper();
+
+    private final InputColumn<String> column = new MockInputColumn<String>("name", String.class);
+
+    @After
+    public void tearDown() {
+        System.clearProperty(SystemProperties.REMOTE_COMPONENTS_MAX_BATCH_SIZE);
+        System.clearProperty(SystemProperties.REMOTE_COMPONENTS_MAX_REQUESTS_IN_FLIGHT);
+        System.clearProperty(SystemProperties.REMOTE_COMPONENTS_MAX_PAYLOAD);
+    }
+
+    @Test
+    public void testBatchSizeGrowsToMaxBatchSize() throws Exception {
+        System.setProperty(SystemProperties.REMOTE_COMPONENTS_MAX_BATCH_SIZE, "8");
+        System.setProperty(SystemProperties.REMOTE_COMPONENTS_MAX_PAYLOAD, "0");
+
+        final StubRemoteTransformer transformer = createTransformer(null);
+        transformer.initClient();
+        try {
+            assertEquals(8, transformer.batchSizer().getMaxBatchSize());
+            assertEquals(1, transformer.batchSizer().getBatchSize());
+
+            // every batch records its payload, which lets the batch size grow
+            for (int i = 0; i < 5; i++) {
+                map(transformer, "foo");
+            }
+            assertEquals(8, transformer.batchSizer().getBatchSize());
+        } finally {
+            transformer.closeClient();
+        }
+    }
+
+    @Test
+    public void testBatchSizeLimitedByMaxPayload() throws Exception {
+        System.setProperty(SystemProperties.REMOTE_COMPONENTS_MAX_BATCH_SIZE, "8");
+        System.setProperty(SystemProperties.REMOTE_COMPONENTS_MAX_PAYLOAD, "10");
+
+        final StubRemoteTransformer transformer = createTransformer(null);
+        transformer.initClient();
+        try {
+            // a single row payload is larger than the max payload
+            for (int i = 0; i < 5; i++) {
+                map(transformer, "foo");
+            }
+            assertEquals(1, transformer.batchSizer().getBatchSize());
+        } finally {
+            transformer.closeClient();
+        }
+    }
+
+    @Test
+    public void testConcurrentMapCallsShareClient() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        final StubRemoteTransformer transformer = createTransformer(barrier);
+        transformer.initClient();
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final List<Object[]> output = Collections.synchronizedList(new ArrayList<Object[]>());
+        final Thread[] threads = new Thread[2];
+        for (int i = 0; i < threads.length; i++) {
+            final String value = "value" + i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        output.addAll(map(transformer, value));
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        transformer.closeClient();
+
+        assertEquals("[]", errors.toString());
+        assertEquals(2, output.size());
+        assertEquals(1, transformer.clientCount.get());
+        assertEquals(2, transformer.stubClient.callingThreads.size());
+    }
+
+    @Test
+    public void testMaxRequestsInFlight() throws Exception {
+        System.setProperty(SystemProperties.REMOTE_COMPONENTS_MAX_BATCH_SIZE, "5");
+        System.setProperty(SystemProperties.REMOTE_COMPONENTS_MAX_REQUESTS_IN_FLIGHT, "2");
+
+        final StubRemoteTransformer transformer = createTransformer(null);
+        final List<Object[]> output = Collections.synchronizedList(new ArrayList<Object[]>());
+        setOutputRowCollector(transformer, output);
+        transformer.initClient();
+        transformer.initialize();
+
+        final List<Throwable> errors = Collections.synchronizedList(new ArrayList<Throwable>());
+        final Thread[] threads = new Thread[6];
+        for (int i = 0; i < threads.length; i++) {
+            final int threadNo = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 20; j++) {
+                            transformer.transform(new MockInputRow().put(column, "row" + threadNo + "_" + j));
+                        }
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        transformer.close();
+        transformer.closeClient();
+
+        assertEquals("[]", errors.toString());
+        assertEquals(120, output.size());
+        assertTrue("Requests in flight: " + transformer.stubClient.maxRequestsInFlight,
+                transformer.stubClient.maxRequestsInFlight.get() <= 2);
+        assertEquals(1, transformer.clientCount.get());
+    }
+
+    private StubRemoteTransformer createTransformer(CyclicBarrier barrier) {
+        final RemoteServerData serverData = new RemoteServerDataImpl("http://localhost/stub", "stub", "user",
+                "password");
+        final StubRemoteTransformer transformer = new StubRemoteTransformer(serverData, barrier);
+        transformer.setPropertyValue("Column", column);
+        return transformer;
+    }
+
+    private List<Object[]> map(RemoteTransformer transformer, String value) {
+        final List<Object[]> output = new ArrayList<>();
+        transformer.map(new ArrayBatchSource<>(new Object[] { new MockInputRow().put(column, value) }),
+                new BatchSink<Collection<Object[]>>() {
+                    @Override
+                    public void setOutput(int index, Collection<Object[]> rows) {
+                        output.addAll(rows);
+                    }
+                });
+        assertEquals(1, output.size());
+        assertEquals(value.toUpperCase(), output.get(0)[0]);
+        return output;
+    }
+
+    private static void setOutputRowCollector(BatchRowCollectingTransformer transformer, final List<Object[]> output)
+            throws Exception {
+        final Field field = BatchRowCollectingTransformer.class.getDeclaredField("outputRowCollector");
+        field.setAccessible(true);
+        field.set(transformer, new OutputRowCollector() {
+            @Override
+            public void putValues(Object... values) {
+                output.add(values);
+            }
+
+            @Override
+            public void putRow(Row row) {
+                output.add(row.getValues());
+            }
+        });
+    }
+
+    /**
+     * Remote transformer which talks to an in-process stand-in for the server.
+     */
+    private static class StubRemoteTransformer extends RemoteTransformer {
+
+        private final CyclicBarrier _barrier;
+        final AtomicInteger clientCount = new AtomicInteger();
+        volatile StubComponentRESTClient stubClient;
+
+        public StubRemoteTransformer(RemoteServerData serverData, CyclicBarrier barrier) {
+            super(serverData, "Stub");
+            _barrier = barrier;
+        }
+
+        @Override
+        protected ComponentRESTClient createClient(RemoteServerData serverData) {
+            clientCount.incrementAndGet();
+            stubClient = new StubComponentRESTClient(serverData, _barrier);
+            return stubClient;
+        }
+
+        AdaptiveBatchSizer batchSizer() {
+            return getBatchSizer();
+        }
+    }
+
+    /**
+     * Client which upper cases the value of each row, instead of calling a
+     * server.
+     */
+    private static class StubComponentRESTClient extends ComponentRESTClient {
+
+        private final CyclicBarrier _barrier;
+        private final AtomicInteger _requestsInFlight = new AtomicInteger();
+        final AtomicInteger maxRequestsInFlight = new AtomicInteger();
+        final Set<Thread> callingThreads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        public StubComponentRESTClient(RemoteServerData serverData, CyclicBarrier barrier) {
+            super(serverData.getUrl(), serverData.getUsername(), serverData.getPassword(), "demo", "test");
+            _barrier = barrier;
+        }
+
+        @Override
+        public OutputColumns getOutputColumns(String componentName, CreateInput config) {
+            final OutputColumns outputColumns = new OutputColumns();
+            outputColumns.add("Upper case", String.class, null);
+            return outputColumns;
+        }
+
+        @Override
+        public ProcessStatelessOutput processStateless(String componentName, String configurationAndData) {
+            callingThreads.add(Thread.currentThread());
+            final int inFlight = _requestsInFlight.incrementAndGet();
+            try {
+                synchronized (maxRequestsInFlight) {
+                    maxRequestsInFlight.set(Math.max(maxRequestsInFlight.get(), inFlight));
+                }
+                if (_barrier != null) {
+                    // both calls must be in progress at the same time
+                    _barrier.await(10, TimeUnit.SECONDS);
+                } else {
+                    Thread.sleep(5);
+                }
+
+                final ProcessStatelessInput input = mapper.readValue(configurationAndData,
+                        ProcessStatelessInput.class);
+                final ArrayNode rows = mapper.getNodeFactory().arrayNode();
+                for (JsonNode row : input.data) {
+                    final ArrayNode outputRow = mapper.getNodeFactory().arrayNode();
+                    outputRow.add(row.get(0).asText().toUpperCase());
+                    rows.add(mapper.getNodeFactory().arrayNode().add(outputRow));
+                }
+
+                final ProcessStatelessOutput output = new ProcessStatelessOutput();
+                output.rows = rows;
+                assertNotNull(input.configuration);
+                return output;
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            } finally {
+                _requestsInFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -72,8 +72,16 @@ public class ComponentRESTClient {
     }
 
     public ProcessStatelessOutput processStateless(String componentName, ProcessStatelessInput processStatelessInput) {
-        componentName = urlify(componentName);
         String configurationAndData = Serializator.stringProcessStatelessInput(processStatelessInput);
+        return processStateless(componentName, configurationAndData);
+    }
+
+    /**
+     * Variant of {@link #processStateless(String, ProcessStatelessInput)} for
+     * input that has already been serialized, eg. to measure its size.
+     */
+    public ProcessStatelessOutput processStateless(String componentName, String configurationAndData) {
+        componentName = urlify(componentName);
         String response = call(RESTClient.HttpMethod.PUT, getURL(componentName), configurationAndData);
 
         return Serializator.processStatelessOutput(response);
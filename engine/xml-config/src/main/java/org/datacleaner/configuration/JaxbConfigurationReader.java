@@ -96,6 +96,7 @@ import org.datacleaner.descriptors.DescriptorProvider;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.RemoteDescriptorProvider;
 import org.datacleaner.descriptors.RemoteDescriptorProviderImpl;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
 import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
 import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskRunner;
@@ -123,6 +124,7 @@ import org.datacleaner.server.EnvironmentBasedHadoopClusterInformation;
 import org.datacleaner.storage.BerkeleyDbStorageProvider;
 import org.datacleaner.storage.CombinedStorageProvider;
 import org.datacleaner.storage.InMemoryStorageProvider;
+import org.datacleaner.storage.OffHeapStorageProvider;
 import org.datacleaner.storage.StorageProvider;
 import org.datacleaner.util.CollectionUtils2;
 import org.datacleaner.util.HadoopResource;
@@ -490,6 +492,14 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             return storageProvider;
         }
 
+        final OffHeapStorageProviderType offHeapStorageProvider = storageProviderType.getOffHeap();
+        if (offHeapStorageProvider != null) {
+            final File parentDirectory = new File(_interceptor.getTemporaryStorageDirectory());
+            return new OffHeapStorageProvider(parentDirectory, offHeapStorageProvider.getInMemoryThreshold(),
+                    offHeapStorageProvider.getMaxHeapUsage(), offHeapStorageProvider.getMaxSetsThreshold(),
+                    offHeapStorageProvider.getMaxRowsThreshold());
+        }
+
         return environment.getStorageProvider();
     }
 
@@ -1486,6 +1496,7 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
             TemporaryMutableDataCleanerEnvironment environment, DataCleanerConfiguration temporaryConfiguration) {
         final SinglethreadedTaskrunnerType singlethreadedTaskrunner = configuration.getSinglethreadedTaskrunner();
         final MultithreadedTaskrunnerType multithreadedTaskrunner = configuration.getMultithreadedTaskrunner();
+        final ForkjoinTaskrunnerType forkjoinTaskrunner = configuration.getForkjoinTaskrunner();
         final CustomElementType customTaskrunner = configuration.getCustomTaskrunner();
 
         if (singlethreadedTaskrunner != null) {
@@ -1500,6 +1511,24 @@ public final class JaxbConfigurationReader implements ConfigurationReader<InputS
                 taskRunner = new MultiThreadedTaskRunner();
             }
             environment.setTaskRunner(taskRunner);
+        } else if (forkjoinTaskrunner != null) {
+            final Short parallelism = forkjoinTaskrunner.getParallelism();
+            final Integer maxQueuedTasks = forkjoinTaskrunner.getMaxQueuedTasks();
+            final int parallelismValue;
+            if (parallelism != null) {
+                parallelismValue = parallelism.intValue();
+            } else {
+                parallelismValue = Runtime.getRuntime().availableProcessors();
+            }
+            final int maxQueuedTasksValue;
+            if (maxQueuedTasks != null) {
+                maxQueuedTasksValue = maxQueuedTasks.intValue();
+            } else {
+                maxQueuedTasksValue = Math.max(1000, parallelismValue * 10);
+            }
+            final TaskRunner taskRunner = new ForkJoinTaskRunner(parallelismValue, maxQueuedTasksValue,
+                    forkjoinTaskrunner.isVirtualThreads());
+            environment.setTaskRunner(taskRunner);
         } else if (customTaskrunner != null) {
             final TaskRunner taskRunner = createCustomElement(customTaskrunner, TaskRunner.class,
                     temporaryConfiguration, true);
@@ -61,7 +61,9 @@ import org.datacleaner.descriptors.CompositeDescriptorProvider;
 import org.datacleaner.descriptors.DescriptorProvider;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.RendererBeanDescriptor;
+import org.datacleaner.job.concurrent.ForkJoinTaskRunner;
 import org.datacleaner.job.concurrent.SingleThreadedTaskRunner;
+import org.datacleaner.job.concurrent.TaskRunner;
 import org.datacleaner.lifecycle.LifeCycleHelper;
 import org.datacleaner.metamodel.datahub.DataHubSecurityMode;
 import org.datacleaner.reference.DatastoreDictionary;
@@ -82,6 +84,8 @@ import org.datacleaner.storage.BerkeleyDbStorageProvider;
 import org.datacleaner.storage.CombinedStorageProvider;
 import org.datacleaner.storage.InMemoryRowAnnotationFactory2;
 import org.datacleaner.storage.InMemoryStorageProvider;
+import org.datacleaner.storage.OffHeapRowAnnotationFactory;
+import org.datacleaner.storage.OffHeapStorageProvider;
 import org.datacleaner.storage.RowAnnotationFactory;
 import org.datacleaner.storage.StorageProvider;
 import org.junit.Assert;
@@ -212,6 +216,21 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertTrue(configuration.getEnvironment().getTaskRunner() instanceof SingleThreadedTaskRunner);
     }
 
+    public void testForkJoinTaskRunner() throws Exception {
+        DataCleanerConfiguration configuration = reader
+                .create(new File("src/test/resources/example-configuration-forkjoin-taskrunner.xml"));
+
+        TaskRunner taskRunner = configuration.getEnvironment().getTaskRunner();
+        assertEquals(ForkJoinTaskRunner.class, taskRunner.getClass());
+
+        ForkJoinTaskRunner forkJoinTaskRunner = (ForkJoinTaskRunner) taskRunner;
+        assertEquals(6, forkJoinTaskRunner.getParallelism());
+        assertEquals(200, forkJoinTaskRunner.getMaxQueuedTasks());
+        assertFalse(forkJoinTaskRunner.isVirtualThreads());
+
+        taskRunner.shutdown();
+    }
+
     public void testCombinedStorage() throws Exception {
         DataCleanerConfiguration configuration = reader
                 .create(new File("src/test/resources/example-configuration-combined-storage.xml"));
@@ -227,6 +246,21 @@ public class JaxbConfigurationReaderTest extends TestCase {
         assertEquals(InMemoryRowAnnotationFactory2.class, rowAnnotationFactory.getClass());
     }
 
+    public void testOffHeapStorage() throws Exception {
+        DataCleanerConfiguration configuration = reader
+                .create(new File("src/test/resources/example-configuration-off-heap-storage.xml"));
+        StorageProvider storageProvider = configuration.getEnvironment().getStorageProvider();
+
+        assertEquals(OffHeapStorageProvider.class, storageProvider.getClass());
+
+        OffHeapStorageProvider offHeapStorageProvider = (OffHeapStorageProvider) storageProvider;
+        assertEquals(5000, offHeapStorageProvider.getInMemoryThreshold());
+        assertEquals(0.5, offHeapStorageProvider.getMaxHeapUsage());
+
+        RowAnnotationFactory rowAnnotationFactory = storageProvider.createRowAnnotationFactory();
+        assertEquals(OffHeapRowAnnotationFactory.class, rowAnnotationFactory.getClass());
+    }
+
     public void testAllDatastoreTypes() throws Exception {
         DatastoreCatalog datastoreCatalog = getDataStoreCatalog(getConfiguration());
         String[] datastoreNames = datastoreCatalog.getDatastoreNames();
@@ -19,6 +19,8 @@
  */
 package org.datacleaner.monitor.configuration;
 
+import org.datacleaner.api.AnalyzerResult;
+import org.datacleaner.job.ComponentJob;
 import org.datacleaner.result.AnalysisResult;
 import org.datacleaner.monitor.job.JobContext;
 import org.datacleaner.repository.RepositoryFile;
@@ -38,6 +40,22 @@ public interface ResultContext {
      */
     public AnalysisResult getAnalysisResult() throws IllegalStateException;
 
+    /**
+     * Reads and materializes the result of a single component. For results
+     * stored in the sectioned format, only the result of the requested
+     * component is read. By default the whole analysis result is read.
+     * 
+     * @param componentJob
+     * @return the result of the component, or null if the analysis result
+     *         does not contain a result for the component
+     * @throws IllegalStateException
+     *             if an exception occurs while reading or materializing the
+     *             result
+     */
+    default AnalyzerResult getAnalyzerResult(ComponentJob componentJob) throws IllegalStateException {
+        return getAnalysisResult().getResult(componentJob);
+    }
+
     /**
      * Gets the file in the repository that holds this analysis result.
      * 
@@ -46,6 +46,8 @@ public class ScheduleDefinition implements Comparable<ScheduleDefinition>, Seria
     private boolean _runOnHadoop;
     private String _hotFolder;
     private Map<String, String> _overrideProperties;
+    private Integer _priority;
+    private Integer _maxConcurrentTasks;
 
     // no-args constructor
     public ScheduleDefinition() {
@@ -179,6 +181,35 @@ public class ScheduleDefinition implements Comparable<ScheduleDefinition>, Seria
         _overrideProperties = overrideProperties;
     }
 
+    /**
+     * Gets the priority of executions of this schedule, relative to other
+     * executions of the same tenant. Executions with a higher priority get a
+     * proportionally larger share of the task runner's threads.
+     * 
+     * @return the priority, or null if the default priority should be used
+     */
+    public Integer getPriority() {
+        return _priority;
+    }
+
+    public void setPriority(Integer priority) {
+        _priority = priority;
+    }
+
+    /**
+     * Gets the maximum number of tasks of an execution of this schedule that
+     * may run at the same time.
+     * 
+     * @return the maximum number of concurrent tasks, or null if not limited
+     */
+    public Integer getMaxConcurrentTasks() {
+        return _maxConcurrentTasks;
+    }
+
+    public void setMaxConcurrentTasks(Integer maxConcurrentTasks) {
+        _maxConcurrentTasks = maxConcurrentTasks;
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -25,6 +25,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import javax.servlet.ServletContext;
 
@@ -39,7 +40,6 @@ import org.datacleaner.descriptors.ClasspathScanDescriptorProvider;
 import org.datacleaner.descriptors.CompositeDescriptorProvider;
 import org.datacleaner.descriptors.DescriptorProvider;
 import org.datacleaner.descriptors.RemoteDescriptorProviderImpl;
-import org.datacleaner.job.concurrent.MultiThreadedTaskRunner;
 import org.datacleaner.job.concurrent.TaskRunner;
 import org.datacleaner.panels.ComponentBuilderPresenterRenderingFormat;
 import org.datacleaner.restclient.Serializator;
@@ -71,6 +71,8 @@ public class ConfigurationFactory {
 
     private List<String> _scannedPackages;
     private Integer _numThreads;
+    private Integer _maxConcurrentTasksPerTenant;
+    private Map<String, Integer> _tenantWeights;
     private boolean scanWebInfFolder = true;
     private RemoteServerData _remoteServerData;
 
@@ -98,6 +100,31 @@ public class ConfigurationFactory {
         _numThreads = numThreads;
     }
 
+    public Integer getMaxConcurrentTasksPerTenant() {
+        return _maxConcurrentTasksPerTenant;
+    }
+
+    /**
+     * Sets the maximum number of tasks of a single tenant that may run at the
+     * same time. If not set, a tenant may use all threads when no other
+     * tenants have queued tasks.
+     */
+    public void setMaxConcurrentTasksPerTenant(Integer maxConcurrentTasksPerTenant) {
+        _maxConcurrentTasksPerTenant = maxConcurrentTasksPerTenant;
+    }
+
+    public Map<String, Integer> getTenantWeights() {
+        return _tenantWeights;
+    }
+
+    /**
+     * Sets the weights (shares of the task runner's threads) of tenants,
+     * keyed by tenant id. Tenants have weight 1 by default.
+     */
+    public void setTenantWeights(Map<String, Integer> tenantWeights) {
+        _tenantWeights = tenantWeights;
+    }
+
     /**
      * Adds additional remote server. For remote components it is possible to use
      * the {@link RemoteServerDataFactory} factory.
@@ -117,7 +144,14 @@ public class ConfigurationFactory {
             throw new IllegalStateException("Number of threads have not been configured.");
         }
         logger.info("Creating shared task runner with {} threads", _numThreads);
-        return new MultiThreadedTaskRunner(_numThreads);
+        final FairShareTaskRunner taskRunner = new FairShareTaskRunner(_numThreads);
+        if (_maxConcurrentTasksPerTenant != null) {
+            taskRunner.setMaxConcurrentTasksPerTenant(_maxConcurrentTasksPerTenant);
+        }
+        if (_tenantWeights != null) {
+            taskRunner.setTenantWeights(_tenantWeights);
+        }
+        return taskRunner;
     }
 
     @Bean(name = "descriptorProvider")
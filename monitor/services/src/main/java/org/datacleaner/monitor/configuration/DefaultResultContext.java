@@ -33,12 +33,14 @@ import org.datacleaner.result.DataSetResult;
 import org.datacleaner.result.ListResult;
 import org.datacleaner.result.NumberResult;
 import org.datacleaner.result.SimpleAnalysisResult;
+import org.datacleaner.result.save.SectionedAnalysisResultReader;
 import org.datacleaner.util.ChangeAwareObjectInputStream;
 import org.datacleaner.monitor.job.JobContext;
 import org.datacleaner.repository.RepositoryFile;
 import org.apache.metamodel.data.DataSet;
 import org.apache.metamodel.util.FileHelper;
 import org.apache.metamodel.util.Func;
+import org.apache.metamodel.util.Resource;
 
 /**
  * Default implementation of the {@link ResultContext} interface.
@@ -55,6 +57,14 @@ public class DefaultResultContext implements ResultContext {
 
     @Override
     public AnalysisResult getAnalysisResult() throws IllegalStateException {
+        final Resource resource = _repositoryFile.toResource();
+        if (SectionedAnalysisResultReader.isSectioned(resource)) {
+            // component results are only read when they are requested. The
+            // file is copied to memory, since it is renamed when the result
+            // is updated.
+            return SectionedAnalysisResultReader.inMemory(resource).getAnalysisResult();
+        }
+
         final Object deserializedObject = _repositoryFile.readFile(new Func<InputStream, Object>() {
             @Override
             public Object eval(InputStream in) {
@@ -0,0 +1,770 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.configuration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.datacleaner.job.concurrent.DaemonThreadFactory;
+import org.datacleaner.job.concurrent.ScheduledTaskRunner;
+import org.datacleaner.job.concurrent.TaskListener;
+import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.tasks.Task;
+import org.datacleaner.monitor.scheduling.model.ExecutionLog;
+import org.datacleaner.monitor.scheduling.model.ScheduleDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link TaskRunner} for the monitor, which is shared by all tenants and job
+ * executions, but dispatches tasks fairly between them.
+ * 
+ * Tasks are queued per tenant and per job execution (a {@link TaskGroup}). The
+ * task group of a submitted task is the one of the submitting thread, see
+ * {@link #setCurrentTaskGroup(TaskGroup)}. Worker threads pick the next task
+ * using weighted fair queueing (stride scheduling): first between tenants, by
+ * their configured weights, then between the executions of the tenant, by the
+ * priority of their schedule. Thereby a tenant running a very large job does
+ * not starve the small jobs of other tenants.
+ * 
+ * The number of concurrently running tasks can be limited per tenant and per
+ * execution. The number of queued tasks per execution is bounded, and when
+ * the bound is reached the submitting thread either runs the task itself (if
+ * it is one of our own tasks) or blocks until there is room again.
+ */
+public final class FairShareTaskRunner implements ScheduledTaskRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FairShareTaskRunner.class);
+
+    public static final int DEFAULT_PRIORITY = 1;
+    public static final int DEFAULT_TENANT_WEIGHT = 1;
+
+    private static final long STRIDE = 1L << 20;
+
+    private static final TaskGroup DEFAULT_TASK_GROUP = new TaskGroup(null, null, DEFAULT_PRIORITY, 0);
+
+    private static final ThreadLocal<TaskGroup> CURRENT_TASK_GROUP = new ThreadLocal<TaskGroup>();
+    private static final ThreadLocal<FairShareTaskRunner> CURRENT_RUNNER = new ThreadLocal<FairShareTaskRunner>();
+
+    private final ReentrantLock _lock;
+    private final Condition _taskAvailable;
+    private final Condition _spaceAvailable;
+    private final Map<String, TenantQueue> _tenantQueues;
+    private final Map<String, Integer> _tenantWeights;
+    private final ScheduledThreadPoolExecutor _executorScheduledService;
+    private final int _numThreads;
+    private final int _maxQueuedTasksPerExecution;
+    private int _maxConcurrentTasksPerTenant;
+    private long _virtualTime;
+    private int _queuedTasks;
+    private boolean _shutdown;
+
+    public FairShareTaskRunner(int numThreads) {
+        this(numThreads, Math.max(1000, numThreads * 10));
+    }
+
+    /**
+     * 
+     * @param numThreads
+     *            the number of worker threads
+     * @param maxQueuedTasksPerExecution
+     *            the maximum number of tasks that may be queued for a single
+     *            job execution
+     */
+    public FairShareTaskRunner(int numThreads, int maxQueuedTasksPerExecution) {
+        if (numThreads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be a positive number");
+        }
+        if (maxQueuedTasksPerExecution <= 0) {
+            throw new IllegalArgumentException("Max queued tasks must be a positive number");
+        }
+        _numThreads = numThreads;
+        _maxQueuedTasksPerExecution = maxQueuedTasksPerExecution;
+        _maxConcurrentTasksPerTenant = numThreads;
+        _lock = new ReentrantLock();
+        _taskAvailable = _lock.newCondition();
+        _spaceAvailable = _lock.newCondition();
+        _tenantQueues = new LinkedHashMap<String, TenantQueue>();
+        _tenantWeights = new HashMap<String, Integer>();
+        _virtualTime = 0;
+        _queuedTasks = 0;
+        _shutdown = false;
+
+        final ThreadFactory threadFactory = new DaemonThreadFactory();
+        for (int i = 0; i < numThreads; i++) {
+            threadFactory.newThread(new Runnable() {
+                @Override
+                public void run() {
+                    work();
+                }
+            }).start();
+        }
+
+        _executorScheduledService = new ScheduledThreadPoolExecutor(1, threadFactory);
+        _executorScheduledService.setMaximumPoolSize(50);
+    }
+
+    /**
+     * Gets the task group of the current thread, which will be assigned to
+     * tasks submitted by the thread.
+     * 
+     * @return the task group, or null if none is set
+     */
+    public static TaskGroup getCurrentTaskGroup() {
+        return CURRENT_TASK_GROUP.get();
+    }
+
+    /**
+     * Sets the task group of the current thread. Tasks submitted by the
+     * thread, and tasks that are in turn submitted by those tasks, will be
+     * queued and dispatched as part of the task group.
+     * 
+     * @param taskGroup
+     *            the task group, or null to clear it
+     */
+    public static void setCurrentTaskGroup(TaskGroup taskGroup) {
+        if (taskGroup == null) {
+            CURRENT_TASK_GROUP.remove();
+        } else {
+            CURRENT_TASK_GROUP.set(taskGroup);
+        }
+    }
+
+    public int getNumThreads() {
+        return _numThreads;
+    }
+
+    public int getMaxQueuedTasksPerExecution() {
+        return _maxQueuedTasksPerExecution;
+    }
+
+    public int getMaxConcurrentTasksPerTenant() {
+        _lock.lock();
+        try {
+            return _maxConcurrentTasksPerTenant;
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the maximum number of tasks of a single tenant that may run at the
+     * same time. By default a tenant may use all threads, when no other
+     * tenants have queued tasks.
+     * 
+     * @param maxConcurrentTasksPerTenant
+     */
+    public void setMaxConcurrentTasksPerTenant(int maxConcurrentTasksPerTenant) {
+        _lock.lock();
+        try {
+            _maxConcurrentTasksPerTenant = Math.max(1, maxConcurrentTasksPerTenant);
+            _taskAvailable.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Sets the weight of a tenant. A tenant with weight 2 gets twice as many
+     * tasks dispatched as a tenant with weight 1, when both have queued tasks.
+     * 
+     * @param tenantId
+     * @param weight
+     */
+    public void setTenantWeight(String tenantId, int weight) {
+        final int tenantWeight = Math.max(1, weight);
+        _lock.lock();
+        try {
+            _tenantWeights.put(tenantId, tenantWeight);
+            final TenantQueue tenantQueue = _tenantQueues.get(tenantId);
+            if (tenantQueue != null) {
+                tenantQueue.weight = tenantWeight;
+            }
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    public void setTenantWeights(Map<String, Integer> tenantWeights) {
+        for (Map.Entry<String, Integer> entry : tenantWeights.entrySet()) {
+            setTenantWeight(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void run(final Task task, final TaskListener listener) {
+        logger.debug("run({},{})", task, listener);
+        executeInternal(new TaskRunnable(task, listener));
+    }
+
+    @Override
+    public void run(TaskRunnable taskRunnable) {
+        logger.debug("run({})", taskRunnable);
+        executeInternal(taskRunnable);
+    }
+
+    private void executeInternal(TaskRunnable taskRunnable) {
+        final TaskGroup taskGroup = getTaskGroup();
+        final QueuedTask queuedTask = new QueuedTask(taskRunnable, taskGroup);
+        final boolean ownTask = CURRENT_RUNNER.get() == this;
+
+        while (true) {
+            final QueuedTask assistedTask;
+            _lock.lock();
+            try {
+                if (_shutdown) {
+                    logger.error("Unexpected rejected execution! Task runner has been shut down.");
+                    return;
+                }
+
+                final TenantQueue tenantQueue = getTenantQueue(taskGroup.getTenantId());
+                final ExecutionQueue executionQueue = tenantQueue.getExecutionQueue(taskGroup);
+                if (executionQueue.tasks.size() < _maxQueuedTasksPerExecution) {
+                    enqueue(tenantQueue, executionQueue, queuedTask);
+                    _taskAvailable.signal();
+                    return;
+                }
+
+                if (!ownTask) {
+                    // block the submitter (eg. a row processing publisher)
+                    // until the execution's tasks have been picked up
+                    _spaceAvailable.awaitUninterruptibly();
+                    continue;
+                }
+
+                // the caller is one of our own tasks, so blocking could
+                // deadlock. Instead run a queued task of the same execution,
+                // using the thread slot of the caller.
+                assistedTask = dequeue(tenantQueue, executionQueue, false);
+            } finally {
+                _lock.unlock();
+            }
+            execute(assistedTask);
+        }
+    }
+
+    private TaskGroup getTaskGroup() {
+        final TaskGroup taskGroup = CURRENT_TASK_GROUP.get();
+        if (taskGroup == null) {
+            return DEFAULT_TASK_GROUP;
+        }
+        return taskGroup;
+    }
+
+    private TenantQueue getTenantQueue(String tenantId) {
+        TenantQueue tenantQueue = _tenantQueues.get(tenantId);
+        if (tenantQueue == null) {
+            final Integer weight = _tenantWeights.get(tenantId);
+            tenantQueue = new TenantQueue(tenantId, weight == null ? DEFAULT_TENANT_WEIGHT : weight.intValue());
+            _tenantQueues.put(tenantId, tenantQueue);
+        }
+        return tenantQueue;
+    }
+
+    private void enqueue(TenantQueue tenantQueue, ExecutionQueue executionQueue, QueuedTask queuedTask) {
+        // queues that become backlogged start at the current virtual time, so
+        // that they do not get to catch up on the time they were idle
+        if (tenantQueue.queuedTasks == 0) {
+            tenantQueue.pass = Math.max(tenantQueue.pass, _virtualTime);
+        }
+        if (executionQueue.tasks.isEmpty()) {
+            executionQueue.pass = Math.max(executionQueue.pass, tenantQueue.virtualTime);
+        }
+        queuedTask.enqueueTime = System.nanoTime();
+        executionQueue.tasks.add(queuedTask);
+        tenantQueue.queuedTasks++;
+        _queuedTasks++;
+    }
+
+    /**
+     * Removes the next task of an execution from it's queue. Must be called
+     * while holding the lock.
+     * 
+     * @param tenantQueue
+     * @param executionQueue
+     * @param countAsRunning
+     *            whether or not the task will occupy a thread slot of it's
+     *            tenant and execution
+     * @return
+     */
+    private QueuedTask dequeue(TenantQueue tenantQueue, ExecutionQueue executionQueue, boolean countAsRunning) {
+        final QueuedTask queuedTask = executionQueue.tasks.poll();
+        tenantQueue.queuedTasks--;
+        _queuedTasks--;
+
+        _virtualTime = Math.max(_virtualTime, tenantQueue.pass);
+        tenantQueue.pass += STRIDE / tenantQueue.weight;
+        tenantQueue.virtualTime = Math.max(tenantQueue.virtualTime, executionQueue.pass);
+        executionQueue.pass += STRIDE / executionQueue.taskGroup.getPriority();
+
+        final long waitTime = System.nanoTime() - queuedTask.enqueueTime;
+        tenantQueue.dispatchedTasks++;
+        tenantQueue.totalWaitTime += waitTime;
+        tenantQueue.maxWaitTime = Math.max(tenantQueue.maxWaitTime, waitTime);
+
+        if (countAsRunning) {
+            tenantQueue.runningTasks++;
+            executionQueue.runningTasks++;
+            queuedTask.running = true;
+        }
+        removeIfIdle(tenantQueue, executionQueue);
+
+        _spaceAvailable.signalAll();
+        return queuedTask;
+    }
+
+    /**
+     * Selects the next task to run by a worker thread. Must be called while
+     * holding the lock.
+     * 
+     * @return the next task, or null if no tasks can currently be run
+     */
+    private QueuedTask dequeueNext() {
+        TenantQueue selectedTenantQueue = null;
+        ExecutionQueue selectedExecutionQueue = null;
+        for (TenantQueue tenantQueue : _tenantQueues.values()) {
+            if (tenantQueue.queuedTasks == 0 || tenantQueue.runningTasks >= _maxConcurrentTasksPerTenant) {
+                continue;
+            }
+            if (selectedTenantQueue != null && tenantQueue.pass >= selectedTenantQueue.pass) {
+                continue;
+            }
+            final ExecutionQueue executionQueue = tenantQueue.selectExecutionQueue(_numThreads);
+            if (executionQueue != null) {
+                selectedTenantQueue = tenantQueue;
+                selectedExecutionQueue = executionQueue;
+            }
+        }
+
+        if (selectedTenantQueue == null) {
+            return null;
+        }
+        return dequeue(selectedTenantQueue, selectedExecutionQueue, true);
+    }
+
+    private void work() {
+        while (true) {
+            final QueuedTask queuedTask;
+            _lock.lock();
+            try {
+                QueuedTask nextTask = dequeueNext();
+                while (nextTask == null) {
+                    if (_shutdown && _queuedTasks == 0) {
+                        return;
+                    }
+                    _taskAvailable.awaitUninterruptibly();
+                    nextTask = dequeueNext();
+                }
+                queuedTask = nextTask;
+            } finally {
+                _lock.unlock();
+            }
+            execute(queuedTask);
+        }
+    }
+
+    private void execute(QueuedTask queuedTask) {
+        final TaskGroup previousTaskGroup = CURRENT_TASK_GROUP.get();
+        final FairShareTaskRunner previousRunner = CURRENT_RUNNER.get();
+        CURRENT_TASK_GROUP.set(queuedTask.taskGroup);
+        CURRENT_RUNNER.set(this);
+        try {
+            queuedTask.taskRunnable.run();
+        } catch (Throwable e) {
+            logger.error("Unexpected error while running task: " + queuedTask.taskRunnable, e);
+        } finally {
+            setCurrentTaskGroup(previousTaskGroup);
+            if (previousRunner == null) {
+                CURRENT_RUNNER.remove();
+            } else {
+                CURRENT_RUNNER.set(previousRunner);
+            }
+            if (queuedTask.running) {
+                complete(queuedTask);
+            }
+        }
+    }
+
+    /**
+     * Removes an execution's queue once it has no queued and no running tasks
+     * left, no matter if it was drained by worker threads or by assisting
+     * callers. Must be called while holding the lock.
+     * 
+     * @param tenantQueue
+     * @param executionQueue
+     */
+    private void removeIfIdle(TenantQueue tenantQueue, ExecutionQueue executionQueue) {
+        if (executionQueue.runningTasks == 0 && executionQueue.tasks.isEmpty()) {
+            tenantQueue.executionQueues.remove(executionQueue.taskGroup);
+        }
+    }
+
+    private void complete(QueuedTask queuedTask) {
+        _lock.lock();
+        try {
+            final TenantQueue tenantQueue = _tenantQueues.get(queuedTask.taskGroup.getTenantId());
+            final ExecutionQueue executionQueue = tenantQueue.executionQueues.get(queuedTask.taskGroup);
+            tenantQueue.runningTasks--;
+            executionQueue.runningTasks--;
+            removeIfIdle(tenantQueue, executionQueue);
+            // a task may have been held back by a concurrency limit
+            _taskAvailable.signal();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void assistExecution() {
+        final TaskGroup taskGroup = getTaskGroup();
+        final boolean ownTask = CURRENT_RUNNER.get() == this;
+
+        QueuedTask queuedTask = null;
+        _lock.lock();
+        try {
+            final TenantQueue tenantQueue = _tenantQueues.get(taskGroup.getTenantId());
+            final ExecutionQueue executionQueue = (tenantQueue == null ? null : tenantQueue.executionQueues
+                    .get(taskGroup));
+            if (executionQueue != null && !executionQueue.tasks.isEmpty()) {
+                if (ownTask) {
+                    // run in the thread slot of the caller
+                    queuedTask = dequeue(tenantQueue, executionQueue, false);
+                } else if (tenantQueue.runningTasks < _maxConcurrentTasksPerTenant
+                        && executionQueue.runningTasks < executionQueue.getMaxConcurrentTasks(_numThreads)) {
+                    queuedTask = dequeue(tenantQueue, executionQueue, true);
+                }
+            }
+        } finally {
+            _lock.unlock();
+        }
+
+        if (queuedTask == null) {
+            Thread.yield();
+        } else {
+            execute(queuedTask);
+        }
+    }
+
+    /**
+     * Gets statistics about the queued and running tasks of all tenants.
+     * 
+     * @return
+     */
+    public List<TenantStatistics> getTenantStatistics() {
+        _lock.lock();
+        try {
+            final List<TenantStatistics> result = new ArrayList<TenantStatistics>(_tenantQueues.size());
+            for (TenantQueue tenantQueue : _tenantQueues.values()) {
+                result.add(tenantQueue.createStatistics());
+            }
+            return Collections.unmodifiableList(result);
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    /**
+     * Gets statistics about the queued and running tasks of a tenant.
+     * 
+     * @param tenantId
+     * @return the statistics of the tenant, or null if the tenant has not
+     *         submitted any tasks
+     */
+    public TenantStatistics getTenantStatistics(String tenantId) {
+        _lock.lock();
+        try {
+            final TenantQueue tenantQueue = _tenantQueues.get(tenantId);
+            if (tenantQueue == null) {
+                return null;
+            }
+            return tenantQueue.createStatistics();
+        } finally {
+            _lock.unlock();
+        }
+    }
+
+    @Override
+    public void runScheduled(final Task task, final TaskListener listener, long initialDelay, long delay,
+            TimeUnit unit) {
+        logger.debug("Schedule task ({},{}), delay {} {}", task, listener, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(new TaskRunnable(task, listener), initialDelay, delay, unit);
+    }
+
+    @Override
+    public void runScheduled(TaskRunnable taskRunnable, long initialDelay, long delay, TimeUnit unit) {
+        logger.debug("Schedule task ({}), delay {} {}", taskRunnable, delay, unit);
+        _executorScheduledService.scheduleWithFixedDelay(taskRunnable, initialDelay, delay, unit);
+    }
+
+    @Override
+    public void shutdown() {
+        logger.info("shutdown() called, shutting down task runner");
+        _lock.lock();
+        try {
+            _shutdown = true;
+            _taskAvailable.signalAll();
+            _spaceAvailable.signalAll();
+        } finally {
+            _lock.unlock();
+        }
+        _executorScheduledService.shutdown();
+    }
+
+    @Override
+    public String toString() {
+        return "FairShareTaskRunner[numThreads=" + _numThreads + "]";
+    }
+
+    /**
+     * Identifies a group of tasks that are queued and dispatched together,
+     * typically the tasks of a single job execution.
+     */
+    public static final class TaskGroup {
+
+        private final String _tenantId;
+        private final String _executionId;
+        private final int _priority;
+        private final int _maxConcurrentTasks;
+
+        /**
+         * 
+         * @param tenantId
+         *            the tenant that the tasks belong to
+         * @param executionId
+         *            an identifier of the execution, used for logging
+         * @param priority
+         *            the priority of the tasks, relative to other task groups
+         *            of the same tenant
+         * @param maxConcurrentTasks
+         *            the maximum number of tasks of the group that may run at
+         *            the same time, or 0 if not limited
+         */
+        public TaskGroup(String tenantId, String executionId, int priority, int maxConcurrentTasks) {
+            _tenantId = tenantId;
+            _executionId = executionId;
+            _priority = Math.max(1, priority);
+            _maxConcurrentTasks = Math.max(0, maxConcurrentTasks);
+        }
+
+        /**
+         * Creates a task group for a job execution, using the priority and
+         * concurrency limit of the execution's schedule.
+         * 
+         * @param executionLog
+         * @return
+         */
+        public static TaskGroup forExecution(ExecutionLog executionLog) {
+            final ScheduleDefinition schedule = executionLog.getSchedule();
+            if (schedule == null) {
+                return new TaskGroup(null, executionLog.getResultId(), DEFAULT_PRIORITY, 0);
+            }
+            final String tenantId = (schedule.getTenant() == null ? null : schedule.getTenant().getId());
+            final Integer priority = schedule.getPriority();
+            final Integer maxConcurrentTasks = schedule.getMaxConcurrentTasks();
+            return new TaskGroup(tenantId, executionLog.getResultId(), (priority == null ? DEFAULT_PRIORITY
+                    : priority.intValue()), (maxConcurrentTasks == null ? 0 : maxConcurrentTasks.intValue()));
+        }
+
+        public String getTenantId() {
+            return _tenantId;
+        }
+
+        public String getExecutionId() {
+            return _executionId;
+        }
+
+        public int getPriority() {
+            return _priority;
+        }
+
+        public int getMaxConcurrentTasks() {
+            return _maxConcurrentTasks;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskGroup[tenant=" + _tenantId + ",execution=" + _executionId + ",priority=" + _priority
+                    + ",maxConcurrentTasks=" + _maxConcurrentTasks + "]";
+        }
+    }
+
+    /**
+     * Snapshot of the queued and running tasks of a tenant.
+     */
+    public static final class TenantStatistics {
+
+        private final String _tenantId;
+        private final int _queuedTasks;
+        private final int _runningTasks;
+        private final int _activeExecutions;
+        private final long _dispatchedTasks;
+        private final long _totalWaitTimeNanos;
+        private final long _maxWaitTimeNanos;
+
+        private TenantStatistics(String tenantId, int queuedTasks, int runningTasks, int activeExecutions,
+                long dispatchedTasks, long totalWaitTimeNanos, long maxWaitTimeNanos) {
+            _tenantId = tenantId;
+            _queuedTasks = queuedTasks;
+            _runningTasks = runningTasks;
+            _activeExecutions = activeExecutions;
+            _dispatchedTasks = dispatchedTasks;
+            _totalWaitTimeNanos = totalWaitTimeNanos;
+            _maxWaitTimeNanos = maxWaitTimeNanos;
+        }
+
+        /**
+         * @return the tenant id, or null for tasks that were not submitted on
+         *         behalf of a tenant
+         */
+        public String getTenantId() {
+            return _tenantId;
+        }
+
+        public int getQueuedTasks() {
+            return _queuedTasks;
+        }
+
+        public int getRunningTasks() {
+            return _runningTasks;
+        }
+
+        public int getActiveExecutions() {
+            return _activeExecutions;
+        }
+
+        public long getDispatchedTasks() {
+            return _dispatchedTasks;
+        }
+
+        /**
+         * @return the average time (in milliseconds) that dispatched tasks
+         *         have been waiting in the queue
+         */
+        public double getAverageWaitTimeMillis() {
+            if (_dispatchedTasks == 0) {
+                return 0;
+            }
+            return _totalWaitTimeNanos / 1000000d / _dispatchedTasks;
+        }
+
+        /**
+         * @return the longest time (in milliseconds) that a dispatched task has
+         *         been waiting in the queue
+         */
+        public double getMaxWaitTimeMillis() {
+            return _maxWaitTimeNanos / 1000000d;
+        }
+
+        @Override
+        public String toString() {
+            return "TenantStatistics[tenant=" + _tenantId + ",queued=" + _queuedTasks + ",running=" + _runningTasks
+                    + ",dispatched=" + _dispatchedTasks + "]";
+        }
+    }
+
+    private static final class QueuedTask {
+
+        final TaskRunnable taskRunnable;
+        final TaskGroup taskGroup;
+        long enqueueTime;
+        boolean running;
+
+        QueuedTask(TaskRunnable taskRunnable, TaskGroup taskGroup) {
+            this.taskRunnable = taskRunnable;
+            this.taskGroup = taskGroup;
+        }
+    }
+
+    private static final class ExecutionQueue {
+
+        final TaskGroup taskGroup;
+        final ArrayDeque<QueuedTask> tasks = new ArrayDeque<QueuedTask>();
+        long pass;
+        int runningTasks;
+
+        ExecutionQueue(TaskGroup taskGroup) {
+            this.taskGroup = taskGroup;
+        }
+
+        int getMaxConcurrentTasks(int numThreads) {
+            final int maxConcurrentTasks = taskGroup.getMaxConcurrentTasks();
+            return maxConcurrentTasks == 0 ? numThreads : maxConcurrentTasks;
+        }
+    }
+
+    private static final class TenantQueue {
+
+        final String tenantId;
+        final Map<TaskGroup, ExecutionQueue> executionQueues = new LinkedHashMap<TaskGroup, ExecutionQueue>();
+        int weight;
+        long pass;
+        long virtualTime;
+        int queuedTasks;
+        int runningTasks;
+        long dispatchedTasks;
+        long totalWaitTime;
+        long maxWaitTime;
+
+        TenantQueue(String tenantId, int weight) {
+            this.tenantId = tenantId;
+            this.weight = weight;
+        }
+
+        ExecutionQueue getExecutionQueue(TaskGroup taskGroup) {
+            ExecutionQueue executionQueue = executionQueues.get(taskGroup);
+            if (executionQueue == null) {
+                executionQueue = new ExecutionQueue(taskGroup);
+                executionQueue.pass = virtualTime;
+                executionQueues.put(taskGroup, executionQueue);
+            }
+            return executionQueue;
+        }
+
+        ExecutionQueue selectExecutionQueue(int numThreads) {
+            ExecutionQueue selected = null;
+            for (ExecutionQueue executionQueue : executionQueues.values()) {
+                if (executionQueue.tasks.isEmpty()
+                        || executionQueue.runningTasks >= executionQueue.getMaxConcurrentTasks(numThreads)) {
+                    continue;
+                }
+                if (selected == null || executionQueue.pass < selected.pass) {
+                    selected = executionQueue;
+                }
+            }
+            return selected;
+        }
+
+        TenantStatistics createStatistics() {
+            return new TenantStatistics(tenantId, queuedTasks, runningTasks, executionQueues.size(),
+                    dispatchedTasks, totalWaitTime, maxWaitTime);
+        }
+    }
+}
@@ -26,6 +26,8 @@ import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.descriptors.ComponentDescriptor;
 import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.lifecycle.LifeCycleHelper;
+import org.datacleaner.monitor.configuration.FairShareTaskRunner;
+import org.datacleaner.monitor.configuration.FairShareTaskRunner.TaskGroup;
 import org.datacleaner.monitor.configuration.TenantContext;
 import org.datacleaner.monitor.configuration.TenantContextFactory;
 import org.datacleaner.monitor.events.JobExecutedEvent;
@@ -152,6 +154,10 @@ public class ExecuteJob extends AbstractQuartzJob {
         final RepositoryFolder resultFolder = context.getResultFolder();
         final ExecutionLogger executionLogger = new ExecutionLoggerImpl(execution, resultFolder, eventPublisher);
 
+        // tasks of the job are queued and dispatched on behalf of this
+        // execution by the (shared) task runner
+        final TaskGroup previousTaskGroup = FairShareTaskRunner.getCurrentTaskGroup();
+        FairShareTaskRunner.setCurrentTaskGroup(TaskGroup.forExecution(execution));
         try {
             final JobContext job = context.getJob(execution.getJob().getName());
 
@@ -173,6 +179,8 @@ public class ExecuteJob extends AbstractQuartzJob {
             // job or configuration. Other issues will be reported to the
             // listener by the runner.
             executionLogger.setStatusFailed(null, null, error);
+        } finally {
+            FairShareTaskRunner.setCurrentTaskGroup(previousTaskGroup);
         }
         return execution.getResultId();
     }
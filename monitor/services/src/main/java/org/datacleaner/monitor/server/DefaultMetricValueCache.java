@@ -0,0 +1,199 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.datacleaner.monitor.configuration.DefaultResultContext;
+import org.datacleaner.monitor.configuration.ResultContext;
+import org.datacleaner.monitor.configuration.TenantContext;
+import org.datacleaner.monitor.configuration.TenantContextFactory;
+import org.datacleaner.monitor.job.JobEngineManager;
+import org.datacleaner.monitor.job.MetricValues;
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.result.AnalysisResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * {@link MetricValueCache} which keeps a persistent {@link MetricIndex} per
+ * tenant. Metric values are served from the index as long as the result file
+ * has not been modified since the values were calculated. Otherwise the result
+ * file is read and the calculated values are added to the index, so that the
+ * index is filled lazily for results that existed before it.
+ */
+public class DefaultMetricValueCache extends DefaultMetricValueProducer implements MetricValueCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DefaultMetricValueCache.class);
+
+    private static final char KEY_SEPARATOR = '\u001F';
+
+    private final ConcurrentHashMap<String, MetricIndex> _indexes;
+
+    @Autowired
+    public DefaultMetricValueCache(TenantContextFactory tenantContextFactory, JobEngineManager jobEngineManager) {
+        super(tenantContextFactory, jobEngineManager);
+        _indexes = new ConcurrentHashMap<String, MetricIndex>();
+    }
+
+    @Override
+    public MetricValues getMetricValues(List<MetricIdentifier> metricIdentifiers, RepositoryFile resultFile,
+            TenantIdentifier tenant, JobIdentifier jobIdentifier) {
+        final MetricIndex index = getIndex(tenant);
+        final String resultFilename = resultFile.getName();
+        final long lastModified = resultFile.getLastModified();
+
+        final MetricIndex.Record record = index.get(resultFilename);
+        if (record != null && record.getLastModified() == lastModified) {
+            final MetricValues metricValues = toMetricValues(record, metricIdentifiers);
+            if (metricValues != null) {
+                return metricValues;
+            }
+        }
+
+        final TenantContext tenantContext = getTenantContextFactory().getContext(tenant);
+        final ResultContext resultContext = tenantContext.getResult(resultFilename);
+        final MetricValues metricValues = getMetricValues(metricIdentifiers, resultContext, tenantContext,
+                jobIdentifier);
+
+        // keep previously indexed values of the same result file
+        final Map<String, Number> values = new LinkedHashMap<String, Number>();
+        if (record != null && record.getLastModified() == lastModified) {
+            values.putAll(record.getValues());
+        }
+        return putRecord(index, resultFilename, lastModified, metricValues, metricIdentifiers, values);
+    }
+
+    @Override
+    public void addResult(TenantIdentifier tenant, JobIdentifier jobIdentifier, String resultFilename,
+            final AnalysisResult analysisResult, List<MetricIdentifier> metricIdentifiers) {
+        final TenantContext tenantContext = getTenantContextFactory().getContext(tenant);
+        final RepositoryFile resultFile = tenantContext.getResultFolder().getFile(resultFilename);
+        if (resultFile == null) {
+            logger.warn("Result file {} does not exist, not indexing it's metrics", resultFilename);
+            return;
+        }
+
+        final MetricIndex index = getIndex(tenant);
+        if (metricIdentifiers.isEmpty()) {
+            index.remove(resultFilename);
+            return;
+        }
+
+        // use the in-memory result instead of reading the file back
+        final ResultContext resultContext = new DefaultResultContext(tenantContext, resultFile) {
+            @Override
+            public AnalysisResult getAnalysisResult() throws IllegalStateException {
+                return analysisResult;
+            }
+        };
+        final MetricValues metricValues = getMetricValues(metricIdentifiers, resultContext, tenantContext,
+                jobIdentifier);
+        putRecord(index, resultFilename, resultFile.getLastModified(), metricValues, metricIdentifiers,
+                new LinkedHashMap<String, Number>());
+    }
+
+    @Override
+    public void removeResult(TenantIdentifier tenant, String resultFilename) {
+        getIndex(tenant).remove(resultFilename);
+    }
+
+    private MetricIndex getIndex(TenantIdentifier tenant) {
+        final String tenantId = tenant.getId();
+        MetricIndex index = _indexes.get(tenantId);
+        if (index == null) {
+            final TenantContext tenantContext = getTenantContextFactory().getContext(tenant);
+            // loaded outside of any lock, a concurrently loaded index is
+            // equivalent
+            index = new MetricIndex(tenantContext.getResultFolder());
+            final MetricIndex existingIndex = _indexes.putIfAbsent(tenantId, index);
+            if (existingIndex != null) {
+                index = existingIndex;
+            }
+        }
+        return index;
+    }
+
+    private MetricValues putRecord(MetricIndex index, String resultFilename, long lastModified,
+            MetricValues metricValues, List<MetricIdentifier> metricIdentifiers, Map<String, Number> values) {
+        final List<Number> calculatedValues = metricValues.getValues();
+        for (int i = 0; i < metricIdentifiers.size(); i++) {
+            values.put(getKey(metricIdentifiers.get(i)), calculatedValues.get(i));
+        }
+        index.put(resultFilename, new MetricIndex.Record(lastModified, metricValues.getMetricDate(), values));
+        return new SimpleMetricValues(metricValues.getMetricDate(), calculatedValues);
+    }
+
+    private MetricValues toMetricValues(MetricIndex.Record record, List<MetricIdentifier> metricIdentifiers) {
+        final Map<String, Number> indexedValues = record.getValues();
+        final List<Number> values = new ArrayList<Number>(metricIdentifiers.size());
+        for (MetricIdentifier metricIdentifier : metricIdentifiers) {
+            final String key = getKey(metricIdentifier);
+            if (!indexedValues.containsKey(key)) {
+                return null;
+            }
+            values.add(indexedValues.get(key));
+        }
+        return new SimpleMetricValues(record.getMetricDate(), values);
+    }
+
+    /**
+     * Creates the key of a metric in the index. Unlike
+     * {@link MetricIdentifier#getId()} the key includes separators, and the
+     * children of formula based metrics.
+     * 
+     * @param metricIdentifier
+     * @return
+     */
+    static String getKey(MetricIdentifier metricIdentifier) {
+        final StringBuilder sb = new StringBuilder();
+        appendKey(sb, metricIdentifier);
+        return sb.toString();
+    }
+
+    private static void appendKey(StringBuilder sb, MetricIdentifier metricIdentifier) {
+        if (metricIdentifier.isFormulaBased()) {
+            sb.append("formula").append(KEY_SEPARATOR).append(metricIdentifier.getFormula());
+            final List<MetricIdentifier> children = metricIdentifier.getChildren();
+            if (children != null) {
+                for (MetricIdentifier child : children) {
+                    sb.append(KEY_SEPARATOR).append('(');
+                    appendKey(sb, child);
+                    sb.append(')');
+                }
+            }
+            return;
+        }
+        sb.append(metricIdentifier.getAnalyzerDescriptorName());
+        sb.append(KEY_SEPARATOR).append(metricIdentifier.getAnalyzerName());
+        sb.append(KEY_SEPARATOR).append(metricIdentifier.getAnalyzerInputName());
+        sb.append(KEY_SEPARATOR).append(metricIdentifier.getMetricDescriptorName());
+        sb.append(KEY_SEPARATOR).append(metricIdentifier.getParamColumnName());
+        sb.append(KEY_SEPARATOR).append(metricIdentifier.getParamQueryString());
+    }
+}
@@ -60,7 +60,21 @@ public class DefaultMetricValueProducer implements MetricValueProducer {
         final TenantContext tenantContext = _tenantContextFactory.getContext(tenant);
         final String resultFilename = resultFile.getName();
         final ResultContext resultContext = tenantContext.getResult(resultFilename);
+        return getMetricValues(metricIdentifiers, resultContext, tenantContext, jobIdentifier);
+    }
 
+    /**
+     * Calculates metric values of a particular result, using the job engine of
+     * the job that produced it.
+     * 
+     * @param metricIdentifiers
+     * @param resultContext
+     * @param tenantContext
+     * @param jobIdentifier
+     * @return
+     */
+    protected MetricValues getMetricValues(List<MetricIdentifier> metricIdentifiers, ResultContext resultContext,
+            TenantContext tenantContext, JobIdentifier jobIdentifier) {
         final String jobName = jobIdentifier.getName();
         final MetricJobContext job = (MetricJobContext) tenantContext.getJob(jobName);
         final MetricJobEngine<? extends MetricJobContext> jobEngine;
@@ -73,4 +87,8 @@ public class DefaultMetricValueProducer implements MetricValueProducer {
         }
         return jobEngine.getMetricValues(job, resultContext, metricIdentifiers);
     }
+
+    protected TenantContextFactory getTenantContextFactory() {
+        return _tenantContextFactory;
+    }
 }
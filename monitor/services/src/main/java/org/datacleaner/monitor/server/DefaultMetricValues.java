@@ -22,12 +22,14 @@ package org.datacleaner.monitor.server;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 import org.datacleaner.descriptors.MetricDescriptor;
 import org.datacleaner.descriptors.MetricParameters;
 import org.datacleaner.job.AnalysisJob;
 import org.datacleaner.job.ComponentJob;
 import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.result.save.LazyAnalysisResult;
 import org.datacleaner.monitor.job.MetricJobContext;
 import org.datacleaner.monitor.job.MetricJobEngine;
 import org.datacleaner.monitor.job.MetricValues;
@@ -99,6 +101,12 @@ public final class DefaultMetricValues implements MetricValues {
             final MetricDescriptor metric = metricDescriptors.get(i);
             final MetricParameters parameters = metricParameters.get(i);
 
+            final Number storedMetricValue = getStoredMetricValue(metricIdentifier, job, metric);
+            if (storedMetricValue != null) {
+                metricValuesList.add(storedMetricValue);
+                continue;
+            }
+
             final Number metricValue = metricValueUtils.getMetricValue(_jobEngine, _job, metricIdentifier, metric, _analysisJob,
                     job, _analysisResult, parameters);
             metricValuesList.add(metricValue);
@@ -106,4 +114,29 @@ public final class DefaultMetricValues implements MetricValues {
 
         return metricValuesList;
     }
+
+    /**
+     * Gets a metric value which was stored alongside the result of it's
+     * component, which saves reading and materializing the result itself.
+     * 
+     * @param metricIdentifier
+     * @param componentJob
+     * @param metric
+     * @return the stored metric value, or null if it is not available
+     */
+    private Number getStoredMetricValue(MetricIdentifier metricIdentifier, ComponentJob componentJob,
+            MetricDescriptor metric) {
+        if (!(_analysisResult instanceof LazyAnalysisResult) || componentJob == null || metric == null) {
+            return null;
+        }
+        if (metricIdentifier.isFormulaBased() || metric.isParameterizedByString()
+                || metric.isParameterizedByInputColumn()) {
+            return null;
+        }
+        final Map<String, Number> metricValues = ((LazyAnalysisResult) _analysisResult).getMetricValues(componentJob);
+        if (metricValues == null) {
+            return null;
+        }
+        return metricValues.get(metric.getName());
+    }
 }
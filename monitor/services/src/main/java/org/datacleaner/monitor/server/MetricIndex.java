@@ -0,0 +1,370 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.apache.metamodel.util.Action;
+import org.apache.metamodel.util.Func;
+import org.datacleaner.repository.RepositoryFile;
+import org.datacleaner.repository.RepositoryFolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent index of metric values, kept in a single file in the result
+ * folder of a tenant. The file is an append-only log of records, which is
+ * replayed when the index is loaded and compacted when it contains mostly
+ * superseded records.
+ * 
+ * Each record of the index holds the metric values of one result file, along
+ * with the last modified timestamp of the result file when the values were
+ * calculated, so that stale records can be detected.
+ */
+final class MetricIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricIndex.class);
+
+    public static final String FILENAME = "metric-index.dat";
+
+    private static final int FORMAT_VERSION = 1;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_BYTE = 1;
+    private static final byte TYPE_SHORT = 2;
+    private static final byte TYPE_INTEGER = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_DOUBLE = 6;
+    private static final byte TYPE_BIG_INTEGER = 7;
+    private static final byte TYPE_BIG_DECIMAL = 8;
+
+    private static final int MIN_RECORDS_BEFORE_COMPACTION = 100;
+
+    private final RepositoryFolder _folder;
+    private final Map<String, Record> _records;
+    private int _logSize;
+
+    public MetricIndex(RepositoryFolder folder) {
+        _folder = folder;
+        _records = new HashMap<String, Record>();
+        _logSize = 0;
+        load();
+    }
+
+    /**
+     * Gets the record of a particular result file, or null if no record
+     * exists.
+     * 
+     * @param resultFilename
+     * @return
+     */
+    public synchronized Record get(String resultFilename) {
+        return _records.get(resultFilename);
+    }
+
+    /**
+     * Puts the record of a particular result file, replacing any existing
+     * record.
+     * 
+     * @param resultFilename
+     * @param record
+     */
+    public synchronized void put(final String resultFilename, final Record record) {
+        _records.put(resultFilename, record);
+        append(new Action<DataOutputStream>() {
+            @Override
+            public void run(DataOutputStream out) throws Exception {
+                writePut(out, resultFilename, record);
+            }
+        });
+    }
+
+    /**
+     * Removes the record of a particular result file, if it exists.
+     * 
+     * @param resultFilename
+     */
+    public synchronized void remove(final String resultFilename) {
+        if (_records.remove(resultFilename) == null) {
+            return;
+        }
+        append(new Action<DataOutputStream>() {
+            @Override
+            public void run(DataOutputStream out) throws Exception {
+                out.writeByte(OP_REMOVE);
+                out.writeUTF(resultFilename);
+            }
+        });
+    }
+
+    public synchronized int size() {
+        return _records.size();
+    }
+
+    private void load() {
+        final RepositoryFile file = _folder.getFile(FILENAME);
+        if (file == null) {
+            return;
+        }
+
+        final boolean complete = file.readFile(new Func<InputStream, Boolean>() {
+            @Override
+            public Boolean eval(InputStream in) {
+                try {
+                    final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+                    if (dataIn.readInt() != FORMAT_VERSION) {
+                        logger.info("Discarding metric index with unknown format: {}", file);
+                        return false;
+                    }
+                    _logSize = 1;
+                    while (true) {
+                        final int op = dataIn.read();
+                        if (op == -1) {
+                            return true;
+                        }
+                        final String resultFilename = dataIn.readUTF();
+                        if (op == OP_PUT) {
+                            _records.put(resultFilename, readRecord(dataIn));
+                        } else if (op == OP_REMOVE) {
+                            _records.remove(resultFilename);
+                        } else {
+                            logger.warn("Unexpected operation {} in metric index, ignoring remainder of {}", op, file);
+                            return false;
+                        }
+                        _logSize++;
+                    }
+                } catch (EOFException e) {
+                    // a write was interrupted, keep what is complete
+                    logger.warn("Metric index is truncated, ignoring remainder of {}", file);
+                    return false;
+                } catch (IOException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        });
+
+        if (!complete) {
+            compact();
+        }
+    }
+
+    private void append(final Action<DataOutputStream> action) {
+        final RepositoryFile file = _folder.getFile(FILENAME);
+        if (file == null) {
+            compact();
+            return;
+        }
+
+        file.writeFile(new Action<OutputStream>() {
+            @Override
+            public void run(OutputStream out) throws Exception {
+                final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+                action.run(dataOut);
+                dataOut.flush();
+            }
+        }, true);
+        _logSize++;
+
+        if (_logSize >= MIN_RECORDS_BEFORE_COMPACTION && _logSize > 2 * _records.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrites the index file with only the current records, leaving out
+     * records of result files that no longer exist.
+     */
+    private void compact() {
+        final List<String> removedFilenames = new ArrayList<String>();
+        for (String resultFilename : _records.keySet()) {
+            if (_folder.getFile(resultFilename) == null) {
+                removedFilenames.add(resultFilename);
+            }
+        }
+        _records.keySet().removeAll(removedFilenames);
+
+        final Action<OutputStream> writeAction = new Action<OutputStream>() {
+            @Override
+            public void run(OutputStream out) throws Exception {
+                final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+                dataOut.writeInt(FORMAT_VERSION);
+                for (Entry<String, Record> entry : _records.entrySet()) {
+                    writePut(dataOut, entry.getKey(), entry.getValue());
+                }
+                dataOut.flush();
+            }
+        };
+
+        final RepositoryFile file = _folder.getFile(FILENAME);
+        if (file == null) {
+            _folder.createFile(FILENAME, writeAction);
+        } else {
+            file.writeFile(writeAction);
+        }
+        // the header counts as a log entry, so that an empty index is not
+        // rewritten on every append
+        _logSize = _records.size() + 1;
+    }
+
+    private static void writePut(DataOutputStream out, String resultFilename, Record record) throws IOException {
+        out.writeByte(OP_PUT);
+        out.writeUTF(resultFilename);
+        out.writeLong(record.getLastModified());
+        final Date metricDate = record.getMetricDate();
+        out.writeBoolean(metricDate != null);
+        if (metricDate != null) {
+            out.writeLong(metricDate.getTime());
+        }
+        final Map<String, Number> values = record.getValues();
+        out.writeInt(values.size());
+        for (Entry<String, Number> entry : values.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeNumber(out, entry.getValue());
+        }
+    }
+
+    private static Record readRecord(DataInputStream in) throws IOException {
+        final long lastModified = in.readLong();
+        final Date metricDate = in.readBoolean() ? new Date(in.readLong()) : null;
+        final int count = in.readInt();
+        final Map<String, Number> values = new LinkedHashMap<String, Number>();
+        for (int i = 0; i < count; i++) {
+            final String key = in.readUTF();
+            values.put(key, readNumber(in));
+        }
+        return new Record(lastModified, metricDate, values);
+    }
+
+    private static void writeNumber(DataOutputStream out, Number number) throws IOException {
+        if (number == null) {
+            out.writeByte(TYPE_NULL);
+        } else if (number instanceof Byte) {
+            out.writeByte(TYPE_BYTE);
+            out.writeByte(number.byteValue());
+        } else if (number instanceof Short) {
+            out.writeByte(TYPE_SHORT);
+            out.writeShort(number.shortValue());
+        } else if (number instanceof Integer) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(number.intValue());
+        } else if (number instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(number.longValue());
+        } else if (number instanceof Float) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat(number.floatValue());
+        } else if (number instanceof BigInteger) {
+            out.writeByte(TYPE_BIG_INTEGER);
+            out.writeUTF(number.toString());
+        } else if (number instanceof BigDecimal) {
+            out.writeByte(TYPE_BIG_DECIMAL);
+            out.writeUTF(number.toString());
+        } else {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(number.doubleValue());
+        }
+    }
+
+    private static Number readNumber(DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+        case TYPE_NULL:
+            return null;
+        case TYPE_BYTE:
+            return in.readByte();
+        case TYPE_SHORT:
+            return in.readShort();
+        case TYPE_INTEGER:
+            return in.readInt();
+        case TYPE_LONG:
+            return in.readLong();
+        case TYPE_FLOAT:
+            return in.readFloat();
+        case TYPE_DOUBLE:
+            return in.readDouble();
+        case TYPE_BIG_INTEGER:
+            return new BigInteger(in.readUTF());
+        case TYPE_BIG_DECIMAL:
+            return new BigDecimal(in.readUTF());
+        default:
+            throw new IOException("Unexpected number type in metric index: " + type);
+        }
+    }
+
+    /**
+     * The indexed metric values of a single result file.
+     */
+    public static final class Record {
+
+        private final long _lastModified;
+        private final Date _metricDate;
+        private final Map<String, Number> _values;
+
+        public Record(long lastModified, Date metricDate, Map<String, Number> values) {
+            _lastModified = lastModified;
+            _metricDate = metricDate;
+            _values = Collections.unmodifiableMap(values);
+        }
+
+        /**
+         * Gets the last modified timestamp of the result file at the time the
+         * metric values were calculated.
+         * 
+         * @return
+         */
+        public long getLastModified() {
+            return _lastModified;
+        }
+
+        public Date getMetricDate() {
+            return _metricDate;
+        }
+
+        /**
+         * Gets the metric values, keyed by metric key.
+         * 
+         * @return
+         */
+        public Map<String, Number> getValues() {
+            return _values;
+        }
+    }
+}
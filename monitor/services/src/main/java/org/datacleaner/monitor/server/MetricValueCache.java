@@ -19,6 +19,41 @@
  */
 package org.datacleaner.monitor.server;
 
-public interface MetricValueCache extends MetricValueProducer{
+import java.util.List;
 
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.result.AnalysisResult;
+
+/**
+ * A {@link MetricValueProducer} which remembers metric values, so that they do
+ * not need to be recalculated from the result files of the repository every
+ * time they are requested.
+ */
+public interface MetricValueCache extends MetricValueProducer {
+
+    /**
+     * Adds the metric values of a newly written result to the cache, using the
+     * in-memory result instead of reading it back from the repository.
+     * 
+     * @param tenant
+     * @param jobIdentifier
+     * @param resultFilename
+     *            the filename of the result in the tenant's result folder
+     * @param analysisResult
+     * @param metricIdentifiers
+     *            the metrics to calculate and cache
+     */
+    public void addResult(TenantIdentifier tenant, JobIdentifier jobIdentifier, String resultFilename,
+            AnalysisResult analysisResult, List<MetricIdentifier> metricIdentifiers);
+
+    /**
+     * Removes any cached metric values of a result, eg. because the result
+     * file has been renamed or deleted.
+     * 
+     * @param tenant
+     * @param resultFilename
+     */
+    public void removeResult(TenantIdentifier tenant, String resultFilename);
 }
@@ -25,11 +25,11 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.metamodel.data.DataSetHeader;
@@ -267,31 +267,80 @@ public class ComponentHandler {
         }
     }
 
+    /**
+     * Runs the component for a stream of rows, writing the output of each input
+     * row as soon as it (and all rows before it) has been transformed. At most
+     * 'maxRowsInFlight' rows are read ahead of the rows written, so a slow
+     * reader of the output will also slow down the reading of the input.
+     *
+     * @param rows
+     *            the input rows, each a JSON array of column values
+     * @param maxRowsInFlight
+     *            the maximum number of rows that are transformed but not yet
+     *            written
+     * @param writer
+     *            receives the output rows of each input row, in input order
+     * @throws IOException
+     *             if the writer fails
+     */
+    public void runComponent(Iterator<JsonNode> rows, int maxRowsInFlight, OutputRowsWriter writer)
+            throws IOException {
+        if (component instanceof Transformer) {
+            runTransformer(rows, Math.max(1, maxRowsInFlight), writer);
+        } else if (component instanceof Analyzer) {
+            throw new IllegalArgumentException("Analyzers are not yet implemented");
+        } else {
+            throw new IllegalArgumentException("Unknown component type " + component.getClass());
+        }
+    }
+
     private Collection<List<Object[]>> runTransformer(JsonNode data) {
+        final List<List<Object[]>> results = new ArrayList<>(data.size());
+        try {
+            runTransformer(data.iterator(), Integer.MAX_VALUE, new OutputRowsWriter() {
+                @Override
+                public void write(List<Object[]> outputRows) {
+                    results.add(outputRows);
+                }
+            });
+        } catch (IOException e) {
+            // cannot happen, the writer above does not do any I/O
+            throw new IllegalStateException(e);
+        }
+
+        LOGGER.debug("Returning " + results.size() + " rows");
+        return results;
+    }
+
+    private void runTransformer(Iterator<JsonNode> rows, int maxRowsInFlight, OutputRowsWriter writer)
+            throws IOException {
         final DataSetHeader header = new SimpleDataSetHeader(table.getColumns());
         final List<Throwable> errors = new ArrayList<>();
         final AtomicInteger tasksPending = new AtomicInteger();
         final TaskRunner taskRunner = _dcConfiguration.getEnvironment().getTaskRunner();
 
-        // Results will be collected in a tree map, sorted by row ID, to return the rows
-        // in the same order. It is needed because we do the transformation in threads and
-        // results could be computed in different order.
-        final Map<Long, List<Object[]>> results = new TreeMap<>();
+        // Results are collected by row ID and written in the same order as the
+        // input rows. It is needed because we do the transformation in threads
+        // and results could be computed in different order.
+        final Map<Long, List<Object[]>> results = new HashMap<>();
 
         final SecurityContext securityContext = SecurityContextHolder.getContext();
 
-        int id = 0;
-        for (JsonNode jsonRow : data) {
-            final DefaultRow row = new DefaultRow(header, toRowValues((ArrayNode) jsonRow));
-            final InputRow inputRow = new MetaModelInputRow(id, row);
-            id++;
-
+        long id = 0;
+        long written = 0;
+        while (rows.hasNext()) {
             if(!errors.isEmpty()) {
                 break;
             }
 
+            final JsonNode jsonRow = rows.next();
+            final DefaultRow row = new DefaultRow(header, toRowValues((ArrayNode) jsonRow));
+            final InputRow inputRow = new MetaModelInputRow(id, row);
+            id++;
+
             final Map<String, String> mdcCopy = MDC.getCopyOfContextMap();
 
+            tasksPending.incrementAndGet();
             taskRunner.run(new Task() {
                 @Override
                 public void execute() throws Exception {
@@ -319,18 +368,23 @@ public class ComponentHandler {
                     }
                 }
             }, null);
-            tasksPending.incrementAndGet();
+
+            written = writeResults(results, written, writer, errors);
+
+            // Back-pressure: don't read further rows until the window has room
+            while (id - written >= maxRowsInFlight && errors.isEmpty()) {
+                assistExecution(taskRunner, errors);
+                written = writeResults(results, written, writer, errors);
+            }
         }
 
         // Wait for threads
         while(tasksPending.get() > 0) {
-            try {
-                taskRunner.assistExecution();
-            } catch(Throwable t) {
-                synchronized (errors) {
-                    errors.add(t);
-                }
-            }
+            assistExecution(taskRunner, errors);
+        }
+
+        if (errors.isEmpty()) {
+            writeResults(results, written, writer, errors);
         }
 
         // Check if there were some errors in the threads
@@ -338,13 +392,49 @@ public class ComponentHandler {
             Throwable firstError = errors.get(0);
             if(firstError instanceof RuntimeException) {
                 throw (RuntimeException)firstError;
+            } else if (firstError instanceof IOException) {
+                throw (IOException) firstError;
             } else {
                 throw new RuntimeException(firstError);
             }
         }
+    }
 
-        LOGGER.debug("Returning " + results.size() + " rows");
-        return results.values();
+    private void assistExecution(TaskRunner taskRunner, List<Throwable> errors) {
+        try {
+            taskRunner.assistExecution();
+        } catch(Throwable t) {
+            synchronized (errors) {
+                errors.add(t);
+            }
+        }
+    }
+
+    /**
+     * Writes the consecutive results available from row ID 'written' onwards.
+     *
+     * @return the ID of the next row to write
+     */
+    private long writeResults(Map<Long, List<Object[]>> results, long written, OutputRowsWriter writer,
+            List<Throwable> errors) {
+        while (errors.isEmpty()) {
+            final List<Object[]> outputRows;
+            synchronized (results) {
+                outputRows = results.remove(written);
+            }
+            if (outputRows == null) {
+                break;
+            }
+            try {
+                writer.write(outputRows);
+            } catch (IOException e) {
+                synchronized (errors) {
+                    errors.add(e);
+                }
+            }
+            written++;
+        }
+        return written;
     }
 
     /**
@@ -591,4 +681,13 @@ public class ComponentHandler {
             return obj;
         }
     }
+
+    /**
+     * Receives the output rows of a streamed component run, one call per input
+     * row.
+     */
+    public interface OutputRowsWriter {
+
+        void write(List<Object[]> outputRows) throws IOException;
+    }
 }
@@ -25,6 +25,7 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
@@ -32,6 +33,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -105,6 +107,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.module.jsonSchema.factories.JsonSchemaFactory;
 import com.fasterxml.jackson.module.jsonSchema.factories.SchemaFactoryWrapper;
@@ -135,9 +138,18 @@ public class ComponentControllerV1 {
     private static final String PARAMETER_VALUE_OUTPUT_STYLE_TABULAR = "tabular";
     private static final String PARAMETER_VALUE_OUTPUT_STYLE_MAP = "map";
     private static final String PARAMETER_VALUE_OUTPUT_STYLE_DOCUMENT = "document";
+
+    /**
+     * Media type of newline delimited JSON, used by the streaming variants of
+     * the processing endpoints.
+     */
+    public static final String MEDIA_TYPE_NDJSON = "application/x-ndjson";
+
+    private static final int DEFAULT_MAX_ROWS_IN_FLIGHT = 1000;
     
     private static ObjectMapper objectMapper = Serializator.getJacksonObjectMapper();
     private int _maxBatchSize = Integer.MAX_VALUE;
+    private int _maxRowsInFlight = DEFAULT_MAX_ROWS_IN_FLIGHT;
 
     private InputRewriterController inputRewriterController = new InputRewriterController();
 
@@ -288,6 +300,85 @@ public class ComponentControllerV1 {
         return output;
     }
 
+    /**
+     * Streaming variant of
+     * {@link #processStateless(String, String, String, boolean, ProcessStatelessInput)}
+     * , which reads, transforms and writes the rows incrementally instead of
+     * holding the whole batch in memory.
+     * 
+     * The request body is newline delimited JSON. The first line holds the
+     * input with the component configuration, which must specify the columns
+     * (the simplified input format is not supported, since it needs to see all
+     * the data up front). Each following line holds one row.
+     * 
+     * The response is newline delimited JSON too: A line with the output
+     * columns (if requested), a line with the output rows of each input row and
+     * finally a line with the component result. If the processing fails after
+     * the response has been committed, the last line holds the error instead.
+     * 
+     * @param tenant
+     * @param name
+     * @param outputStyle
+     * @param outputColumnsInfo
+     * @param request
+     * @param response
+     * @throws IOException
+     */
+    @RequestMapping(value = "/{name}", method = RequestMethod.PUT, consumes = MEDIA_TYPE_NDJSON, produces = MEDIA_TYPE_NDJSON)
+    public void processStatelessStream(
+            @PathVariable(PARAMETER_NAME_TENANT) final String tenant,
+            @PathVariable(PARAMETER_NAME_NAME) final String name,
+            @RequestParam(value = PARAMETER_NAME_OUTPUT_STYLE, required = false, defaultValue = PARAMETER_VALUE_OUTPUT_STYLE_TABULAR) String outputStyle,
+            @RequestParam(value = PARAMETER_NAME_COLUMNS, required = false, defaultValue = "false") boolean outputColumnsInfo,
+            final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        String decodedName = ComponentsRestClientUtils.unescapeComponentName(name);
+
+        logger.debug("Streamed one-shot processing '{}'", decodedName);
+        TenantContext tenantContext = _tenantContextFactory.getContext(tenant);
+        ComponentDescriptor<?> compDesc = componentHandlerFactory.resolveDescriptor(tenantContext.getConfiguration().getEnvironment(), decodedName);
+        canCall(compDesc.getDisplayName());
+        final OutputStyle outputStyleEnum = OutputStyle.forString(outputStyle);
+
+        final MappingIterator<JsonNode> lines = readLines(request);
+        if (!lines.hasNext()) {
+            throw new IllegalArgumentException("The first line of the input must hold the component configuration");
+        }
+        final ProcessStatelessInput processStatelessInput = objectMapper.treeToValue(lines.next(), ProcessStatelessInput.class);
+        if (processStatelessInput.configuration == null || processStatelessInput.configuration.getColumns() == null
+                || processStatelessInput.configuration.getColumns().isEmpty()) {
+            throw new IllegalArgumentException("Streamed input requires the columns to be specified in the configuration");
+        }
+
+        final ComponentHandler handler = componentHandlerFactory.createComponent(tenantContext, decodedName, processStatelessInput.configuration);
+        final org.datacleaner.api.OutputColumns outputColumns = handler.getOutputColumns();
+
+        response.setContentType(MEDIA_TYPE_NDJSON);
+        final OutputStream out = response.getOutputStream();
+        try {
+            if (outputColumnsInfo) {
+                writeLine(out, Collections.singletonMap("columns", createOutputColumns(outputColumns).getColumns()));
+            }
+            handler.runComponent(lines, getMaxRowsInFlight(), new ComponentHandler.OutputRowsWriter() {
+                @Override
+                public void write(List<Object[]> outputRows) throws IOException {
+                    if (outputStyleEnum == OutputStyle.MAP) {
+                        writeLine(out, toMapRows(outputColumns, outputRows));
+                    } else {
+                        writeLine(out, outputRows);
+                    }
+                }
+            });
+            writeLine(out, Collections.singletonMap("result", getJsonNode(handler.closeComponent())));
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                throw e;
+            }
+            logger.debug("Error in streamed processing", e);
+            writeLine(out, new ErrorResponse(e));
+        }
+        out.flush();
+    }
+
     private OutputColumns createOutputColumns(org.datacleaner.api.OutputColumns outCols) {
         OutputColumns outColsResult = new OutputColumns();
         for (int i = 0; i < outCols.getColumnCount(); i++) {
@@ -305,18 +396,9 @@ public class ComponentControllerV1 {
     private JsonNode getOutputJsonNode(ComponentHandler handler, Collection<List<Object[]>> data, OutputStyle outputFormat) {
         if(outputFormat == OutputStyle.MAP) {
             org.datacleaner.api.OutputColumns columns = handler.getOutputColumns();
-            int columnCount = columns.getColumnCount();
             List<List<Map<String, Object>>> mapStyleOutput = new ArrayList<>(data.size());
             for(List<Object[]> rowGroup: data) {
-                List<Map<String, Object>> columnMapRowGroup = new ArrayList<>(rowGroup.size());
-                for(Object[] row: rowGroup) {
-                    Map<String, Object> columMapRow = new HashMap<>(columnCount);
-                    for(int i = 0; i < columnCount; i++) {
-                        columMapRow.put(columns.getColumnName(i), row[i]);
-                    }
-                    columnMapRowGroup.add(columMapRow);
-                }
-                mapStyleOutput.add(columnMapRowGroup);
+                mapStyleOutput.add(toMapRows(columns, rowGroup));
             }
             return getJsonNode(mapStyleOutput);
         } else {
@@ -324,6 +406,32 @@ public class ComponentControllerV1 {
         }
     }
 
+    private static List<Map<String, Object>> toMapRows(org.datacleaner.api.OutputColumns columns, List<Object[]> rowGroup) {
+        int columnCount = columns.getColumnCount();
+        List<Map<String, Object>> columnMapRowGroup = new ArrayList<>(rowGroup.size());
+        for(Object[] row: rowGroup) {
+            Map<String, Object> columMapRow = new HashMap<>(columnCount);
+            for(int i = 0; i < columnCount; i++) {
+                columMapRow.put(columns.getColumnName(i), row[i]);
+            }
+            columnMapRowGroup.add(columMapRow);
+        }
+        return columnMapRowGroup;
+    }
+
+    private static MappingIterator<JsonNode> readLines(HttpServletRequest request) throws IOException {
+        return objectMapper.readerFor(JsonNode.class).readValues(request.getInputStream());
+    }
+
+    private static void writeLine(OutputStream out, Object value) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(value));
+        out.write('\n');
+    }
+
+    private int getMaxRowsInFlight() {
+        return Math.min(_maxBatchSize, _maxRowsInFlight);
+    }
+
     private static JsonNode getJsonNode(Object value) {
         if (value == null) {
             return null;
@@ -372,6 +480,42 @@ public class ComponentControllerV1 {
         return out;
     }
 
+    /**
+     * Streaming variant of {@link #processComponent(String, String, ProcessInput)}
+     * . The request body is newline delimited JSON with one row per line, and
+     * the response holds a line with the output rows of each input row.
+     */
+    @RequestMapping(value = "/_instance/{id}", method = RequestMethod.PUT, consumes = MEDIA_TYPE_NDJSON, produces = MEDIA_TYPE_NDJSON)
+    public void processComponentStream(@PathVariable(PARAMETER_NAME_TENANT) final String tenant,
+            @PathVariable(PARAMETER_NAME_ID) final String id, final HttpServletRequest request,
+            final HttpServletResponse response) throws ComponentNotFoundException, IOException {
+        TenantContext tenantContext = _tenantContextFactory.getContext(tenant);
+        ComponentCacheConfigWrapper config = _componentCache.get(id, tenant, tenantContext);
+        if (config == null) {
+            logger.warn("Component with id {} does not exist.", id);
+            throw ComponentNotFoundException.createInstanceNotFound(id);
+        }
+        ComponentHandler handler = config.getHandler();
+
+        response.setContentType(MEDIA_TYPE_NDJSON);
+        final OutputStream out = response.getOutputStream();
+        try {
+            handler.runComponent(readLines(request), getMaxRowsInFlight(), new ComponentHandler.OutputRowsWriter() {
+                @Override
+                public void write(List<Object[]> outputRows) throws IOException {
+                    writeLine(out, outputRows);
+                }
+            });
+        } catch (RuntimeException e) {
+            if (!response.isCommitted()) {
+                throw e;
+            }
+            logger.debug("Error in streamed processing", e);
+            writeLine(out, new ErrorResponse(e));
+        }
+        out.flush();
+    }
+
     /**
      * It returns the component's final result.
      */
@@ -404,6 +548,17 @@ public class ComponentControllerV1 {
         _maxBatchSize = maxBatchSize;
     }
 
+    /**
+     * Sets the maximum number of rows that the streaming endpoints read ahead
+     * of the rows written to the response. The max batch size is also enforced
+     * as an upper limit.
+     *
+     * @param maxRowsInFlight
+     */
+    public void setMaxRowsInFlight(int maxRowsInFlight) {
+        _maxRowsInFlight = maxRowsInFlight;
+    }
+
     public static ComponentList.ComponentInfo createComponentInfo(String tenant, ComponentDescriptor<?> descriptor,
             boolean iconData, Boolean isEnabled) {
         Object componentInstance = descriptor.newInstance();
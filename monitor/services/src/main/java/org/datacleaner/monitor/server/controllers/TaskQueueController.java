@@ -0,0 +1,84 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server.controllers;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.annotation.security.RolesAllowed;
+
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.monitor.configuration.FairShareTaskRunner;
+import org.datacleaner.monitor.configuration.FairShareTaskRunner.TenantStatistics;
+import org.datacleaner.monitor.shared.model.SecurityRoles;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+/**
+ * Controller which exposes the queue depth and wait times of a tenant's tasks
+ * in the shared {@link TaskRunner}.
+ */
+@Controller
+@RequestMapping("/{tenant}/task-queue")
+public class TaskQueueController {
+
+    @Autowired
+    TaskRunner _taskRunner;
+
+    @RolesAllowed(SecurityRoles.VIEWER)
+    @RequestMapping(method = RequestMethod.GET, produces = "application/json")
+    @ResponseBody
+    public Map<String, Object> taskQueueJson(@PathVariable("tenant") final String tenant) {
+        final Map<String, Object> map = new LinkedHashMap<String, Object>();
+        map.put("tenant", tenant);
+
+        if (!(_taskRunner instanceof FairShareTaskRunner)) {
+            map.put("fair_share", false);
+            return map;
+        }
+
+        final FairShareTaskRunner taskRunner = (FairShareTaskRunner) _taskRunner;
+        map.put("fair_share", true);
+        map.put("num_threads", taskRunner.getNumThreads());
+        map.put("max_concurrent_tasks", taskRunner.getMaxConcurrentTasksPerTenant());
+
+        final TenantStatistics statistics = taskRunner.getTenantStatistics(tenant);
+        if (statistics == null) {
+            map.put("queued_tasks", 0);
+            map.put("running_tasks", 0);
+            map.put("active_executions", 0);
+            map.put("dispatched_tasks", 0L);
+            map.put("average_wait_millis", 0d);
+            map.put("max_wait_millis", 0d);
+        } else {
+            map.put("queued_tasks", statistics.getQueuedTasks());
+            map.put("running_tasks", statistics.getRunningTasks());
+            map.put("active_executions", statistics.getActiveExecutions());
+            map.put("dispatched_tasks", statistics.getDispatchedTasks());
+            map.put("average_wait_millis", statistics.getAverageWaitTimeMillis());
+            map.put("max_wait_millis", statistics.getMaxWaitTimeMillis());
+        }
+        return map;
+    }
+}
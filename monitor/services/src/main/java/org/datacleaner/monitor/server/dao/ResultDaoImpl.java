@@ -26,6 +26,8 @@ import java.util.List;
 
 import org.datacleaner.result.AnalysisResult;
 import org.datacleaner.result.SimpleAnalysisResult;
+import org.datacleaner.result.save.SectionedAnalysisResultReader;
+import org.datacleaner.result.save.SectionedAnalysisResultWriter;
 import org.datacleaner.monitor.configuration.ResultContext;
 import org.datacleaner.monitor.configuration.TenantContext;
 import org.datacleaner.monitor.configuration.TenantContextFactory;
@@ -134,17 +136,27 @@ public class ResultDaoImpl implements ResultDao {
 
         final RepositoryFile existingFile = result.getResultFile();
 
-        final long newTimestamp;
+        final SectionedAnalysisResultReader sectionedReader;
         final AnalysisResult newAnalysisResult;
-        if (newDate == null) {
+        final Date newCreationDate;
+        if (SectionedAnalysisResultReader.isSectioned(existingFile.toResource())) {
+            // the sections are copied as-is, without materializing the result.
+            // The file is copied to memory first, since the new file may
+            // replace it.
+            sectionedReader = SectionedAnalysisResultReader.inMemory(existingFile.toResource());
+            newAnalysisResult = null;
+            newCreationDate = (newDate == null ? sectionedReader.getCreationDate() : newDate);
+        } else if (newDate == null) {
+            sectionedReader = null;
             newAnalysisResult = result.getAnalysisResult();
-            newTimestamp = newAnalysisResult.getCreationDate().getTime();
+            newCreationDate = newAnalysisResult.getCreationDate();
         } else {
+            sectionedReader = null;
             final AnalysisResult existinAnalysisResult = result.getAnalysisResult();
             newAnalysisResult = new SimpleAnalysisResult(existinAnalysisResult.getResultMap(), newDate);
-
-            newTimestamp = newDate.getTime();
+            newCreationDate = newDate;
         }
+        final long newTimestamp = newCreationDate.getTime();
 
         // we assume a filename pattern like this:
         // {job}-{timestamp}.{extension}
@@ -171,8 +183,14 @@ public class ResultDaoImpl implements ResultDao {
         final Action<OutputStream> writeAction = new Action<OutputStream>() {
             @Override
             public void run(OutputStream out) throws Exception {
-                final ObjectOutputStream oos = new ObjectOutputStream(out);
-                oos.writeObject(newAnalysisResult);
+                // the result keeps the format of the existing file
+                if (sectionedReader == null) {
+                    final ObjectOutputStream oos = new ObjectOutputStream(out);
+                    oos.writeObject(newAnalysisResult);
+                    oos.flush();
+                } else {
+                    new SectionedAnalysisResultWriter().write(sectionedReader, newCreationDate, out);
+                }
             }
         };
 
@@ -159,6 +159,7 @@ public class JaxbConfigurationInterceptor implements ConfigurationInterceptor {
         // set appropriate task runner
         configuration.setCustomTaskrunner(null);
         configuration.setSinglethreadedTaskrunner(null);
+        configuration.setForkjoinTaskrunner(null);
 
         final MultithreadedTaskrunnerType taskRunner = new MultithreadedTaskrunnerType();
         taskRunner.setMaxThreads(_configurationFactory.getNumThreads().shortValue());
@@ -108,6 +108,9 @@ public class JaxbScheduleReader extends AbstractJaxbAdaptor<Schedule> {
             if (distributedExecution != null && distributedExecution.booleanValue()) {
                 scheduleDefinition.setDistributedExecution(distributedExecution.booleanValue());
             }
+
+            scheduleDefinition.setPriority(schedule.getPriority());
+            scheduleDefinition.setMaxConcurrentTasks(schedule.getMaxConcurrentTasks());
             
         }
 
@@ -83,6 +83,8 @@ public class JaxbScheduleWriter extends AbstractJaxbAdaptor<Schedule> {
         }
         final boolean distributedExecution = scheduleDefinition.isDistributedExecution();
         schedule.setDistributedExecution(distributedExecution);
+        schedule.setPriority(scheduleDefinition.getPriority());
+        schedule.setMaxConcurrentTasks(scheduleDefinition.getMaxConcurrentTasks());
         
 
         final Alerts alerts = new Alerts();
@@ -31,6 +31,7 @@ import org.apache.commons.lang.SerializationException;
 import org.apache.commons.lang.SerializationUtils;
 import org.datacleaner.util.NoopAction;
 import org.datacleaner.util.StringUtils;
+import org.datacleaner.util.SystemProperties;
 import org.datacleaner.api.AnalyzerResult;
 import org.datacleaner.job.ComponentJob;
 import org.datacleaner.job.concurrent.PreviousErrorsExistException;
@@ -205,7 +206,9 @@ public class ExecutionLoggerImpl implements ExecutionLogger {
         if (result instanceof AnalysisResult) {
             final RepositoryFile file = _resultFolder.createFile(resultFilename, new NoopAction<OutputStream>());
             final Resource resource = new RepositoryFileResource(file);
-            final AnalysisResultSaveHandler analysisResultSaveHandler = new AnalysisResultSaveHandler((AnalysisResult) result, resource);
+            final boolean sectioned = SystemProperties.getBoolean(SystemProperties.RESULT_SECTIONED_FORMAT, false);
+            final AnalysisResultSaveHandler analysisResultSaveHandler = new AnalysisResultSaveHandler(
+                    (AnalysisResult) result, resource, sectioned);
             try {
                 analysisResultSaveHandler.saveOrThrow();
             } catch (SerializationException e) {
@@ -0,0 +1,100 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server.listeners;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.datacleaner.monitor.events.JobExecutedEvent;
+import org.datacleaner.monitor.scheduling.model.ExecutionLog;
+import org.datacleaner.monitor.server.MetricValueCache;
+import org.datacleaner.monitor.server.MetricValueProducer;
+import org.datacleaner.monitor.server.dao.TimelineDao;
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.monitor.dashboard.model.TimelineDefinition;
+import org.datacleaner.result.AnalysisResult;
+import org.datacleaner.util.FileFilters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener that adds the timeline metrics of a newly executed job to the
+ * {@link MetricValueCache}, while the result is still in memory.
+ */
+@Component
+public class JobExecutedEventMetricValueCacheListener implements ApplicationListener<JobExecutedEvent> {
+
+    private static final Logger logger = LoggerFactory.getLogger(JobExecutedEventMetricValueCacheListener.class);
+
+    private final MetricValueProducer _metricValueProducer;
+    private final TimelineDao _timelineDao;
+
+    @Autowired
+    public JobExecutedEventMetricValueCacheListener(MetricValueProducer metricValueProducer, TimelineDao timelineDao) {
+        _metricValueProducer = metricValueProducer;
+        _timelineDao = timelineDao;
+    }
+
+    @Override
+    public void onApplicationEvent(JobExecutedEvent event) {
+        if (!(_metricValueProducer instanceof MetricValueCache)) {
+            return;
+        }
+
+        final ExecutionLog executionLog = event.getExecutionLog();
+        final Object result = event.getResult();
+        if (!(result instanceof AnalysisResult) || !(result instanceof Serializable)
+                || !executionLog.isResultPersisted()) {
+            return;
+        }
+
+        final TenantIdentifier tenant = executionLog.getSchedule().getTenant();
+        final JobIdentifier job = executionLog.getJob();
+        final Collection<TimelineDefinition> timelines = _timelineDao.getTimelinesForJob(tenant, job).values();
+
+        final List<MetricIdentifier> metricIdentifiers = new ArrayList<MetricIdentifier>();
+        for (TimelineDefinition timeline : timelines) {
+            final List<MetricIdentifier> metrics = timeline.getMetrics();
+            if (metrics != null) {
+                metricIdentifiers.addAll(metrics);
+            }
+        }
+
+        if (metricIdentifiers.isEmpty()) {
+            return;
+        }
+
+        final String resultFilename = executionLog.getResultId() + FileFilters.ANALYSIS_RESULT_SER.getExtension();
+        try {
+            ((MetricValueCache) _metricValueProducer).addResult(tenant, job, resultFilename, (AnalysisResult) result,
+                    metricIdentifiers);
+        } catch (RuntimeException e) {
+            // the metrics will be calculated when they are first requested
+            logger.warn("Failed to add metrics of result " + resultFilename + " to metric value cache", e);
+        }
+    }
+}
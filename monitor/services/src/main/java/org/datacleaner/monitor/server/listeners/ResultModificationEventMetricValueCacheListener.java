@@ -0,0 +1,57 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server.listeners;
+
+import org.datacleaner.monitor.events.ResultModificationEvent;
+import org.datacleaner.monitor.server.MetricValueCache;
+import org.datacleaner.monitor.server.MetricValueProducer;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener that removes the cached metric values of a result when it is
+ * modified.
+ */
+@Component
+public class ResultModificationEventMetricValueCacheListener implements ApplicationListener<ResultModificationEvent> {
+
+    private final MetricValueProducer _metricValueProducer;
+
+    @Autowired
+    public ResultModificationEventMetricValueCacheListener(MetricValueProducer metricValueProducer) {
+        _metricValueProducer = metricValueProducer;
+    }
+
+    @Override
+    public void onApplicationEvent(ResultModificationEvent event) {
+        if (!(_metricValueProducer instanceof MetricValueCache)) {
+            return;
+        }
+
+        final MetricValueCache metricValueCache = (MetricValueCache) _metricValueProducer;
+        final TenantIdentifier tenant = new TenantIdentifier(event.getTenant());
+        metricValueCache.removeResult(tenant, event.getOldFilename());
+        if (event.getNewFilename() != null) {
+            metricValueCache.removeResult(tenant, event.getNewFilename());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.configuration;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.datacleaner.job.concurrent.TaskListener;
+import org.datacleaner.job.tasks.Task;
+import org.datacleaner.monitor.configuration.FairShareTaskRunner.TaskGroup;
+import org.datacleaner.monitor.configuration.FairShareTaskRunner.TenantStatistics;
+
+public class FairShareTaskRunnerTest extends TestCase {
+
+    private FairShareTaskRunner taskRunner;
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        FairShareTaskRunner.setCurrentTaskGroup(null);
+        if (taskRunner != null) {
+            taskRunner.shutdown();
+        }
+    }
+
+    public void testTenantsShareThreadsFairly() throws Exception {
+        taskRunner = new FairShareTaskRunner(1);
+
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(1 + 100 + 10);
+
+        // occupy the only thread while queueing tasks
+        FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("big", "big-1", 1, 0));
+        runBlockingTask(blocker, latch);
+
+        for (int i = 0; i < 100; i++) {
+            taskRunner.run(new RecordingTask("big", executionOrder), new CountDownTaskListener(latch));
+        }
+
+        FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("small", "small-1", 1, 0));
+        for (int i = 0; i < 10; i++) {
+            taskRunner.run(new RecordingTask("small", executionOrder), new CountDownTaskListener(latch));
+        }
+
+        assertEquals(100, taskRunner.getTenantStatistics("big").getQueuedTasks());
+        assertEquals(10, taskRunner.getTenantStatistics("small").getQueuedTasks());
+
+        blocker.countDown();
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+        // the small tenant's tasks are interleaved with the big tenant's
+        // tasks, not queued behind them
+        assertEquals(110, executionOrder.size());
+        assertEquals(10, Collections.frequency(executionOrder.subList(0, 21), "small"));
+
+        final TenantStatistics statistics = taskRunner.getTenantStatistics("small");
+        assertEquals(0, statistics.getQueuedTasks());
+        assertEquals(0, statistics.getRunningTasks());
+        assertEquals(10, statistics.getDispatchedTasks());
+        assertTrue(statistics.getMaxWaitTimeMillis() >= statistics.getAverageWaitTimeMillis());
+    }
+
+    public void testPriorityWithinTenant() throws Exception {
+        taskRunner = new FairShareTaskRunner(1);
+
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final List<String> executionOrder = Collections.synchronizedList(new ArrayList<String>());
+        final CountDownLatch latch = new CountDownLatch(1 + 30 + 30);
+
+        FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("tenant", "low", 1, 0));
+        runBlockingTask(blocker, latch);
+        for (int i = 0; i < 30; i++) {
+            taskRunner.run(new RecordingTask("low", executionOrder), new CountDownTaskListener(latch));
+        }
+
+        FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("tenant", "high", 2, 0));
+        for (int i = 0; i < 30; i++) {
+            taskRunner.run(new RecordingTask("high", executionOrder), new CountDownTaskListener(latch));
+        }
+
+        blocker.countDown();
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+
+        // twice the priority, twice the share
+        assertEquals(20, Collections.frequency(executionOrder.subList(0, 30), "high"));
+    }
+
+    public void testMaxConcurrentTasks() throws Exception {
+        taskRunner = new FairShareTaskRunner(4);
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(20);
+
+        FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("tenant", "capped", 1, 2));
+        for (int i = 0; i < 20; i++) {
+            taskRunner.run(new Task() {
+                @Override
+                public void execute() throws Exception {
+                    final int current = running.incrementAndGet();
+                    synchronized (maxRunning) {
+                        maxRunning.set(Math.max(maxRunning.get(), current));
+                    }
+                    Thread.sleep(5);
+                    running.decrementAndGet();
+                }
+            }, new CountDownTaskListener(latch));
+        }
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertTrue("Max running was: " + maxRunning.get(), maxRunning.get() <= 2);
+    }
+
+    public void testNestedSubmissionBeyondQueueBound() throws Exception {
+        taskRunner = new FairShareTaskRunner(1, 5);
+
+        final int numTasks = 100;
+        final CountDownLatch latch = new CountDownLatch(numTasks);
+
+        FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("tenant", "nested", 1, 0));
+        taskRunner.run(new Task() {
+            @Override
+            public void execute() throws Exception {
+                // the task group is inherited by tasks submitted from tasks
+                assertEquals("nested", FairShareTaskRunner.getCurrentTaskGroup().getExecutionId());
+                for (int i = 0; i < numTasks; i++) {
+                    taskRunner.run(new Task() {
+                        @Override
+                        public void execute() throws Exception {
+                            latch.countDown();
+                        }
+                    }, null);
+                }
+            }
+        }, null);
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(numTasks + 1, taskRunner.getTenantStatistics("tenant").getDispatchedTasks());
+    }
+
+    public void testExecutionQueuesRemovedWhenDrainedByAssistingCaller() throws Exception {
+        taskRunner = new FairShareTaskRunner(1, 5);
+
+        final int numExecutions = 10;
+        final CountDownLatch latch = new CountDownLatch(numExecutions);
+        final AtomicInteger activeExecutions = new AtomicInteger(-1);
+
+        FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("tenant", "outer", 1, 0));
+        taskRunner.run(new Task() {
+            @Override
+            public void execute() throws Exception {
+                final TaskGroup outerTaskGroup = FairShareTaskRunner.getCurrentTaskGroup();
+                for (int i = 0; i < numExecutions; i++) {
+                    // the only worker thread is busy with this task, so the
+                    // inner task is run by assisting, in our thread slot
+                    FairShareTaskRunner.setCurrentTaskGroup(new TaskGroup("tenant", "inner" + i, 1, 0));
+                    taskRunner.run(new Task() {
+                        @Override
+                        public void execute() throws Exception {
+                            latch.countDown();
+                        }
+                    }, null);
+                    taskRunner.assistExecution();
+                }
+                FairShareTaskRunner.setCurrentTaskGroup(outerTaskGroup);
+                activeExecutions.set(taskRunner.getTenantStatistics("tenant").getActiveExecutions());
+            }
+        }, null);
+
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        while (activeExecutions.get() == -1) {
+            Thread.sleep(10);
+        }
+        // only the execution of the outer task remains
+        assertEquals(1, activeExecutions.get());
+    }
+
+    private void runBlockingTask(final CountDownLatch blocker, CountDownLatch latch) throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        taskRunner.run(new Task() {
+            @Override
+            public void execute() throws Exception {
+                started.countDown();
+                blocker.await();
+            }
+        }, new CountDownTaskListener(latch));
+        assertTrue(started.await(30, TimeUnit.SECONDS));
+    }
+
+    private static class RecordingTask implements Task {
+
+        private final String _name;
+        private final List<String> _executionOrder;
+
+        public RecordingTask(String name, List<String> executionOrder) {
+            _name = name;
+            _executionOrder = executionOrder;
+        }
+
+        @Override
+        public void execute() throws Exception {
+            _executionOrder.add(_name);
+        }
+    }
+
+    private static class CountDownTaskListener implements TaskListener {
+
+        private final CountDownLatch _latch;
+
+        public CountDownTaskListener(CountDownLatch latch) {
+            _latch = latch;
+        }
+
+        @Override
+        public void onBegin(Task task) {
+        }
+
+        @Override
+        public void onComplete(Task task) {
+            _latch.countDown();
+        }
+
+        @Override
+        public void onError(Task task, Throwable throwable) {
+            _latch.countDown();
+        }
+    }
+}
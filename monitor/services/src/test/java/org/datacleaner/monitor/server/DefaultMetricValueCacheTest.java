@@ -0,0 +1,128 @@
+/**
+ * DataCleaner (community edition)
+ * Copyright (C) 2014 Neopost - Customer Information Management
+ *
+ * This copyrighted material is made available to anyone wishing to use, modify,
+ * copy, or redistribute it subject to the terms and conditions of the GNU
+ * Lesser General Public License, as published by the Free Software Foundation.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of MERCHANTABILITY
+ * or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU Lesser General Public License
+ * for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this distribution; if not, write to:
+ * Free Software Foundation, Inc.
+ * 51 Franklin Street, Fifth Floor
+ * Boston, MA  02110-1301  USA
+ */
+package org.datacleaner.monitor.server;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.apache.commons.io.FileUtils;
+import org.datacleaner.configuration.DataCleanerEnvironmentImpl;
+import org.datacleaner.monitor.configuration.ResultContext;
+import org.datacleaner.monitor.configuration.TenantContext;
+import org.datacleaner.monitor.configuration.TenantContextFactory;
+import org.datacleaner.monitor.configuration.TenantContextFactoryImpl;
+import org.datacleaner.monitor.dashboard.DashboardService;
+import org.datacleaner.monitor.dashboard.model.DashboardGroup;
+import org.datacleaner.monitor.dashboard.model.TimelineDefinition;
+import org.datacleaner.monitor.dashboard.model.TimelineIdentifier;
+import org.datacleaner.monitor.job.MetricValues;
+import org.datacleaner.monitor.server.dao.ResultDaoImpl;
+import org.datacleaner.monitor.server.dao.TimelineDaoImpl;
+import org.datacleaner.monitor.server.job.MockJobEngineManager;
+import org.datacleaner.monitor.shared.model.JobIdentifier;
+import org.datacleaner.monitor.shared.model.MetricIdentifier;
+import org.datacleaner.monitor.shared.model.TenantIdentifier;
+import org.datacleaner.repository.file.FileRepository;
+
+public class DefaultMetricValueCacheTest extends TestCase {
+
+    private final File repositoryDirectory = new File("target/example_repo_metric_value_cache");
+    private final TenantIdentifier tenant = new TenantIdentifier("tenant1");
+    private final AtomicInteger calculations = new AtomicInteger();
+
+    private FileRepository repository;
+    private TenantContextFactory tenantContextFactory;
+    private MockJobEngineManager jobEngineManager;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FileUtils.deleteDirectory(repositoryDirectory);
+        FileUtils.copyDirectory(new File("src/test/resources/example_repo"), repositoryDirectory);
+
+        repository = new FileRepository(repositoryDirectory);
+        jobEngineManager = new MockJobEngineManager();
+        tenantContextFactory = new TenantContextFactoryImpl(repository, new DataCleanerEnvironmentImpl(),
+                jobEngineManager);
+    }
+
+    private DefaultMetricValueCache createMetricValueCache() {
+        return new DefaultMetricValueCache(tenantContextFactory, jobEngineManager) {
+            @Override
+            protected MetricValues getMetricValues(List<MetricIdentifier> metricIdentifiers,
+                    ResultContext resultContext, TenantContext tenantContext, JobIdentifier jobIdentifier) {
+                calculations.incrementAndGet();
+                return super.getMetricValues(metricIdentifiers, resultContext, tenantContext, jobIdentifier);
+            }
+        };
+    }
+
+    private String getTimelineData(MetricValueProducer metricValueProducer) {
+        final DashboardService service = new DashboardServiceImpl(tenantContextFactory, metricValueProducer,
+                new ResultDaoImpl(tenantContextFactory, null), new TimelineDaoImpl(tenantContextFactory, repository));
+
+        final String name = "Product type distribution (the lower the better).analysis.timeline.xml";
+        final String path = "/tenant1/timelines/Product data/" + name;
+        final TimelineDefinition timeline = service.getTimelineDefinition(tenant, new TimelineIdentifier(name, path,
+                new DashboardGroup("Product data")));
+
+        return service.getTimelineData(tenant, timeline).getRows().toString();
+    }
+
+    public void testIndexedMetricValuesAreReused() throws Exception {
+        final String expected = getTimelineData(new DefaultMetricValueProducer(tenantContextFactory,
+                jobEngineManager));
+
+        final DefaultMetricValueCache metricValueCache = createMetricValueCache();
+        assertEquals(expected, getTimelineData(metricValueCache));
+        assertEquals(6, calculations.get());
+
+        assertEquals(expected, getTimelineData(metricValueCache));
+        assertEquals(6, calculations.get());
+
+        assertTrue(new File(repositoryDirectory, "tenant1/results/" + MetricIndex.FILENAME).exists());
+
+        // a new cache reads the index from the repository
+        assertEquals(expected, getTimelineData(createMetricValueCache()));
+        assertEquals(6, calculations.get());
+    }
+
+    public void testModifiedAndRemovedResultsAreRecalculated() throws Exception {
+        final DefaultMetricValueCache metricValueCache = createMetricValueCache();
+        final String expected = getTimelineData(metricValueCache);
+        assertEquals(6, calculations.get());
+
+        final File resultFile = new File(repositoryDirectory,
+                "tenant1/results/product_profiling-1.analysis.result.dat");
+        assertTrue(resultFile.setLastModified(resultFile.lastModified() - 60000));
+        assertEquals(expected, getTimelineData(metricValueCache));
+        assertEquals(7, calculations.get());
+
+        metricValueCache.removeResult(tenant, "product_profiling-2.analysis.result.dat");
+        assertEquals(expected, getTimelineData(metricValueCache));
+        assertEquals(8, calculations.get());
+
+        assertEquals(expected, getTimelineData(createMetricValueCache()));
+        assertEquals(8, calculations.get());
+    }
+}
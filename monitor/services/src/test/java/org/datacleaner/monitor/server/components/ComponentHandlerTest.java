@@ -22,9 +22,15 @@ package org.datacleaner.monitor.server.components;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 
 import org.datacleaner.beans.transform.ConcatenatorTransformer;
@@ -35,16 +41,24 @@ import org.datacleaner.configuration.InjectionManagerFactory;
 import org.datacleaner.descriptors.CloseMethodDescriptor;
 import org.datacleaner.descriptors.ConfiguredPropertyDescriptor;
 import org.datacleaner.descriptors.DescriptorProvider;
+import org.datacleaner.descriptors.Descriptors;
 import org.datacleaner.descriptors.InitializeMethodDescriptor;
 import org.datacleaner.descriptors.ProvidedPropertyDescriptor;
 import org.datacleaner.descriptors.TransformerDescriptor;
 import org.datacleaner.descriptors.ValidateMethodDescriptor;
+import org.datacleaner.job.concurrent.TaskListener;
+import org.datacleaner.job.concurrent.TaskRunnable;
+import org.datacleaner.job.concurrent.TaskRunner;
+import org.datacleaner.job.tasks.Task;
 import org.datacleaner.monitor.configuration.SimpleRemoteComponentsConfigurationImpl;
 import org.datacleaner.restclient.ComponentConfiguration;
+import org.datacleaner.restclient.Serializator;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
 
 public class ComponentHandlerTest {
@@ -52,9 +66,11 @@ public class ComponentHandlerTest {
     private String componentName = "Hello world transformer";
     private ComponentConfiguration componentConfiguration = null;
     private JsonNode jsonData = null;
+    private LastInFirstOutTaskRunner taskRunner = null;
 
     @Before
     public void setUp() {
+        taskRunner = new LastInFirstOutTaskRunner();
         componentConfiguration = getComponentConfiguration();
         DataCleanerConfiguration dcConfigMock = getDCConfigurationMock();
         componentHandler = new ComponentHandler(
@@ -78,6 +94,7 @@ public class ComponentHandlerTest {
         expect(dataCleanerEnvironment.getDescriptorProvider()).andReturn(getDescriptorProviderMock()).anyTimes();
         expect(dataCleanerEnvironment.getInjectionManagerFactory()).andReturn(getInjectionManagerFactoryMock())
                 .anyTimes();
+        expect(dataCleanerEnvironment.getTaskRunner()).andReturn(taskRunner).anyTimes();
         replay(dataCleanerEnvironment);
 
         return dataCleanerEnvironment;
@@ -152,4 +169,121 @@ public class ComponentHandlerTest {
         componentHandler.runComponent(jsonData, Integer.MAX_VALUE);
         componentHandler.closeComponent();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testComponentStream() throws Exception {
+        final int rowCount = 10;
+        final int maxRowsInFlight = 3;
+
+        final JsonNodeFactory json = Serializator.getJacksonObjectMapper().getNodeFactory();
+        final ComponentConfiguration configuration = new ComponentConfiguration();
+        configuration.getProperties().put("Columns", json.arrayNode().add("c1").add("c2"));
+        configuration.getColumns().add(json.textNode("c1"));
+        configuration.getColumns().add(json.textNode("c2"));
+
+        final List<JsonNode> rows = new ArrayList<>();
+        for (int i = 0; i < rowCount; i++) {
+            final ArrayNode row = json.arrayNode();
+            row.add("a" + i);
+            row.add("b" + i);
+            rows.add(row);
+        }
+
+        final DataCleanerConfiguration dcConfigMock = getDCConfigurationMock();
+        final ComponentHandler handler = new ComponentHandler(dcConfigMock,
+                Descriptors.ofTransformer(ConcatenatorTransformer.class), configuration,
+                new SimpleRemoteComponentsConfigurationImpl(), null);
+
+        final List<List<Object[]>> written = new ArrayList<>();
+        final List<Integer> rowsInFlight = new ArrayList<>();
+        final Iterator<JsonNode> rowIterator = rows.iterator();
+        final Iterator<JsonNode> input = new Iterator<JsonNode>() {
+            private int read = 0;
+
+            @Override
+            public boolean hasNext() {
+                return rowIterator.hasNext();
+            }
+
+            @Override
+            public JsonNode next() {
+                rowsInFlight.add(read - written.size());
+                read++;
+                return rowIterator.next();
+            }
+        };
+
+        handler.runComponent(input, maxRowsInFlight, new ComponentHandler.OutputRowsWriter() {
+            @Override
+            public void write(List<Object[]> outputRows) {
+                written.add(outputRows);
+            }
+        });
+        handler.closeComponent();
+
+        // the rows were transformed in reverse order within each window
+        assertTrue(taskRunner.outOfOrder);
+        for (Integer inFlight : rowsInFlight) {
+            assertTrue("Rows in flight: " + rowsInFlight, inFlight < maxRowsInFlight);
+        }
+
+        assertEquals(rowCount, written.size());
+        for (int i = 0; i < rowCount; i++) {
+            assertEquals(1, written.get(i).size());
+            assertEquals("a" + i + "b" + i, written.get(i).get(0)[0]);
+        }
+    }
+
+    @Test
+    public void testEmptyComponentStream() throws Exception {
+        final List<List<Object[]>> written = new ArrayList<>();
+        componentHandler.runComponent(jsonData.iterator(), 10, new ComponentHandler.OutputRowsWriter() {
+            @Override
+            public void write(List<Object[]> outputRows) {
+                written.add(outputRows);
+            }
+        });
+        componentHandler.closeComponent();
+        assertTrue(written.isEmpty());
+    }
+
+    /**
+     * Task runner that only runs tasks when asked to assist, and then runs the
+     * most recently submitted task first, so that the tasks complete in
+     * reverse order.
+     */
+    private static class LastInFirstOutTaskRunner implements TaskRunner {
+
+        private final LinkedList<TaskRunnable> _tasks = new LinkedList<>();
+        boolean outOfOrder = false;
+
+        @Override
+        public synchronized void run(Task task, TaskListener listener) {
+            run(new TaskRunnable(task, listener));
+        }
+
+        @Override
+        public synchronized void run(TaskRunnable taskRunnable) {
+            _tasks.add(taskRunnable);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public void assistExecution() {
+            final TaskRunnable taskRunnable;
+            synchronized (this) {
+                if (_tasks.isEmpty()) {
+                    return;
+                }
+                if (_tasks.size() > 1) {
+                    outOfOrder = true;
+                }
+                taskRunnable = _tasks.removeLast();
+            }
+            taskRunnable.run();
+        }
+    }
+}
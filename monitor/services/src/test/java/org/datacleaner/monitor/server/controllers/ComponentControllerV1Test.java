@@ -19,6 +19,8 @@
  */
 package org.datacleaner.monitor.server.controllers;
 
+import java.nio.charset.StandardCharsets;
+
 import org.datacleaner.beans.transform.ConcatenatorTransformer;
 import org.datacleaner.configuration.DataCleanerConfiguration;
 import org.datacleaner.configuration.DataCleanerConfigurationImpl;
@@ -50,8 +52,11 @@ import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 
@@ -212,6 +217,82 @@ public class ComponentControllerV1Test {
         Assert.assertEquals("Output column 'Concat of c1,c2' has wrong value", "HelloWorld", value.asText());
     }
 
+    @Test
+    public void testProcessStatelessStream() throws Exception {
+        final ObjectMapper mapper = Serializator.getJacksonObjectMapper();
+        final ProcessStatelessInput input = createSampleInput();
+        input.data = null;
+        final String body = mapper.writeValueAsString(input) + "\n[\"Hello\",\"World\"]\n[\"Foo\",\"Bar\"]\n";
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        componentControllerV1.processStatelessStream(tenant, componentName, "map", true, createNdjsonRequest(body),
+                response);
+
+        Assert.assertEquals(ComponentControllerV1.MEDIA_TYPE_NDJSON, response.getContentType());
+        final String[] lines = response.getContentAsString().split("\n");
+        Assert.assertEquals(4, lines.length);
+        Assert.assertEquals("Concat of c1,c2", mapper.readTree(lines[0]).get("columns").get(0).get("name").asText());
+        Assert.assertEquals("HelloWorld", mapper.readTree(lines[1]).get(0).get("Concat of c1,c2").asText());
+        Assert.assertEquals("FooBar", mapper.readTree(lines[2]).get(0).get("Concat of c1,c2").asText());
+        Assert.assertTrue(mapper.readTree(lines[3]).has("result"));
+    }
+
+    @Test
+    public void testProcessStatelessStreamErrorAfterCommit() throws Exception {
+        final ObjectMapper mapper = Serializator.getJacksonObjectMapper();
+        final ProcessStatelessInput input = createSampleInput();
+        input.data = null;
+        final String body = mapper.writeValueAsString(input) + "\n[\"Hello\",\"World\"]\n{\"not\":\"a row\"}\n";
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        // as if the container had already flushed the first lines
+        response.setCommitted(true);
+        componentControllerV1.processStatelessStream(tenant, componentName, null, false, createNdjsonRequest(body),
+                response);
+
+        Assert.assertTrue(response.isCommitted());
+        final String[] lines = response.getContentAsString().split("\n");
+        Assert.assertEquals(2, lines.length);
+        Assert.assertEquals("HelloWorld", mapper.readTree(lines[0]).get(0).get(0).asText());
+        Assert.assertEquals(ClassCastException.class.getName(), mapper.readTree(lines[1]).get("error").get(
+                "exceptionClass").asText());
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void testProcessStatelessStreamErrorBeforeCommit() throws Exception {
+        final ObjectMapper mapper = Serializator.getJacksonObjectMapper();
+        final ProcessStatelessInput input = createSampleInput();
+        input.data = null;
+        final String body = mapper.writeValueAsString(input) + "\n{\"not\":\"a row\"}\n";
+
+        componentControllerV1.processStatelessStream(tenant, componentName, null, false, createNdjsonRequest(body),
+                new MockHttpServletResponse());
+    }
+
+    @Test
+    public void testProcessComponentStream() throws Exception {
+        final ObjectMapper mapper = Serializator.getJacksonObjectMapper();
+        final String body = "[\"Hello\",\"World\"]\n[\"Foo\",\"Bar\"]\n{\"not\":\"a row\"}\n";
+
+        final MockHttpServletResponse response = new MockHttpServletResponse();
+        response.setCommitted(true);
+        componentControllerV1.processComponentStream(tenant, id, createNdjsonRequest(body), response);
+
+        final String[] lines = response.getContentAsString().split("\n");
+        Assert.assertEquals(3, lines.length);
+        Assert.assertEquals("HelloWorld", mapper.readTree(lines[0]).get(0).get(0).asText());
+        Assert.assertEquals("FooBar", mapper.readTree(lines[1]).get(0).get(0).asText());
+        Assert.assertEquals(ClassCastException.class.getName(), mapper.readTree(lines[2]).get("error").get(
+                "exceptionClass").asText());
+    }
+
+    private MockHttpServletRequest createNdjsonRequest(String body) {
+        final MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/");
+        request.setContentType(ComponentControllerV1.MEDIA_TYPE_NDJSON);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
     @Test
     public void testCreateComponent() throws Exception {
         CreateInput createInput = new CreateInput();